@@ -0,0 +1,100 @@
+package uk.gov.ons.census.caseapisvc.benchmark;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.CaseMetadata;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+
+// Case graphs shaped like the ones the case processor writes: every UAC QID link has the
+// RM_UAC_CREATED event the case details redact, plus the events a printed and returned
+// questionnaire picks up
+public class CaseFixtures {
+  private static final EventType[] LINK_EVENT_TYPES = {
+    EventType.RM_UAC_CREATED, EventType.PRINT_CASE_SELECTED, EventType.RESPONSE_RECEIVED
+  };
+  private static final EventType[] CASE_EVENT_TYPES = {
+    EventType.SAMPLE_LOADED, EventType.FULFILMENT_REQUESTED
+  };
+
+  public static Case createCase(int numberOfUacQidLinks) {
+    Case caze = new Case();
+    caze.setCaseId(UUID.randomUUID());
+    caze.setCaseRef(1000000010L);
+    caze.setUprn("10008677190");
+    caze.setEstabUprn("10008677191");
+    caze.setCaseType("HH");
+    caze.setAddressType("HH");
+    caze.setEstabType("Household");
+    caze.setAddressLevel("U");
+    caze.setAbpCode("RD06");
+    caze.setOrganisationName("");
+    caze.setAddressLine1("Flat 53 Francombe House");
+    caze.setAddressLine2("Commercial Road");
+    caze.setAddressLine3("");
+    caze.setTownName("Windleybury");
+    caze.setPostcode("XX1 0XX");
+    caze.setLatitude("51.4463421");
+    caze.setLongitude("-2.5924477");
+    caze.setOa("E00073438");
+    caze.setLsoa("E01014542");
+    caze.setMsoa("E02003043");
+    caze.setLad("E06000023");
+    caze.setRegion("E12000009");
+    caze.setHtcWillingness("1");
+    caze.setHtcDigital("5");
+    caze.setFieldCoordinatorId("ABC123");
+    caze.setFieldOfficerId("ABC123-01");
+    caze.setTreatmentCode("HH_LF3R2E");
+    caze.setCollectionExerciseId(UUID.randomUUID());
+    caze.setActionPlanId(UUID.randomUUID());
+    caze.setSurvey("CENSUS");
+    caze.setCreatedDateTime(OffsetDateTime.now());
+    caze.setLastUpdated(OffsetDateTime.now());
+
+    CaseMetadata metadata = new CaseMetadata();
+    metadata.setSecureEstablishment(false);
+    caze.setMetadata(metadata);
+
+    List<UacQidLink> uacQidLinks = new ArrayList<>(numberOfUacQidLinks);
+    for (int i = 0; i < numberOfUacQidLinks; i++) {
+      UacQidLink uacQidLink = new UacQidLink();
+      uacQidLink.setId(UUID.randomUUID());
+      uacQidLink.setQid(String.format("01%014d", i));
+      uacQidLink.setUac(String.format("%016d", i));
+      uacQidLink.setActive(true);
+      uacQidLink.setCaze(caze);
+      uacQidLink.setEvents(createEvents(LINK_EVENT_TYPES));
+      uacQidLinks.add(uacQidLink);
+    }
+    caze.setUacQidLinks(uacQidLinks);
+    caze.setEvents(createEvents(CASE_EVENT_TYPES));
+
+    return caze;
+  }
+
+  private static List<Event> createEvents(EventType[] eventTypes) {
+    List<Event> events = new ArrayList<>(eventTypes.length);
+
+    for (EventType eventType : eventTypes) {
+      Event event = new Event();
+      event.setId(UUID.randomUUID());
+      event.setEventType(eventType);
+      event.setEventDescription(eventType.name());
+      event.setEventDate(OffsetDateTime.now());
+      event.setRmEventProcessed(OffsetDateTime.now());
+      event.setEventChannel("RM");
+      event.setEventSource("CASE_SERVICE");
+      event.setEventTransactionId(UUID.randomUUID());
+      event.setEventPayload("{\"caseId\":\"" + UUID.randomUUID() + "\"}");
+      event.setMessageTimestamp(OffsetDateTime.now());
+      events.add(event);
+    }
+
+    return events;
+  }
+}
@@ -0,0 +1,85 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
+
+// Compares QID lookups in the packed QidIndex with the String keyed Caffeine cache it replaced.
+// Setup prints the heap each holds per QID.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QidIndexBenchmark {
+  private static final long FIRST_QID = 2100000000000000L;
+
+  @Param({"caffeine", "index"})
+  private String store;
+
+  @Param({"100000"})
+  private int size;
+
+  private String[] qids;
+  private Cache<String, QidCaseSummary> caffeineCache;
+  private QidIndex qidIndex;
+
+  @Setup
+  public void setUp() {
+    qids = new String[size];
+    for (int i = 0; i < size; i++) {
+      qids[i] = QidCodec.decode(FIRST_QID + i);
+    }
+
+    long heapBefore = usedHeap();
+    if ("caffeine".equals(store)) {
+      caffeineCache = Caffeine.newBuilder().maximumSize(size).build();
+      for (String qid : qids) {
+        caffeineCache.put(qid, createSummary(qid));
+      }
+    } else {
+      qidIndex = new QidIndex(size, 16);
+      for (String qid : qids) {
+        qidIndex.put(QidCodec.encode(qid), createSummary(qid), Integer.MAX_VALUE, 0, () -> true);
+      }
+    }
+    System.out.printf("%n%s: %d bytes per QID%n", store, (usedHeap() - heapBefore) / size);
+  }
+
+  @Benchmark
+  public QidCaseSummary lookup() {
+    // A fresh String each time, as a QID from a request would be, so its hash isn't cached
+    String qid = new String(qids[ThreadLocalRandom.current().nextInt(size)]);
+    if (caffeineCache != null) {
+      return caffeineCache.getIfPresent(qid);
+    }
+    return qidIndex.get(QidCodec.encode(qid), qid, 0);
+  }
+
+  private static QidCaseSummary createSummary(String qid) {
+    return new QidCaseSummary(qid, UUID.randomUUID(), "HH", true, false);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,96 @@
+package uk.gov.ons.census.caseapisvc.endpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import ma.glasnost.orika.MapperFacade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.gov.ons.census.caseapisvc.benchmark.CaseFixtures;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventAssembler;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseEndpointBenchmark {
+
+  @Param({"1", "10", "100"})
+  private int numberOfUacQidLinks;
+
+  private MapperFacade mapperFacade;
+  private ObjectMapper objectMapper;
+  private CaseEndpoint caseEndpoint;
+  private Case caze;
+  private CaseContainerDTO caseContainerDTO;
+  private CaseDetailsDTO caseDetailsDTO;
+
+  @Setup
+  public void setUp() {
+    mapperFacade = new AppConfig().mapperFacade();
+    // Configured the way Spring Boot configures the ObjectMapper that writes the responses
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    caseEndpoint =
+        new CaseEndpoint(
+            null,
+            mapperFacade,
+            null,
+            null,
+            objectMapper,
+            new CaseEventAssembler(mapperFacade),
+            null,
+            null);
+
+    caze = CaseFixtures.createCase(numberOfUacQidLinks);
+    caseContainerDTO = caseEndpoint.buildCaseContainerDTO(caze, true);
+    caseDetailsDTO = caseEndpoint.buildCaseDetailsDTO(caze);
+  }
+
+  @Benchmark
+  public CaseContainerDTO mapCaseToCaseContainerDTO() {
+    return mapperFacade.map(caze, CaseContainerDTO.class);
+  }
+
+  @Benchmark
+  public CaseContainerDTO buildCaseContainerDTOWithoutEvents() {
+    return caseEndpoint.buildCaseContainerDTO(caze, false);
+  }
+
+  // Flattens every event, RM_UAC_CREATED included
+  @Benchmark
+  public CaseContainerDTO buildCaseContainerDTOWithEvents() {
+    return caseEndpoint.buildCaseContainerDTO(caze, true);
+  }
+
+  // Flattens every event but redacts RM_UAC_CREATED
+  @Benchmark
+  public CaseDetailsDTO buildCaseDetailsDTO() {
+    return caseEndpoint.buildCaseDetailsDTO(caze);
+  }
+
+  @Benchmark
+  public byte[] serializeCaseContainerDTO() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(caseContainerDTO);
+  }
+
+  @Benchmark
+  public byte[] serializeCaseDetailsDTO() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(caseDetailsDTO);
+  }
+}
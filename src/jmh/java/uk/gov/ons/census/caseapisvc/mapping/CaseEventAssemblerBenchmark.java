@@ -0,0 +1,78 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import ma.glasnost.orika.MapperFacade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.census.caseapisvc.benchmark.CaseFixtures;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+
+// Compares the case details event assembly with the LinkedList flattening it replaced. Run with
+// the GC profiler to compare the allocation per call.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseEventAssemblerBenchmark {
+  private static final Set<EventType> REDACTED_EVENT_TYPES = EnumSet.of(EventType.RM_UAC_CREATED);
+
+  @Param({"1", "10", "100"})
+  private int numberOfUacQidLinks;
+
+  private MapperFacade mapperFacade;
+  private CaseEventAssembler caseEventAssembler;
+  private Case caze;
+
+  @Setup
+  public void setUp() {
+    mapperFacade = new AppConfig().mapperFacade();
+    caseEventAssembler = new CaseEventAssembler(mapperFacade);
+    caze = CaseFixtures.createCase(numberOfUacQidLinks);
+  }
+
+  @Benchmark
+  public List<CaseDetailsEventDTO> assembleEvents() {
+    return caseEventAssembler.assembleEvents(caze, REDACTED_EVENT_TYPES, CaseDetailsEventDTO.class);
+  }
+
+  @Benchmark
+  public List<CaseDetailsEventDTO> linkedListEvents() {
+    List<CaseDetailsEventDTO> caseEvents = new LinkedList<>();
+
+    for (UacQidLink uacQidLink : caze.getUacQidLinks()) {
+      for (Event event : uacQidLink.getEvents()) {
+        if (!event.getEventType().equals(EventType.RM_UAC_CREATED)) {
+          caseEvents.add(mapperFacade.map(event, CaseDetailsEventDTO.class));
+        }
+      }
+    }
+
+    for (Event event : caze.getEvents()) {
+      if (!event.getEventType().equals(EventType.RM_UAC_CREATED)) {
+        caseEvents.add(mapperFacade.map(event, CaseDetailsEventDTO.class));
+      }
+    }
+
+    return caseEvents;
+  }
+}
@@ -0,0 +1,91 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import java.util.concurrent.TimeUnit;
+import ma.glasnost.orika.MapperFacade;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.ons.census.caseapisvc.benchmark.CaseFixtures;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+
+// Compares the hand written converters with the reflective mapping Orika generates without them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+  @Param({"reflective", "converters"})
+  private String mapper;
+
+  private MapperFacade mapperFacade;
+  private Case caze;
+  private Event event;
+
+  @Setup
+  public void setUp() {
+    mapperFacade = createMapperFacade(mapper);
+    caze = CaseFixtures.createCase(1);
+    event = caze.getUacQidLinks().get(0).getEvents().get(0);
+  }
+
+  @Benchmark
+  public CaseContainerDTO mapCaseContainerDTO() {
+    return mapperFacade.map(caze, CaseContainerDTO.class);
+  }
+
+  @Benchmark
+  public CaseDetailsDTO mapCaseDetailsDTO() {
+    return mapperFacade.map(caze, CaseDetailsDTO.class);
+  }
+
+  @Benchmark
+  public CaseEventDTO mapCaseEventDTO() {
+    return mapperFacade.map(event, CaseEventDTO.class);
+  }
+
+  @Benchmark
+  public CaseDetailsEventDTO mapCaseDetailsEventDTO() {
+    return mapperFacade.map(event, CaseDetailsEventDTO.class);
+  }
+
+  // What the first request after a pod starts pays: building the mapper and mapping each pair
+  // once, in a fresh JVM every time
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public void firstMappings(Blackhole blackhole) {
+    MapperFacade coldMapperFacade = createMapperFacade(mapper);
+    blackhole.consume(coldMapperFacade.map(caze, CaseContainerDTO.class));
+    blackhole.consume(coldMapperFacade.map(caze, CaseDetailsDTO.class));
+    blackhole.consume(coldMapperFacade.map(event, CaseEventDTO.class));
+    blackhole.consume(coldMapperFacade.map(event, CaseDetailsEventDTO.class));
+  }
+
+  private static MapperFacade createMapperFacade(String mapper) {
+    return "reflective".equals(mapper)
+        ? new DefaultMapperFactory.Builder().build().getMapperFacade()
+        : new AppConfig().mapperFacade();
+  }
+}
@@ -0,0 +1,107 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.EventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.FulfilmentRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PayloadDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
+import uk.gov.ons.census.caseapisvc.model.dto.UacDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+// Compares the hand written event converter in AppConfig with the plain Jackson converter it
+// replaced, for the two events the service publishes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseManagementEventConverterBenchmark {
+
+  @Param({"jackson", "handwritten"})
+  private String converter;
+
+  private Jackson2JsonMessageConverter messageConverter;
+  private ResponseManagementEvent fulfilmentRequested;
+  private ResponseManagementEvent questionnaireLinked;
+
+  @Setup
+  public void setUp() {
+    messageConverter = createMessageConverter(converter);
+
+    UacQidCreatedPayloadDTO uacQidCreated = new UacQidCreatedPayloadDTO();
+    uacQidCreated.setUac("abcd1234efgh5678");
+    uacQidCreated.setQid("2100000000000104");
+    uacQidCreated.setCaseId(UUID.randomUUID());
+
+    FulfilmentRequestDTO fulfilmentRequest = new FulfilmentRequestDTO();
+    fulfilmentRequest.setCaseId(UUID.randomUUID());
+    fulfilmentRequest.setFulfilmentCode("UACIT1");
+    fulfilmentRequest.setIndividualCaseId(UUID.randomUUID());
+    fulfilmentRequest.setUacQidCreated(uacQidCreated);
+
+    PayloadDTO fulfilmentPayload = new PayloadDTO();
+    fulfilmentPayload.setFulfilmentRequest(fulfilmentRequest);
+    fulfilmentRequested =
+        new ResponseManagementEvent(createEvent("FULFILMENT_REQUESTED"), fulfilmentPayload);
+
+    UacDTO uac = new UacDTO();
+    uac.setCaseId(UUID.randomUUID());
+    uac.setQuestionnaireId("0120000000000100");
+
+    PayloadDTO questionnaireLinkedPayload = new PayloadDTO();
+    questionnaireLinkedPayload.setUac(uac);
+    questionnaireLinked =
+        new ResponseManagementEvent(
+            createEvent("QUESTIONNAIRE_LINKED"), questionnaireLinkedPayload);
+  }
+
+  @Benchmark
+  public Message convertFulfilmentRequested() {
+    return messageConverter.toMessage(fulfilmentRequested, new MessageProperties());
+  }
+
+  @Benchmark
+  public Message convertQuestionnaireLinked() {
+    return messageConverter.toMessage(questionnaireLinked, new MessageProperties());
+  }
+
+  private static EventDTO createEvent(String type) {
+    EventDTO event = new EventDTO();
+    event.setType(type);
+    event.setDateTime(OffsetDateTime.now());
+    event.setTransactionId(UUID.randomUUID());
+    return event;
+  }
+
+  private static Jackson2JsonMessageConverter createMessageConverter(String converter) {
+    if ("handwritten".equals(converter)) {
+      return new AppConfig().messageConverter();
+    }
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    return new Jackson2JsonMessageConverter(objectMapper);
+  }
+}
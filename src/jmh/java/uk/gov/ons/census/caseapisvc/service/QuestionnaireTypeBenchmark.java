@@ -0,0 +1,114 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionnaireTypeBenchmark {
+  private static final String[] CASE_TYPES = {"HH", "CE", "SPG"};
+  private static final String[] REGIONS = {"E12000009", "W99999999", "N99999999"};
+  private static final String[] ADDRESS_LEVELS = {"U", "E"};
+  private static final String[] SURVEYS = {"CENSUS", "CCS"};
+  private static final int[] QUESTIONNAIRE_TYPES = QuestionnaireTypes.getQuestionnaireTypes();
+  private static final String[] CCS_QIDS = {
+    "5100000000000001", "7100000000000002", "8100000000000003", "0100000000000004"
+  };
+
+  private List<Object[]> requests;
+
+  // Every combination that has a questionnaire type, so each call takes a real branch rather
+  // than timing exceptions
+  @Setup
+  public void setUp() {
+    requests = new ArrayList<>();
+
+    for (String caseType : CASE_TYPES) {
+      for (String region : REGIONS) {
+        for (String addressLevel : ADDRESS_LEVELS) {
+          for (String survey : SURVEYS) {
+            for (boolean individual : new boolean[] {false, true}) {
+              try {
+                QuestionnaireTypes.calculateQuestionnaireType(
+                    caseType, region, addressLevel, survey, individual);
+                requests.add(new Object[] {caseType, region, addressLevel, survey, individual});
+              } catch (RuntimeException e) {
+                // Not a valid request
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void calculateQuestionnaireType(Blackhole blackhole) {
+    for (Object[] request : requests) {
+      blackhole.consume(
+          QuestionnaireTypes.calculateQuestionnaireType(
+              (String) request[0],
+              (String) request[1],
+              (String) request[2],
+              (String) request[3],
+              (boolean) request[4]));
+    }
+  }
+
+  @Benchmark
+  public void legacyCalculateQuestionnaireType(Blackhole blackhole) {
+    for (Object[] request : requests) {
+      blackhole.consume(
+          LegacyQuestionnaireTypes.calculateQuestionnaireType(
+              (String) request[0],
+              (String) request[1],
+              (String) request[2],
+              (String) request[3],
+              (boolean) request[4]));
+    }
+  }
+
+  @Benchmark
+  public void getFormType(Blackhole blackhole) {
+    for (int questionnaireType : QUESTIONNAIRE_TYPES) {
+      blackhole.consume(QuestionnaireTypes.getFormType(questionnaireType));
+    }
+  }
+
+  @Benchmark
+  public void legacyGetFormType(Blackhole blackhole) {
+    for (int questionnaireType : QUESTIONNAIRE_TYPES) {
+      blackhole.consume(LegacyQuestionnaireTypes.mapQuestionnaireTypeToFormType(questionnaireType));
+    }
+  }
+
+  @Benchmark
+  public void getCcsFormType(Blackhole blackhole) {
+    for (String qid : CCS_QIDS) {
+      blackhole.consume(QuestionnaireTypes.getCcsFormType(qid));
+    }
+  }
+
+  @Benchmark
+  public void legacyGetCcsFormType(Blackhole blackhole) {
+    for (String qid : CCS_QIDS) {
+      blackhole.consume(LegacyQuestionnaireTypes.mapCCSQuestionnaireTypeToFormType(qid));
+    }
+  }
+}
@@ -0,0 +1,232 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+
+/**
+ * Caches built cases by case ID, with indexes from case ref and UPRN to case IDs. Entries are
+ * dropped by CaseCacheInvalidator when a case or UAC updated event arrives for the case.
+ *
+ * <p>The events arrive after the database has changed, so a case read by ID can be given the
+ * version it's being served at. A cached case built at any other version is then reloaded, rather
+ * than going out as that version until its event arrives. Misses are read from the primary by
+ * PrimaryReader, as a lagging replica could hand back the case from before the event.
+ */
+@Component
+public class CaseCache {
+  private final MeterRegistry meterRegistry;
+  private final PrimaryReader primaryReader;
+
+  // Bumped on every invalidation, a load that overlaps one isn't cached in case it read old data
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @Value("${casecache.enabled}")
+  private boolean enabled;
+
+  @Value("${casecache.max-size}")
+  private long maxSize;
+
+  @Value("${casecache.time-to-live}")
+  private String timeToLive;
+
+  private Cache<CaseKey, CachedCase> cases;
+  private Cache<Long, UUID> caseIdsByCaseRef;
+  private Cache<UprnKey, List<UUID>> caseIdsByUprn;
+
+  public CaseCache(MeterRegistry meterRegistry, PrimaryReader primaryReader) {
+    this.meterRegistry = meterRegistry;
+    this.primaryReader = primaryReader;
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!enabled) {
+      return;
+    }
+
+    cases = buildCache("cases");
+    caseIdsByCaseRef = buildCache("caseIdsByCaseRef");
+    caseIdsByUprn = buildCache("caseIdsByUprn");
+  }
+
+  public CaseContainerDTO getByCaseId(
+      UUID caseId, boolean caseEvents, Supplier<CaseContainerDTO> loader) {
+    return getByCaseId(caseId, caseEvents, null, loader);
+  }
+
+  /**
+   * @param version read from the database before this lookup, or null to take any cached case. The
+   *     loader must read the case after the version was read, so it is at least that version.
+   */
+  public CaseContainerDTO getByCaseId(
+      UUID caseId, boolean caseEvents, String version, Supplier<CaseContainerDTO> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    CachedCase cachedCase = cases.getIfPresent(new CaseKey(caseId, caseEvents));
+    if (cachedCase != null && (version == null || version.equals(cachedCase.getVersion()))) {
+      return cachedCase.getCaseContainerDTO();
+    }
+
+    long invalidationsBeforeLoad = invalidations.get();
+    CaseContainerDTO caseContainerDTO = primaryReader.read(loader);
+    if (invalidations.get() == invalidationsBeforeLoad) {
+      putCase(caseContainerDTO, caseEvents, version);
+    }
+    return caseContainerDTO;
+  }
+
+  public CaseContainerDTO getByCaseRef(
+      long caseRef, boolean caseEvents, Supplier<CaseContainerDTO> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    UUID caseId = caseIdsByCaseRef.getIfPresent(caseRef);
+    if (caseId != null) {
+      CachedCase cachedCase = cases.getIfPresent(new CaseKey(caseId, caseEvents));
+      if (cachedCase != null) {
+        return cachedCase.getCaseContainerDTO();
+      }
+    }
+
+    long invalidationsBeforeLoad = invalidations.get();
+    CaseContainerDTO caseContainerDTO = primaryReader.read(loader);
+    if (invalidations.get() == invalidationsBeforeLoad) {
+      putCase(caseContainerDTO, caseEvents, null);
+    }
+    return caseContainerDTO;
+  }
+
+  public List<CaseContainerDTO> getByUprn(
+      String uprn,
+      boolean validAddressOnly,
+      boolean caseEvents,
+      Supplier<List<CaseContainerDTO>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    UprnKey uprnKey = new UprnKey(uprn, validAddressOnly);
+    List<UUID> caseIds = caseIdsByUprn.getIfPresent(uprnKey);
+    if (caseIds != null) {
+      List<CaseContainerDTO> caseContainerDTOs = getAllCases(caseIds, caseEvents);
+      if (caseContainerDTOs != null) {
+        return caseContainerDTOs;
+      }
+    }
+
+    long invalidationsBeforeLoad = invalidations.get();
+    List<CaseContainerDTO> caseContainerDTOs = primaryReader.read(loader);
+    if (!caseContainerDTOs.isEmpty() && invalidations.get() == invalidationsBeforeLoad) {
+      List<UUID> loadedCaseIds = new ArrayList<>(caseContainerDTOs.size());
+      for (CaseContainerDTO caseContainerDTO : caseContainerDTOs) {
+        putCase(caseContainerDTO, caseEvents, null);
+        loadedCaseIds.add(caseContainerDTO.getCaseId());
+      }
+      caseIdsByUprn.put(uprnKey, List.copyOf(loadedCaseIds));
+    }
+    return caseContainerDTOs;
+  }
+
+  public void invalidateCase(UUID caseId, String uprn) {
+    if (!enabled) {
+      return;
+    }
+
+    invalidations.incrementAndGet();
+
+    // The case may have moved UPRN, so drop the lists for its old UPRN as well as its new one
+    for (boolean caseEvents : new boolean[] {false, true}) {
+      CachedCase removed = cases.asMap().remove(new CaseKey(caseId, caseEvents));
+      if (removed != null) {
+        invalidateUprn(removed.getCaseContainerDTO().getUprn());
+      }
+    }
+    invalidateUprn(uprn);
+  }
+
+  public void invalidateAll() {
+    if (!enabled) {
+      return;
+    }
+
+    invalidations.incrementAndGet();
+    cases.invalidateAll();
+    caseIdsByUprn.invalidateAll();
+  }
+
+  private void invalidateUprn(String uprn) {
+    if (uprn != null) {
+      caseIdsByUprn.invalidate(new UprnKey(uprn, false));
+      caseIdsByUprn.invalidate(new UprnKey(uprn, true));
+    }
+  }
+
+  private List<CaseContainerDTO> getAllCases(List<UUID> caseIds, boolean caseEvents) {
+    List<CaseContainerDTO> caseContainerDTOs = new ArrayList<>(caseIds.size());
+    for (UUID caseId : caseIds) {
+      CachedCase cachedCase = cases.getIfPresent(new CaseKey(caseId, caseEvents));
+      if (cachedCase == null) {
+        return null;
+      }
+      caseContainerDTOs.add(cachedCase.getCaseContainerDTO());
+    }
+    return caseContainerDTOs;
+  }
+
+  private void putCase(CaseContainerDTO caseContainerDTO, boolean caseEvents, String version) {
+    cases.put(
+        new CaseKey(caseContainerDTO.getCaseId(), caseEvents),
+        new CachedCase(caseContainerDTO, version));
+    if (caseContainerDTO.getCaseRef() != null) {
+      caseIdsByCaseRef.put(
+          Long.parseLong(caseContainerDTO.getCaseRef()), caseContainerDTO.getCaseId());
+    }
+  }
+
+  private <K, V> Cache<K, V> buildCache(String name) {
+    Cache<K, V> cache =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.parse(timeToLive))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    return cache;
+  }
+
+  @Data
+  private static class CaseKey {
+    private final UUID caseId;
+    private final boolean caseEvents;
+  }
+
+  // Version is null for cases loaded by case ref or UPRN, which aren't versioned
+  @Data
+  private static class CachedCase {
+    private final CaseContainerDTO caseContainerDTO;
+    private final String version;
+  }
+
+  @Data
+  private static class UprnKey {
+    private final String uprn;
+    private final boolean validAddressOnly;
+  }
+}
@@ -0,0 +1,79 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.util.UUID;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listens for case and UAC updated events on an anonymous queue, so every instance of the service
+ * sees every event, and drops the affected cases from the CaseCache.
+ */
+@Component
+@ConditionalOnProperty(name = "casecache.enabled", havingValue = "true")
+public class CaseCacheInvalidator {
+  private static final Logger log = LoggerFactory.getLogger(CaseCacheInvalidator.class);
+
+  private final CaseCache caseCache;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  public CaseCacheInvalidator(CaseCache caseCache) {
+    this.caseCache = caseCache;
+  }
+
+  @RabbitListener(
+      bindings =
+          @QueueBinding(
+              value = @Queue,
+              exchange =
+                  @Exchange(
+                      value = "${queueconfig.events-exchange}",
+                      type = ExchangeTypes.TOPIC,
+                      declare = "false"),
+              key = {
+                "${queueconfig.case-updated-event-routing-key}",
+                "${queueconfig.uac-updated-event-routing-key}"
+              }))
+  public void receiveEvent(Message message) {
+    JsonNode payload;
+    try {
+      payload = objectMapper.readTree(message.getBody()).path("payload");
+    } catch (IOException e) {
+      log.error("Could not read event, invalidating all cached cases", e);
+      caseCache.invalidateAll();
+      return;
+    }
+
+    String caseId = payload.path("collectionCase").path("id").asText(null);
+    String uprn = payload.path("collectionCase").path("address").path("uprn").asText(null);
+    if (caseId == null) {
+      caseId = payload.path("uac").path("caseId").asText(null);
+    }
+
+    if (caseId == null) {
+      if (!payload.has("uac")) {
+        log.error("No case ID in event, invalidating all cached cases");
+        caseCache.invalidateAll();
+      }
+      // Otherwise it's a UAC that isn't linked to a case, so it can't be in a cached case
+      return;
+    }
+
+    try {
+      caseCache.invalidateCase(UUID.fromString(caseId), uprn);
+    } catch (IllegalArgumentException e) {
+      log.with("caseId", caseId).error("Invalid case ID in event, invalidating all cached cases");
+      caseCache.invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
+
+/**
+ * Caches the case a QID is linked to by QID, in a {@link QidIndex} keyed by the packed QID. Entries
+ * are dropped by QidCacheInvalidator when a QID is linked, unlinked, deactivated or updated, and a
+ * case's QIDs when a case update changes their address type. Nothing is kept for a case without
+ * cached QIDs. QIDs that aren't found aren't cached, as they may be created at any time. Misses are
+ * read from the primary by PrimaryReader.
+ */
+@Component
+public class QidCache {
+  private static final String CACHE_NAME = "qidCaseSummaries";
+  private static final int CONCURRENCY = 16;
+  private static final int INVALIDATION_STRIPES = 1024;
+
+  private final MeterRegistry meterRegistry;
+  private final PrimaryReader primaryReader;
+  private final long startNanos = System.nanoTime();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  // Invalidations are numbered, and each QID and case hashes to a stripe holding the number of its
+  // last one. A load isn't cached if its QID or case was invalidated after it started, in case it
+  // read old data, and other QIDs' and cases' invalidations don't hold it back.
+  private final AtomicLong invalidations = new AtomicLong();
+  private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+  private volatile long clearedAt;
+
+  @Value("${qidcache.enabled}")
+  private boolean enabled;
+
+  @Value("${qidcache.max-size}")
+  private long maxSize;
+
+  @Value("${qidcache.time-to-live}")
+  private String timeToLive;
+
+  private int timeToLiveSeconds;
+  private QidIndex qidCaseSummaries;
+
+  public QidCache(MeterRegistry meterRegistry, PrimaryReader primaryReader) {
+    this.meterRegistry = meterRegistry;
+    this.primaryReader = primaryReader;
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!enabled) {
+      return;
+    }
+
+    // The index holds expiry times to the second
+    Duration ttl = Duration.parse(timeToLive);
+    timeToLiveSeconds = (int) Math.max(1, ttl.plusNanos(999_999_999).getSeconds());
+    qidCaseSummaries = new QidIndex(maxSize, CONCURRENCY);
+    registerMetrics(qidCaseSummaries);
+  }
+
+  public Optional<QidCaseSummary> getByQid(
+      String qid, Supplier<Optional<QidCaseSummary>> loader) {
+    long encodedQid = QidCodec.encode(qid);
+    if (!enabled || encodedQid == QidCodec.INVALID) {
+      return loader.get();
+    }
+
+    QidCaseSummary qidCaseSummary = qidCaseSummaries.get(encodedQid, qid, now());
+    if (qidCaseSummary != null) {
+      hits.increment();
+      return Optional.of(qidCaseSummary);
+    }
+    misses.increment();
+
+    long invalidationsBeforeLoad = invalidations.get();
+    Optional<QidCaseSummary> loaded = primaryReader.read(loader);
+    if (loaded.isPresent() && QidIndex.canStore(loaded.get())) {
+      UUID caseId = loaded.get().getCaseId();
+      int now = now();
+      qidCaseSummaries.put(
+          encodedQid,
+          loaded.get(),
+          now + timeToLiveSeconds,
+          now,
+          () -> !isInvalidatedSince(invalidationsBeforeLoad, encodedQid, caseId));
+    }
+    return loaded;
+  }
+
+  public void invalidateQid(String qid) {
+    if (!enabled) {
+      return;
+    }
+
+    long encodedQid = QidCodec.encode(qid);
+    if (encodedQid != QidCodec.INVALID) {
+      markInvalidated(Long.hashCode(encodedQid));
+      qidCaseSummaries.remove(encodedQid);
+    }
+  }
+
+  public void invalidateCase(UUID caseId) {
+    if (!enabled) {
+      return;
+    }
+
+    markInvalidated(caseId.hashCode());
+    qidCaseSummaries.removeCase(caseId);
+  }
+
+  // A case update only changes the address type cached with its QIDs, so those already holding
+  // the new one are kept
+  public void invalidateCase(UUID caseId, String addressType) {
+    if (!enabled) {
+      return;
+    }
+
+    markInvalidated(caseId.hashCode());
+    qidCaseSummaries.removeCase(caseId, addressType);
+  }
+
+  public void invalidateAll() {
+    if (!enabled) {
+      return;
+    }
+
+    clearedAt = invalidations.incrementAndGet();
+    qidCaseSummaries.clear();
+  }
+
+  // Numbered before the entries are removed, so a put checking after the removal sees the number
+  private void markInvalidated(int hash) {
+    long invalidation = invalidations.incrementAndGet();
+    invalidatedAt.accumulateAndGet(stripe(hash), invalidation, Math::max);
+  }
+
+  private boolean isInvalidatedSince(long invalidation, long encodedQid, UUID caseId) {
+    return clearedAt > invalidation
+        || invalidatedAt.get(stripe(Long.hashCode(encodedQid))) > invalidation
+        || (caseId != null && invalidatedAt.get(stripe(caseId.hashCode())) > invalidation);
+  }
+
+  private static int stripe(int hash) {
+    return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+  }
+
+  private int now() {
+    return (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+  }
+
+  // The same meters Caffeine's are, so the QID cache reads like the others
+  private void registerMetrics(QidIndex qidIndex) {
+    FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.evictions", qidIndex, QidIndex::evictions)
+        .tags("cache", CACHE_NAME)
+        .register(meterRegistry);
+    Gauge.builder("cache.size", qidIndex, QidIndex::size)
+        .tags("cache", CACHE_NAME)
+        .register(meterRegistry);
+  }
+}
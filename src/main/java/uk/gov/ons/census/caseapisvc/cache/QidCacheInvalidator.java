@@ -0,0 +1,102 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import java.io.IOException;
+import java.util.UUID;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listens for questionnaire linked and unlinked, deactivate UAC, UAC updated and case updated
+ * events on an anonymous queue, so every instance of the service sees every event, and drops the
+ * affected QIDs from the QidCache. A case updated event only drops the case's QIDs cached with a
+ * different address type.
+ */
+@Component
+@ConditionalOnProperty(name = "qidcache.enabled", havingValue = "true")
+public class QidCacheInvalidator {
+  private static final Logger log = LoggerFactory.getLogger(QidCacheInvalidator.class);
+
+  private final QidCache qidCache;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  public QidCacheInvalidator(QidCache qidCache) {
+    this.qidCache = qidCache;
+  }
+
+  @RabbitListener(
+      bindings =
+          @QueueBinding(
+              value = @Queue,
+              exchange =
+                  @Exchange(
+                      value = "${queueconfig.events-exchange}",
+                      type = ExchangeTypes.TOPIC,
+                      declare = "false"),
+              key = {
+                "${queueconfig.questionnaire-linked-event-routing-key}",
+                "${queueconfig.deactivate-uac-event-routing-key}",
+                "${queueconfig.uac-updated-event-routing-key}",
+                "${queueconfig.case-updated-event-routing-key}"
+              }))
+  public void receiveEvent(Message message) {
+    JsonNode payload;
+    try {
+      payload = objectMapper.readTree(message.getBody()).path("payload");
+    } catch (IOException e) {
+      log.error("Could not read event, invalidating all cached QIDs", e);
+      qidCache.invalidateAll();
+      return;
+    }
+
+    // A case's address type is cached with each of its QIDs
+    if (payload.has("collectionCase")) {
+      JsonNode collectionCase = payload.path("collectionCase");
+      invalidateCase(
+          collectionCase.path("id").asText(null), collectionCase.path("addressType"));
+      return;
+    }
+
+    String qid = payload.path("uac").path("questionnaireId").asText(null);
+    if (qid == null) {
+      log.error("No QID in event, invalidating all cached QIDs");
+      qidCache.invalidateAll();
+      return;
+    }
+
+    qidCache.invalidateQid(qid);
+  }
+
+  private void invalidateCase(String caseId, JsonNode addressType) {
+    if (caseId == null) {
+      log.error("No case ID in event, invalidating all cached QIDs");
+      qidCache.invalidateAll();
+      return;
+    }
+
+    UUID parsedCaseId;
+    try {
+      parsedCaseId = UUID.fromString(caseId);
+    } catch (IllegalArgumentException e) {
+      log.with("caseId", caseId).error("Invalid case ID in event, invalidating all cached QIDs");
+      qidCache.invalidateAll();
+      return;
+    }
+
+    // Without the address type the event may have changed it, so all of the case's QIDs go
+    if (addressType.isTextual()) {
+      qidCache.invalidateCase(parsedCaseId, addressType.asText());
+    } else {
+      qidCache.invalidateCase(parsedCaseId);
+    }
+  }
+}
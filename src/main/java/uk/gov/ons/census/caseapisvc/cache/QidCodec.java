@@ -0,0 +1,47 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+/**
+ * Packs a QID into a long, so QIDs can key primitive tables rather than each costing a String. A
+ * QID is 16 digits, the first two of which are its questionnaire type, so it fits in a long with
+ * its leading zeros restored by decode.
+ */
+public final class QidCodec {
+  public static final long INVALID = -1;
+
+  private static final int QID_LENGTH = 16;
+  private static final long QUESTIONNAIRE_TYPE_DIVISOR = 100_000_000_000_000L;
+
+  private QidCodec() {}
+
+  /** @return the QID as a long, or INVALID if it isn't 16 digits with a questionnaire type */
+  public static long encode(String qid) {
+    if (qid == null || qid.length() != QID_LENGTH) {
+      return INVALID;
+    }
+
+    long encoded = 0;
+    for (int i = 0; i < QID_LENGTH; i++) {
+      char c = qid.charAt(i);
+      if (c < '0' || c > '9') {
+        return INVALID;
+      }
+      encoded = encoded * 10 + (c - '0');
+    }
+
+    // 00 isn't a questionnaire type, which also leaves 0 free to mark an empty slot
+    return questionnaireType(encoded) > 0 ? encoded : INVALID;
+  }
+
+  public static String decode(long encoded) {
+    char[] qid = new char[QID_LENGTH];
+    for (int i = QID_LENGTH - 1; i >= 0; i--) {
+      qid[i] = (char) ('0' + encoded % 10);
+      encoded /= 10;
+    }
+    return new String(qid);
+  }
+
+  public static int questionnaireType(long encoded) {
+    return (int) (encoded / QUESTIONNAIRE_TYPE_DIVISOR);
+  }
+}
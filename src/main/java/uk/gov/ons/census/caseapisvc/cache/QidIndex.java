@@ -0,0 +1,434 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
+
+/**
+ * A fixed size table of QID case summaries keyed by QIDs packed with {@link QidCodec}. Entries are
+ * held in parallel primitive arrays with open addressing, 37 bytes a slot and a slot for every
+ * three quarters of an entry. Each QID is also chained to the other QIDs of its case, from a second
+ * table keyed by case ID of 24 bytes a slot, so a case's QIDs can be dropped without a scan. That
+ * comes to about 80 bytes per QID against over 150 for a String keyed map of summaries.
+ *
+ * <p>The table is split into segments, each with its own lock. A full segment evicts with a CLOCK
+ * hand, which passes over entries read since it last came round and takes the first expired or
+ * unread one.
+ */
+final class QidIndex {
+  private static final long EMPTY = 0;
+
+  private static final int REFERENCED = 1;
+  private static final int ACTIVE = 1 << 1;
+  private static final int CCS_CASE = 1 << 2;
+  private static final int HAS_CASE = 1 << 3;
+  private static final int ADDRESS_TYPE_SHIFT = 4;
+  private static final String[] ADDRESS_TYPES = {null, "HH", "CE", "SPG"};
+  private static final int UNKNOWN_ADDRESS_TYPE = -1;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  QidIndex(long maxSize, int concurrency) {
+    if (Integer.bitCount(concurrency) != 1) {
+      throw new IllegalArgumentException("Concurrency must be a power of two: " + concurrency);
+    }
+
+    int maxSegmentEntries = (int) ((maxSize + concurrency - 1) / concurrency);
+    segments = new Segment[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      segments[i] = new Segment(maxSegmentEntries);
+    }
+    segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(concurrency);
+  }
+
+  // Summaries with an address type outside the table are left uncached
+  static boolean canStore(QidCaseSummary qidCaseSummary) {
+    return addressTypeCode(qidCaseSummary.getAddressType()) >= 0;
+  }
+
+  /** @return the summary for the QID, or null if it isn't held or has expired */
+  QidCaseSummary get(long qid, String qidString, int now) {
+    long hash = hash(qid);
+    return segmentFor(hash).get(qid, hash, qidString, now);
+  }
+
+  /**
+   * @param expiresAt in the same units as now
+   * @param canStore checked under the segment's lock, so a remove made once it's false is never
+   *     overtaken by this put
+   */
+  void put(
+      long qid, QidCaseSummary qidCaseSummary, int expiresAt, int now, BooleanSupplier canStore) {
+    long hash = hash(qid);
+    segmentFor(hash).put(qid, hash, qidCaseSummary, expiresAt, now, canStore);
+  }
+
+  void remove(long qid) {
+    long hash = hash(qid);
+    segmentFor(hash).remove(qid, hash);
+  }
+
+  void removeCase(UUID caseId) {
+    // No summary has an unknown address type, so none are kept
+    removeCase(caseId, UNKNOWN_ADDRESS_TYPE);
+  }
+
+  // Keeps the case's summaries that already have its current address type, the only part of a
+  // summary a case update can change
+  void removeCase(UUID caseId, String currentAddressType) {
+    removeCase(caseId, addressTypeCode(currentAddressType));
+  }
+
+  // A case's QIDs are spread over the segments, each chaining the ones it holds
+  private void removeCase(UUID caseId, int keptAddressTypeCode) {
+    for (Segment segment : segments) {
+      segment.removeCase(
+          caseId.getMostSignificantBits(),
+          caseId.getLeastSignificantBits(),
+          keptAddressTypeCode);
+    }
+  }
+
+  void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  long evictions() {
+    long evictions = 0;
+    for (Segment segment : segments) {
+      evictions += segment.evictions;
+    }
+    return evictions;
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> segmentShift) & (segments.length - 1)];
+  }
+
+  // Packed QIDs are decimal and mostly differ in their low digits, so they're mixed with the
+  // MurmurHash3 finaliser. Segments take the top bits and slots the bottom.
+  private static long hash(long qid) {
+    long hash = qid;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  // Whether the entry at candidate, which belongs at home, can move back to the hole and still be
+  // found by a probe from home
+  private static boolean canFill(int hole, int candidate, int home) {
+    return hole <= candidate ? home <= hole || home > candidate : home <= hole && home > candidate;
+  }
+
+  private static int addressTypeCode(String addressType) {
+    for (int i = 0; i < ADDRESS_TYPES.length; i++) {
+      if (ADDRESS_TYPES[i] == null ? addressType == null : ADDRESS_TYPES[i].equals(addressType)) {
+        return i;
+      }
+    }
+    return UNKNOWN_ADDRESS_TYPE;
+  }
+
+  private static final class Segment {
+    private final int maxEntries;
+    private final int capacity;
+    private final long[] keys;
+    private final long[] caseIdMostSigBits;
+    private final long[] caseIdLeastSigBits;
+    private final long[] nextQidOfCase;
+    private final int[] expiresAt;
+    private final byte[] flags;
+
+    // Case ID to the first of its QIDs held here, as long as the QID table as every case has a QID.
+    // The chains hold QIDs rather than slots, so entries can move without relinking them.
+    private final long[] caseKeyMostSigBits;
+    private final long[] caseKeyLeastSigBits;
+    private final long[] firstQidOfCase;
+
+    // Read unlocked by size() and evictions()
+    private volatile int size;
+    private volatile long evictions;
+    private int hand;
+
+    private Segment(int maxEntries) {
+      this.maxEntries = maxEntries;
+      // Always at least one empty slot, so a probe ends
+      capacity = (int) (maxEntries * 4L / 3) + 1;
+      keys = new long[capacity];
+      caseIdMostSigBits = new long[capacity];
+      caseIdLeastSigBits = new long[capacity];
+      nextQidOfCase = new long[capacity];
+      expiresAt = new int[capacity];
+      flags = new byte[capacity];
+      caseKeyMostSigBits = new long[capacity];
+      caseKeyLeastSigBits = new long[capacity];
+      firstQidOfCase = new long[capacity];
+    }
+
+    private synchronized QidCaseSummary get(long qid, long hash, String qidString, int now) {
+      int slot = find(qid, hash);
+      if (slot < 0) {
+        return null;
+      }
+      if (expiresAt[slot] - now <= 0) {
+        delete(slot);
+        return null;
+      }
+
+      int slotFlags = flags[slot];
+      UUID caseId = null;
+      if ((slotFlags & HAS_CASE) != 0) {
+        caseId = new UUID(caseIdMostSigBits[slot], caseIdLeastSigBits[slot]);
+      }
+
+      flags[slot] = (byte) (slotFlags | REFERENCED);
+      return new QidCaseSummary(
+          qidString,
+          caseId,
+          ADDRESS_TYPES[slotFlags >>> ADDRESS_TYPE_SHIFT],
+          (slotFlags & ACTIVE) != 0,
+          (slotFlags & CCS_CASE) != 0);
+    }
+
+    private synchronized void put(
+        long qid,
+        long hash,
+        QidCaseSummary qidCaseSummary,
+        int summaryExpiresAt,
+        int now,
+        BooleanSupplier canStore) {
+      if (maxEntries == 0 || !canStore.getAsBoolean()) {
+        return;
+      }
+
+      int slot = find(qid, hash);
+      if (slot < 0 && size == maxEntries) {
+        evict(now);
+        slot = find(qid, hash);
+      }
+      if (slot < 0) {
+        slot = -slot - 1;
+        keys[slot] = qid;
+        size++;
+      } else {
+        unlinkFromCase(slot);
+      }
+
+      int slotFlags = addressTypeCode(qidCaseSummary.getAddressType()) << ADDRESS_TYPE_SHIFT;
+      UUID caseId = qidCaseSummary.getCaseId();
+      if (caseId != null) {
+        slotFlags |= HAS_CASE;
+        caseIdMostSigBits[slot] = caseId.getMostSignificantBits();
+        caseIdLeastSigBits[slot] = caseId.getLeastSignificantBits();
+      }
+      if (qidCaseSummary.isActive()) {
+        slotFlags |= ACTIVE;
+      }
+      if (qidCaseSummary.isCcsCase()) {
+        slotFlags |= CCS_CASE;
+      }
+      flags[slot] = (byte) slotFlags;
+      expiresAt[slot] = summaryExpiresAt;
+      if (caseId != null) {
+        linkToCase(slot);
+      }
+    }
+
+    private synchronized void remove(long qid, long hash) {
+      int slot = find(qid, hash);
+      if (slot >= 0) {
+        delete(slot);
+      }
+    }
+
+    private synchronized void removeCase(
+        long caseIdMostSig, long caseIdLeastSig, int keptAddressTypeCode) {
+      int caseSlot = findCase(caseIdMostSig, caseIdLeastSig);
+      if (caseSlot < 0) {
+        return;
+      }
+
+      // The next QID is read before the slot is deleted, and is still found after the delete has
+      // moved entries
+      long qid = firstQidOfCase[caseSlot];
+      while (qid != EMPTY) {
+        int slot = find(qid, hash(qid));
+        qid = nextQidOfCase[slot];
+        if (flags[slot] >>> ADDRESS_TYPE_SHIFT != keptAddressTypeCode) {
+          delete(slot);
+        }
+      }
+    }
+
+    private synchronized void clear() {
+      Arrays.fill(keys, EMPTY);
+      Arrays.fill(firstQidOfCase, EMPTY);
+      size = 0;
+    }
+
+    // The slot holding the QID, or minus one less than the empty slot it would go in
+    private int find(long qid, long hash) {
+      int slot = home(hash);
+      while (true) {
+        long key = keys[slot];
+        if (key == qid) {
+          return slot;
+        }
+        if (key == EMPTY) {
+          return -slot - 1;
+        }
+        slot = next(slot);
+      }
+    }
+
+    private void evict(int now) {
+      while (true) {
+        if (keys[hand] != EMPTY) {
+          if (expiresAt[hand] - now > 0 && (flags[hand] & REFERENCED) != 0) {
+            flags[hand] &= ~REFERENCED;
+          } else {
+            // The hand stays put, as delete may move another entry into its slot
+            delete(hand);
+            evictions++;
+            return;
+          }
+        }
+        hand = next(hand);
+      }
+    }
+
+    // Shifts back any later entries in the probe sequence that could sit in the emptied slot, so
+    // no probe stops short of them
+    private void delete(int slot) {
+      unlinkFromCase(slot);
+
+      int hole = slot;
+      int candidate = slot;
+      while (true) {
+        candidate = next(candidate);
+        long key = keys[candidate];
+        if (key == EMPTY) {
+          break;
+        }
+
+        if (canFill(hole, candidate, home(hash(key)))) {
+          move(candidate, hole);
+          hole = candidate;
+        }
+      }
+      keys[hole] = EMPTY;
+      size--;
+    }
+
+    private void move(int from, int to) {
+      keys[to] = keys[from];
+      caseIdMostSigBits[to] = caseIdMostSigBits[from];
+      caseIdLeastSigBits[to] = caseIdLeastSigBits[from];
+      nextQidOfCase[to] = nextQidOfCase[from];
+      expiresAt[to] = expiresAt[from];
+      flags[to] = flags[from];
+    }
+
+    // The slot's QID goes at the head of its case's chain
+    private void linkToCase(int slot) {
+      long caseIdMostSig = caseIdMostSigBits[slot];
+      long caseIdLeastSig = caseIdLeastSigBits[slot];
+      int caseSlot = findCase(caseIdMostSig, caseIdLeastSig);
+      if (caseSlot < 0) {
+        caseSlot = -caseSlot - 1;
+        caseKeyMostSigBits[caseSlot] = caseIdMostSig;
+        caseKeyLeastSigBits[caseSlot] = caseIdLeastSig;
+        nextQidOfCase[slot] = EMPTY;
+      } else {
+        nextQidOfCase[slot] = firstQidOfCase[caseSlot];
+      }
+      firstQidOfCase[caseSlot] = keys[slot];
+    }
+
+    private void unlinkFromCase(int slot) {
+      if ((flags[slot] & HAS_CASE) == 0) {
+        return;
+      }
+
+      int caseSlot = findCase(caseIdMostSigBits[slot], caseIdLeastSigBits[slot]);
+      long qid = keys[slot];
+      long first = firstQidOfCase[caseSlot];
+      if (first == qid) {
+        if (nextQidOfCase[slot] == EMPTY) {
+          deleteCase(caseSlot);
+        } else {
+          firstQidOfCase[caseSlot] = nextQidOfCase[slot];
+        }
+        return;
+      }
+
+      // Cases have few QIDs, so the chains are short
+      int previous = find(first, hash(first));
+      while (nextQidOfCase[previous] != qid) {
+        long previousQid = nextQidOfCase[previous];
+        previous = find(previousQid, hash(previousQid));
+      }
+      nextQidOfCase[previous] = nextQidOfCase[slot];
+    }
+
+    // The slot holding the case, or minus one less than the empty slot it would go in
+    private int findCase(long caseIdMostSig, long caseIdLeastSig) {
+      int caseSlot = home(hash(caseIdMostSig ^ caseIdLeastSig));
+      while (true) {
+        if (firstQidOfCase[caseSlot] == EMPTY) {
+          return -caseSlot - 1;
+        }
+        if (caseKeyMostSigBits[caseSlot] == caseIdMostSig
+            && caseKeyLeastSigBits[caseSlot] == caseIdLeastSig) {
+          return caseSlot;
+        }
+        caseSlot = next(caseSlot);
+      }
+    }
+
+    // The same shifting back as delete, over the case table
+    private void deleteCase(int caseSlot) {
+      int hole = caseSlot;
+      int candidate = caseSlot;
+      while (true) {
+        candidate = next(candidate);
+        if (firstQidOfCase[candidate] == EMPTY) {
+          break;
+        }
+
+        int home = home(hash(caseKeyMostSigBits[candidate] ^ caseKeyLeastSigBits[candidate]));
+        if (canFill(hole, candidate, home)) {
+          caseKeyMostSigBits[hole] = caseKeyMostSigBits[candidate];
+          caseKeyLeastSigBits[hole] = caseKeyLeastSigBits[candidate];
+          firstQidOfCase[hole] = firstQidOfCase[candidate];
+          hole = candidate;
+        }
+      }
+      firstQidOfCase[hole] = EMPTY;
+    }
+
+    // Maps the low 32 bits of the hash onto the table without needing a power of two size
+    private int home(long hash) {
+      return (int) (((hash & 0xFFFFFFFFL) * capacity) >>> 32);
+    }
+
+    private int next(int slot) {
+      return slot + 1 == capacity ? 0 : slot + 1;
+    }
+  }
+}
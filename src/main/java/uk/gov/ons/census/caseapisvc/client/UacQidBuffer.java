@@ -0,0 +1,108 @@
+package uk.gov.ons.census.caseapisvc.client;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+import uk.gov.ons.census.caseapisvc.service.QuestionnaireTypes;
+
+@Component
+public class UacQidBuffer {
+  private static final Logger log = LoggerFactory.getLogger(UacQidBuffer.class);
+
+  static final int[] QUESTIONNAIRE_TYPES = QuestionnaireTypes.getQuestionnaireTypes();
+
+  private static final String QUESTIONNAIRE_TYPE_TAG = "questionnaireType";
+
+  private final UacQidServiceClient uacQidServiceClient;
+  private final Map<Integer, Queue<UacQidCreatedPayloadDTO>> buffers = new HashMap<>();
+  private final Map<Integer, Timer> refillTimers = new HashMap<>();
+  private final Map<Integer, Counter> fallbackCounters = new HashMap<>();
+
+  @Value("${uacservice.buffer.enabled}")
+  private boolean enabled;
+
+  @Value("${uacservice.buffer.low-watermark}")
+  private int lowWatermark;
+
+  @Value("${uacservice.buffer.high-watermark}")
+  private int highWatermark;
+
+  public UacQidBuffer(UacQidServiceClient uacQidServiceClient, MeterRegistry meterRegistry) {
+    this.uacQidServiceClient = uacQidServiceClient;
+
+    for (int questionnaireType : QUESTIONNAIRE_TYPES) {
+      String tag = Integer.toString(questionnaireType);
+      Queue<UacQidCreatedPayloadDTO> buffer = new ConcurrentLinkedQueue<>();
+      buffers.put(questionnaireType, buffer);
+
+      Gauge.builder("uacqid.buffer.depth", buffer, Queue::size)
+          .tag(QUESTIONNAIRE_TYPE_TAG, tag)
+          .register(meterRegistry);
+      refillTimers.put(
+          questionnaireType,
+          Timer.builder("uacqid.buffer.refill")
+              .tag(QUESTIONNAIRE_TYPE_TAG, tag)
+              .register(meterRegistry));
+      fallbackCounters.put(
+          questionnaireType,
+          Counter.builder("uacqid.buffer.fallback")
+              .tag(QUESTIONNAIRE_TYPE_TAG, tag)
+              .register(meterRegistry));
+    }
+  }
+
+  public Optional<UacQidCreatedPayloadDTO> take(int questionnaireType) {
+    Queue<UacQidCreatedPayloadDTO> buffer = buffers.get(questionnaireType);
+    if (!enabled || buffer == null) {
+      return Optional.empty();
+    }
+
+    UacQidCreatedPayloadDTO uacQidPair = buffer.poll();
+    if (uacQidPair == null) {
+      fallbackCounters.get(questionnaireType).increment();
+    }
+    return Optional.ofNullable(uacQidPair);
+  }
+
+  @Scheduled(fixedDelayString = "${uacservice.buffer.refill-interval}")
+  public void refill() {
+    if (!enabled) {
+      return;
+    }
+
+    for (int questionnaireType : QUESTIONNAIRE_TYPES) {
+      Queue<UacQidCreatedPayloadDTO> buffer = buffers.get(questionnaireType);
+      if (buffer.size() > lowWatermark) {
+        continue;
+      }
+
+      try {
+        refillTimers.get(questionnaireType).record(() -> topUp(questionnaireType, buffer));
+      } catch (RuntimeException e) {
+        log.with("questionnaireType", questionnaireType)
+            .with("depth", buffer.size())
+            .error("Failed to refill UAC QID buffer", e);
+      }
+    }
+  }
+
+  private void topUp(int questionnaireType, Queue<UacQidCreatedPayloadDTO> buffer) {
+    // The UAC QID service hands out one pair per request, so a refill is a run of requests
+    // over the pooled connections rather than a single bulk call
+    while (buffer.size() < highWatermark) {
+      buffer.add(uacQidServiceClient.generateUacQid(questionnaireType));
+    }
+  }
+}
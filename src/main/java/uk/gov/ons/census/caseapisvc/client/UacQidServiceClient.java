@@ -12,6 +12,8 @@ import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
 @Component
 public class UacQidServiceClient {
 
+  private final RestTemplate uacServiceRestTemplate;
+
   @Value("${uacservice.connection.scheme}")
   private String scheme;
 
@@ -21,12 +23,15 @@ public class UacQidServiceClient {
   @Value("${uacservice.connection.port}")
   private String port;
 
+  public UacQidServiceClient(RestTemplate uacServiceRestTemplate) {
+    this.uacServiceRestTemplate = uacServiceRestTemplate;
+  }
+
   public UacQidCreatedPayloadDTO generateUacQid(int questionnaireType) {
 
-    RestTemplate restTemplate = new RestTemplate();
     UriComponents uriComponents = createUriComponents(questionnaireType);
     ResponseEntity<UacQidCreatedPayloadDTO> responseEntity =
-        restTemplate.exchange(
+        uacServiceRestTemplate.exchange(
             uriComponents.toUri(), HttpMethod.GET, null, UacQidCreatedPayloadDTO.class);
     return responseEntity.getBody();
   }
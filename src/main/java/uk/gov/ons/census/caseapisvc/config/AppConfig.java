@@ -13,15 +13,26 @@ import java.util.TimeZone;
 import javax.annotation.PostConstruct;
 import ma.glasnost.orika.MapperFacade;
 import ma.glasnost.orika.MapperFactory;
+import ma.glasnost.orika.converter.ConverterFactory;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import uk.gov.ons.census.caseapisvc.mapping.CaseContainerDTOConverter;
+import uk.gov.ons.census.caseapisvc.mapping.CaseDetailsDTOConverter;
+import uk.gov.ons.census.caseapisvc.mapping.CaseDetailsEventDTOConverter;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventDTOConverter;
+import uk.gov.ons.census.caseapisvc.messaging.ResponseManagementEventConverter;
+import uk.gov.ons.census.caseapisvc.validation.RequestValidationProperties;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties(RequestValidationProperties.class)
 public class AppConfig {
   @Value("${management.metrics.export.stackdriver.project-id}")
   private String stackdriverProjectId;
@@ -36,6 +47,14 @@ public class AppConfig {
   public MapperFacade mapperFacade() {
     MapperFactory mapperFactory = new DefaultMapperFactory.Builder().build();
 
+    // The case read path maps these on every request, so they're written out by hand rather than
+    // left to Orika to work out by reflection and generate bytecode for on first use
+    ConverterFactory converterFactory = mapperFactory.getConverterFactory();
+    converterFactory.registerConverter(new CaseContainerDTOConverter());
+    converterFactory.registerConverter(new CaseDetailsDTOConverter());
+    converterFactory.registerConverter(new CaseEventDTOConverter());
+    converterFactory.registerConverter(new CaseDetailsEventDTOConverter());
+
     return mapperFactory.getMapperFacade();
   }
 
@@ -49,7 +68,8 @@ public class AppConfig {
       ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter) {
     RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
     rabbitTemplate.setMessageConverter(messageConverter);
-    rabbitTemplate.setChannelTransacted(true);
+    // Publisher confirms and transactions can't be used on the same channel
+    rabbitTemplate.setChannelTransacted(!connectionFactory.isPublisherConfirms());
     return rabbitTemplate;
   }
 
@@ -58,7 +78,7 @@ public class AppConfig {
     ObjectMapper objectMapper = new ObjectMapper();
     objectMapper.registerModule(new JavaTimeModule());
     objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    return new Jackson2JsonMessageConverter(objectMapper);
+    return new ResponseManagementEventConverter(objectMapper);
   }
 
   @Bean
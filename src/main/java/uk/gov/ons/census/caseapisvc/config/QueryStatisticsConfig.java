@@ -0,0 +1,49 @@
+package uk.gov.ons.census.caseapisvc.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.gov.ons.census.caseapisvc.querystatistics.QueryStatisticsInterceptor;
+import uk.gov.ons.census.caseapisvc.querystatistics.QueryStatisticsLoadListener;
+
+// The session listener that counts statements is set in application.yml, as Hibernate creates one
+// for every session
+@Configuration
+public class QueryStatisticsConfig implements WebMvcConfigurer {
+  private final EntityManagerFactory entityManagerFactory;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${querystatistics.statement-threshold}")
+  private int statementThreshold;
+
+  public QueryStatisticsConfig(
+      EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @PostConstruct
+  public void registerLoadListener() {
+    EventListenerRegistry eventListenerRegistry =
+        entityManagerFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+
+    QueryStatisticsLoadListener loadListener = new QueryStatisticsLoadListener();
+    eventListenerRegistry.appendListeners(EventType.POST_LOAD, loadListener);
+    eventListenerRegistry.appendListeners(EventType.INIT_COLLECTION, loadListener);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new QueryStatisticsInterceptor(meterRegistry, statementThreshold));
+  }
+}
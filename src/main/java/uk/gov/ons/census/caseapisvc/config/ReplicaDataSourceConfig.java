@@ -0,0 +1,96 @@
+package uk.gov.ons.census.caseapisvc.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.gov.ons.census.caseapisvc.datasource.ReplicaPool;
+import uk.gov.ons.census.caseapisvc.datasource.ReplicaProperties;
+import uk.gov.ons.census.caseapisvc.datasource.ReplicaRoutingDataSource;
+import uk.gov.ons.census.caseapisvc.datasource.ReplicaRoutingInterceptor;
+
+// Replaces the auto-configured DataSource with one that sends GET requests to the replicas
+@Configuration
+@ConditionalOnProperty(name = "replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig implements WebMvcConfigurer {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+    HikariDataSource primaryDataSource =
+        dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primaryDataSource.setPoolName("primary");
+    return primaryDataSource;
+  }
+
+  @Bean
+  @Primary
+  public ReplicaRoutingDataSource dataSource(
+      HikariDataSource primaryDataSource,
+      DataSourceProperties dataSourceProperties,
+      ReplicaProperties replicaProperties,
+      MeterRegistry meterRegistry) {
+    List<ReplicaPool> replicas = new ArrayList<>();
+    for (Map.Entry<String, ReplicaProperties.Pool> pool : replicaProperties.getPools().entrySet()) {
+      replicas.add(
+          new ReplicaPool(
+              pool.getKey(),
+              buildReplicaDataSource(
+                  pool.getKey(),
+                  pool.getValue(),
+                  dataSourceProperties,
+                  replicaProperties,
+                  meterRegistry),
+              meterRegistry));
+    }
+
+    return new ReplicaRoutingDataSource(
+        primaryDataSource,
+        replicas,
+        replicaProperties.getMaxLag(),
+        replicaProperties.getConnectionTimeout(),
+        meterRegistry);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ReplicaRoutingInterceptor());
+  }
+
+  private HikariDataSource buildReplicaDataSource(
+      String name,
+      ReplicaProperties.Pool pool,
+      DataSourceProperties dataSourceProperties,
+      ReplicaProperties replicaProperties,
+      MeterRegistry meterRegistry) {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(name);
+    config.setJdbcUrl(pool.getUrl());
+    config.setUsername(
+        pool.getUsername() == null ? dataSourceProperties.getUsername() : pool.getUsername());
+    config.setPassword(
+        pool.getPassword() == null ? dataSourceProperties.getPassword() : pool.getPassword());
+    config.setDriverClassName(dataSourceProperties.getDriverClassName());
+    config.setMaximumPoolSize(pool.getMaximumPoolSize());
+    config.setConnectionTimeout(replicaProperties.getConnectionTimeout().toMillis());
+    config.setReadOnly(true);
+    // Start even when a replica is down, the health check keeps reads off it until it's back
+    config.setInitializationFailTimeout(-1);
+    // The same hikaricp.* meters Spring Boot binds for the primary, tagged with the pool name
+    config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    return new HikariDataSource(config);
+  }
+}
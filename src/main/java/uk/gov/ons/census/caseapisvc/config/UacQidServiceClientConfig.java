@@ -0,0 +1,88 @@
+package uk.gov.ons.census.caseapisvc.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class UacQidServiceClientConfig {
+  private static final String POOL_NAME = "uacservice";
+
+  @Value("${uacservice.connection.max-total}")
+  private int maxTotalConnections;
+
+  @Value("${uacservice.connection.max-per-route}")
+  private int maxConnectionsPerRoute;
+
+  @Value("${uacservice.connection.connect-timeout}")
+  private String connectTimeout;
+
+  @Value("${uacservice.connection.read-timeout}")
+  private String readTimeout;
+
+  @Value("${uacservice.connection.pool-timeout}")
+  private String poolTimeout;
+
+  @Value("${uacservice.connection.keep-alive}")
+  private String keepAlive;
+
+  @Bean
+  public PoolingHttpClientConnectionManager uacServiceConnectionManager(
+      MeterRegistry meterRegistry) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxTotalConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME)
+        .bindTo(meterRegistry);
+
+    return connectionManager;
+  }
+
+  @Bean
+  public CloseableHttpClient uacServiceHttpClient(
+      PoolingHttpClientConnectionManager uacServiceConnectionManager) {
+    long keepAliveMillis = Duration.parse(keepAlive).toMillis();
+
+    return HttpClients.custom()
+        .setConnectionManager(uacServiceConnectionManager)
+        .setKeepAliveStrategy(
+            (response, context) -> {
+              // Honour a shorter Keep-Alive timeout if the UAC QID service sends one
+              long serverKeepAliveMillis =
+                  DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                      response, context);
+              return serverKeepAliveMillis > 0
+                  ? Math.min(serverKeepAliveMillis, keepAliveMillis)
+                  : keepAliveMillis;
+            })
+        .evictExpiredConnections()
+        .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  @Bean
+  public RestTemplate uacServiceRestTemplate(CloseableHttpClient uacServiceHttpClient) {
+    HttpComponentsClientHttpRequestFactory requestFactory =
+        new HttpComponentsClientHttpRequestFactory(uacServiceHttpClient);
+    requestFactory.setConnectTimeout(toMillis(connectTimeout));
+    requestFactory.setReadTimeout(toMillis(readTimeout));
+    requestFactory.setConnectionRequestTimeout(toMillis(poolTimeout));
+
+    return new RestTemplate(requestFactory);
+  }
+
+  private int toMillis(String duration) {
+    return Math.toIntExact(Duration.parse(duration).toMillis());
+  }
+}
@@ -0,0 +1,51 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import java.util.function.Supplier;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs reads that get cached against the primary, even in a request routed to a replica. A replica
+ * can be up to the maximum lag behind, so a miss just after an invalidation could otherwise put
+ * the old row back in the cache for its whole time to live.
+ */
+@Component
+public class PrimaryReader {
+  private final EntityManagerFactory entityManagerFactory;
+  private final TransactionTemplate transactionTemplate;
+
+  public PrimaryReader(
+      PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+    this.entityManagerFactory = entityManagerFactory;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    transactionTemplate.setReadOnly(true);
+  }
+
+  public <T> T read(Supplier<T> reader) {
+    if (!ReplicaRoutingContext.isRoutedToReplicas()) {
+      return reader.get();
+    }
+
+    // A transaction in progress is suspended by the new one. Outside one, open in view still binds
+    // the request's EntityManager, which holds its replica connection until the request completes
+    // and which the new transaction would reuse. Unbound, the transaction opens its own
+    // EntityManager and takes a connection from the primary.
+    Object requestEntityManager =
+        TransactionSynchronizationManager.isActualTransactionActive()
+            ? null
+            : TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+    try {
+      return ReplicaRoutingContext.onPrimary(
+          () -> transactionTemplate.execute(status -> reader.get()));
+    } finally {
+      if (requestEntityManager != null) {
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, requestEntityManager);
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+public class ReplicaPool {
+  private static final Logger log = LoggerFactory.getLogger(ReplicaPool.class);
+
+  // Seconds since the last replayed transaction committed on the primary, or 0 on a server that
+  // isn't replicating. It overstates the lag while the primary is idle, which only keeps reads on
+  // the primary until something changes.
+  static final String LAG_QUERY =
+      "SELECT CASE WHEN pg_is_in_recovery() "
+          + "THEN EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) ELSE 0 END";
+
+  private final String name;
+  private final HikariDataSource dataSource;
+
+  // Unhealthy until the first check has run
+  private volatile boolean healthy;
+  private volatile double lagSeconds = Double.NaN;
+
+  public ReplicaPool(String name, HikariDataSource dataSource, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.dataSource = dataSource;
+
+    Gauge.builder("datasource.replica.lag", this, replicaPool -> replicaPool.lagSeconds)
+        .tag("pool", name)
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    Gauge.builder("datasource.replica.healthy", this, replicaPool -> replicaPool.healthy ? 1 : 0)
+        .tag("pool", name)
+        .register(meterRegistry);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public HikariDataSource getDataSource() {
+    return dataSource;
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  // Connections in use or waited for, as a fraction of the pool size
+  public double getLoad() {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    if (pool == null) {
+      return 0;
+    }
+    return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection())
+        / dataSource.getMaximumPoolSize();
+  }
+
+  public void checkHealth(Duration maxLag, Duration timeout) {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.setQueryTimeout(Math.max(1, Math.toIntExact(timeout.getSeconds())));
+
+      try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+        resultSet.next();
+        double lag = resultSet.getDouble(1);
+        // Null until the replica has replayed a transaction
+        lagSeconds = resultSet.wasNull() ? Double.NaN : lag;
+      }
+    } catch (SQLException e) {
+      if (healthy) {
+        log.with("pool", name).warn("Replica health check failed", e);
+      }
+      lagSeconds = Double.NaN;
+      healthy = false;
+      return;
+    }
+
+    boolean wasHealthy = healthy;
+    healthy = !Double.isNaN(lagSeconds) && lagSeconds * 1000 <= maxLag.toMillis();
+    if (wasHealthy && !healthy) {
+      log.with("pool", name).with("lagSeconds", lagSeconds).warn("Replica is lagging");
+    }
+  }
+
+  public void close() {
+    dataSource.close();
+  }
+}
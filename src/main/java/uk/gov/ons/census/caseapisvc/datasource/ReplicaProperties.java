@@ -0,0 +1,29 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("replicas")
+public class ReplicaProperties {
+  private boolean enabled;
+
+  // Replicas further behind the primary than this are left out until they catch up
+  private Duration maxLag;
+
+  private Duration connectionTimeout;
+
+  private Map<String, Pool> pools = new LinkedHashMap<>();
+
+  // The username and password default to spring.datasource's
+  @Data
+  public static class Pool {
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+  }
+}
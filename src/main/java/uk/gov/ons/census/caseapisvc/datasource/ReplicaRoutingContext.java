@@ -0,0 +1,54 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread's request as safe to read from a replica, and remembers the pool the
+ * first connection came from so the whole request reads from the same one.
+ */
+public final class ReplicaRoutingContext {
+  private static final ThreadLocal<Routing> ROUTING = new ThreadLocal<>();
+
+  private ReplicaRoutingContext() {}
+
+  public static void routeToReplicas() {
+    ROUTING.set(new Routing());
+  }
+
+  public static boolean isRoutedToReplicas() {
+    return ROUTING.get() != null;
+  }
+
+  public static String getPool() {
+    Routing routing = ROUTING.get();
+    return routing == null ? null : routing.pool;
+  }
+
+  public static void setPool(String pool) {
+    Routing routing = ROUTING.get();
+    if (routing != null) {
+      routing.pool = pool;
+    }
+  }
+
+  public static void clear() {
+    ROUTING.remove();
+  }
+
+  // Connections taken during the read come from the primary, then the request goes back to its pool
+  static <T> T onPrimary(Supplier<T> read) {
+    Routing routing = ROUTING.get();
+    ROUTING.remove();
+    try {
+      return read.get();
+    } finally {
+      if (routing != null) {
+        ROUTING.set(routing);
+      }
+    }
+  }
+
+  private static class Routing {
+    private String pool;
+  }
+}
@@ -0,0 +1,95 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Sends connections for requests marked by ReplicaRoutingContext to the least loaded healthy
+ * replica, and everything else to the primary. Replicas that fail their health check or lag by
+ * more than the maximum are left out, and reads fall back to the primary when none are left.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+  static final String PRIMARY = "primary";
+
+  private final List<ReplicaPool> replicas;
+  private final Duration maxLag;
+  private final Duration healthCheckTimeout;
+  private final Map<String, Counter> routedRequests = new HashMap<>();
+
+  public ReplicaRoutingDataSource(
+      DataSource primary,
+      List<ReplicaPool> replicas,
+      Duration maxLag,
+      Duration healthCheckTimeout,
+      MeterRegistry meterRegistry) {
+    this.replicas = replicas;
+    this.maxLag = maxLag;
+    this.healthCheckTimeout = healthCheckTimeout;
+
+    Map<Object, Object> targetDataSources = new HashMap<>();
+    targetDataSources.put(PRIMARY, primary);
+    routedRequests.put(PRIMARY, routedRequestCounter(PRIMARY, meterRegistry));
+    for (ReplicaPool replica : replicas) {
+      targetDataSources.put(replica.getName(), replica.getDataSource());
+      routedRequests.put(replica.getName(), routedRequestCounter(replica.getName(), meterRegistry));
+    }
+    setTargetDataSources(targetDataSources);
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!ReplicaRoutingContext.isRoutedToReplicas()) {
+      return PRIMARY;
+    }
+
+    String pool = ReplicaRoutingContext.getPool();
+    if (pool == null) {
+      pool = selectPool();
+      ReplicaRoutingContext.setPool(pool);
+      routedRequests.get(pool).increment();
+    }
+    return pool;
+  }
+
+  String selectPool() {
+    ReplicaPool leastLoaded = null;
+    double lowestLoad = Double.MAX_VALUE;
+
+    for (ReplicaPool replica : replicas) {
+      if (!replica.isHealthy()) {
+        continue;
+      }
+
+      double load = replica.getLoad();
+      if (load < lowestLoad) {
+        leastLoaded = replica;
+        lowestLoad = load;
+      }
+    }
+
+    return leastLoaded == null ? PRIMARY : leastLoaded.getName();
+  }
+
+  @Scheduled(fixedDelayString = "${replicas.health-check-interval}")
+  public void checkReplicas() {
+    for (ReplicaPool replica : replicas) {
+      replica.checkHealth(maxLag, healthCheckTimeout);
+    }
+  }
+
+  public void close() {
+    replicas.forEach(ReplicaPool::close);
+  }
+
+  private static Counter routedRequestCounter(String pool, MeterRegistry meterRegistry) {
+    return Counter.builder("datasource.routed.requests").tag("pool", pool).register(meterRegistry);
+  }
+}
@@ -0,0 +1,31 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+// Every GET endpoint only reads, so they can all be served from a replica
+public class ReplicaRoutingInterceptor implements AsyncHandlerInterceptor {
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (HttpMethod.GET.matches(request.getMethod())) {
+      ReplicaRoutingContext.routeToReplicas();
+    }
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    ReplicaRoutingContext.clear();
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    ReplicaRoutingContext.clear();
+  }
+}
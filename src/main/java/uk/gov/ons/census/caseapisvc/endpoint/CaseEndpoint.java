@@ -1,37 +1,70 @@
 package uk.gov.ons.census.caseapisvc.endpoint;
 
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
-import static uk.gov.ons.census.caseapisvc.service.UacQidService.calculateQuestionnaireType;
-
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static uk.gov.ons.census.caseapisvc.service.QuestionnaireTypes.calculateQuestionnaireType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import io.micrometer.core.annotation.Timed;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 import ma.glasnost.orika.MapperFacade;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import uk.gov.ons.census.caseapisvc.cache.CaseCache;
 import uk.gov.ons.census.caseapisvc.exception.CaseIdNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.CaseReferenceNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UPRNNotFoundException;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventAssembler;
 import uk.gov.ons.census.caseapisvc.model.dto.*;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
-import uk.gov.ons.census.caseapisvc.model.entity.Event;
 import uk.gov.ons.census.caseapisvc.model.entity.EventType;
-import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.CaseVersion;
+import uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.service.CaseService;
+import uk.gov.ons.census.caseapisvc.service.QuestionnaireTypes;
+import uk.gov.ons.census.caseapisvc.service.TelephoneCaptureService;
 import uk.gov.ons.census.caseapisvc.service.UacQidService;
 import uk.gov.ons.census.caseapisvc.validation.RequestValidator;
 
@@ -42,20 +75,49 @@ public final class CaseEndpoint {
   private static final Logger log = LoggerFactory.getLogger(CaseEndpoint.class);
   private static final String RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL = "RM_TC_HI";
   private static final String RM_TELEPHONE_CAPTURE = "RM_TC";
-  private static final String HH_FORM_TYPE = "H";
-  private static final String IND_FORM_TYPE = "I";
-  private static final String CE1_FORM_TYPE = "C";
+  private static final Set<EventType> REDACTED_CASE_DETAILS_EVENT_TYPES =
+      EnumSet.of(EventType.RM_UAC_CREATED);
 
   private final CaseService caseService;
   private final MapperFacade mapperFacade;
   private UacQidService uacQidService;
+  private final CaseCache caseCache;
+  private final ObjectWriter caseStreamWriter;
+  private final ObjectMapper objectMapper;
+  private final CaseEventAssembler caseEventAssembler;
+  private final TelephoneCaptureService telephoneCaptureService;
+  private final RequestValidator requestValidator;
+
+  @Value("${casebatch.max-size}")
+  private int maxBatchSize;
+
+  @Value("${pagination.max-page-size}")
+  private int maxPageSize;
+
+  @Value("${telephonecapture.max-individuals}")
+  private int maxIndividualsPerRequest;
 
   @Autowired
   public CaseEndpoint(
-      CaseService caseService, MapperFacade mapperFacade, UacQidService uacQidService) {
+      CaseService caseService,
+      MapperFacade mapperFacade,
+      UacQidService uacQidService,
+      CaseCache caseCache,
+      ObjectMapper objectMapper,
+      CaseEventAssembler caseEventAssembler,
+      TelephoneCaptureService telephoneCaptureService,
+      RequestValidator requestValidator) {
     this.caseService = caseService;
     this.mapperFacade = mapperFacade;
     this.uacQidService = uacQidService;
+    this.caseCache = caseCache;
+    this.objectMapper = objectMapper;
+    this.caseEventAssembler = caseEventAssembler;
+    this.telephoneCaptureService = telephoneCaptureService;
+    this.requestValidator = requestValidator;
+    // Leave flushing to the servlet output buffer rather than flushing after every case
+    this.caseStreamWriter =
+        objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
   }
 
   @GetMapping(value = "/uprn/{uprn}")
@@ -67,32 +129,80 @@ public final class CaseEndpoint {
           boolean validAddressOnly) {
     log.debug("Entering findByUPRN");
 
-    List<CaseContainerDTO> caseContainerDTOs = new LinkedList<>();
-
-    for (Case caze : caseService.findByUPRN(uprn, validAddressOnly)) {
-      caseContainerDTOs.add(buildCaseContainerDTO(caze, caseEvents));
-    }
+    return caseCache.getByUprn(
+        uprn,
+        validAddressOnly,
+        caseEvents,
+        () -> {
+          List<CaseContainerDTO> caseContainerDTOs = new LinkedList<>();
+          List<Case> cases =
+              caseEvents
+                  ? caseService.findByUPRNWithCaseEvents(uprn, validAddressOnly)
+                  : caseService.findByUPRN(uprn, validAddressOnly);
+
+          for (Case caze : cases) {
+            caseContainerDTOs.add(buildCaseContainerDTO(caze, caseEvents));
+          }
+
+          return caseContainerDTOs;
+        });
+  }
 
-    return caseContainerDTOs;
+  @GetMapping(value = "/uprn/{uprn}", params = "stream=true")
+  public void streamCasesByUPRN(
+      @PathVariable("uprn") String uprn,
+      @RequestParam(value = "caseEvents", required = false, defaultValue = "false")
+          boolean caseEvents,
+      @RequestParam(value = "validAddressOnly", required = false, defaultValue = "false")
+          boolean validAddressOnly,
+      HttpServletResponse response)
+      throws IOException {
+    log.debug("Entering streamCasesByUPRN");
+
+    writeCaseStream(
+        response,
+        caseEvents,
+        caseConsumer -> caseService.streamByUPRN(uprn, validAddressOnly, caseEvents, caseConsumer));
   }
 
   @GetMapping(value = "/{caseId}")
   public CaseContainerDTO findCaseByCaseId(
       @PathVariable("caseId") UUID caseId,
       @RequestParam(value = "caseEvents", required = false, defaultValue = "false")
-          boolean caseEvents) {
+          boolean caseEvents,
+      WebRequest webRequest) {
     log.debug("Entering findByCaseId");
 
-    return buildCaseContainerDTO(caseService.findByCaseId(caseId), caseEvents);
+    String representation = caseEvents ? "case-events" : "case";
+    Optional<CaseVersion> caseVersion = caseService.findCaseVersion(caseId);
+    String eTag = caseVersion.map(version -> buildETag(version, representation)).orElse(null);
+    if (isCaseNotModified(webRequest, caseVersion, eTag)) {
+      return null;
+    }
+
+    // The cache is invalidated after the database changes, so only a case cached at the version
+    // just read can go out with its ETag
+    return caseCache.getByCaseId(
+        caseId,
+        caseEvents,
+        eTag,
+        () -> {
+          Case caze =
+              caseEvents
+                  ? caseService.findByCaseIdWithCaseEvents(caseId)
+                  : caseService.findByCaseId(caseId);
+
+          return buildCaseContainerDTO(caze, caseEvents);
+        });
   }
 
   @GetMapping(value = "/qid/{qid}")
   public CaseContainerDTO findCaseByQid(@PathVariable("qid") String qid) {
     log.debug("Entering findByQid");
-    Case caze = caseService.findCaseByQid(qid);
+    QidCaseSummary qidCaseSummary = caseService.findCaseSummaryByQid(qid);
     CaseContainerDTO caseContainerDTO = new CaseContainerDTO();
-    caseContainerDTO.setCaseId(caze.getCaseId());
-    caseContainerDTO.setAddressType(caze.getAddressType());
+    caseContainerDTO.setCaseId(qidCaseSummary.getCaseId());
+    caseContainerDTO.setAddressType(qidCaseSummary.getAddressType());
 
     return caseContainerDTO;
   }
@@ -104,7 +214,17 @@ public final class CaseEndpoint {
           boolean caseEvents) {
     log.debug("Entering findByReference");
 
-    return buildCaseContainerDTO(caseService.findByReference(reference), caseEvents);
+    return caseCache.getByCaseRef(
+        reference,
+        caseEvents,
+        () -> {
+          Case caze =
+              caseEvents
+                  ? caseService.findByReferenceWithCaseEvents(reference)
+                  : caseService.findByReference(reference);
+
+          return buildCaseContainerDTO(caze, caseEvents);
+        });
   }
 
   @GetMapping(value = "/ccs/postcode/{postcode}")
@@ -113,21 +233,90 @@ public final class CaseEndpoint {
       @RequestParam(value = "caseEvents", required = false, defaultValue = "false")
           boolean caseEvents) {
     log.debug("Entering findByPostcode");
-    List<Case> cases = caseService.findCCSCasesByPostcode(postcode);
+    List<Case> cases =
+        caseEvents
+            ? caseService.findCCSCasesByPostcodeWithCaseEvents(postcode)
+            : caseService.findCCSCasesByPostcode(postcode);
     return cases.stream()
         .map(c -> buildCaseContainerDTO(c, caseEvents))
         .collect(Collectors.toList());
   }
 
+  @GetMapping(value = "/ccs/postcode/{postcode}", params = "stream=true")
+  public void streamCCSCasesByPostcode(
+      @PathVariable("postcode") String postcode,
+      @RequestParam(value = "caseEvents", required = false, defaultValue = "false")
+          boolean caseEvents,
+      HttpServletResponse response)
+      throws IOException {
+    log.debug("Entering streamCCSCasesByPostcode");
+
+    writeCaseStream(
+        response,
+        caseEvents,
+        caseConsumer -> caseService.streamCCSCasesByPostcode(postcode, caseEvents, caseConsumer));
+  }
+
+  @PostMapping(value = "/batch")
+  public CaseBatchResponseDTO findCasesInBatch(
+      @RequestBody CaseBatchRequestDTO batchRequest,
+      @RequestParam(value = "caseEvents", required = false, defaultValue = "false")
+          boolean caseEvents,
+      @RequestParam(value = "validAddressOnly", required = false, defaultValue = "false")
+          boolean validAddressOnly) {
+    log.debug("Entering findCasesInBatch");
+
+    List<UUID> caseIds = nullToEmpty(batchRequest.getCaseIds());
+    List<Long> caseRefs = nullToEmpty(batchRequest.getCaseRefs());
+    List<String> uprns = nullToEmpty(batchRequest.getUprns());
+
+    if (caseIds.size() + caseRefs.size() + uprns.size() > maxBatchSize) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          String.format("Batch requests are limited to %d identifiers", maxBatchSize));
+    }
+
+    Map<UUID, List<CaseContainerDTO>> casesByCaseId = new HashMap<>();
+    Map<Long, List<CaseContainerDTO>> casesByCaseRef = new HashMap<>();
+    Map<String, List<CaseContainerDTO>> casesByUprn = new HashMap<>();
+
+    for (Case caze : caseService.findCaseBatch(batchRequest, validAddressOnly, caseEvents)) {
+      CaseContainerDTO caseContainerDTO = buildCaseContainerDTO(caze, caseEvents);
+
+      casesByCaseId
+          .computeIfAbsent(caze.getCaseId(), key -> new LinkedList<>())
+          .add(caseContainerDTO);
+
+      if (caze.getCaseRef() != null) {
+        casesByCaseRef
+            .computeIfAbsent(caze.getCaseRef(), key -> new LinkedList<>())
+            .add(caseContainerDTO);
+      }
+
+      // A case found by ID or reference can share a requested UPRN without meeting the UPRN filter
+      if (caze.getUprn() != null && (!validAddressOnly || !caze.isAddressInvalid())) {
+        casesByUprn
+            .computeIfAbsent(caze.getUprn(), key -> new LinkedList<>())
+            .add(caseContainerDTO);
+      }
+    }
+
+    CaseBatchResponseDTO batchResponse = new CaseBatchResponseDTO();
+    batchResponse.setCaseIds(buildBatchResults(caseIds, casesByCaseId));
+    batchResponse.setCaseRefs(buildBatchResults(caseRefs, casesByCaseRef));
+    batchResponse.setUprns(buildBatchResults(uprns, casesByUprn));
+    return batchResponse;
+  }
+
   @GetMapping(value = "/ccs/{caseId}/qid")
   public CCSLaunchDTO findCCSQidByCaseId(@PathVariable("caseId") UUID caseId) {
     log.debug("Entering findByCaseId");
-    UacQidLink ccsUacQidLink = caseService.findCCSUacQidLinkByCaseId(caseId);
+    CcsQidSummary ccsQidSummary = caseService.findCcsQidSummaryByCaseId(caseId);
 
     CCSLaunchDTO ccsLaunchDTO = new CCSLaunchDTO();
-    ccsLaunchDTO.setQuestionnaireId(ccsUacQidLink.getQid());
-    ccsLaunchDTO.setActive(ccsUacQidLink.isActive());
-    ccsLaunchDTO.setFormType(mapCCSQuestionnaireTypeToFormType(ccsUacQidLink.getQid()));
+    ccsLaunchDTO.setQuestionnaireId(ccsQidSummary.getQid());
+    ccsLaunchDTO.setActive(ccsQidSummary.isActive());
+    ccsLaunchDTO.setFormType(QuestionnaireTypes.getCcsFormType(ccsQidSummary.getQid()));
     return ccsLaunchDTO;
   }
 
@@ -140,7 +329,7 @@ public final class CaseEndpoint {
     log.debug("Entering getNewQidByCaseId");
 
     Case caze = caseService.findByCaseId(caseId);
-    RequestValidator.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
+    requestValidator.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
 
     if (individualCaseId != null && individual) {
       return handleNewIndividualTelephoneCaptureRequest(caze, individualCaseId);
@@ -149,6 +338,121 @@ public final class CaseEndpoint {
     return handleTelephoneCaptureRequest(caze, individual);
   }
 
+  // The case lookup and validation stay on the request thread so that errors are reported as for
+  // the blocking flow, the UAC service and Rabbit calls are made by TelephoneCaptureService
+  @GetMapping(value = "/{caseId}/qid", params = "async=true")
+  public CompletableFuture<TelephoneCaptureDTO> getNewQidForTelephoneCaptureAsync(
+      @PathVariable("caseId") UUID caseId,
+      @RequestParam(value = "individual", required = false, defaultValue = "false")
+          boolean individual,
+      @RequestParam(value = "individualCaseId", required = false) UUID individualCaseId) {
+    log.debug("Entering getNewQidForTelephoneCaptureAsync");
+
+    Case caze = caseService.findByCaseId(caseId);
+    requestValidator.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
+
+    boolean newIndividual = individualCaseId != null && individual;
+    if (newIndividual) {
+      checkIndividualCaseIdIsNew(individualCaseId);
+    }
+
+    int questionnaireType =
+        calculateQuestionnaireType(
+            caze.getCaseType(),
+            caze.getRegion(),
+            caze.getAddressLevel(),
+            caze.getSurvey(),
+            individual);
+
+    return telephoneCaptureService
+        .createAndSendUacQid(
+            caze.getCaseId(),
+            newIndividual ? individualCaseId : null,
+            newIndividual ? RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL : RM_TELEPHONE_CAPTURE,
+            questionnaireType)
+        .thenApply(
+            uacQidCreatedPayload ->
+                buildTelephoneCaptureDTO(uacQidCreatedPayload, questionnaireType));
+  }
+
+  // Adds several individuals to a household in one go. The individual case IDs are checked
+  // together and the request is rejected if any of them already exists. After that each individual
+  // succeeds or fails on its own, and those that failed are listed for the caller to retry.
+  @PostMapping(value = "/{caseId}/qids")
+  public CompletableFuture<IndividualTelephoneCaptureResponseDTO>
+      getNewQidsForIndividualTelephoneCapture(
+          @PathVariable("caseId") UUID caseId,
+          @RequestBody IndividualTelephoneCaptureRequestDTO individualTelephoneCaptureRequest) {
+    log.with("caseId", caseId).debug("Entering getNewQidsForIndividualTelephoneCapture");
+
+    List<UUID> individualCaseIds =
+        nullToEmpty(individualTelephoneCaptureRequest.getIndividualCaseIds());
+    validateIndividualCaseIds(individualCaseIds);
+
+    Case caze = caseService.findByCaseId(caseId);
+    requestValidator.validateGetNewQidByCaseIdRequest(caze, true, individualCaseIds.get(0));
+
+    Set<UUID> existingCaseIds = caseService.findExistingCaseIds(individualCaseIds);
+    if (!existingCaseIds.isEmpty()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          String.format("IndividualCaseIds %s already exist", existingCaseIds));
+    }
+
+    int questionnaireType =
+        calculateQuestionnaireType(
+            caze.getCaseType(), caze.getRegion(), caze.getAddressLevel(), caze.getSurvey(), true);
+
+    return telephoneCaptureService
+        .createAndSendUacQids(
+            caze.getCaseId(),
+            individualCaseIds,
+            RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL,
+            questionnaireType)
+        .thenApply(
+            uacQidCreatedPayloads -> {
+              Map<UUID, TelephoneCaptureDTO> telephoneCaptures = new LinkedHashMap<>();
+              List<UUID> failedIndividualCaseIds = new ArrayList<>();
+              for (UUID individualCaseId : individualCaseIds) {
+                UacQidCreatedPayloadDTO uacQidCreatedPayload =
+                    uacQidCreatedPayloads.get(individualCaseId);
+                if (uacQidCreatedPayload == null) {
+                  failedIndividualCaseIds.add(individualCaseId);
+                } else {
+                  telephoneCaptures.put(
+                      individualCaseId,
+                      buildTelephoneCaptureDTO(uacQidCreatedPayload, questionnaireType));
+                }
+              }
+
+              IndividualTelephoneCaptureResponseDTO individualTelephoneCaptureResponse =
+                  new IndividualTelephoneCaptureResponseDTO();
+              individualTelephoneCaptureResponse.setIndividualCaseIds(telephoneCaptures);
+              individualTelephoneCaptureResponse.setFailedIndividualCaseIds(
+                  failedIndividualCaseIds);
+              return individualTelephoneCaptureResponse;
+            });
+  }
+
+  private void validateIndividualCaseIds(List<UUID> individualCaseIds) {
+    if (individualCaseIds.isEmpty() || individualCaseIds.contains(null)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "individualCaseIds must be given and not null");
+    }
+
+    if (individualCaseIds.size() > maxIndividualsPerRequest) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          String.format(
+              "Requests are limited to %d individualCaseIds", maxIndividualsPerRequest));
+    }
+
+    if (new HashSet<>(individualCaseIds).size() != individualCaseIds.size()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "individualCaseIds must not contain duplicates");
+    }
+  }
+
   @GetMapping(value = "/postcode/{postcode}")
   public List<CaseContainerDTO> getCasesByPostcode(@PathVariable("postcode") String postcode) {
     log.with("postcode", postcode).debug("Entering getCasesByPostcode");
@@ -156,13 +460,104 @@ public final class CaseEndpoint {
     return cases.stream().map(c -> buildCaseContainerDTO(c, false)).collect(Collectors.toList());
   }
 
+  @GetMapping(value = "/postcode/{postcode}", params = "pageSize")
+  public CasePageDTO getPageOfCasesByPostcode(
+      @PathVariable("postcode") String postcode,
+      @RequestParam("pageSize") int pageSize,
+      @RequestParam(value = "pageToken", required = false) String pageToken) {
+    log.with("postcode", postcode).debug("Entering getPageOfCasesByPostcode");
+
+    if (pageSize < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageSize must be at least 1");
+    }
+    int limit = Math.min(pageSize, maxPageSize);
+
+    PostcodePageToken after = pageToken == null ? null : decodePageToken(pageToken, postcode);
+
+    // Fetch one more than the page to find out whether there is a next page without a count
+    List<Case> cases = caseService.findPageByPostcode(postcode, after, limit + 1);
+    boolean hasNextPage = cases.size() > limit;
+    if (hasNextPage) {
+      cases = cases.subList(0, limit);
+    }
+
+    CasePageDTO casePage = new CasePageDTO();
+    casePage.setCases(
+        cases.stream().map(c -> buildCaseContainerDTO(c, false)).collect(Collectors.toList()));
+    if (hasNextPage) {
+      casePage.setNextPageToken(encodePageToken(postcode, cases.get(limit - 1)));
+    }
+    return casePage;
+  }
+
+  @GetMapping(
+      value = "/postcode/{postcode}",
+      params = {"stream=true", "!pageSize"})
+  public void streamCasesByPostcode(
+      @PathVariable("postcode") String postcode, HttpServletResponse response) throws IOException {
+    log.with("postcode", postcode).debug("Entering streamCasesByPostcode");
+
+    writeCaseStream(
+        response, false, caseConsumer -> caseService.streamByPostcode(postcode, caseConsumer));
+  }
+
   @GetMapping(value = "/case-details/{caseId}")
-  public CaseDetailsDTO getAllCaseDetailsByCaseId(@PathVariable("caseId") UUID caseId) {
+  public CaseDetailsDTO getAllCaseDetailsByCaseId(
+      @PathVariable("caseId") UUID caseId, WebRequest webRequest) {
     log.with("caseId", caseId).debug("Entering getAllCaseDetailsByCaseId");
-    Case caze = caseService.findByCaseId(caseId);
+
+    Optional<CaseVersion> caseVersion = caseService.findCaseVersion(caseId);
+    String eTag = caseVersion.map(version -> buildETag(version, "case-details")).orElse(null);
+    if (isCaseNotModified(webRequest, caseVersion, eTag)) {
+      return null;
+    }
+
+    Case caze = caseService.findByCaseIdWithCaseEvents(caseId);
     return buildCaseDetailsDTO(caze);
   }
 
+  // Sets the ETag and Last-Modified headers from the case version, and answers a conditional GET
+  // with 304 when the case hasn't changed. A case that changes after its version is read goes out
+  // with the older ETag, so the next poll just gets the case again.
+  private boolean isCaseNotModified(
+      WebRequest webRequest, Optional<CaseVersion> caseVersion, String eTag) {
+    if (caseVersion.isEmpty()) {
+      // Not found, which is left to the normal lookup to report
+      return false;
+    }
+
+    return webRequest.checkNotModified(eTag, getLastModified(caseVersion.get()));
+  }
+
+  private static String buildETag(CaseVersion caseVersion, String representation) {
+    return String.format(
+        "%s-%x-%x-%s",
+        caseVersion.getCaseId(),
+        toEpochMicros(caseVersion.getLastUpdated()),
+        toEpochMicros(caseVersion.getLastEventProcessed()),
+        representation);
+  }
+
+  private static long getLastModified(CaseVersion caseVersion) {
+    OffsetDateTime lastModified = caseVersion.getLastUpdated();
+    OffsetDateTime lastEventProcessed = caseVersion.getLastEventProcessed();
+
+    if (lastModified == null
+        || (lastEventProcessed != null && lastEventProcessed.isAfter(lastModified))) {
+      lastModified = lastEventProcessed;
+    }
+
+    // Negative leaves the Last-Modified header off
+    return lastModified == null ? -1 : lastModified.toInstant().toEpochMilli();
+  }
+
+  private static long toEpochMicros(OffsetDateTime dateTime) {
+    if (dateTime == null) {
+      return 0;
+    }
+    return dateTime.toEpochSecond() * 1_000_000L + dateTime.getNano() / 1_000;
+  }
+
   private TelephoneCaptureDTO handleTelephoneCaptureRequest(Case caze, boolean individual) {
 
     int questionnaireType =
@@ -184,11 +579,7 @@ public final class CaseEndpoint {
 
   private TelephoneCaptureDTO handleNewIndividualTelephoneCaptureRequest(
       Case caze, UUID individualCaseId) {
-    if (caseService.caseExistsByCaseId(individualCaseId)) {
-      throw new ResponseStatusException(
-          HttpStatus.BAD_REQUEST,
-          String.format("IndividualCaseId %s already exists", individualCaseId));
-    }
+    checkIndividualCaseIdIsNew(individualCaseId);
 
     int questionnaireType =
         calculateQuestionnaireType(
@@ -206,6 +597,14 @@ public final class CaseEndpoint {
     return buildTelephoneCaptureDTO(uacQidCreatedPayload, questionnaireType);
   }
 
+  private void checkIndividualCaseIdIsNew(UUID individualCaseId) {
+    if (caseService.caseExistsByCaseId(individualCaseId)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          String.format("IndividualCaseId %s already exists", individualCaseId));
+    }
+  }
+
   @ExceptionHandler({
     UPRNNotFoundException.class,
     CaseIdNotFoundException.class,
@@ -216,38 +615,119 @@ public final class CaseEndpoint {
     response.sendError(NOT_FOUND.value());
   }
 
-  private CaseDetailsDTO buildCaseDetailsDTO(Case caze) {
+  @ExceptionHandler(TimeoutException.class)
+  public void handleTelephoneCaptureTimeout(HttpServletResponse response) throws IOException {
+    response.sendError(GATEWAY_TIMEOUT.value());
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  public void handleTelephoneCaptureRejected(HttpServletResponse response) throws IOException {
+    response.sendError(SERVICE_UNAVAILABLE.value());
+  }
+
+  private <K> Map<K, CaseBatchResultDTO> buildBatchResults(
+      List<K> keys, Map<K, List<CaseContainerDTO>> casesByKey) {
+    Map<K, CaseBatchResultDTO> batchResults = new LinkedHashMap<>();
+
+    for (K key : keys) {
+      List<CaseContainerDTO> cases = casesByKey.getOrDefault(key, Collections.emptyList());
+
+      CaseBatchResultDTO batchResult = new CaseBatchResultDTO();
+      batchResult.setFound(!cases.isEmpty());
+      batchResult.setCases(cases);
+      batchResults.put(key, batchResult);
+    }
+
+    return batchResults;
+  }
+
+  private static <T> List<T> nullToEmpty(List<T> list) {
+    return list == null ? Collections.emptyList() : list;
+  }
+
+  // Package private for the benchmarks
+  CaseDetailsDTO buildCaseDetailsDTO(Case caze) {
 
     CaseDetailsDTO caseDetailsDTO = mapperFacade.map(caze, CaseDetailsDTO.class);
 
-    List<CaseDetailsEventDTO> caseEvents = new LinkedList<>();
+    // RM_UAC_CREATED event redacted remove UACs
+    caseDetailsDTO.setEvents(
+        caseEventAssembler.assembleEvents(
+            caze, REDACTED_CASE_DETAILS_EVENT_TYPES, CaseDetailsEventDTO.class));
 
-    List<UacQidLink> uacQidLinks = caze.getUacQidLinks();
+    return caseDetailsDTO;
+  }
 
-    for (UacQidLink uacQidLink : uacQidLinks) {
-      List<Event> events = uacQidLink.getEvents();
+  private String encodePageToken(String postcode, Case lastCase) {
+    PostcodePageToken pageToken = new PostcodePageToken();
+    pageToken.setPostcode(CaseService.normalisePostcode(postcode));
+    pageToken.setOrganisationName(nullToBlank(lastCase.getOrganisationName()));
+    pageToken.setAddressLine1(nullToBlank(lastCase.getAddressLine1()));
+    pageToken.setCaseType(nullToBlank(lastCase.getCaseType()));
+    pageToken.setAddressLevel(nullToBlank(lastCase.getAddressLevel()));
+    pageToken.setCaseId(lastCase.getCaseId());
+
+    try {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(objectMapper.writeValueAsBytes(pageToken));
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("Failed to encode page token", e);
+    }
+  }
 
-      for (Event event : events) {
-        // RM_UAC_CREATED event redacted remove UACs
-        if (!event.getEventType().equals(EventType.RM_UAC_CREATED)) {
-          caseEvents.add(mapperFacade.map(event, CaseDetailsEventDTO.class));
-        }
-      }
+  private PostcodePageToken decodePageToken(String encodedPageToken, String postcode) {
+    PostcodePageToken pageToken;
+    try {
+      pageToken =
+          objectMapper.readValue(
+              Base64.getUrlDecoder().decode(encodedPageToken), PostcodePageToken.class);
+    } catch (IllegalArgumentException | IOException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pageToken", e);
     }
 
-    if (caze.getEvents() != null) {
-      for (Event event : caze.getEvents()) {
-        if (!event.getEventType().equals(EventType.RM_UAC_CREATED)) {
-          caseEvents.add(mapperFacade.map(event, CaseDetailsEventDTO.class));
-        }
-      }
+    if (pageToken.getCaseId() == null
+        || pageToken.getOrganisationName() == null
+        || pageToken.getAddressLine1() == null
+        || pageToken.getCaseType() == null
+        || pageToken.getAddressLevel() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pageToken");
     }
-    caseDetailsDTO.setEvents(caseEvents);
 
-    return caseDetailsDTO;
+    if (!CaseService.normalisePostcode(postcode).equals(pageToken.getPostcode())) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, String.format("pageToken is not for postcode %s", postcode));
+    }
+
+    return pageToken;
+  }
+
+  private static String nullToBlank(String value) {
+    return value == null ? "" : value;
   }
 
-  private CaseContainerDTO buildCaseContainerDTO(Case caze, boolean includeCaseEvents) {
+  private void writeCaseStream(
+      HttpServletResponse response, boolean caseEvents, Consumer<Consumer<Case>> caseSource)
+      throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+    try (JsonGenerator generator =
+        caseStreamWriter.getFactory().createGenerator(response.getOutputStream())) {
+      generator.writeStartArray();
+      caseSource.accept(
+          caze -> {
+            try {
+              caseStreamWriter.writeValue(generator, buildCaseContainerDTO(caze, caseEvents));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+      generator.writeEndArray();
+    }
+  }
+
+  // Package private for the benchmarks
+  CaseContainerDTO buildCaseContainerDTO(Case caze, boolean includeCaseEvents) {
 
     CaseContainerDTO caseContainerDTO = mapperFacade.map(caze, CaseContainerDTO.class);
     caseContainerDTO.setSurveyType(caze.getSurvey());
@@ -256,27 +736,14 @@ public final class CaseEndpoint {
       caseContainerDTO.setSecureEstablishment(caze.getMetadata().getSecureEstablishment());
     }
 
-    List<CaseEventDTO> caseEvents = new LinkedList<>();
-
     if (includeCaseEvents) {
-      List<UacQidLink> uacQidLinks = caze.getUacQidLinks();
-
-      for (UacQidLink uacQidLink : uacQidLinks) {
-        List<Event> events = uacQidLink.getEvents();
-
-        for (Event event : events) {
-          caseEvents.add(mapperFacade.map(event, CaseEventDTO.class));
-        }
-      }
-      if (caze.getEvents() != null) {
-        for (Event event : caze.getEvents()) {
-          caseEvents.add(mapperFacade.map(event, CaseEventDTO.class));
-        }
-      }
+      caseContainerDTO.setCaseEvents(
+          caseEventAssembler.assembleEvents(
+              caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class));
+    } else {
+      caseContainerDTO.setCaseEvents(new ArrayList<>());
     }
 
-    caseContainerDTO.setCaseEvents(caseEvents);
-
     return caseContainerDTO;
   }
 
@@ -285,46 +752,8 @@ public final class CaseEndpoint {
     TelephoneCaptureDTO telephoneCaptureDTO = new TelephoneCaptureDTO();
     telephoneCaptureDTO.setQuestionnaireId(uacQidCreatedPayload.getQid());
     telephoneCaptureDTO.setUac(uacQidCreatedPayload.getUac());
-    telephoneCaptureDTO.setFormType(mapQuestionnaireTypeToFormType(questionnaireType));
+    telephoneCaptureDTO.setFormType(QuestionnaireTypes.getFormType(questionnaireType));
     telephoneCaptureDTO.setQuestionnaireType(String.format("%02d", questionnaireType));
     return telephoneCaptureDTO;
   }
-
-  private String mapQuestionnaireTypeToFormType(int questionnaireType) {
-    switch (questionnaireType) {
-      case 1:
-      case 2:
-      case 4:
-      case 71:
-        return HH_FORM_TYPE;
-      case 21:
-      case 22:
-      case 24:
-        return IND_FORM_TYPE;
-      case 31:
-      case 32:
-      case 34:
-        return CE1_FORM_TYPE;
-      default:
-        throw new IllegalArgumentException(
-            String.format("Invalid QuestionnaireType: '%d'", questionnaireType));
-    }
-  }
-
-  private String mapCCSQuestionnaireTypeToFormType(String qid) {
-    int questionnaireType = Integer.parseInt(qid.substring(0, 2));
-
-    switch (questionnaireType) {
-      case 51:
-      case 53:
-      case 71:
-      case 73:
-        return HH_FORM_TYPE;
-      case 81:
-      case 83:
-        return CE1_FORM_TYPE;
-      default:
-        return null;
-    }
-  }
 }
@@ -12,7 +12,7 @@ import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
 import uk.gov.ons.census.caseapisvc.model.dto.NewQidLink;
 import uk.gov.ons.census.caseapisvc.model.dto.QidLink;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
-import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.service.CaseService;
 import uk.gov.ons.census.caseapisvc.service.UacQidService;
 
@@ -31,22 +31,22 @@ public class QidEndpoint {
 
   @GetMapping(value = "/{qid}")
   public QidLink getUacQidLinkByQid(@PathVariable("qid") String qid) {
-    UacQidLink uacQidLink = uacQidService.findUacQidLinkByQid(qid);
+    QidCaseSummary qidCaseSummary = uacQidService.findQidCaseSummaryByQid(qid);
     QidLink qidDetails = new QidLink();
-    qidDetails.setQuestionnaireId(uacQidLink.getQid());
-    if (uacQidLink.getCaze() != null) {
-      qidDetails.setCaseId(uacQidLink.getCaze().getCaseId());
-    }
+    qidDetails.setQuestionnaireId(qidCaseSummary.getQid());
+    qidDetails.setCaseId(qidCaseSummary.getCaseId());
     return qidDetails;
   }
 
   @PutMapping(value = "/link")
   public void putQidLinkToCase(@RequestBody NewQidLink newQidLink) {
-    UacQidLink uacQidLink =
-        uacQidService.findUacQidLinkByQid(newQidLink.getQidLink().getQuestionnaireId());
+    // Only checks the QID exists, so the cached summary will do rather than loading the link
+    QidCaseSummary qidCaseSummary =
+        uacQidService.findQidCaseSummaryByQid(newQidLink.getQidLink().getQuestionnaireId());
     Case caseToLink = caseService.findByCaseId(newQidLink.getQidLink().getCaseId());
 
-    uacQidService.buildAndSendQuestionnaireLinkedEvent(uacQidLink, caseToLink, newQidLink);
+    uacQidService.buildAndSendQuestionnaireLinkedEvent(
+        qidCaseSummary.getQid(), caseToLink, newQidLink);
   }
 
   @ExceptionHandler({CaseIdNotFoundException.class, QidNotFoundException.class})
@@ -0,0 +1,11 @@
+package uk.gov.ons.census.caseapisvc.exception;
+
+public class EventPublishException extends RuntimeException {
+  public EventPublishException(String message) {
+    super(message);
+  }
+
+  public EventPublishException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
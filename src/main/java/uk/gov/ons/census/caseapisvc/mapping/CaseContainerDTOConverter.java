@@ -0,0 +1,46 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import ma.glasnost.orika.CustomConverter;
+import ma.glasnost.orika.MappingContext;
+import ma.glasnost.orika.metadata.Type;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+
+// Copies the fields Orika would match by name. The survey type, secure establishment flag and
+// case events aren't matched, so they're left for the caller.
+public class CaseContainerDTOConverter extends CustomConverter<Case, CaseContainerDTO> {
+
+  @Override
+  public CaseContainerDTO convert(
+      Case caze, Type<? extends CaseContainerDTO> destinationType, MappingContext mappingContext) {
+    CaseContainerDTO caseContainerDTO = new CaseContainerDTO();
+    caseContainerDTO.setCaseRef(caze.getCaseRef() == null ? null : caze.getCaseRef().toString());
+    caseContainerDTO.setCaseId(caze.getCaseId());
+    caseContainerDTO.setEstabType(caze.getEstabType());
+    caseContainerDTO.setUprn(caze.getUprn());
+    caseContainerDTO.setEstabUprn(caze.getEstabUprn());
+    caseContainerDTO.setCollectionExerciseId(caze.getCollectionExerciseId());
+    caseContainerDTO.setAddressType(caze.getAddressType());
+    caseContainerDTO.setCaseType(caze.getCaseType());
+    caseContainerDTO.setCreatedDateTime(caze.getCreatedDateTime());
+    caseContainerDTO.setAddressLine1(caze.getAddressLine1());
+    caseContainerDTO.setAddressLine2(caze.getAddressLine2());
+    caseContainerDTO.setAddressLine3(caze.getAddressLine3());
+    caseContainerDTO.setTownName(caze.getTownName());
+    caseContainerDTO.setPostcode(caze.getPostcode());
+    caseContainerDTO.setOrganisationName(caze.getOrganisationName());
+    caseContainerDTO.setAddressLevel(caze.getAddressLevel());
+    caseContainerDTO.setAbpCode(caze.getAbpCode());
+    caseContainerDTO.setRegion(caze.getRegion());
+    caseContainerDTO.setLatitude(caze.getLatitude());
+    caseContainerDTO.setLongitude(caze.getLongitude());
+    caseContainerDTO.setOa(caze.getOa());
+    caseContainerDTO.setLsoa(caze.getLsoa());
+    caseContainerDTO.setLastUpdated(caze.getLastUpdated());
+    caseContainerDTO.setMsoa(caze.getMsoa());
+    caseContainerDTO.setLad(caze.getLad());
+    caseContainerDTO.setHandDelivery(caze.isHandDelivery());
+    caseContainerDTO.setAddressInvalid(caze.isAddressInvalid());
+    return caseContainerDTO;
+  }
+}
@@ -0,0 +1,76 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import ma.glasnost.orika.CustomConverter;
+import ma.glasnost.orika.MappingContext;
+import ma.glasnost.orika.metadata.Type;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.CaseMetadata;
+
+// Copies the fields Orika would match by name, apart from the events. Orika would map the case's
+// own events, which the caller always replaces with the redacted events of the case and its UAC
+// QID links, so they're left for the caller rather than mapped and thrown away.
+public class CaseDetailsDTOConverter extends CustomConverter<Case, CaseDetailsDTO> {
+
+  @Override
+  public CaseDetailsDTO convert(
+      Case caze, Type<? extends CaseDetailsDTO> destinationType, MappingContext mappingContext) {
+    CaseDetailsDTO caseDetailsDTO = new CaseDetailsDTO();
+    caseDetailsDTO.setCaseId(caze.getCaseId());
+    caseDetailsDTO.setCaseRef(caze.getCaseRef());
+    caseDetailsDTO.setUprn(caze.getUprn());
+    caseDetailsDTO.setEstabUprn(caze.getEstabUprn());
+    caseDetailsDTO.setCaseType(caze.getCaseType());
+    caseDetailsDTO.setAddressType(caze.getAddressType());
+    caseDetailsDTO.setEstabType(caze.getEstabType());
+    caseDetailsDTO.setAddressLevel(caze.getAddressLevel());
+    caseDetailsDTO.setAbpCode(caze.getAbpCode());
+    caseDetailsDTO.setOrganisationName(caze.getOrganisationName());
+    caseDetailsDTO.setAddressLine1(caze.getAddressLine1());
+    caseDetailsDTO.setAddressLine2(caze.getAddressLine2());
+    caseDetailsDTO.setAddressLine3(caze.getAddressLine3());
+    caseDetailsDTO.setTownName(caze.getTownName());
+    caseDetailsDTO.setPostcode(caze.getPostcode());
+    caseDetailsDTO.setLatitude(caze.getLatitude());
+    caseDetailsDTO.setLongitude(caze.getLongitude());
+    caseDetailsDTO.setOa(caze.getOa());
+    caseDetailsDTO.setLsoa(caze.getLsoa());
+    caseDetailsDTO.setMsoa(caze.getMsoa());
+    caseDetailsDTO.setLad(caze.getLad());
+    caseDetailsDTO.setRegion(caze.getRegion());
+    caseDetailsDTO.setHtcWillingness(caze.getHtcWillingness());
+    caseDetailsDTO.setHtcDigital(caze.getHtcDigital());
+    caseDetailsDTO.setFieldCoordinatorId(caze.getFieldCoordinatorId());
+    caseDetailsDTO.setFieldOfficerId(caze.getFieldOfficerId());
+    caseDetailsDTO.setTreatmentCode(caze.getTreatmentCode());
+    caseDetailsDTO.setCeExpectedCapacity(caze.getCeExpectedCapacity());
+    caseDetailsDTO.setCeActualResponses(caze.getCeActualResponses());
+    caseDetailsDTO.setCollectionExerciseId(caze.getCollectionExerciseId());
+    caseDetailsDTO.setActionPlanId(caze.getActionPlanId());
+    caseDetailsDTO.setSurvey(caze.getSurvey());
+    caseDetailsDTO.setCreatedDateTime(caze.getCreatedDateTime());
+    caseDetailsDTO.setReceiptReceived(caze.isReceiptReceived());
+    caseDetailsDTO.setRefusalReceived(caze.getRefusalReceived());
+    caseDetailsDTO.setAddressInvalid(caze.isAddressInvalid());
+    caseDetailsDTO.setLastUpdated(caze.getLastUpdated());
+    caseDetailsDTO.setHandDelivery(caze.isHandDelivery());
+    caseDetailsDTO.setSkeleton(caze.isSkeleton());
+    caseDetailsDTO.setMetadata(copyMetadata(caze.getMetadata()));
+    caseDetailsDTO.setPrintBatch(caze.getPrintBatch());
+    caseDetailsDTO.setSurveyLaunched(caze.isSurveyLaunched());
+    return caseDetailsDTO;
+  }
+
+  // Copied, like Orika does, so the DTO never shares mutable state with the entity
+  private static CaseMetadata copyMetadata(CaseMetadata metadata) {
+    if (metadata == null) {
+      return null;
+    }
+
+    CaseMetadata copy = new CaseMetadata();
+    copy.setSecureEstablishment(metadata.getSecureEstablishment());
+    copy.setChannel(metadata.getChannel());
+    copy.setNonCompliance(metadata.getNonCompliance());
+    return copy;
+  }
+}
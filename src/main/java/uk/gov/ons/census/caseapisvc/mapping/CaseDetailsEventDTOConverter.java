@@ -0,0 +1,31 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import ma.glasnost.orika.CustomConverter;
+import ma.glasnost.orika.MappingContext;
+import ma.glasnost.orika.metadata.Type;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+
+public class CaseDetailsEventDTOConverter extends CustomConverter<Event, CaseDetailsEventDTO> {
+
+  @Override
+  public CaseDetailsEventDTO convert(
+      Event event,
+      Type<? extends CaseDetailsEventDTO> destinationType,
+      MappingContext mappingContext) {
+    CaseDetailsEventDTO caseDetailsEventDTO = new CaseDetailsEventDTO();
+    caseDetailsEventDTO.setId(event.getId());
+    caseDetailsEventDTO.setEventType(
+        event.getEventType() == null ? null : event.getEventType().name());
+    caseDetailsEventDTO.setEventDescription(event.getEventDescription());
+    caseDetailsEventDTO.setEventDate(event.getEventDate());
+    // Orika maps nulls, so a missing channel replaces the DTO's "RM" default rather than keeping it
+    caseDetailsEventDTO.setEventChannel(event.getEventChannel());
+    caseDetailsEventDTO.setEventTransactionId(event.getEventTransactionId());
+    caseDetailsEventDTO.setRmEventProcessed(event.getRmEventProcessed());
+    caseDetailsEventDTO.setEventSource(event.getEventSource());
+    caseDetailsEventDTO.setEventPayload(event.getEventPayload());
+    caseDetailsEventDTO.setMessageTimestamp(event.getMessageTimestamp());
+    return caseDetailsEventDTO;
+  }
+}
@@ -0,0 +1,169 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import ma.glasnost.orika.MapperFacade;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+
+/**
+ * Flattens the events of a case and of each of its UAC QID links into one list ordered by event
+ * date. The per-list event collections are loaded ordered by event date, so they are merged rather
+ * than sorted; ties keep the UAC QID link order with the case events last.
+ */
+@Component
+public class CaseEventAssembler {
+  private static final long NO_EVENT_DATE = Long.MAX_VALUE;
+
+  private final MapperFacade mapperFacade;
+
+  public CaseEventAssembler(MapperFacade mapperFacade) {
+    this.mapperFacade = mapperFacade;
+  }
+
+  // The redacted event types are checked once per event so should be an EnumSet
+  public <T> List<T> assembleEvents(
+      Case caze, Set<EventType> redactedEventTypes, Class<T> eventDTOClass) {
+    List<List<Event>> sources = collectEventLists(caze);
+
+    int eventCount = 0;
+    long[][] sortKeys = new long[sources.size()][];
+    for (int source = 0; source < sources.size(); source++) {
+      List<Event> events = sources.get(source);
+      long[] keys = sortKeysOf(events);
+      if (!isAscending(keys)) {
+        // Only expected for collections that were not loaded through the repositories
+        events = new ArrayList<>(events);
+        events.sort(Comparator.comparingLong(event -> sortKey(event.getEventDate())));
+        sources.set(source, events);
+        keys = sortKeysOf(events);
+      }
+      sortKeys[source] = keys;
+      eventCount += keys.length;
+    }
+
+    List<T> eventDTOs = new ArrayList<>(eventCount);
+    if (eventCount == 0) {
+      return eventDTOs;
+    }
+
+    int[] cursors = new int[sources.size()];
+    int[] heap = new int[sources.size()];
+    int heapSize = 0;
+    for (int source = 0; source < sources.size(); source++) {
+      heap[heapSize] = source;
+      siftUp(heap, heapSize++, sortKeys, cursors);
+    }
+
+    while (heapSize > 0) {
+      int source = heap[0];
+      Event event = sources.get(source).get(cursors[source]++);
+
+      if (!redactedEventTypes.contains(event.getEventType())) {
+        eventDTOs.add(mapperFacade.map(event, eventDTOClass));
+      }
+
+      if (cursors[source] == sortKeys[source].length) {
+        heap[0] = heap[--heapSize];
+      }
+      siftDown(heap, heapSize, sortKeys, cursors);
+    }
+
+    return eventDTOs;
+  }
+
+  private static List<List<Event>> collectEventLists(Case caze) {
+    List<UacQidLink> uacQidLinks = caze.getUacQidLinks();
+    int linkCount = uacQidLinks == null ? 0 : uacQidLinks.size();
+    List<List<Event>> sources = new ArrayList<>(linkCount + 1);
+
+    if (uacQidLinks != null) {
+      for (UacQidLink uacQidLink : uacQidLinks) {
+        addIfNotEmpty(sources, uacQidLink.getEvents());
+      }
+    }
+    addIfNotEmpty(sources, caze.getEvents());
+
+    return sources;
+  }
+
+  private static void addIfNotEmpty(List<List<Event>> sources, List<Event> events) {
+    if (events != null && !events.isEmpty()) {
+      sources.add(events);
+    }
+  }
+
+  private static long[] sortKeysOf(List<Event> events) {
+    long[] keys = new long[events.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = sortKey(events.get(i).getEventDate());
+    }
+    return keys;
+  }
+
+  // Microseconds since the epoch, which is the precision Postgres stores timestamps at. Events
+  // without a date sort last.
+  private static long sortKey(OffsetDateTime eventDate) {
+    if (eventDate == null) {
+      return NO_EVENT_DATE;
+    }
+    return eventDate.toEpochSecond() * 1_000_000L + eventDate.getNano() / 1_000;
+  }
+
+  private static boolean isAscending(long[] keys) {
+    for (int i = 1; i < keys.length; i++) {
+      if (keys[i] < keys[i - 1]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean before(int source, int otherSource, long[][] sortKeys, int[] cursors) {
+    long key = sortKeys[source][cursors[source]];
+    long otherKey = sortKeys[otherSource][cursors[otherSource]];
+    return key < otherKey || (key == otherKey && source < otherSource);
+  }
+
+  private static void siftUp(int[] heap, int index, long[][] sortKeys, int[] cursors) {
+    int source = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!before(source, heap[parent], sortKeys, cursors)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = source;
+  }
+
+  private static void siftDown(int[] heap, int heapSize, long[][] sortKeys, int[] cursors) {
+    if (heapSize == 0) {
+      return;
+    }
+    int source = heap[0];
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && before(heap[child + 1], heap[child], sortKeys, cursors)) {
+        child++;
+      }
+      if (!before(heap[child], source, sortKeys, cursors)) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = source;
+  }
+}
@@ -0,0 +1,21 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import ma.glasnost.orika.CustomConverter;
+import ma.glasnost.orika.MappingContext;
+import ma.glasnost.orika.metadata.Type;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+
+public class CaseEventDTOConverter extends CustomConverter<Event, CaseEventDTO> {
+
+  @Override
+  public CaseEventDTO convert(
+      Event event, Type<? extends CaseEventDTO> destinationType, MappingContext mappingContext) {
+    CaseEventDTO caseEventDTO = new CaseEventDTO();
+    caseEventDTO.setId(event.getId());
+    caseEventDTO.setEventType(event.getEventType() == null ? null : event.getEventType().name());
+    caseEventDTO.setEventDescription(event.getEventDescription());
+    caseEventDTO.setEventDate(event.getEventDate());
+    return caseEventDTO;
+  }
+}
@@ -0,0 +1,341 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.exception.EventPublishException;
+
+/**
+ * A local append-only log of events waiting to be relayed to Rabbit. An append returns once the
+ * events have been synced to disk, and {@link OutboxRelay} reads them back in order and moves the
+ * relayed offset on once they're confirmed. Each record is its length and CRC followed by the
+ * event, so a record torn by a crash is found and dropped on startup. The relayed offset is saved
+ * to its own file, synced along with the directory it's renamed into.
+ *
+ * <p>Events are relayed at least once, a crash between publishing a batch and saving the offset
+ * sends the batch again. The log is emptied whenever the relay has caught up and it has grown past
+ * compact-size.
+ */
+@Component
+public class EventOutbox {
+  private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+  private static final String LOG_FILE = "outbox.log";
+  private static final String OFFSET_FILE = "outbox.offset";
+  private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+  private final Object appendLock = new Object();
+  private final Counter appendedEvents;
+
+  @Value("${outbox.enabled}")
+  private boolean enabled;
+
+  @Value("${outbox.directory}")
+  private String directory;
+
+  @Value("${outbox.compact-size}")
+  private long compactSize;
+
+  private FileChannel logChannel;
+  private Path offsetFile;
+
+  // Guarded by appendLock. The epoch changes when the log is emptied, so that an append synced
+  // before then can't move durableSize on past the new end of the log.
+  private long appendedSize;
+  private long epoch;
+
+  // Everything before durableSize has been synced and can be relayed, everything before
+  // relayedOffset has been confirmed by Rabbit
+  private volatile long durableSize;
+  private volatile long relayedOffset;
+
+  public EventOutbox(MeterRegistry meterRegistry) {
+    appendedEvents = Counter.builder("outbox.appended.events").register(meterRegistry);
+    Gauge.builder("outbox.pending.bytes", this, outbox -> outbox.durableSize - outbox.relayedOffset)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void init() throws IOException {
+    if (!enabled) {
+      return;
+    }
+
+    Path outboxDirectory = Paths.get(directory);
+    Files.createDirectories(outboxDirectory);
+    logChannel = FileChannel.open(outboxDirectory.resolve(LOG_FILE), CREATE, READ, WRITE);
+    offsetFile = outboxDirectory.resolve(OFFSET_FILE);
+    syncDirectory();
+
+    long size = logChannel.size();
+    long offset =
+        Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0;
+    if (offset > size) {
+      // The log was emptied but the offset wasn't saved
+      offset = 0;
+    }
+
+    long end = offset;
+    byte[] record;
+    while ((record = readRecord(end, size)) != null) {
+      end += RECORD_HEADER_BYTES + record.length;
+    }
+    if (end < size) {
+      log.with("discardedBytes", size - end).warn("Discarding incomplete record from outbox");
+      logChannel.truncate(end);
+      logChannel.force(true);
+    }
+
+    appendedSize = end;
+    durableSize = end;
+    relayedOffset = offset;
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    if (logChannel != null) {
+      logChannel.close();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void append(String exchange, String routingKey, List<Message> messages) {
+    ByteBuffer records = encode(exchange, routingKey, messages, System.currentTimeMillis());
+
+    try {
+      long end;
+      long appendEpoch;
+      synchronized (appendLock) {
+        // Positional writes, so a failed write is overwritten by the next append
+        while (records.hasRemaining()) {
+          logChannel.write(records, appendedSize + records.position());
+        }
+        appendedSize += records.limit();
+        end = appendedSize;
+        appendEpoch = epoch;
+      }
+
+      // Synced outside the lock, so appends made at the same time can share a sync
+      logChannel.force(false);
+
+      synchronized (appendLock) {
+        if (appendEpoch == epoch && end > durableSize) {
+          durableSize = end;
+        }
+      }
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to append events to the outbox", e);
+    }
+
+    appendedEvents.increment(messages.size());
+  }
+
+  /**
+   * Hands up to maxEvents of the oldest events to the publisher, and moves the relayed offset past
+   * them once it returns. An exception from the publisher leaves them to be relayed again.
+   *
+   * @return the number of events relayed
+   */
+  public int relay(int maxEvents, Consumer<List<OutboxEvent>> publisher) {
+    long position = relayedOffset;
+    long limit = durableSize;
+    List<OutboxEvent> events = new ArrayList<>();
+
+    try {
+      byte[] record;
+      while (events.size() < maxEvents && (record = readRecord(position, limit)) != null) {
+        events.add(decode(record));
+        position += RECORD_HEADER_BYTES + record.length;
+      }
+      if (events.isEmpty()) {
+        return 0;
+      }
+
+      publisher.accept(events);
+
+      relayedOffset = position;
+      if (!compactIfCaughtUp()) {
+        saveOffset(relayedOffset);
+      }
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to read events from the outbox", e);
+    }
+
+    return events.size();
+  }
+
+  // The offset is saved before any more appends, a crash before it's saved is found on startup by
+  // the offset being past the end of the log
+  private boolean compactIfCaughtUp() throws IOException {
+    if (relayedOffset < compactSize) {
+      return false;
+    }
+
+    synchronized (appendLock) {
+      if (appendedSize != relayedOffset || durableSize != relayedOffset) {
+        return false;
+      }
+      logChannel.truncate(0);
+      logChannel.force(true);
+      appendedSize = 0;
+      durableSize = 0;
+      relayedOffset = 0;
+      epoch++;
+      saveOffset(0);
+    }
+    return true;
+  }
+
+  // Synced before the move so the offset file is never renamed over with an empty one, and the
+  // directory after it so the rename itself survives a crash
+  private void saveOffset(long offset) throws IOException {
+    Path tempFile = offsetFile.resolveSibling(OFFSET_FILE + ".tmp");
+    try (FileChannel tempChannel = FileChannel.open(tempFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      ByteBuffer offsetBytes =
+          ByteBuffer.wrap(Long.toString(offset).getBytes(StandardCharsets.UTF_8));
+      while (offsetBytes.hasRemaining()) {
+        tempChannel.write(offsetBytes);
+      }
+      tempChannel.force(true);
+    }
+    Files.move(tempFile, offsetFile, ATOMIC_MOVE, REPLACE_EXISTING);
+    syncDirectory();
+  }
+
+  private void syncDirectory() throws IOException {
+    try (FileChannel directoryChannel = FileChannel.open(offsetFile.getParent(), READ)) {
+      directoryChannel.force(true);
+    }
+  }
+
+  // The record starting at position, or null if there isn't a whole one before limit
+  private byte[] readRecord(long position, long limit) throws IOException {
+    if (position + RECORD_HEADER_BYTES > limit) {
+      return null;
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+    readFully(header, position);
+    int length = header.getInt(0);
+    int checksum = header.getInt(Integer.BYTES);
+    if (length < 0 || position + RECORD_HEADER_BYTES + length > limit) {
+      return null;
+    }
+
+    byte[] record = new byte[length];
+    readFully(ByteBuffer.wrap(record), position + RECORD_HEADER_BYTES);
+    return checksum(record) == checksum ? record : null;
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (logChannel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of outbox at " + position);
+      }
+    }
+  }
+
+  private static ByteBuffer encode(
+      String exchange, String routingKey, List<Message> messages, long appendedAt) {
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    try {
+      for (Message message : messages) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        MessageProperties messageProperties = message.getMessageProperties();
+        out.writeLong(appendedAt);
+        out.writeUTF(exchange);
+        out.writeUTF(routingKey);
+        writeNullable(out, messageProperties.getContentType());
+        writeNullable(out, messageProperties.getContentEncoding());
+        out.writeInt(messageProperties.getHeaders().size());
+        for (Map.Entry<String, Object> header : messageProperties.getHeaders().entrySet()) {
+          out.writeUTF(header.getKey());
+          out.writeUTF(String.valueOf(header.getValue()));
+        }
+        out.writeInt(message.getBody().length);
+        out.write(message.getBody());
+
+        byte[] recordBytes = record.toByteArray();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        recordsOut.writeInt(recordBytes.length);
+        recordsOut.writeInt(checksum(recordBytes));
+        recordsOut.write(recordBytes);
+      }
+    } catch (IOException e) {
+      throw new EventPublishException("Failed to encode events for the outbox", e);
+    }
+    return ByteBuffer.wrap(records.toByteArray());
+  }
+
+  private static OutboxEvent decode(byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    long appendedAt = in.readLong();
+    String exchange = in.readUTF();
+    String routingKey = in.readUTF();
+
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setContentType(readNullable(in));
+    messageProperties.setContentEncoding(readNullable(in));
+    int headers = in.readInt();
+    for (int i = 0; i < headers; i++) {
+      messageProperties.setHeader(in.readUTF(), in.readUTF());
+    }
+    byte[] body = new byte[in.readInt()];
+    in.readFully(body);
+    messageProperties.setContentLength(body.length);
+
+    return new OutboxEvent(exchange, routingKey, new Message(body, messageProperties), appendedAt);
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static int checksum(byte[] record) {
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,256 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import javax.annotation.PostConstruct;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.census.caseapisvc.exception.EventPublishException;
+
+/**
+ * With publisher confirms on (spring.rabbitmq.publisher-confirm-type: correlated) each send waits
+ * for its own confirm, with at most max-in-flight unconfirmed messages, counting those whose wait
+ * has timed out until the broker does confirm them. Otherwise sends go over the transacted channel.
+ * With the outbox on, events are appended to {@link EventOutbox} instead and {@link OutboxRelay}
+ * sends them on, which needs publisher confirms.
+ */
+@Component
+public class EventSender {
+  private final RabbitTemplate rabbitTemplate;
+  private final EventOutbox eventOutbox;
+
+  @Value("${queueconfig.publisher-confirms.max-in-flight}")
+  private int maxInFlight;
+
+  @Value("${queueconfig.publisher-confirms.confirm-timeout}")
+  private String confirmTimeout;
+
+  private boolean confirmsEnabled;
+  private long confirmTimeoutMillis;
+  private Semaphore inFlight;
+
+  public EventSender(RabbitTemplate rabbitTemplate, EventOutbox eventOutbox) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.eventOutbox = eventOutbox;
+  }
+
+  @PostConstruct
+  public void init() {
+    confirmsEnabled = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+    if (eventOutbox.isEnabled() && !confirmsEnabled) {
+      // The relay moves past a batch once it's sent, so without confirms a batch the broker never
+      // took would be lost
+      throw new IllegalStateException(
+          "outbox.enabled needs spring.rabbitmq.publisher-confirm-type set to correlated");
+    }
+    confirmTimeoutMillis = Duration.parse(confirmTimeout).toMillis();
+    inFlight = new Semaphore(maxInFlight, true);
+  }
+
+  public void sendEvent(String exchange, String routingKey, Object event) {
+    sendEvents(exchange, routingKey, List.of(event));
+  }
+
+  public void sendEvents(String exchange, String routingKey, List<?> events) {
+    if (eventOutbox.isEnabled()) {
+      eventOutbox.append(exchange, routingKey, toMessages(events));
+      return;
+    }
+
+    if (!confirmsEnabled) {
+      events.forEach(event -> rabbitTemplate.convertAndSend(exchange, routingKey, event));
+      return;
+    }
+
+    for (int from = 0; from < events.size(); from += maxInFlight) {
+      publishAndConfirm(
+          events.subList(from, Math.min(from + maxInFlight, events.size())),
+          (event, correlationData) ->
+              rabbitTemplate.convertAndSend(exchange, routingKey, event, correlationData),
+          EventSender::rethrow);
+    }
+  }
+
+  // Carries on past an event that fails, so the caller can tell which were sent. Returns the
+  // failures by the index of their event. The outbox appends all of them or none.
+  public Map<Integer, RuntimeException> trySendEvents(
+      String exchange, String routingKey, List<?> events) {
+    Map<Integer, RuntimeException> failures = new HashMap<>();
+    if (eventOutbox.isEnabled()) {
+      try {
+        eventOutbox.append(exchange, routingKey, toMessages(events));
+      } catch (RuntimeException e) {
+        for (int i = 0; i < events.size(); i++) {
+          failures.put(i, e);
+        }
+      }
+      return failures;
+    }
+
+    if (!confirmsEnabled) {
+      for (int i = 0; i < events.size(); i++) {
+        try {
+          rabbitTemplate.convertAndSend(exchange, routingKey, events.get(i));
+        } catch (RuntimeException e) {
+          failures.put(i, e);
+        }
+      }
+      return failures;
+    }
+
+    for (int from = 0; from < events.size(); from += maxInFlight) {
+      int to = Math.min(from + maxInFlight, events.size());
+      int offset = from;
+      try {
+        publishAndConfirm(
+            events.subList(from, to),
+            (event, correlationData) ->
+                rabbitTemplate.convertAndSend(exchange, routingKey, event, correlationData),
+            (index, failure) -> failures.put(offset + index, failure));
+      } catch (EventPublishException e) {
+        // There was no room to publish any of them
+        for (int i = from; i < to; i++) {
+          failures.put(i, e);
+        }
+      }
+    }
+    return failures;
+  }
+
+  // Sends events relayed from the outbox, which were converted when they were appended
+  public void sendMessages(List<OutboxEvent> outboxEvents) {
+    if (!confirmsEnabled) {
+      outboxEvents.forEach(
+          outboxEvent ->
+              rabbitTemplate.send(
+                  outboxEvent.getExchange(),
+                  outboxEvent.getRoutingKey(),
+                  outboxEvent.getMessage()));
+      return;
+    }
+
+    for (int from = 0; from < outboxEvents.size(); from += maxInFlight) {
+      publishAndConfirm(
+          outboxEvents.subList(from, Math.min(from + maxInFlight, outboxEvents.size())),
+          (outboxEvent, correlationData) ->
+              rabbitTemplate.send(
+                  outboxEvent.getExchange(),
+                  outboxEvent.getRoutingKey(),
+                  outboxEvent.getMessage(),
+                  correlationData),
+          EventSender::rethrow);
+    }
+  }
+
+  // Failures are handed to onFailure with the index of their event, which can throw to stop there
+  private <T> void publishAndConfirm(
+      List<T> events,
+      BiConsumer<T, CorrelationData> publishWithCorrelation,
+      BiConsumer<Integer, RuntimeException> onFailure) {
+    // Publish the whole batch before waiting, so its confirms come back together
+    acquirePermits(events.size());
+    List<CorrelationData> pendingConfirms = new ArrayList<>(events.size());
+    int attempted = 0;
+    try {
+      for (int i = 0; i < events.size(); i++) {
+        CorrelationData correlationData = new CorrelationData();
+        attempted++;
+        try {
+          publishWithCorrelation.accept(events.get(i), correlationData);
+        } catch (RuntimeException e) {
+          inFlight.release();
+          pendingConfirms.add(null);
+          onFailure.accept(i, e);
+          continue;
+        }
+
+        // A published event holds its permit until the broker acks or nacks it, even after the
+        // wait below has given up on it. Closing the channel nacks whatever is still unconfirmed.
+        correlationData
+            .getFuture()
+            .addCallback(confirm -> inFlight.release(), failure -> inFlight.release());
+        pendingConfirms.add(correlationData);
+      }
+    } finally {
+      // The events after one whose failure was rethrown were never published
+      inFlight.release(events.size() - attempted);
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+    for (int i = 0; i < pendingConfirms.size(); i++) {
+      if (pendingConfirms.get(i) == null) {
+        continue;
+      }
+
+      try {
+        awaitConfirm(pendingConfirms.get(i), deadline);
+      } catch (EventPublishException e) {
+        onFailure.accept(i, e);
+      }
+    }
+  }
+
+  private static void rethrow(int index, RuntimeException failure) {
+    throw failure;
+  }
+
+  // Converted the same way RabbitTemplate.convertAndSend would
+  private List<Message> toMessages(List<?> events) {
+    MessageConverter messageConverter = rabbitTemplate.getMessageConverter();
+    List<Message> messages = new ArrayList<>(events.size());
+    for (Object event : events) {
+      messages.add(messageConverter.toMessage(event, new MessageProperties()));
+    }
+    return messages;
+  }
+
+  private void acquirePermits(int permits) {
+    try {
+      if (!inFlight.tryAcquire(permits, confirmTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new EventPublishException(
+            String.format(
+                "Timed out waiting to publish %d event(s), %d already awaiting confirms",
+                permits, maxInFlight - inFlight.availablePermits()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventPublishException("Interrupted waiting to publish event", e);
+    }
+  }
+
+  private void awaitConfirm(CorrelationData correlationData, long deadline) {
+    CorrelationData.Confirm confirm;
+    try {
+      confirm =
+          correlationData
+              .getFuture()
+              .get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventPublishException("Interrupted waiting for publisher confirm", e);
+    } catch (ExecutionException | TimeoutException e) {
+      throw new EventPublishException(
+          String.format("No publisher confirm for event '%s'", correlationData.getId()), e);
+    }
+
+    if (!confirm.isAck()) {
+      throw new EventPublishException(
+          String.format(
+              "Event '%s' was nacked by the broker: %s",
+              correlationData.getId(), confirm.getReason()));
+    }
+  }
+}
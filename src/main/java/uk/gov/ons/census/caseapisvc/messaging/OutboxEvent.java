@@ -0,0 +1,15 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.amqp.core.Message;
+
+// An event as it was converted for Rabbit when it was appended to the outbox
+@Data
+@AllArgsConstructor
+public class OutboxEvent {
+  private String exchange;
+  private String routingKey;
+  private Message message;
+  private long appendedAt;
+}
@@ -0,0 +1,83 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Drains the outbox to Rabbit in confirmed batches, backing off while publishing fails
+@Component
+public class OutboxRelay {
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+  private final EventOutbox eventOutbox;
+  private final EventSender eventSender;
+  private final Timer batchTimer;
+  private final Timer lagTimer;
+  private final Counter relayedEvents;
+  private final Counter relayFailures;
+
+  @Value("${outbox.batch-size}")
+  private int batchSize;
+
+  @Value("${outbox.initial-backoff}")
+  private String initialBackoff;
+
+  @Value("${outbox.max-backoff}")
+  private String maxBackoff;
+
+  private Duration backoff;
+  private long retryAt;
+
+  public OutboxRelay(
+      EventOutbox eventOutbox, EventSender eventSender, MeterRegistry meterRegistry) {
+    this.eventOutbox = eventOutbox;
+    this.eventSender = eventSender;
+    batchTimer = Timer.builder("outbox.relay.batch").register(meterRegistry);
+    lagTimer = Timer.builder("outbox.relay.lag").register(meterRegistry);
+    relayedEvents = Counter.builder("outbox.relayed.events").register(meterRegistry);
+    relayFailures = Counter.builder("outbox.relay.failures").register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay-interval}")
+  public void relay() {
+    if (!eventOutbox.isEnabled() || (backoff != null && System.nanoTime() - retryAt < 0)) {
+      return;
+    }
+
+    try {
+      // Keep going while there are full batches waiting
+      while (eventOutbox.relay(batchSize, this::publish) == batchSize) {}
+      backoff = null;
+    } catch (RuntimeException e) {
+      backoff =
+          backoff == null
+              ? Duration.parse(initialBackoff)
+              : min(backoff.multipliedBy(2), Duration.parse(maxBackoff));
+      retryAt = System.nanoTime() + backoff.toNanos();
+      relayFailures.increment();
+      log.with("backoff", backoff).error("Failed to relay outbox events", e);
+    }
+  }
+
+  private void publish(List<OutboxEvent> events) {
+    batchTimer.record(() -> eventSender.sendMessages(events));
+
+    long now = System.currentTimeMillis();
+    for (OutboxEvent event : events) {
+      lagTimer.record(now - event.getAppendedAt(), TimeUnit.MILLISECONDS);
+    }
+    relayedEvents.increment(events.size());
+  }
+
+  private static Duration min(Duration first, Duration second) {
+    return first.compareTo(second) <= 0 ? first : second;
+  }
+}
@@ -0,0 +1,57 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
+
+/**
+ * Converts the fulfilment requested and questionnaire linked events with {@link
+ * ResponseManagementEventWriter} rather than by reflection, setting the same message properties
+ * and type id header Jackson would. Anything else, and the whole of the inbound side, is left to
+ * {@link Jackson2JsonMessageConverter}.
+ */
+public class ResponseManagementEventConverter extends Jackson2JsonMessageConverter {
+  private static final Set<String> WRITTEN_EVENT_TYPES =
+      Set.of("FULFILMENT_REQUESTED", "QUESTIONNAIRE_LINKED");
+
+  private final JavaType responseManagementEventType;
+
+  public ResponseManagementEventConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+    responseManagementEventType = objectMapper.constructType(ResponseManagementEvent.class);
+  }
+
+  @Override
+  protected Message createMessage(
+      Object objectToConvert, MessageProperties messageProperties, Type genericType) {
+    if (!isWritten(objectToConvert)) {
+      return super.createMessage(objectToConvert, messageProperties, genericType);
+    }
+
+    byte[] body = ResponseManagementEventWriter.write((ResponseManagementEvent) objectToConvert);
+    messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+    messageProperties.setContentEncoding(getDefaultCharset());
+    messageProperties.setContentLength(body.length);
+    getJavaTypeMapper().fromJavaType(responseManagementEventType, messageProperties);
+    return new Message(body, messageProperties);
+  }
+
+  private boolean isWritten(Object objectToConvert) {
+    if (objectToConvert == null
+        || objectToConvert.getClass() != ResponseManagementEvent.class
+        || getClassMapper() != null
+        || !StandardCharsets.UTF_8.name().equals(getDefaultCharset())) {
+      return false;
+    }
+
+    ResponseManagementEvent responseManagementEvent = (ResponseManagementEvent) objectToConvert;
+    return responseManagementEvent.getEvent() != null
+        && WRITTEN_EVENT_TYPES.contains(responseManagementEvent.getEvent().getType());
+  }
+}
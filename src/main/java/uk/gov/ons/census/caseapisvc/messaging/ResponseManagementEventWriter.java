@@ -0,0 +1,330 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.UUID;
+import uk.gov.ons.census.caseapisvc.model.dto.EventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.FulfilmentRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PayloadDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
+import uk.gov.ons.census.caseapisvc.model.dto.UacDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+/**
+ * Writes a {@link ResponseManagementEvent} as the same bytes {@code Jackson2JsonMessageConverter}
+ * does: fields in declaration order, the DTOs' {@code @JsonInclude(NON_NULL)} rules, ISO dates,
+ * Jackson's string escaping and an unpaired surrogate encoded as '?'. Any change to those DTOs has
+ * to be made here too, which {@code ResponseManagementEventConverterTest} checks.
+ */
+final class ResponseManagementEventWriter {
+  private static final byte[] NULL = ascii("null");
+  private static final byte[] TRUE = ascii("true");
+  private static final byte[] FALSE = ascii("false");
+  private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+  private static final byte[] EVENT = name("event");
+  private static final byte[] PAYLOAD = name("payload");
+
+  private static final byte[] TYPE = name("type");
+  private static final byte[] SOURCE = name("source");
+  private static final byte[] CHANNEL = name("channel");
+  private static final byte[] DATE_TIME = name("dateTime");
+  private static final byte[] TRANSACTION_ID = name("transactionId");
+
+  private static final byte[] UAC_QID_CREATED = name("uacQidCreated");
+  private static final byte[] FULFILMENT_REQUEST = name("fulfilmentRequest");
+  private static final byte[] UAC = name("uac");
+
+  private static final byte[] CASE_ID = name("caseId");
+  private static final byte[] FULFILMENT_CODE = name("fulfilmentCode");
+  private static final byte[] INDIVIDUAL_CASE_ID = name("individualCaseId");
+  private static final byte[] QID = name("qid");
+
+  private static final byte[] UAC_HASH = name("uacHash");
+  private static final byte[] ACTIVE = name("active");
+  private static final byte[] QUESTIONNAIRE_ID = name("questionnaireId");
+  private static final byte[] CASE_TYPE = name("caseType");
+  private static final byte[] REGION = name("region");
+  private static final byte[] COLLECTION_EXERCISE_ID = name("collectionExerciseId");
+  private static final byte[] FORM_TYPE = name("formType");
+
+  // Events are well under a kilobyte, a buffer that grew past this for an unusual one isn't kept
+  private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+  private static final ThreadLocal<ResponseManagementEventWriter> WRITERS =
+      ThreadLocal.withInitial(ResponseManagementEventWriter::new);
+
+  private byte[] buffer = new byte[1024];
+  private int size;
+
+  private ResponseManagementEventWriter() {}
+
+  static byte[] write(ResponseManagementEvent responseManagementEvent) {
+    ResponseManagementEventWriter writer = WRITERS.get();
+    writer.size = 0;
+    try {
+      writer.writeResponseManagementEvent(responseManagementEvent);
+      return Arrays.copyOf(writer.buffer, writer.size);
+    } finally {
+      if (writer.buffer.length > MAX_RETAINED_BUFFER) {
+        WRITERS.remove();
+      }
+    }
+  }
+
+  private void writeResponseManagementEvent(ResponseManagementEvent responseManagementEvent) {
+    startObject();
+    field(EVENT);
+    writeEvent(responseManagementEvent.getEvent());
+    field(PAYLOAD);
+    writePayload(responseManagementEvent.getPayload());
+    endObject();
+  }
+
+  private void writeEvent(EventDTO event) {
+    if (event == null) {
+      raw(NULL);
+      return;
+    }
+
+    startObject();
+    field(TYPE);
+    string(event.getType());
+    field(SOURCE);
+    string(event.getSource());
+    field(CHANNEL);
+    string(event.getChannel());
+    field(DATE_TIME);
+    dateTime(event.getDateTime());
+    field(TRANSACTION_ID);
+    uuid(event.getTransactionId());
+    endObject();
+  }
+
+  private void writePayload(PayloadDTO payload) {
+    if (payload == null) {
+      raw(NULL);
+      return;
+    }
+
+    startObject();
+    if (payload.getUacQidCreated() != null) {
+      field(UAC_QID_CREATED);
+      writeUacQidCreated(payload.getUacQidCreated());
+    }
+    if (payload.getFulfilmentRequest() != null) {
+      field(FULFILMENT_REQUEST);
+      writeFulfilmentRequest(payload.getFulfilmentRequest());
+    }
+    if (payload.getUac() != null) {
+      field(UAC);
+      writeUac(payload.getUac());
+    }
+    endObject();
+  }
+
+  private void writeFulfilmentRequest(FulfilmentRequestDTO fulfilmentRequest) {
+    startObject();
+    if (fulfilmentRequest.getCaseId() != null) {
+      field(CASE_ID);
+      uuid(fulfilmentRequest.getCaseId());
+    }
+    field(FULFILMENT_CODE);
+    string(fulfilmentRequest.getFulfilmentCode());
+    if (fulfilmentRequest.getIndividualCaseId() != null) {
+      field(INDIVIDUAL_CASE_ID);
+      uuid(fulfilmentRequest.getIndividualCaseId());
+    }
+    field(UAC_QID_CREATED);
+    writeUacQidCreated(fulfilmentRequest.getUacQidCreated());
+    endObject();
+  }
+
+  private void writeUacQidCreated(UacQidCreatedPayloadDTO uacQidCreated) {
+    if (uacQidCreated == null) {
+      raw(NULL);
+      return;
+    }
+
+    startObject();
+    field(UAC);
+    string(uacQidCreated.getUac());
+    field(QID);
+    string(uacQidCreated.getQid());
+    field(CASE_ID);
+    uuid(uacQidCreated.getCaseId());
+    endObject();
+  }
+
+  private void writeUac(UacDTO uac) {
+    startObject();
+    optionalString(UAC_HASH, uac.getUacHash());
+    optionalString(UAC, uac.getUac());
+    if (uac.getActive() != null) {
+      field(ACTIVE);
+      raw(uac.getActive() ? TRUE : FALSE);
+    }
+    optionalString(QUESTIONNAIRE_ID, uac.getQuestionnaireId());
+    optionalString(CASE_TYPE, uac.getCaseType());
+    optionalString(REGION, uac.getRegion());
+    optionalUuid(CASE_ID, uac.getCaseId());
+    optionalUuid(COLLECTION_EXERCISE_ID, uac.getCollectionExerciseId());
+    optionalString(FORM_TYPE, uac.getFormType());
+    optionalUuid(INDIVIDUAL_CASE_ID, uac.getIndividualCaseId());
+    endObject();
+  }
+
+  private void optionalString(byte[] name, String value) {
+    if (value != null) {
+      field(name);
+      string(value);
+    }
+  }
+
+  private void optionalUuid(byte[] name, UUID value) {
+    if (value != null) {
+      field(name);
+      uuid(value);
+    }
+  }
+
+  private void startObject() {
+    ensureCapacity(1);
+    buffer[size++] = '{';
+  }
+
+  private void endObject() {
+    ensureCapacity(1);
+    buffer[size++] = '}';
+  }
+
+  // Every field but the first in an object follows a comma
+  private void field(byte[] name) {
+    ensureCapacity(name.length + 1);
+    if (buffer[size - 1] != '{') {
+      buffer[size++] = ',';
+    }
+    System.arraycopy(name, 0, buffer, size, name.length);
+    size += name.length;
+  }
+
+  private void raw(byte[] token) {
+    ensureCapacity(token.length);
+    System.arraycopy(token, 0, buffer, size, token.length);
+    size += token.length;
+  }
+
+  private void uuid(UUID value) {
+    if (value == null) {
+      raw(NULL);
+    } else {
+      asciiString(value.toString());
+    }
+  }
+
+  private void dateTime(OffsetDateTime value) {
+    if (value == null) {
+      raw(NULL);
+    } else {
+      asciiString(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value));
+    }
+  }
+
+  // For values that are known to need no escaping
+  private void asciiString(String value) {
+    int length = value.length();
+    ensureCapacity(length + 2);
+    buffer[size++] = '"';
+    for (int i = 0; i < length; i++) {
+      buffer[size++] = (byte) value.charAt(i);
+    }
+    buffer[size++] = '"';
+  }
+
+  private void string(String value) {
+    if (value == null) {
+      raw(NULL);
+      return;
+    }
+
+    // At most six bytes for an escaped control character, three for any other char
+    int length = value.length();
+    ensureCapacity(length * 6 + 2);
+    buffer[size++] = '"';
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+        buffer[size++] = (byte) c;
+      } else if (c < 0x80) {
+        escape(c);
+      } else if (c < 0x800) {
+        buffer[size++] = (byte) (0xC0 | (c >> 6));
+        buffer[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (!Character.isSurrogate(c)) {
+        buffer[size++] = (byte) (0xE0 | (c >> 12));
+        buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else {
+        // Replaced the way the converter's String.getBytes does
+        buffer[size++] = '?';
+      }
+    }
+    buffer[size++] = '"';
+  }
+
+  private void escape(char c) {
+    buffer[size++] = '\\';
+    switch (c) {
+      case '"':
+      case '\\':
+        buffer[size++] = (byte) c;
+        break;
+      case '\b':
+        buffer[size++] = 'b';
+        break;
+      case '\t':
+        buffer[size++] = 't';
+        break;
+      case '\n':
+        buffer[size++] = 'n';
+        break;
+      case '\f':
+        buffer[size++] = 'f';
+        break;
+      case '\r':
+        buffer[size++] = 'r';
+        break;
+      default:
+        buffer[size++] = 'u';
+        buffer[size++] = '0';
+        buffer[size++] = '0';
+        buffer[size++] = HEX[c >> 4];
+        buffer[size++] = HEX[c & 0xF];
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+    }
+  }
+
+  private static byte[] name(String name) {
+    return ascii("\"" + name + "\":");
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(US_ASCII);
+  }
+}
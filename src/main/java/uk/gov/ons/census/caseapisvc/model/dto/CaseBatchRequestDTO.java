@@ -0,0 +1,12 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.Data;
+
+@Data
+public class CaseBatchRequestDTO {
+  private List<UUID> caseIds;
+  private List<Long> caseRefs;
+  private List<String> uprns;
+}
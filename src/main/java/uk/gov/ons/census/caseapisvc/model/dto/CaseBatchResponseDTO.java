@@ -0,0 +1,12 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.Map;
+import java.util.UUID;
+import lombok.Data;
+
+@Data
+public class CaseBatchResponseDTO {
+  private Map<UUID, CaseBatchResultDTO> caseIds;
+  private Map<Long, CaseBatchResultDTO> caseRefs;
+  private Map<String, CaseBatchResultDTO> uprns;
+}
@@ -0,0 +1,10 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class CaseBatchResultDTO {
+  private boolean found;
+  private List<CaseContainerDTO> cases;
+}
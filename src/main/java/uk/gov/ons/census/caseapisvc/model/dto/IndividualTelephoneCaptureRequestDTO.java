@@ -0,0 +1,10 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.Data;
+
+@Data
+public class IndividualTelephoneCaptureRequestDTO {
+  private List<UUID> individualCaseIds;
+}
@@ -0,0 +1,12 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.Data;
+
+@Data
+public class IndividualTelephoneCaptureResponseDTO {
+  private Map<UUID, TelephoneCaptureDTO> individualCaseIds;
+  private List<UUID> failedIndividualCaseIds;
+}
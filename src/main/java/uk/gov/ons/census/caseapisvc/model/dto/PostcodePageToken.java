@@ -0,0 +1,15 @@
+package uk.gov.ons.census.caseapisvc.model.dto;
+
+import java.util.UUID;
+import lombok.Data;
+
+// The sort key of the last case on a page, the next page starts after it
+@Data
+public class PostcodePageToken {
+  private String postcode;
+  private String organisationName;
+  private String addressLine1;
+  private String caseType;
+  private String addressLevel;
+  private UUID caseId;
+}
@@ -11,6 +11,7 @@ import javax.persistence.Enumerated;
 import javax.persistence.Id;
 import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import lombok.Data;
 import lombok.ToString;
@@ -118,6 +119,7 @@ public class Case {
   List<UacQidLink> uacQidLinks;
 
   @OneToMany(mappedBy = "caze")
+  @OrderBy("eventDate")
   List<Event> events;
 
   @Column(nullable = false, columnDefinition = "BOOLEAN DEFAULT false")
@@ -10,6 +10,7 @@ import javax.persistence.Id;
 import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import lombok.Data;
 import lombok.ToString;
@@ -41,6 +42,7 @@ public class UacQidLink {
   @ManyToOne private Case caze;
 
   @OneToMany(mappedBy = "uacQidLink")
+  @OrderBy("eventDate")
   private List<Event> events;
 
   @Column private UUID batchId;
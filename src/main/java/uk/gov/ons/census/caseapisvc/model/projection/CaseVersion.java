@@ -0,0 +1,15 @@
+package uk.gov.ons.census.caseapisvc.model.projection;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// The last event processed is null when neither the case nor its UAC QID links have any events
+@Data
+@AllArgsConstructor
+public class CaseVersion {
+  private UUID caseId;
+  private OffsetDateTime lastUpdated;
+  private OffsetDateTime lastEventProcessed;
+}
@@ -0,0 +1,11 @@
+package uk.gov.ons.census.caseapisvc.model.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CcsQidSummary {
+  private String qid;
+  private boolean active;
+}
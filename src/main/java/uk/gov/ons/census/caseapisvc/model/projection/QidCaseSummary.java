@@ -0,0 +1,16 @@
+package uk.gov.ons.census.caseapisvc.model.projection;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// The case ID is null when the QID isn't linked to a case
+@Data
+@AllArgsConstructor
+public class QidCaseSummary {
+  private String qid;
+  private UUID caseId;
+  private String addressType;
+  private boolean active;
+  private boolean ccsCase;
+}
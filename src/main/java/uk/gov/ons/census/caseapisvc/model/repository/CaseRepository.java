@@ -1,30 +1,206 @@
 package uk.gov.ons.census.caseapisvc.model.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.projection.CaseVersion;
 
 public interface CaseRepository extends JpaRepository<Case, UUID> {
+  // These back responses built from nearly every column, so they load the whole case but read-only,
+  // which saves Hibernate keeping a snapshot of each one for dirty checking
+
+  @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
   Optional<List<Case>> findByUprn(String uprn);
 
+  @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
   Optional<List<Case>> findByUprnAndAddressInvalidFalse(String uprn);
 
+  @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
   Optional<Case> findByCaseId(UUID caseId);
 
+  @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
   Optional<Case> findByCaseRef(long reference);
 
+  // The postcode finders expect a postcode that has already been upper cased with its spaces
+  // removed. Comparing that with UPPER(REPLACE(postcode, ' ', '')) lets the expression indexes in
+  // db/cases_postcode_idx.sql and db/cases_postcode_keyset_idx.sql serve the lookup.
+
+  // The whole, streamed and paged postcode searches all sort missing values as empty strings, so
+  // first, with the case ID as the tie-breaker. The keyset index serves the ordering too.
+  String POSTCODE_ORDER =
+      "ORDER BY COALESCE(c.organisationName, ''), COALESCE(c.addressLine1, ''), "
+          + "COALESCE(c.caseType, ''), COALESCE(c.addressLevel, ''), c.caseId";
+
+  @Query(
+      "SELECT c FROM Case c WHERE UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode "
+          + POSTCODE_ORDER)
+  List<Case> findByNormalisedPostcode(@Param("normalisedPostcode") String normalisedPostcode);
+
   @Query(
-      "SELECT c FROM Case c WHERE UPPER(REPLACE(postcode, ' ', '')) = UPPER(REPLACE(:postcode, ' ', '')) "
-          + "ORDER BY organisationName, addressLine1, caseType, addressLevel")
-  List<Case> findByPostcode(@Param("postcode") String postcode);
+      "SELECT c FROM Case c WHERE c.survey='CCS' "
+          + "AND UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode")
+  List<Case> findCCSCasesByNormalisedPostcode(
+      @Param("normalisedPostcode") String normalisedPostcode);
+
+  // The page finders seek past the last case of the previous page rather than using an OFFSET.
+  // Sorting missing values as empty strings means the row comparison never meets a NULL.
 
   @Query(
-      "SELECT c FROM Case c WHERE survey='CCS' AND UPPER(REPLACE(postcode, ' ', '')) = UPPER(REPLACE(:postcode, ' ', ''))")
-  List<Case> findCCSCasesByPostcodeIgnoringCaseAndSpaces(@Param("postcode") String postcode);
+      value =
+          "SELECT * FROM {h-schema}cases c "
+              + "WHERE UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode "
+              + "ORDER BY COALESCE(c.organisation_name, ''), COALESCE(c.address_line1, ''), "
+              + "COALESCE(c.case_type, ''), COALESCE(c.address_level, ''), c.case_id "
+              + "LIMIT :limit",
+      nativeQuery = true)
+  List<Case> findFirstPageByNormalisedPostcode(
+      @Param("normalisedPostcode") String normalisedPostcode, @Param("limit") int limit);
+
+  @Query(
+      value =
+          "SELECT * FROM {h-schema}cases c "
+              + "WHERE UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode "
+              + "AND (COALESCE(c.organisation_name, ''), COALESCE(c.address_line1, ''), "
+              + "COALESCE(c.case_type, ''), COALESCE(c.address_level, ''), c.case_id) "
+              + "> (:organisationName, :addressLine1, :caseType, :addressLevel, "
+              + "CAST(:caseId AS uuid)) "
+              + "ORDER BY COALESCE(c.organisation_name, ''), COALESCE(c.address_line1, ''), "
+              + "COALESCE(c.case_type, ''), COALESCE(c.address_level, ''), c.case_id "
+              + "LIMIT :limit",
+      nativeQuery = true)
+  List<Case> findPageByNormalisedPostcodeAfter(
+      @Param("normalisedPostcode") String normalisedPostcode,
+      @Param("organisationName") String organisationName,
+      @Param("addressLine1") String addressLine1,
+      @Param("caseType") String caseType,
+      @Param("addressLevel") String addressLevel,
+      @Param("caseId") String caseId,
+      @Param("limit") int limit);
+
+  // The stream finders read through a cursor, STREAM_FETCH_SIZE rows at a time. They must be
+  // consumed inside a transaction.
+  String STREAM_FETCH_SIZE = "500";
+
+  @Query(
+      "SELECT c FROM Case c WHERE UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode "
+          + POSTCODE_ORDER)
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Case> streamByNormalisedPostcode(@Param("normalisedPostcode") String normalisedPostcode);
+
+  @Query(
+      "SELECT c FROM Case c WHERE c.survey='CCS' "
+          + "AND UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode")
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Case> streamCCSCasesByNormalisedPostcode(
+      @Param("normalisedPostcode") String normalisedPostcode);
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Case> streamByUprn(String uprn);
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Case> streamByUprnAndAddressInvalidFalse(String uprn);
 
   boolean existsCaseByCaseId(UUID caseId);
+
+  @Query("SELECT c.caseId FROM Case c WHERE c.caseId IN :caseIds")
+  List<UUID> findCaseIdsByCaseIdIn(@Param("caseIds") Collection<UUID> caseIds);
+
+  List<Case> findByCaseIdIn(Collection<UUID> caseIds);
+
+  List<Case> findByCaseRefIn(Collection<Long> references);
+
+  List<Case> findByUprnIn(Collection<String> uprns);
+
+  List<Case> findByUprnInAndAddressInvalidFalse(Collection<String> uprns);
+
+  // Enough to tell whether a case has changed without loading its links and events. The events
+  // are on the case or on one of its UAC QID links, and both event foreign keys are indexed.
+  @Query(
+      "SELECT new uk.gov.ons.census.caseapisvc.model.projection.CaseVersion("
+          + "c.caseId, c.lastUpdated, MAX(e.rmEventProcessed)) "
+          + "FROM Case c LEFT JOIN c.uacQidLinks l "
+          + "LEFT JOIN Event e ON e.caze = c OR e.uacQidLink = l "
+          + "WHERE c.caseId = :caseId GROUP BY c.caseId, c.lastUpdated")
+  Optional<CaseVersion> findCaseVersionByCaseId(@Param("caseId") UUID caseId);
+
+  // The finders below fetch the UAC QID links with the case, the events are then loaded for all
+  // of the returned cases by fetchEventsByCaseIn and UacQidLinkRepository.fetchEventsByCazeIn.
+  // The links and both sets of events are bags so they cannot all be fetched in one statement.
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.caseId = :caseId")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  Optional<Case> findWithUacQidLinksByCaseId(@Param("caseId") UUID caseId);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.caseRef = :caseRef")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  Optional<Case> findWithUacQidLinksByCaseRef(@Param("caseRef") long reference);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.uprn = :uprn")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  Optional<List<Case>> findWithUacQidLinksByUprn(@Param("uprn") String uprn);
+
+  @Query(
+      "SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks "
+          + "WHERE c.uprn = :uprn AND c.addressInvalid = false")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  Optional<List<Case>> findWithUacQidLinksByUprnAndAddressInvalidFalse(@Param("uprn") String uprn);
+
+  @Query(
+      "SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.survey='CCS' "
+          + "AND UPPER(REPLACE(c.postcode, ' ', '')) = :normalisedPostcode")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> findCCSCasesWithUacQidLinksByNormalisedPostcode(
+      @Param("normalisedPostcode") String normalisedPostcode);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.caseId IN :caseIds")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> findWithUacQidLinksByCaseIdIn(@Param("caseIds") Collection<UUID> caseIds);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.caseRef IN :caseRefs")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> findWithUacQidLinksByCaseRefIn(@Param("caseRefs") Collection<Long> references);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c.uprn IN :uprns")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> findWithUacQidLinksByUprnIn(@Param("uprns") Collection<String> uprns);
+
+  @Query(
+      "SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks "
+          + "WHERE c.uprn IN :uprns AND c.addressInvalid = false")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> findWithUacQidLinksByUprnInAndAddressInvalidFalse(
+      @Param("uprns") Collection<String> uprns);
+
+  // For cases that were loaded without them, such as streamed cases
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.uacQidLinks WHERE c IN :cases")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> fetchUacQidLinksByCaseIn(@Param("cases") List<Case> cases);
+
+  @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.events WHERE c IN :cases")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<Case> fetchEventsByCaseIn(@Param("cases") List<Case> cases);
 }
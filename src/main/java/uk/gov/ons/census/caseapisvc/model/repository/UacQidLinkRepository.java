@@ -1,13 +1,40 @@
 package uk.gov.ons.census.caseapisvc.model.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
 import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 
 public interface UacQidLinkRepository extends JpaRepository<UacQidLink, UUID> {
   Optional<UacQidLink> findByQid(String qid);
 
-  Optional<UacQidLink> findOneByCcsCaseIsTrueAndCazeCaseIdAndCazeSurvey(
-      UUID caseIdUUID, String survey);
+  // The summary finders select only the columns their endpoints return, so nothing is loaded into
+  // the persistence context
+
+  @Query(
+      "SELECT new uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary("
+          + "l.qid, c.caseId, c.addressType, l.active, l.ccsCase) "
+          + "FROM UacQidLink l LEFT JOIN l.caze c WHERE l.qid = :qid")
+  Optional<QidCaseSummary> findQidCaseSummaryByQid(@Param("qid") String qid);
+
+  @Query(
+      "SELECT new uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary(l.qid, l.active) "
+          + "FROM UacQidLink l JOIN l.caze c "
+          + "WHERE l.ccsCase = true AND c.caseId = :caseId AND c.survey = :survey")
+  Optional<CcsQidSummary> findCcsQidSummaryByCaseIdAndSurvey(
+      @Param("caseId") UUID caseId, @Param("survey") String survey);
+
+  @Query("SELECT DISTINCT l FROM UacQidLink l LEFT JOIN FETCH l.events WHERE l.caze IN :cases")
+  @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+  List<UacQidLink> fetchEventsByCazeIn(@Param("cases") List<Case> cases);
 }
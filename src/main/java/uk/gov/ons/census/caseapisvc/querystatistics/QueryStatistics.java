@@ -0,0 +1,13 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+import lombok.Data;
+
+// What one request asked of the database. Only the thread handling the request updates it.
+@Data
+public class QueryStatistics {
+  private long statements;
+  private long entityLoads;
+  private long collectionFetches;
+  private long jdbcNanos;
+  private long connectionAcquireNanos;
+}
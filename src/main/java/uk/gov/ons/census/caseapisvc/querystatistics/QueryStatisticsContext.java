@@ -0,0 +1,23 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+/**
+ * Holds the query statistics of the request the current thread is handling, for the Hibernate
+ * listeners to add to. Database work done outside a request isn't counted.
+ */
+public final class QueryStatisticsContext {
+  private static final ThreadLocal<QueryStatistics> STATISTICS = new ThreadLocal<>();
+
+  private QueryStatisticsContext() {}
+
+  public static void set(QueryStatistics queryStatistics) {
+    STATISTICS.set(queryStatistics);
+  }
+
+  public static QueryStatistics get() {
+    return STATISTICS.get();
+  }
+
+  public static void clear() {
+    STATISTICS.remove();
+  }
+}
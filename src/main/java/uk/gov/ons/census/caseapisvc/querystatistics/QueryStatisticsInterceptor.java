@@ -0,0 +1,108 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTags;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Collects the query statistics for each request and records them against the same method and uri
+ * tags as {@code http.server.requests}. The statistics are kept on the request, so an async request
+ * is recorded once with the work done on both of its dispatches.
+ */
+public class QueryStatisticsInterceptor implements AsyncHandlerInterceptor {
+  private static final Logger log = LoggerFactory.getLogger(QueryStatisticsInterceptor.class);
+
+  private static final String QUERY_STATISTICS_ATTRIBUTE =
+      QueryStatisticsInterceptor.class.getName() + ".queryStatistics";
+
+  private final MeterRegistry meterRegistry;
+  private final int statementThreshold;
+
+  public QueryStatisticsInterceptor(MeterRegistry meterRegistry, int statementThreshold) {
+    this.meterRegistry = meterRegistry;
+    this.statementThreshold = statementThreshold;
+  }
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // The error page is part of the request that failed, not a request of its own
+    if (request.getDispatcherType() == DispatcherType.ERROR) {
+      return true;
+    }
+
+    QueryStatistics queryStatistics =
+        (QueryStatistics) request.getAttribute(QUERY_STATISTICS_ATTRIBUTE);
+    if (queryStatistics == null) {
+      queryStatistics = new QueryStatistics();
+      request.setAttribute(QUERY_STATISTICS_ATTRIBUTE, queryStatistics);
+    }
+    QueryStatisticsContext.set(queryStatistics);
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    QueryStatisticsContext.clear();
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    QueryStatisticsContext.clear();
+
+    QueryStatistics queryStatistics =
+        (QueryStatistics) request.getAttribute(QUERY_STATISTICS_ATTRIBUTE);
+    if (queryStatistics == null) {
+      return;
+    }
+    request.removeAttribute(QUERY_STATISTICS_ATTRIBUTE);
+
+    Tag method = WebMvcTags.method(request);
+    Tag uri = WebMvcTags.uri(request, response);
+    record(queryStatistics, Tags.of(method, uri));
+
+    if (queryStatistics.getStatements() > statementThreshold) {
+      log.with("method", method.getValue())
+          .with("uri", uri.getValue())
+          .with("statements", queryStatistics.getStatements())
+          .with("entityLoads", queryStatistics.getEntityLoads())
+          .with("collectionFetches", queryStatistics.getCollectionFetches())
+          .warn("Request ran more statements than the threshold, check for N+1 queries");
+    }
+  }
+
+  private void record(QueryStatistics queryStatistics, Tags tags) {
+    DistributionSummary.builder("db.request.statements")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(queryStatistics.getStatements());
+    DistributionSummary.builder("db.request.entity.loads")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(queryStatistics.getEntityLoads());
+    DistributionSummary.builder("db.request.collection.fetches")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(queryStatistics.getCollectionFetches());
+    Timer.builder("db.request.jdbc")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(queryStatistics.getJdbcNanos(), TimeUnit.NANOSECONDS);
+    Timer.builder("db.request.connection.acquire")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(queryStatistics.getConnectionAcquireNanos(), TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,27 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+// Appended after Hibernate's own listeners, so it only counts what they've loaded
+public class QueryStatisticsLoadListener
+    implements PostLoadEventListener, InitializeCollectionEventListener {
+
+  @Override
+  public void onPostLoad(PostLoadEvent event) {
+    QueryStatistics queryStatistics = QueryStatisticsContext.get();
+    if (queryStatistics != null) {
+      queryStatistics.setEntityLoads(queryStatistics.getEntityLoads() + 1);
+    }
+  }
+
+  @Override
+  public void onInitializeCollection(InitializeCollectionEvent event) {
+    QueryStatistics queryStatistics = QueryStatisticsContext.get();
+    if (queryStatistics != null) {
+      queryStatistics.setCollectionFetches(queryStatistics.getCollectionFetches() + 1);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Counts the statements a session executes and times them and its connection acquisition, adding
+ * to the current request's statistics. Hibernate creates one for each session from the {@code
+ * hibernate.session.events.auto} property.
+ */
+public class QueryStatisticsSessionListener extends BaseSessionEventListener {
+  private long statementStart;
+  private long connectionAcquisitionStart;
+
+  @Override
+  public void jdbcConnectionAcquisitionStart() {
+    connectionAcquisitionStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcConnectionAcquisitionEnd() {
+    QueryStatistics queryStatistics = QueryStatisticsContext.get();
+    if (queryStatistics != null) {
+      queryStatistics.setConnectionAcquireNanos(
+          queryStatistics.getConnectionAcquireNanos()
+              + System.nanoTime()
+              - connectionAcquisitionStart);
+    }
+  }
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    statementStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    QueryStatistics queryStatistics = QueryStatisticsContext.get();
+    if (queryStatistics != null) {
+      queryStatistics.setStatements(queryStatistics.getStatements() + 1);
+      queryStatistics.setJdbcNanos(
+          queryStatistics.getJdbcNanos() + System.nanoTime() - statementStart);
+    }
+  }
+}
@@ -3,24 +3,43 @@ package uk.gov.ons.census.caseapisvc.service;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
+import uk.gov.ons.census.caseapisvc.cache.QidCache;
 import uk.gov.ons.census.caseapisvc.exception.CaseIdNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.CaseReferenceNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UPRNNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UacQidLinkWithNoCaseException;
+import uk.gov.ons.census.caseapisvc.messaging.EventSender;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseBatchRequestDTO;
 import uk.gov.ons.census.caseapisvc.model.dto.EventDTO;
 import uk.gov.ons.census.caseapisvc.model.dto.FulfilmentRequestDTO;
 import uk.gov.ons.census.caseapisvc.model.dto.PayloadDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PostcodePageToken;
 import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
 import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
-import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.CaseVersion;
+import uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
 import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
 
@@ -28,10 +47,13 @@ import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
 public class CaseService {
   private static final Logger log = LoggerFactory.getLogger(CaseService.class);
   private static final String FULFILMENT_REQUEST_EVENT_TYPE = "FULFILMENT_REQUESTED";
+  private static final int STREAM_CHUNK_SIZE = Integer.parseInt(CaseRepository.STREAM_FETCH_SIZE);
 
   private final CaseRepository caseRepo;
   private final UacQidLinkRepository uacQidLinkRepository;
-  private final RabbitTemplate rabbitTemplate;
+  private final EventSender eventSender;
+  private final EntityManager entityManager;
+  private final QidCache qidCache;
 
   @Value("${queueconfig.events-exchange}")
   private String eventsExchange;
@@ -42,10 +64,14 @@ public class CaseService {
   public CaseService(
       CaseRepository caseRepo,
       UacQidLinkRepository uacQidLinkRepository,
-      RabbitTemplate rabbitTemplate) {
+      EventSender eventSender,
+      EntityManager entityManager,
+      QidCache qidCache) {
     this.caseRepo = caseRepo;
     this.uacQidLinkRepository = uacQidLinkRepository;
-    this.rabbitTemplate = rabbitTemplate;
+    this.eventSender = eventSender;
+    this.entityManager = entityManager;
+    this.qidCache = qidCache;
   }
 
   public List<Case> findByUPRN(String uprn, boolean validAddressOnly) {
@@ -60,12 +86,50 @@ public class CaseService {
     }
   }
 
+  @Transactional(readOnly = true)
+  public List<Case> findByUPRNWithCaseEvents(String uprn, boolean validAddressOnly) {
+    log.debug("Entering findByUPRNWithCaseEvents");
+
+    List<Case> cases;
+    if (validAddressOnly) {
+      cases =
+          caseRepo
+              .findWithUacQidLinksByUprnAndAddressInvalidFalse(uprn)
+              .orElseThrow(() -> new UPRNNotFoundException(uprn));
+    } else {
+      cases =
+          caseRepo
+              .findWithUacQidLinksByUprn(uprn)
+              .orElseThrow(() -> new UPRNNotFoundException(uprn));
+    }
+
+    fetchCaseEvents(cases);
+    return cases;
+  }
+
   public Case findByCaseId(UUID caseId) {
     log.debug("Entering findByCaseId");
 
     return caseRepo.findByCaseId(caseId).orElseThrow(() -> new CaseIdNotFoundException(caseId));
   }
 
+  public Optional<CaseVersion> findCaseVersion(UUID caseId) {
+    return caseRepo.findCaseVersionByCaseId(caseId);
+  }
+
+  @Transactional(readOnly = true)
+  public Case findByCaseIdWithCaseEvents(UUID caseId) {
+    log.debug("Entering findByCaseIdWithCaseEvents");
+
+    Case caze =
+        caseRepo
+            .findWithUacQidLinksByCaseId(caseId)
+            .orElseThrow(() -> new CaseIdNotFoundException(caseId));
+
+    fetchCaseEvents(List.of(caze));
+    return caze;
+  }
+
   public Case findByReference(long reference) {
     log.debug("Entering findByReference");
 
@@ -74,33 +138,217 @@ public class CaseService {
         .orElseThrow(() -> new CaseReferenceNotFoundException(reference));
   }
 
-  public Case findCaseByQid(String qid) {
-    UacQidLink uacQidLink =
-        uacQidLinkRepository.findByQid(qid).orElseThrow(() -> new QidNotFoundException(qid));
+  @Transactional(readOnly = true)
+  public Case findByReferenceWithCaseEvents(long reference) {
+    log.debug("Entering findByReferenceWithCaseEvents");
+
+    Case caze =
+        caseRepo
+            .findWithUacQidLinksByCaseRef(reference)
+            .orElseThrow(() -> new CaseReferenceNotFoundException(reference));
+
+    fetchCaseEvents(List.of(caze));
+    return caze;
+  }
+
+  public QidCaseSummary findCaseSummaryByQid(String qid) {
+    QidCaseSummary qidCaseSummary =
+        qidCache
+            .getByQid(qid, () -> uacQidLinkRepository.findQidCaseSummaryByQid(qid))
+            .orElseThrow(() -> new QidNotFoundException(qid));
 
-    if (uacQidLink.getCaze() == null) {
+    if (qidCaseSummary.getCaseId() == null) {
       throw new UacQidLinkWithNoCaseException(qid);
     }
 
-    return uacQidLink.getCaze();
+    return qidCaseSummary;
   }
 
   public List<Case> findCCSCasesByPostcode(String postcode) {
-    return caseRepo.findCCSCasesByPostcodeIgnoringCaseAndSpaces(postcode);
+    return caseRepo.findCCSCasesByNormalisedPostcode(normalisePostcode(postcode));
+  }
+
+  @Transactional(readOnly = true)
+  public List<Case> findCCSCasesByPostcodeWithCaseEvents(String postcode) {
+    List<Case> cases =
+        caseRepo.findCCSCasesWithUacQidLinksByNormalisedPostcode(normalisePostcode(postcode));
+
+    fetchCaseEvents(cases);
+    return cases;
   }
 
   public boolean caseExistsByCaseId(UUID caseId) {
     return caseRepo.existsCaseByCaseId(caseId);
   }
 
-  public UacQidLink findCCSUacQidLinkByCaseId(UUID caseId) {
+  public Set<UUID> findExistingCaseIds(Collection<UUID> caseIds) {
+    return new HashSet<>(caseRepo.findCaseIdsByCaseIdIn(caseIds));
+  }
+
+  public CcsQidSummary findCcsQidSummaryByCaseId(UUID caseId) {
     return uacQidLinkRepository
-        .findOneByCcsCaseIsTrueAndCazeCaseIdAndCazeSurvey(caseId, "CCS")
+        .findCcsQidSummaryByCaseIdAndSurvey(caseId, "CCS")
         .orElseThrow(() -> new QidNotFoundException(caseId));
   }
 
   public List<Case> findByPostcode(String postcode) {
-    return caseRepo.findByPostcode(postcode);
+    return caseRepo.findByNormalisedPostcode(normalisePostcode(postcode));
+  }
+
+  public List<Case> findPageByPostcode(String postcode, PostcodePageToken after, int limit) {
+    String normalisedPostcode = normalisePostcode(postcode);
+    if (after == null) {
+      return caseRepo.findFirstPageByNormalisedPostcode(normalisedPostcode, limit);
+    }
+
+    return caseRepo.findPageByNormalisedPostcodeAfter(
+        normalisedPostcode,
+        after.getOrganisationName(),
+        after.getAddressLine1(),
+        after.getCaseType(),
+        after.getAddressLevel(),
+        after.getCaseId().toString(),
+        limit);
+  }
+
+  @Transactional(readOnly = true)
+  public void streamByPostcode(String postcode, Consumer<Case> caseConsumer) {
+    streamCases(
+        caseRepo.streamByNormalisedPostcode(normalisePostcode(postcode)), false, caseConsumer);
+  }
+
+  @Transactional(readOnly = true)
+  public void streamCCSCasesByPostcode(
+      String postcode, boolean withCaseEvents, Consumer<Case> caseConsumer) {
+    streamCases(
+        caseRepo.streamCCSCasesByNormalisedPostcode(normalisePostcode(postcode)),
+        withCaseEvents,
+        caseConsumer);
+  }
+
+  @Transactional(readOnly = true)
+  public void streamByUPRN(
+      String uprn, boolean validAddressOnly, boolean withCaseEvents, Consumer<Case> caseConsumer) {
+    streamCases(
+        validAddressOnly
+            ? caseRepo.streamByUprnAndAddressInvalidFalse(uprn)
+            : caseRepo.streamByUprn(uprn),
+        withCaseEvents,
+        caseConsumer);
+  }
+
+  private void streamCases(
+      Stream<Case> cases, boolean withCaseEvents, Consumer<Case> caseConsumer) {
+    try (cases) {
+      if (!withCaseEvents) {
+        // Detaching each case once it has been consumed keeps the persistence context, and so the
+        // heap, from growing with the number of rows
+        cases.forEach(
+            caze -> {
+              caseConsumer.accept(caze);
+              entityManager.detach(caze);
+            });
+        return;
+      }
+
+      // The links and events are fetched for a chunk of cases at a time, rather than lazily for
+      // each case
+      List<Case> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+      cases.forEach(
+          caze -> {
+            chunk.add(caze);
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+              consumeChunkWithCaseEvents(chunk, caseConsumer);
+            }
+          });
+      consumeChunkWithCaseEvents(chunk, caseConsumer);
+    }
+  }
+
+  private void consumeChunkWithCaseEvents(List<Case> chunk, Consumer<Case> caseConsumer) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+
+    caseRepo.fetchUacQidLinksByCaseIn(chunk);
+    fetchCaseEvents(chunk);
+    chunk.forEach(caseConsumer);
+
+    // Nothing else is held in the stream's read only persistence context, so clearing it releases
+    // the chunk's cases, links and events together
+    entityManager.clear();
+    chunk.clear();
+  }
+
+  public static String normalisePostcode(String postcode) {
+    return postcode.replace(" ", "").toUpperCase(Locale.ROOT);
+  }
+
+  @Transactional(readOnly = true)
+  public List<Case> findCaseBatch(
+      CaseBatchRequestDTO batchRequest, boolean validAddressOnly, boolean withCaseEvents) {
+    log.debug("Entering findCaseBatch");
+
+    // Keyed by case ID as the same case can be requested by more than one type of identifier
+    Map<UUID, Case> cases = new LinkedHashMap<>();
+
+    if (!CollectionUtils.isEmpty(batchRequest.getCaseIds())) {
+      addCases(
+          cases,
+          withCaseEvents
+              ? caseRepo.findWithUacQidLinksByCaseIdIn(batchRequest.getCaseIds())
+              : caseRepo.findByCaseIdIn(batchRequest.getCaseIds()));
+    }
+
+    if (!CollectionUtils.isEmpty(batchRequest.getCaseRefs())) {
+      addCases(
+          cases,
+          withCaseEvents
+              ? caseRepo.findWithUacQidLinksByCaseRefIn(batchRequest.getCaseRefs())
+              : caseRepo.findByCaseRefIn(batchRequest.getCaseRefs()));
+    }
+
+    if (!CollectionUtils.isEmpty(batchRequest.getUprns())) {
+      addCases(cases, findByUPRNs(batchRequest.getUprns(), validAddressOnly, withCaseEvents));
+    }
+
+    List<Case> foundCases = new ArrayList<>(cases.values());
+    if (withCaseEvents) {
+      fetchCaseEvents(foundCases);
+    }
+
+    return foundCases;
+  }
+
+  private List<Case> findByUPRNs(
+      List<String> uprns, boolean validAddressOnly, boolean withCaseEvents) {
+    if (withCaseEvents) {
+      return validAddressOnly
+          ? caseRepo.findWithUacQidLinksByUprnInAndAddressInvalidFalse(uprns)
+          : caseRepo.findWithUacQidLinksByUprnIn(uprns);
+    }
+
+    return validAddressOnly
+        ? caseRepo.findByUprnInAndAddressInvalidFalse(uprns)
+        : caseRepo.findByUprnIn(uprns);
+  }
+
+  private void addCases(Map<UUID, Case> cases, List<Case> casesToAdd) {
+    for (Case caze : casesToAdd) {
+      cases.putIfAbsent(caze.getCaseId(), caze);
+    }
+  }
+
+  private void fetchCaseEvents(List<Case> cases) {
+    if (cases.isEmpty()) {
+      return;
+    }
+
+    // The cases already have their UAC QID links, these two queries initialise the link and case
+    // events in the same persistence context so the number of statements does not grow with the
+    // number of links
+    uacQidLinkRepository.fetchEventsByCazeIn(cases);
+    caseRepo.fetchEventsByCaseIn(cases);
   }
 
   public void buildAndSendTelephoneCaptureFulfilmentRequest(
@@ -108,6 +356,43 @@ public class CaseService {
       String fulfilmentCode,
       UUID individualCaseId,
       UacQidCreatedPayloadDTO uacQidCreated) {
+    eventSender.sendEvent(
+        eventsExchange,
+        fulfilmentEventRoutingKey,
+        buildTelephoneCaptureFulfilmentRequest(
+            caseId, fulfilmentCode, individualCaseId, uacQidCreated));
+  }
+
+  // Sent as one batch, so with publisher confirms on they are all confirmed together. Each one is
+  // sent or fails on its own, and the failures are returned by individual case ID.
+  public Map<UUID, RuntimeException> buildAndSendTelephoneCaptureFulfilmentRequests(
+      UUID caseId,
+      String fulfilmentCode,
+      List<UUID> individualCaseIds,
+      List<UacQidCreatedPayloadDTO> uacQidsCreated) {
+    List<ResponseManagementEvent> responseManagementEvents =
+        new ArrayList<>(individualCaseIds.size());
+    for (int i = 0; i < individualCaseIds.size(); i++) {
+      responseManagementEvents.add(
+          buildTelephoneCaptureFulfilmentRequest(
+              caseId, fulfilmentCode, individualCaseIds.get(i), uacQidsCreated.get(i)));
+    }
+
+    Map<Integer, RuntimeException> failures =
+        eventSender.trySendEvents(
+            eventsExchange, fulfilmentEventRoutingKey, responseManagementEvents);
+
+    Map<UUID, RuntimeException> failuresByIndividualCaseId = new HashMap<>();
+    failures.forEach(
+        (index, failure) -> failuresByIndividualCaseId.put(individualCaseIds.get(index), failure));
+    return failuresByIndividualCaseId;
+  }
+
+  private ResponseManagementEvent buildTelephoneCaptureFulfilmentRequest(
+      UUID caseId,
+      String fulfilmentCode,
+      UUID individualCaseId,
+      UacQidCreatedPayloadDTO uacQidCreated) {
     FulfilmentRequestDTO fulfilmentRequestDTO = new FulfilmentRequestDTO();
     fulfilmentRequestDTO.setCaseId(caseId);
     fulfilmentRequestDTO.setFulfilmentCode(fulfilmentCode);
@@ -133,10 +418,6 @@ public class CaseService {
     PayloadDTO payloadDTO = new PayloadDTO();
     payloadDTO.setFulfilmentRequest(fulfilmentRequestDTO);
 
-    ResponseManagementEvent responseManagementEvent =
-        new ResponseManagementEvent(eventDTO, payloadDTO);
-
-    rabbitTemplate.convertAndSend(
-        eventsExchange, fulfilmentEventRoutingKey, responseManagementEvent);
+    return new ResponseManagementEvent(eventDTO, payloadDTO);
   }
 }
@@ -0,0 +1,186 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Questionnaire type and form type lookups. The case type, country, address level and individual
+ * flag of a request are reduced to small codes which index a table of questionnaire types built
+ * once from the rules, and form types are read from arrays indexed by questionnaire type, so a
+ * lookup doesn't allocate.
+ */
+public final class QuestionnaireTypes {
+  private static final String SURVEY_CCS = "CCS";
+  private static final int CCS_QUESTIONNAIRE_TYPE = 71;
+
+  private static final int CASE_TYPE_HOUSEHOLD = 0;
+  private static final int CASE_TYPE_SPG = 1;
+  private static final int CASE_TYPE_CE = 2;
+  private static final int CASE_TYPE_OTHER = 3;
+  private static final int CASE_TYPE_CODES = 4;
+
+  // Indexed by country code, England, Wales then Northern Ireland
+  private static final int[] HOUSEHOLD_QUESTIONNAIRE_TYPES = {1, 2, 4};
+  private static final int[] INDIVIDUAL_QUESTIONNAIRE_TYPES = {21, 22, 24};
+  private static final int[] CE1_QUESTIONNAIRE_TYPES = {31, 32, 34};
+  private static final int COUNTRY_CODES = 3;
+  private static final int COUNTRY_UNKNOWN = -1;
+
+  private static final int NO_QUESTIONNAIRE_TYPE = 0;
+  private static final int[] QUESTIONNAIRE_TYPES = buildQuestionnaireTypes();
+  private static final int[] ALL_QUESTIONNAIRE_TYPES =
+      IntStream.concat(Arrays.stream(QUESTIONNAIRE_TYPES), IntStream.of(CCS_QUESTIONNAIRE_TYPE))
+          .filter(questionnaireType -> questionnaireType != NO_QUESTIONNAIRE_TYPE)
+          .distinct()
+          .sorted()
+          .toArray();
+
+  private static final String HH_FORM_TYPE = "H";
+  private static final String IND_FORM_TYPE = "I";
+  private static final String CE1_FORM_TYPE = "C";
+  private static final int QUESTIONNAIRE_TYPE_LIMIT = 100;
+  private static final String[] FORM_TYPES = new String[QUESTIONNAIRE_TYPE_LIMIT];
+  private static final String[] CCS_FORM_TYPES = new String[QUESTIONNAIRE_TYPE_LIMIT];
+
+  static {
+    for (int questionnaireType : new int[] {1, 2, 4, 71}) {
+      FORM_TYPES[questionnaireType] = HH_FORM_TYPE;
+    }
+    for (int questionnaireType : INDIVIDUAL_QUESTIONNAIRE_TYPES) {
+      FORM_TYPES[questionnaireType] = IND_FORM_TYPE;
+    }
+    for (int questionnaireType : CE1_QUESTIONNAIRE_TYPES) {
+      FORM_TYPES[questionnaireType] = CE1_FORM_TYPE;
+    }
+
+    for (int questionnaireType : new int[] {51, 53, 71, 73}) {
+      CCS_FORM_TYPES[questionnaireType] = HH_FORM_TYPE;
+    }
+    for (int questionnaireType : new int[] {81, 83}) {
+      CCS_FORM_TYPES[questionnaireType] = CE1_FORM_TYPE;
+    }
+  }
+
+  private QuestionnaireTypes() {}
+
+  public static int calculateQuestionnaireType(
+      String caseType, String region, String addressLevel, String surveyType, boolean individual) {
+    if (surveyType.equals(SURVEY_CCS)) {
+      return CCS_QUESTIONNAIRE_TYPE;
+    }
+
+    int country = getCountryCode(region.charAt(0));
+    if (country == COUNTRY_UNKNOWN) {
+      throw new IllegalArgumentException(
+          String.format("Unknown Country for treatment code %s", caseType));
+    }
+
+    int questionnaireType =
+        QUESTIONNAIRE_TYPES[
+            index(getCaseTypeCode(caseType), country, isEstab(addressLevel), individual)];
+    if (questionnaireType == NO_QUESTIONNAIRE_TYPE) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Unexpected combination of Case Type, Address level and individual request. treatment code: '%s', address level: '%s', individual request: '%s'",
+              caseType, addressLevel, individual));
+    }
+    return questionnaireType;
+  }
+
+  // Every questionnaire type calculateQuestionnaireType can return, in ascending order
+  public static int[] getQuestionnaireTypes() {
+    return ALL_QUESTIONNAIRE_TYPES.clone();
+  }
+
+  public static String getFormType(int questionnaireType) {
+    String formType =
+        questionnaireType >= 0 && questionnaireType < QUESTIONNAIRE_TYPE_LIMIT
+            ? FORM_TYPES[questionnaireType]
+            : null;
+    if (formType == null) {
+      throw new IllegalArgumentException(
+          String.format("Invalid QuestionnaireType: '%d'", questionnaireType));
+    }
+    return formType;
+  }
+
+  // The questionnaire type is the first two digits of the QID, null if it isn't a CCS form
+  public static String getCcsFormType(String qid) {
+    char tens = qid.charAt(0);
+    char units = qid.charAt(1);
+    if (!isDigit(tens) || !isDigit(units)) {
+      // Left to parseInt, which accepts a leading sign and rejects anything else
+      int questionnaireType = Integer.parseInt(qid.substring(0, 2));
+      return questionnaireType >= 0 ? CCS_FORM_TYPES[questionnaireType] : null;
+    }
+    return CCS_FORM_TYPES[(tens - '0') * 10 + (units - '0')];
+  }
+
+  private static int[] buildQuestionnaireTypes() {
+    int[] questionnaireTypes = new int[CASE_TYPE_CODES * COUNTRY_CODES * 2 * 2];
+
+    for (int caseType = 0; caseType < CASE_TYPE_CODES; caseType++) {
+      for (int country = 0; country < COUNTRY_CODES; country++) {
+        for (boolean estab : new boolean[] {false, true}) {
+          for (boolean individual : new boolean[] {false, true}) {
+            int questionnaireType = NO_QUESTIONNAIRE_TYPE;
+            if (individual) {
+              questionnaireType = INDIVIDUAL_QUESTIONNAIRE_TYPES[country];
+            } else if (caseType == CASE_TYPE_HOUSEHOLD || caseType == CASE_TYPE_SPG) {
+              questionnaireType = HOUSEHOLD_QUESTIONNAIRE_TYPES[country];
+            } else if (caseType == CASE_TYPE_CE && estab) {
+              questionnaireType = CE1_QUESTIONNAIRE_TYPES[country];
+            }
+            questionnaireTypes[index(caseType, country, estab, individual)] = questionnaireType;
+          }
+        }
+      }
+    }
+
+    return questionnaireTypes;
+  }
+
+  private static int index(int caseType, int country, boolean estab, boolean individual) {
+    return ((caseType * COUNTRY_CODES + country) * 2 + (estab ? 1 : 0)) * 2 + (individual ? 1 : 0);
+  }
+
+  // Null is treated as an unknown case type rather than failing, so that individual requests,
+  // which don't depend on the case type, still get a questionnaire type
+  private static int getCaseTypeCode(String caseType) {
+    if (caseType == null) {
+      return CASE_TYPE_OTHER;
+    }
+
+    switch (caseType) {
+      case "HH":
+        return CASE_TYPE_HOUSEHOLD;
+      case "SPG":
+        return CASE_TYPE_SPG;
+      case "CE":
+        return CASE_TYPE_CE;
+      default:
+        return CASE_TYPE_OTHER;
+    }
+  }
+
+  private static int getCountryCode(char country) {
+    switch (country) {
+      case 'E':
+        return 0;
+      case 'W':
+        return 1;
+      case 'N':
+        return 2;
+      default:
+        return COUNTRY_UNKNOWN;
+    }
+  }
+
+  private static boolean isEstab(String addressLevel) {
+    return addressLevel != null && addressLevel.length() == 1 && addressLevel.charAt(0) == 'E';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
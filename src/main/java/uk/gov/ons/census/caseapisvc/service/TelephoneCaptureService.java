@@ -0,0 +1,277 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+/**
+ * Runs the telephone capture UAC QID fetch and fulfilment publish on their own bounded executors,
+ * so the request thread is handed back while the UAC service and Rabbit calls are in flight. A
+ * full executor rejects the stage rather than queueing without limit, and each stage times out on
+ * its own. A stage that times out before it starts is never run, and a publish that has started is
+ * seen through, so a request that times out hasn't sent a fulfilment that a retry would repeat.
+ */
+@Service
+public class TelephoneCaptureService {
+  private static final Logger log = LoggerFactory.getLogger(TelephoneCaptureService.class);
+
+  static final String UAC_QID_STAGE = "uacQid";
+  static final String PUBLISH_STAGE = "publish";
+
+  private final UacQidService uacQidService;
+  private final CaseService caseService;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${telephonecapture.uac-qid.pool-size}")
+  private int uacQidPoolSize;
+
+  @Value("${telephonecapture.uac-qid.queue-capacity}")
+  private int uacQidQueueCapacity;
+
+  @Value("${telephonecapture.uac-qid.timeout}")
+  private String uacQidTimeout;
+
+  @Value("${telephonecapture.publish.pool-size}")
+  private int publishPoolSize;
+
+  @Value("${telephonecapture.publish.queue-capacity}")
+  private int publishQueueCapacity;
+
+  @Value("${telephonecapture.publish.timeout}")
+  private String publishTimeout;
+
+  private ExecutorService uacQidExecutor;
+  private ExecutorService publishExecutor;
+
+  public TelephoneCaptureService(
+      UacQidService uacQidService, CaseService caseService, MeterRegistry meterRegistry) {
+    this.uacQidService = uacQidService;
+    this.caseService = caseService;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @PostConstruct
+  public void init() {
+    uacQidExecutor = buildExecutor(UAC_QID_STAGE, uacQidPoolSize, uacQidQueueCapacity);
+    publishExecutor = buildExecutor(PUBLISH_STAGE, publishPoolSize, publishQueueCapacity);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    uacQidExecutor.shutdown();
+    publishExecutor.shutdown();
+  }
+
+  // The UAC QID pair is linked to the individual case when there is one, the fulfilment is always
+  // sent for the case the request was made against
+  public CompletableFuture<UacQidCreatedPayloadDTO> createAndSendUacQid(
+      UUID caseId, UUID individualCaseId, String fulfilmentCode, int questionnaireType) {
+    UUID uacQidCaseId = individualCaseId != null ? individualCaseId : caseId;
+
+    return runStage(
+            UAC_QID_STAGE,
+            uacQidExecutor,
+            Duration.parse(uacQidTimeout),
+            false,
+            () -> uacQidService.createAndLinkUacQid(uacQidCaseId, questionnaireType))
+        .thenCompose(
+            uacQidCreatedPayload ->
+                runStage(
+                    PUBLISH_STAGE,
+                    publishExecutor,
+                    Duration.parse(publishTimeout),
+                    true,
+                    () -> {
+                      caseService.buildAndSendTelephoneCaptureFulfilmentRequest(
+                          caseId, fulfilmentCode, individualCaseId, uacQidCreatedPayload);
+                      return uacQidCreatedPayload;
+                    }));
+  }
+
+  // The UAC QID service hands out one pair per request, so the pairs for each individual are
+  // fetched side by side, then the fulfilment requests for those fetched are published as one
+  // batch. Returns the pairs that were sent by individual case ID, and only fails when none were.
+  public CompletableFuture<Map<UUID, UacQidCreatedPayloadDTO>> createAndSendUacQids(
+      UUID caseId, List<UUID> individualCaseIds, String fulfilmentCode, int questionnaireType) {
+    Duration timeout = Duration.parse(uacQidTimeout);
+    List<CompletableFuture<UacQidCreatedPayloadDTO>> uacQidsCreated =
+        new ArrayList<>(individualCaseIds.size());
+    for (UUID individualCaseId : individualCaseIds) {
+      uacQidsCreated.add(
+          runStage(
+              UAC_QID_STAGE,
+              uacQidExecutor,
+              timeout,
+              false,
+              () -> uacQidService.createAndLinkUacQid(individualCaseId, questionnaireType)));
+    }
+
+    // Waits for every individual, whether their pair was fetched or not
+    CompletableFuture<?>[] uacQidsSettled =
+        uacQidsCreated.stream()
+            .map(uacQidCreated -> uacQidCreated.handle((value, throwable) -> null))
+            .toArray(CompletableFuture<?>[]::new);
+
+    return CompletableFuture.allOf(uacQidsSettled)
+        .thenCompose(
+            ignored -> {
+              Map<UUID, UacQidCreatedPayloadDTO> uacQidsFetched = new LinkedHashMap<>();
+              Throwable firstFailure = null;
+              for (int i = 0; i < individualCaseIds.size(); i++) {
+                CompletableFuture<UacQidCreatedPayloadDTO> uacQidCreated = uacQidsCreated.get(i);
+                if (!uacQidCreated.isCompletedExceptionally()) {
+                  uacQidsFetched.put(individualCaseIds.get(i), uacQidCreated.join());
+                } else if (firstFailure == null) {
+                  firstFailure = uacQidCreated.handle((value, throwable) -> throwable).join();
+                }
+              }
+
+              if (uacQidsFetched.isEmpty()) {
+                return CompletableFuture.failedFuture(unwrap(firstFailure));
+              }
+
+              return runStage(
+                  PUBLISH_STAGE,
+                  publishExecutor,
+                  Duration.parse(publishTimeout),
+                  true,
+                  () -> publishFulfilmentRequests(caseId, fulfilmentCode, uacQidsFetched));
+            });
+  }
+
+  private Map<UUID, UacQidCreatedPayloadDTO> publishFulfilmentRequests(
+      UUID caseId, String fulfilmentCode, Map<UUID, UacQidCreatedPayloadDTO> uacQidsFetched) {
+    Map<UUID, RuntimeException> failures =
+        caseService.buildAndSendTelephoneCaptureFulfilmentRequests(
+            caseId,
+            fulfilmentCode,
+            new ArrayList<>(uacQidsFetched.keySet()),
+            new ArrayList<>(uacQidsFetched.values()));
+    if (failures.size() == uacQidsFetched.size()) {
+      throw failures.values().iterator().next();
+    }
+
+    failures.forEach(
+        (individualCaseId, failure) ->
+            log.with("caseId", caseId)
+                .with("individualCaseId", individualCaseId)
+                .warn("Telephone capture fulfilment request not sent", failure));
+    uacQidsFetched.keySet().removeAll(failures.keySet());
+    return uacQidsFetched;
+  }
+
+  // The timer starts on submission so that it includes the time spent queued for a thread. A
+  // stage still queued when it times out is skipped. Once started, a stage that can't be undone is
+  // waited for past its timeout, any other is left to finish while the response stops waiting.
+  private <T> CompletableFuture<T> runStage(
+      String stage,
+      ExecutorService executor,
+      Duration timeout,
+      boolean waitOnceStarted,
+      Supplier<T> task) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    CompletableFuture<Void> started =
+        new CompletableFuture<Void>().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    started.whenComplete(
+        (ignored, throwable) -> {
+          if (throwable != null) {
+            result.completeExceptionally(throwable);
+          }
+        });
+    if (!waitOnceStarted) {
+      result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    try {
+      executor.execute(
+          () -> {
+            if (!started.complete(null)) {
+              return;
+            }
+
+            try {
+              result.complete(task.get());
+            } catch (Throwable throwable) {
+              result.completeExceptionally(throwable);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      started.complete(null);
+      result.completeExceptionally(e);
+    }
+
+    return result.whenComplete(
+            (value, throwable) -> {
+              String outcome = getOutcome(throwable);
+              sample.stop(
+                  Timer.builder("telephonecapture.stage")
+                      .tags(Tags.of("stage", stage, "outcome", outcome))
+                      .register(meterRegistry));
+
+              if (throwable != null) {
+                log.with("stage", stage)
+                    .with("outcome", outcome)
+                    .warn("Telephone capture stage failed", unwrap(throwable));
+              }
+            });
+  }
+
+  private ExecutorService buildExecutor(String stage, int poolSize, int queueCapacity) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("telephone-capture-" + stage + "-"));
+
+    return ExecutorServiceMetrics.monitor(
+        meterRegistry, executor, "telephonecapture." + stage, Tags.empty());
+  }
+
+  private static String getOutcome(Throwable throwable) {
+    Throwable cause = unwrap(throwable);
+    if (cause == null) {
+      return "success";
+    } else if (cause instanceof TimeoutException) {
+      return "timeout";
+    } else if (cause instanceof RejectedExecutionException) {
+      return "rejected";
+    }
+    return "error";
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return throwable.getCause();
+    }
+    return throwable;
+  }
+}
@@ -0,0 +1,157 @@
+package uk.gov.ons.census.caseapisvc.validation;
+
+import java.util.List;
+import uk.gov.ons.census.caseapisvc.validation.RequestValidationProperties.Rule;
+
+/**
+ * The telephone capture rules worked out for every request up front. The survey, case type and
+ * address level are reduced to two bit codes, which with the individual and individual case ID
+ * flags make an eight bit key into a bit set of the invalid requests.
+ */
+final class GetNewQidRuleTable {
+  private static final int ANY = -1;
+
+  // Codes for values the rules don't name, the last code of each field
+  private static final int SURVEY_OTHER = 2;
+  private static final int CASE_TYPE_OTHER = 3;
+  private static final int ADDRESS_LEVEL_OTHER = 2;
+
+  private static final int KEYS = 1 << 8;
+
+  private final long[] invalid = new long[KEYS / Long.SIZE];
+
+  private GetNewQidRuleTable() {}
+
+  static GetNewQidRuleTable compile(List<Rule> rules) {
+    int[][] ruleCodes = new int[rules.size()][];
+    for (int i = 0; i < rules.size(); i++) {
+      ruleCodes[i] = getRuleCodes(rules.get(i));
+    }
+
+    GetNewQidRuleTable ruleTable = new GetNewQidRuleTable();
+    for (int key = 0; key < KEYS; key++) {
+      for (int i = 0; i < ruleCodes.length; i++) {
+        if (matches(ruleCodes[i], key)) {
+          if (!rules.get(i).isValid()) {
+            ruleTable.invalid[key / Long.SIZE] |= 1L << key;
+          }
+          break;
+        }
+      }
+    }
+    return ruleTable;
+  }
+
+  boolean isValid(
+      String survey,
+      String caseType,
+      String addressLevel,
+      boolean individual,
+      boolean hasIndividualCaseId) {
+    int key =
+        key(
+            getSurveyCode(survey),
+            getCaseTypeCode(caseType),
+            getAddressLevelCode(addressLevel),
+            individual ? 1 : 0,
+            hasIndividualCaseId ? 1 : 0);
+    return (invalid[key / Long.SIZE] & (1L << key)) == 0;
+  }
+
+  private static int key(
+      int survey, int caseType, int addressLevel, int individual, int hasIndividualCaseId) {
+    return survey << 6 | caseType << 4 | addressLevel << 2 | individual << 1 | hasIndividualCaseId;
+  }
+
+  // The codes of a rule in key order, ANY for a property the rule leaves out
+  private static int[] getRuleCodes(Rule rule) {
+    return new int[] {
+      getRuleCode("survey", rule.getSurvey(), getSurveyCode(rule.getSurvey()), SURVEY_OTHER),
+      getRuleCode(
+          "case type", rule.getCaseType(), getCaseTypeCode(rule.getCaseType()), CASE_TYPE_OTHER),
+      getRuleCode(
+          "address level",
+          rule.getAddressLevel(),
+          getAddressLevelCode(rule.getAddressLevel()),
+          ADDRESS_LEVEL_OTHER),
+      getRuleCode(rule.getIndividual()),
+      getRuleCode(rule.getIndividualCaseId())
+    };
+  }
+
+  // A rule can only name values that have a code of their own, anything else would quietly match
+  // every other value
+  private static int getRuleCode(String field, String value, int code, int otherCode) {
+    if (value == null) {
+      return ANY;
+    } else if (code == otherCode) {
+      throw new IllegalArgumentException(
+          String.format("Unknown %s '%s' in request validation rule", field, value));
+    }
+    return code;
+  }
+
+  private static int getRuleCode(Boolean value) {
+    if (value == null) {
+      return ANY;
+    }
+    return value ? 1 : 0;
+  }
+
+  private static boolean matches(int[] ruleCodes, int key) {
+    int[] keyCodes = {key >> 6, key >> 4 & 3, key >> 2 & 3, key >> 1 & 1, key & 1};
+    for (int i = 0; i < ruleCodes.length; i++) {
+      if (ruleCodes[i] != ANY && ruleCodes[i] != keyCodes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getSurveyCode(String survey) {
+    if (survey == null) {
+      return SURVEY_OTHER;
+    }
+
+    switch (survey) {
+      case "CENSUS":
+        return 0;
+      case "CCS":
+        return 1;
+      default:
+        return SURVEY_OTHER;
+    }
+  }
+
+  private static int getCaseTypeCode(String caseType) {
+    if (caseType == null) {
+      return CASE_TYPE_OTHER;
+    }
+
+    switch (caseType) {
+      case "HH":
+        return 0;
+      case "SPG":
+        return 1;
+      case "CE":
+        return 2;
+      default:
+        return CASE_TYPE_OTHER;
+    }
+  }
+
+  private static int getAddressLevelCode(String addressLevel) {
+    if (addressLevel == null) {
+      return ADDRESS_LEVEL_OTHER;
+    }
+
+    switch (addressLevel) {
+      case "U":
+        return 0;
+      case "E":
+        return 1;
+      default:
+        return ADDRESS_LEVEL_OTHER;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package uk.gov.ons.census.caseapisvc.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("requestvalidation")
+public class RequestValidationProperties {
+  // Replaces the built in telephone capture rules when set, the first rule to match decides
+  private List<Rule> getNewQidRules = new ArrayList<>();
+
+  // A property left out matches any value
+  @Data
+  public static class Rule {
+    private String survey;
+    private String caseType;
+    private String addressLevel;
+    private Boolean individual;
+    private Boolean individualCaseId;
+    private boolean valid;
+  }
+}
@@ -1,57 +1,45 @@
 package uk.gov.ons.census.caseapisvc.validation;
 
+import java.util.List;
 import java.util.UUID;
 import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.validation.RequestValidationProperties.Rule;
 
+@Component
 public class RequestValidator {
-  public static void validateGetNewQidByCaseIdRequest(
+  // A request that no rule matches is valid
+  static final List<Rule> DEFAULT_GET_NEW_QID_RULES =
+      List.of(
+          rule("CCS", null, null, true, null, false),
+          rule("CCS", "CE", null, null, null, false),
+          rule(null, "HH", null, true, false, false),
+          rule(null, "HH", null, false, true, false),
+          rule(null, "CE", "E", null, true, false),
+          rule(null, "CE", "U", true, false, true),
+          rule(null, "CE", "U", null, null, false),
+          rule(null, "SPG", "E", null, true, false),
+          rule(null, "SPG", "U", null, true, false));
+
+  private final GetNewQidRuleTable getNewQidRules;
+
+  public RequestValidator(RequestValidationProperties requestValidationProperties) {
+    List<Rule> configuredRules = requestValidationProperties.getGetNewQidRules();
+    getNewQidRules =
+        GetNewQidRuleTable.compile(
+            configuredRules.isEmpty() ? DEFAULT_GET_NEW_QID_RULES : configuredRules);
+  }
+
+  public void validateGetNewQidByCaseIdRequest(
       Case caze, boolean individual, UUID individualCaseId) {
-    if (caze.getSurvey().equals("CCS") && individual) {
-      throwBadRequest();
-    } else if (caze.getSurvey().equals("CCS") && caze.getCaseType().equals("CE")) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("HH") && individual && individualCaseId == null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("HH") && !individual && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("CE")
-        && caze.getAddressLevel().equals("E")
-        && !individual
-        && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("CE")
-        && caze.getAddressLevel().equals("E")
-        && individual
-        && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("CE")
-        && caze.getAddressLevel().equals("U")
-        && individual
-        && individualCaseId == null) {
-      return; // Valid request
-    } else if (caze.getCaseType().equals("CE") && caze.getAddressLevel().equals("U")) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("SPG")
-        && caze.getAddressLevel().equals("E")
-        && !individual
-        && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("SPG")
-        && caze.getAddressLevel().equals("E")
-        && individual
-        && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("SPG")
-        && caze.getAddressLevel().equals("U")
-        && !individual
-        && individualCaseId != null) {
-      throwBadRequest();
-    } else if (caze.getCaseType().equals("SPG")
-        && caze.getAddressLevel().equals("U")
-        && individual
-        && individualCaseId != null) {
+    if (!getNewQidRules.isValid(
+        caze.getSurvey(),
+        caze.getCaseType(),
+        caze.getAddressLevel(),
+        individual,
+        individualCaseId != null)) {
       throwBadRequest();
     }
   }
@@ -59,4 +47,21 @@ public class RequestValidator {
   private static void throwBadRequest() {
     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid request");
   }
+
+  private static Rule rule(
+      String survey,
+      String caseType,
+      String addressLevel,
+      Boolean individual,
+      Boolean individualCaseId,
+      boolean valid) {
+    Rule rule = new Rule();
+    rule.setSurvey(survey);
+    rule.setCaseType(caseType);
+    rule.setAddressLevel(addressLevel);
+    rule.setIndividual(individual);
+    rule.setIndividualCaseId(individualCaseId);
+    rule.setValid(valid);
+    return rule;
+  }
 }
@@ -0,0 +1,374 @@
+package uk.gov.ons.census.caseapisvc.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import ma.glasnost.orika.MapperFacade;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventAssembler;
+import uk.gov.ons.census.caseapisvc.model.dto.CCSLaunchDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseBatchRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseBatchResponseDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseBatchResultDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseEventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CasePageDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.IndividualTelephoneCaptureRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.IndividualTelephoneCaptureResponseDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.NewQidLink;
+import uk.gov.ons.census.caseapisvc.model.dto.PostcodePageToken;
+import uk.gov.ons.census.caseapisvc.model.dto.QidLink;
+import uk.gov.ons.census.caseapisvc.model.dto.TelephoneCaptureDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.CaseMetadata;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
+
+/**
+ * Runs the case read path over synthetic data once the application has started, so the first
+ * requests after a pod starts don't pay for Hibernate compiling each query, Orika and Jackson
+ * building their mappers and serializers and the JIT compiling all of it. WarmUpHealthIndicator
+ * holds back readiness until this has finished.
+ *
+ * <p>The queries look up identifiers that no case has, so they read nothing and leave the caches
+ * alone. A failed stage is logged and the service carries on partly cold rather than never
+ * becoming ready.
+ */
+@Component
+public class StartupWarmUp implements ApplicationRunner {
+  private static final Logger log = LoggerFactory.getLogger(StartupWarmUp.class);
+
+  private static final String UNKNOWN_UPRN = "0";
+  private static final long UNKNOWN_CASE_REF = -1;
+  private static final String UNKNOWN_POSTCODE = "ZZ999ZZ";
+  private static final String UNKNOWN_QID = "0000000000000000";
+
+  private final CaseRepository caseRepo;
+  private final UacQidLinkRepository uacQidLinkRepository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final MapperFacade mapperFacade;
+  private final CaseEventAssembler caseEventAssembler;
+  private final ObjectMapper objectMapper;
+  private final Timer warmUpTimer;
+
+  @Value("${warmup.enabled}")
+  private boolean enabled;
+
+  @Value("${warmup.query-iterations}")
+  private int queryIterations;
+
+  @Value("${warmup.mapping-iterations}")
+  private int mappingIterations;
+
+  private volatile boolean complete;
+  private volatile Duration duration;
+  private volatile Exception failure;
+
+  public StartupWarmUp(
+      CaseRepository caseRepo,
+      UacQidLinkRepository uacQidLinkRepository,
+      EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      MapperFacade mapperFacade,
+      CaseEventAssembler caseEventAssembler,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry) {
+    this.caseRepo = caseRepo;
+    this.uacQidLinkRepository = uacQidLinkRepository;
+    this.entityManager = entityManager;
+    this.mapperFacade = mapperFacade;
+    this.caseEventAssembler = caseEventAssembler;
+    this.objectMapper = objectMapper;
+
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+
+    warmUpTimer = Timer.builder("startup.warmup").register(meterRegistry);
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public Exception getFailure() {
+    return failure;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled) {
+      complete = true;
+      return;
+    }
+
+    long start = System.nanoTime();
+    // The mapping doesn't need the database, so it's still warmed if the queries fail
+    warmUp(
+        "queries",
+        () -> {
+          for (int i = 0; i < queryIterations; i++) {
+            transactionTemplate.executeWithoutResult(status -> runQueries());
+          }
+        });
+    warmUp(
+        "mapping",
+        () -> {
+          Case caze = createCase();
+          for (int i = 0; i < mappingIterations; i++) {
+            mapAndSerialize(caze);
+          }
+        });
+
+    duration = Duration.ofNanos(System.nanoTime() - start);
+    warmUpTimer.record(duration);
+    log.with("durationMs", duration.toMillis()).info("Warm-up complete");
+    complete = true;
+  }
+
+  private void warmUp(String stage, Runnable warmUpStage) {
+    try {
+      warmUpStage.run();
+    } catch (RuntimeException e) {
+      log.with("stage", stage).error("Warm-up stage failed, carrying on without it", e);
+      failure = e;
+    }
+  }
+
+  // Every finder the endpoints use, as CaseService and UacQidService call them
+  private void runQueries() {
+    UUID caseId = UUID.randomUUID();
+    List<UUID> caseIds = List.of(caseId);
+    List<Long> caseRefs = List.of(UNKNOWN_CASE_REF);
+    List<String> uprns = List.of(UNKNOWN_UPRN);
+
+    caseRepo.findByUprn(UNKNOWN_UPRN);
+    caseRepo.findByUprnAndAddressInvalidFalse(UNKNOWN_UPRN);
+    caseRepo.findByCaseId(caseId);
+    caseRepo.findByCaseRef(UNKNOWN_CASE_REF);
+    caseRepo.findByNormalisedPostcode(UNKNOWN_POSTCODE);
+    caseRepo.findCCSCasesByNormalisedPostcode(UNKNOWN_POSTCODE);
+    caseRepo.findFirstPageByNormalisedPostcode(UNKNOWN_POSTCODE, 1);
+    caseRepo.findPageByNormalisedPostcodeAfter(
+        UNKNOWN_POSTCODE, "", "", "", "", caseId.toString(), 1);
+    drain(caseRepo.streamByNormalisedPostcode(UNKNOWN_POSTCODE));
+    drain(caseRepo.streamCCSCasesByNormalisedPostcode(UNKNOWN_POSTCODE));
+    drain(caseRepo.streamByUprn(UNKNOWN_UPRN));
+    drain(caseRepo.streamByUprnAndAddressInvalidFalse(UNKNOWN_UPRN));
+    caseRepo.existsCaseByCaseId(caseId);
+    caseRepo.findCaseIdsByCaseIdIn(caseIds);
+    caseRepo.findByCaseIdIn(caseIds);
+    caseRepo.findByCaseRefIn(caseRefs);
+    caseRepo.findByUprnIn(uprns);
+    caseRepo.findByUprnInAndAddressInvalidFalse(uprns);
+    caseRepo.findCaseVersionByCaseId(caseId);
+    caseRepo.findWithUacQidLinksByCaseId(caseId);
+    caseRepo.findWithUacQidLinksByCaseRef(UNKNOWN_CASE_REF);
+    caseRepo.findWithUacQidLinksByUprn(UNKNOWN_UPRN);
+    caseRepo.findWithUacQidLinksByUprnAndAddressInvalidFalse(UNKNOWN_UPRN);
+    caseRepo.findCCSCasesWithUacQidLinksByNormalisedPostcode(UNKNOWN_POSTCODE);
+    caseRepo.findWithUacQidLinksByCaseIdIn(caseIds);
+    caseRepo.findWithUacQidLinksByCaseRefIn(caseRefs);
+    caseRepo.findWithUacQidLinksByUprnIn(uprns);
+    caseRepo.findWithUacQidLinksByUprnInAndAddressInvalidFalse(uprns);
+
+    uacQidLinkRepository.findByQid(UNKNOWN_QID);
+    uacQidLinkRepository.findQidCaseSummaryByQid(UNKNOWN_QID);
+    uacQidLinkRepository.findCcsQidSummaryByCaseIdAndSurvey(caseId, "CCS");
+
+    // An IN list can't be empty, and a reference to a case that doesn't exist is only loaded if
+    // it's read
+    List<Case> cases = List.of(entityManager.getReference(Case.class, caseId));
+    uacQidLinkRepository.fetchEventsByCazeIn(cases);
+    caseRepo.fetchEventsByCaseIn(cases);
+  }
+
+  private static void drain(Stream<Case> cases) {
+    try (cases) {
+      cases.forEach(caze -> {});
+    }
+  }
+
+  // Each mapping the endpoints make and each DTO they read or write
+  private void mapAndSerialize(Case caze) {
+    CaseContainerDTO caseContainerDTO = mapperFacade.map(caze, CaseContainerDTO.class);
+    caseContainerDTO.setCaseEvents(
+        caseEventAssembler.assembleEvents(
+            caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class));
+
+    CaseDetailsDTO caseDetailsDTO = mapperFacade.map(caze, CaseDetailsDTO.class);
+    caseDetailsDTO.setEvents(
+        caseEventAssembler.assembleEvents(
+            caze, EnumSet.of(EventType.RM_UAC_CREATED), CaseDetailsEventDTO.class));
+
+    CasePageDTO casePageDTO = new CasePageDTO();
+    casePageDTO.setCases(List.of(caseContainerDTO));
+    casePageDTO.setNextPageToken("");
+
+    CaseBatchResultDTO batchResult = new CaseBatchResultDTO();
+    batchResult.setFound(true);
+    batchResult.setCases(List.of(caseContainerDTO));
+    CaseBatchResponseDTO batchResponse = new CaseBatchResponseDTO();
+    batchResponse.setCaseIds(Map.of(caze.getCaseId(), batchResult));
+    batchResponse.setCaseRefs(Map.of(caze.getCaseRef(), batchResult));
+    batchResponse.setUprns(Map.of(caze.getUprn(), batchResult));
+
+    TelephoneCaptureDTO telephoneCaptureDTO = new TelephoneCaptureDTO();
+    telephoneCaptureDTO.setQuestionnaireId(UNKNOWN_QID);
+    telephoneCaptureDTO.setUac("");
+    telephoneCaptureDTO.setFormType("H");
+    telephoneCaptureDTO.setQuestionnaireType("01");
+    IndividualTelephoneCaptureResponseDTO individualResponse =
+        new IndividualTelephoneCaptureResponseDTO();
+    individualResponse.setIndividualCaseIds(Map.of(caze.getCaseId(), telephoneCaptureDTO));
+
+    CCSLaunchDTO ccsLaunchDTO = new CCSLaunchDTO();
+    ccsLaunchDTO.setQuestionnaireId(UNKNOWN_QID);
+    ccsLaunchDTO.setFormType("H");
+
+    QidLink qidLink = new QidLink();
+    qidLink.setQuestionnaireId(UNKNOWN_QID);
+    qidLink.setCaseId(caze.getCaseId());
+    NewQidLink newQidLink = new NewQidLink();
+    newQidLink.setTransactionId(UUID.randomUUID());
+    newQidLink.setChannel("RM");
+    newQidLink.setQidLink(qidLink);
+
+    CaseBatchRequestDTO batchRequest = new CaseBatchRequestDTO();
+    batchRequest.setCaseIds(List.of(caze.getCaseId()));
+    batchRequest.setCaseRefs(List.of(caze.getCaseRef()));
+    batchRequest.setUprns(List.of(caze.getUprn()));
+
+    IndividualTelephoneCaptureRequestDTO individualRequest =
+        new IndividualTelephoneCaptureRequestDTO();
+    individualRequest.setIndividualCaseIds(List.of(caze.getCaseId()));
+
+    PostcodePageToken pageToken = new PostcodePageToken();
+    pageToken.setPostcode(UNKNOWN_POSTCODE);
+    pageToken.setCaseId(caze.getCaseId());
+
+    try {
+      objectMapper.writeValueAsBytes(List.of(caseContainerDTO));
+      objectMapper.writeValueAsBytes(caseDetailsDTO);
+      objectMapper.writeValueAsBytes(casePageDTO);
+      objectMapper.writeValueAsBytes(batchResponse);
+      objectMapper.writeValueAsBytes(individualResponse);
+      objectMapper.writeValueAsBytes(ccsLaunchDTO);
+      roundTrip(qidLink, QidLink.class);
+      roundTrip(newQidLink, NewQidLink.class);
+      roundTrip(batchRequest, CaseBatchRequestDTO.class);
+      roundTrip(individualRequest, IndividualTelephoneCaptureRequestDTO.class);
+      roundTrip(pageToken, PostcodePageToken.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private <T> void roundTrip(T value, Class<T> type) throws IOException {
+    objectMapper.readValue(objectMapper.writeValueAsBytes(value), type);
+  }
+
+  // A household case with a linked questionnaire, with every field the mappers copy set
+  private static Case createCase() {
+    OffsetDateTime now = OffsetDateTime.now();
+
+    Case caze = new Case();
+    caze.setCaseId(UUID.randomUUID());
+    caze.setCaseRef(UNKNOWN_CASE_REF);
+    caze.setUprn(UNKNOWN_UPRN);
+    caze.setEstabUprn(UNKNOWN_UPRN);
+    caze.setCaseType("HH");
+    caze.setAddressType("HH");
+    caze.setEstabType("Household");
+    caze.setAddressLevel("U");
+    caze.setAbpCode("RD06");
+    caze.setOrganisationName("");
+    caze.setAddressLine1("");
+    caze.setAddressLine2("");
+    caze.setAddressLine3("");
+    caze.setTownName("");
+    caze.setPostcode(UNKNOWN_POSTCODE);
+    caze.setLatitude("0");
+    caze.setLongitude("0");
+    caze.setOa("");
+    caze.setLsoa("");
+    caze.setMsoa("");
+    caze.setLad("");
+    caze.setRegion("E");
+    caze.setHtcWillingness("");
+    caze.setHtcDigital("");
+    caze.setFieldCoordinatorId("");
+    caze.setFieldOfficerId("");
+    caze.setTreatmentCode("");
+    caze.setCollectionExerciseId(UUID.randomUUID());
+    caze.setActionPlanId(UUID.randomUUID());
+    caze.setSurvey("CENSUS");
+    caze.setCreatedDateTime(now);
+    caze.setLastUpdated(now);
+
+    CaseMetadata metadata = new CaseMetadata();
+    metadata.setSecureEstablishment(false);
+    caze.setMetadata(metadata);
+
+    UacQidLink uacQidLink = new UacQidLink();
+    uacQidLink.setId(UUID.randomUUID());
+    uacQidLink.setQid(UNKNOWN_QID);
+    uacQidLink.setUac("");
+    uacQidLink.setActive(true);
+    uacQidLink.setCaze(caze);
+    uacQidLink.setEvents(
+        createEvents(now, EventType.RM_UAC_CREATED, EventType.PRINT_CASE_SELECTED));
+    caze.setUacQidLinks(List.of(uacQidLink));
+    caze.setEvents(createEvents(now, EventType.SAMPLE_LOADED, EventType.FULFILMENT_REQUESTED));
+
+    return caze;
+  }
+
+  private static List<Event> createEvents(OffsetDateTime now, EventType... eventTypes) {
+    List<Event> events = new ArrayList<>(eventTypes.length);
+
+    for (EventType eventType : eventTypes) {
+      Event event = new Event();
+      event.setId(UUID.randomUUID());
+      event.setEventType(eventType);
+      event.setEventDescription(eventType.name());
+      event.setEventDate(now);
+      event.setRmEventProcessed(now);
+      event.setEventChannel("RM");
+      event.setEventSource("CASE_SERVICE");
+      event.setEventTransactionId(UUID.randomUUID());
+      event.setEventPayload("{}");
+      event.setMessageTimestamp(now);
+      events.add(event);
+    }
+
+    return events;
+  }
+}
@@ -0,0 +1,38 @@
+package uk.gov.ons.census.caseapisvc.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports warming up until StartupWarmUp has finished. Only the readiness health group orders that
+ * status, and returns it as a 503 so the pod isn't sent traffic while it's still cold; /health and
+ * the liveness group ignore it so the pod isn't restarted for it.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+  public static final Status WARMING_UP = new Status("WARMING_UP");
+
+  private final StartupWarmUp startupWarmUp;
+
+  public WarmUpHealthIndicator(StartupWarmUp startupWarmUp) {
+    this.startupWarmUp = startupWarmUp;
+  }
+
+  @Override
+  public Health health() {
+    if (!startupWarmUp.isComplete()) {
+      return Health.status(WARMING_UP).build();
+    }
+
+    Health.Builder health = Health.up();
+    if (startupWarmUp.getDuration() != null) {
+      health.withDetail("durationMs", startupWarmUp.getDuration().toMillis());
+    }
+    if (startupWarmUp.getFailure() != null) {
+      health.withException(startupWarmUp.getFailure());
+    }
+    return health.build();
+  }
+}
@@ -0,0 +1,8 @@
+-- The casev2 schema is owned by census-rm-case-processor. This index has to be created there
+-- for the postcode searches in CaseRepository to avoid a sequential scan of the cases table.
+--
+-- The leading expression matches UPPER(REPLACE(postcode, ' ', '')) in the postcode queries. The
+-- ordered postcode searches sort by COALESCEs of the remaining columns, which
+-- cases_postcode_keyset_idx serves instead.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS cases_postcode_idx
+    ON casev2.cases (UPPER(REPLACE(postcode, ' ', '')), organisation_name, address_line1, case_type, address_level);
@@ -0,0 +1,9 @@
+-- The casev2 schema is owned by census-rm-case-processor. This index has to be created there
+-- for the paged postcode search in CaseRepository to seek straight to each page, and for the whole
+-- and streamed postcode searches to read their cases in order without a sort.
+--
+-- The columns match the ORDER BY of the postcode searches and the row comparison of the keyset
+-- queries exactly, including the COALESCEs, with case_id last as the tie-breaker.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS cases_postcode_keyset_idx
+    ON casev2.cases (UPPER(REPLACE(postcode, ' ', '')), COALESCE(organisation_name, ''), COALESCE(address_line1, ''),
+                     COALESCE(case_type, ''), COALESCE(address_level, ''), case_id);
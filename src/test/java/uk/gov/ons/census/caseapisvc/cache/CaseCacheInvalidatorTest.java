@@ -0,0 +1,83 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+public class CaseCacheInvalidatorTest {
+  private static final UUID CASE_ID = UUID.fromString("2e083ab1-41f7-4dea-a3d9-77f48458b5ca");
+
+  @Mock private CaseCache caseCache;
+
+  @InjectMocks private CaseCacheInvalidator underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+  }
+
+  @Test
+  public void testCaseUpdatedEventInvalidatesCaseAndUprn() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"CASE_UPDATED\"},\"payload\":{\"collectionCase\":"
+                + "{\"id\":\""
+                + CASE_ID
+                + "\",\"address\":{\"uprn\":\"123\"}}}}"));
+
+    verify(caseCache).invalidateCase(CASE_ID, "123");
+  }
+
+  @Test
+  public void testUacUpdatedEventInvalidatesLinkedCase() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"UAC_UPDATED\"},\"payload\":{\"uac\":"
+                + "{\"questionnaireId\":\"0120000000000001\",\"caseId\":\""
+                + CASE_ID
+                + "\"}}}"));
+
+    verify(caseCache).invalidateCase(eq(CASE_ID), isNull());
+  }
+
+  @Test
+  public void testUacUpdatedEventWithoutCaseIsIgnored() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"UAC_UPDATED\"},\"payload\":{\"uac\":"
+                + "{\"questionnaireId\":\"0120000000000001\",\"caseId\":null}}}"));
+
+    verify(caseCache, never()).invalidateCase(any(), any());
+    verify(caseCache, never()).invalidateAll();
+  }
+
+  @Test
+  public void testUnreadableEventInvalidatesEverything() {
+    underTest.receiveEvent(message("not json"));
+
+    verify(caseCache).invalidateAll();
+  }
+
+  @Test
+  public void testInvalidCaseIdInvalidatesEverything() {
+    underTest.receiveEvent(message("{\"payload\":{\"collectionCase\":{\"id\":\"not-a-uuid\"}}}"));
+
+    verify(caseCache).invalidateAll();
+  }
+
+  private Message message(String body) {
+    return new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+  }
+}
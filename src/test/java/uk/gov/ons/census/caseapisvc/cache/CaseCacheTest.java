@@ -0,0 +1,179 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.persistence.EntityManagerFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+
+public class CaseCacheTest {
+  private static final UUID CASE_ID = UUID.randomUUID();
+  private static final long CASE_REF = 1234567890L;
+  private static final String UPRN = "123";
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final PrimaryReader primaryReader =
+      new PrimaryReader(mock(PlatformTransactionManager.class), mock(EntityManagerFactory.class));
+
+  private SimpleMeterRegistry meterRegistry;
+  private CaseCache underTest;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    underTest = new CaseCache(meterRegistry, primaryReader);
+    ReflectionTestUtils.setField(underTest, "enabled", true);
+    ReflectionTestUtils.setField(underTest, "maxSize", 100L);
+    ReflectionTestUtils.setField(underTest, "timeToLive", "PT5M");
+    underTest.init();
+  }
+
+  @Test
+  public void testCaseIsLoadedOnceAndThenServedFromCache() {
+    CaseContainerDTO first = underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    CaseContainerDTO second = underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads).hasValue(1);
+    assertThat(cacheGets("hit")).isEqualTo(1.0);
+    assertThat(cacheGets("miss")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testCaseCachedAtTheSameVersionIsServed() {
+    CaseContainerDTO first = underTest.getByCaseId(CASE_ID, false, "v1", loader(CASE_ID, UPRN));
+    CaseContainerDTO second = underTest.getByCaseId(CASE_ID, false, "v1", loader(CASE_ID, UPRN));
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  public void testCaseCachedAtAnOlderVersionIsReloaded() {
+    CaseContainerDTO older = underTest.getByCaseId(CASE_ID, false, "v1", loader(CASE_ID, UPRN));
+    CaseContainerDTO newer = underTest.getByCaseId(CASE_ID, false, "v2", loader(CASE_ID, UPRN));
+    CaseContainerDTO cached = underTest.getByCaseId(CASE_ID, false, "v2", loader(CASE_ID, UPRN));
+
+    assertThat(newer).isNotSameAs(older);
+    assertThat(cached).isSameAs(newer);
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testCaseLoadedByCaseRefIsReloadedForAVersion() {
+    underTest.getByCaseRef(CASE_REF, false, loader(CASE_ID, UPRN));
+    underTest.getByCaseId(CASE_ID, false, "v1", loader(CASE_ID, UPRN));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testCasesWithAndWithoutEventsAreCachedSeparately() {
+    underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    underTest.getByCaseId(CASE_ID, true, loader(CASE_ID, UPRN));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testCaseLoadedByIdIsServedByCaseRef() {
+    CaseContainerDTO byId = underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    CaseContainerDTO byRef = underTest.getByCaseRef(CASE_REF, false, loader(CASE_ID, UPRN));
+
+    assertThat(byRef).isSameAs(byId);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  public void testCasesLoadedByUprnAreServedFromCache() {
+    UUID otherCaseId = UUID.randomUUID();
+    Supplier<List<CaseContainerDTO>> uprnLoader =
+        () -> List.of(loader(CASE_ID, UPRN).get(), loader(otherCaseId, UPRN).get());
+
+    List<CaseContainerDTO> first = underTest.getByUprn(UPRN, false, false, uprnLoader);
+    List<CaseContainerDTO> second = underTest.getByUprn(UPRN, false, false, uprnLoader);
+    CaseContainerDTO byId = underTest.getByCaseId(otherCaseId, false, loader(otherCaseId, UPRN));
+
+    assertThat(second).containsExactlyElementsOf(first);
+    assertThat(byId).isSameAs(first.get(1));
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testInvalidationDropsCaseAndItsUprn() {
+    underTest.getByUprn(UPRN, false, false, () -> List.of(loader(CASE_ID, UPRN).get()));
+
+    underTest.invalidateCase(CASE_ID, null);
+    underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    underTest.getByUprn(UPRN, false, false, () -> List.of(loader(CASE_ID, UPRN).get()));
+
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  public void testInvalidationDropsCasesAtTheEventUprn() {
+    underTest.getByUprn(UPRN, true, false, () -> List.of(loader(CASE_ID, UPRN).get()));
+
+    // A new case at the same address
+    underTest.invalidateCase(UUID.randomUUID(), UPRN);
+    underTest.getByUprn(UPRN, true, false, () -> List.of(loader(CASE_ID, UPRN).get()));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testCaseLoadedDuringInvalidationIsNotCached() {
+    underTest.getByCaseId(
+        CASE_ID,
+        false,
+        () -> {
+          CaseContainerDTO staleCase = loader(CASE_ID, UPRN).get();
+          underTest.invalidateCase(CASE_ID, UPRN);
+          return staleCase;
+        });
+    underTest.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testDisabledCacheAlwaysLoads() {
+    CaseCache disabledCache = new CaseCache(meterRegistry, primaryReader);
+
+    disabledCache.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    disabledCache.getByCaseId(CASE_ID, false, loader(CASE_ID, UPRN));
+    disabledCache.invalidateCase(CASE_ID, UPRN);
+
+    assertThat(loads).hasValue(2);
+  }
+
+  private Supplier<CaseContainerDTO> loader(UUID caseId, String uprn) {
+    return () -> {
+      loads.incrementAndGet();
+      CaseContainerDTO caseContainerDTO = new CaseContainerDTO();
+      caseContainerDTO.setCaseId(caseId);
+      caseContainerDTO.setCaseRef(caseId.equals(CASE_ID) ? Long.toString(CASE_REF) : null);
+      caseContainerDTO.setUprn(uprn);
+      return caseContainerDTO;
+    };
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "cases")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
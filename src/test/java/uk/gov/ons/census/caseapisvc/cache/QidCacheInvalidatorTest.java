@@ -0,0 +1,108 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+public class QidCacheInvalidatorTest {
+  private static final String QID = "0120000000000100";
+  private static final UUID CASE_ID = UUID.fromString("2e083ab1-41f7-4dea-a3d9-77f48458b5ca");
+
+  @Mock private QidCache qidCache;
+
+  @InjectMocks private QidCacheInvalidator underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+  }
+
+  @Test
+  public void testQuestionnaireLinkedEventInvalidatesQid() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"QUESTIONNAIRE_LINKED\"},\"payload\":{\"uac\":"
+                + "{\"questionnaireId\":\""
+                + QID
+                + "\",\"caseId\":\""
+                + CASE_ID
+                + "\"}}}"));
+
+    verify(qidCache).invalidateQid(QID);
+    verify(qidCache, never()).invalidateCase(any());
+    verify(qidCache, never()).invalidateCase(any(), any());
+  }
+
+  @Test
+  public void testDeactivateUacEventInvalidatesQid() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"DEACTIVATE_UAC\"},\"payload\":{\"uac\":"
+                + "{\"questionnaireId\":\""
+                + QID
+                + "\"}}}"));
+
+    verify(qidCache).invalidateQid(QID);
+  }
+
+  @Test
+  public void testCaseUpdatedEventInvalidatesQidsOfCase() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"CASE_UPDATED\"},\"payload\":{\"collectionCase\":"
+                + "{\"id\":\""
+                + CASE_ID
+                + "\",\"addressType\":\"CE\"}}}"));
+
+    verify(qidCache).invalidateCase(CASE_ID, "CE");
+    verify(qidCache, never()).invalidateQid(any());
+  }
+
+  @Test
+  public void testCaseUpdatedEventWithoutAddressTypeInvalidatesAllQidsOfCase() {
+    underTest.receiveEvent(
+        message(
+            "{\"event\":{\"type\":\"CASE_UPDATED\"},\"payload\":{\"collectionCase\":"
+                + "{\"id\":\""
+                + CASE_ID
+                + "\",\"addressType\":null}}}"));
+
+    verify(qidCache).invalidateCase(CASE_ID);
+    verify(qidCache, never()).invalidateCase(any(), any());
+  }
+
+  @Test
+  public void testEventWithoutQidInvalidatesEverything() {
+    underTest.receiveEvent(message("{\"payload\":{\"uac\":{\"caseId\":\"" + CASE_ID + "\"}}}"));
+
+    verify(qidCache).invalidateAll();
+  }
+
+  @Test
+  public void testUnreadableEventInvalidatesEverything() {
+    underTest.receiveEvent(message("not json"));
+
+    verify(qidCache).invalidateAll();
+  }
+
+  @Test
+  public void testInvalidCaseIdInvalidatesEverything() {
+    underTest.receiveEvent(message("{\"payload\":{\"collectionCase\":{\"id\":\"not-a-uuid\"}}}"));
+
+    verify(qidCache).invalidateAll();
+  }
+
+  private Message message(String body) {
+    return new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+  }
+}
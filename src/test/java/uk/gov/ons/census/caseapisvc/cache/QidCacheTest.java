@@ -0,0 +1,200 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.persistence.EntityManagerFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
+
+public class QidCacheTest {
+  private static final String QID = "0120000000000100";
+  private static final String OTHER_QID = "0120000000000200";
+  private static final UUID CASE_ID = UUID.randomUUID();
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final PrimaryReader primaryReader =
+      new PrimaryReader(mock(PlatformTransactionManager.class), mock(EntityManagerFactory.class));
+
+  private SimpleMeterRegistry meterRegistry;
+  private QidCache underTest;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    underTest = new QidCache(meterRegistry, primaryReader);
+    ReflectionTestUtils.setField(underTest, "enabled", true);
+    ReflectionTestUtils.setField(underTest, "maxSize", 100L);
+    ReflectionTestUtils.setField(underTest, "timeToLive", "PT5M");
+    underTest.init();
+  }
+
+  @Test
+  public void testQidIsLoadedOnceAndThenServedFromCache() {
+    Optional<QidCaseSummary> first = underTest.getByQid(QID, loader(QID, CASE_ID));
+    Optional<QidCaseSummary> second = underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(second.get()).isEqualTo(first.get());
+    assertThat(loads).hasValue(1);
+    assertThat(cacheGets("hit")).isEqualTo(1.0);
+    assertThat(cacheGets("miss")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testMissingQidIsNotCached() {
+    Supplier<Optional<QidCaseSummary>> notFound =
+        () -> {
+          loads.incrementAndGet();
+          return Optional.empty();
+        };
+
+    assertThat(underTest.getByQid(QID, notFound)).isEmpty();
+    assertThat(underTest.getByQid(QID, loader(QID, CASE_ID))).isPresent();
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testInvalidationDropsOnlyThatQid() {
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    underTest.getByQid(OTHER_QID, loader(OTHER_QID, CASE_ID));
+
+    underTest.invalidateQid(QID);
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    underTest.getByQid(OTHER_QID, loader(OTHER_QID, CASE_ID));
+
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  public void testCaseInvalidationDropsItsQids() {
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    underTest.getByQid(OTHER_QID, loader(OTHER_QID, UUID.randomUUID()));
+
+    underTest.invalidateCase(CASE_ID);
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    underTest.getByQid(OTHER_QID, loader(OTHER_QID, UUID.randomUUID()));
+
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  public void testUpdatesToUncachedCasesKeepCachedQids() {
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    for (int i = 0; i < 250; i++) {
+      underTest.invalidateCase(UUID.randomUUID());
+    }
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(loads).hasValue(1);
+    assertThat(cacheGets("hit")).isEqualTo(1.0);
+
+    underTest.invalidateCase(CASE_ID);
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testCaseUpdateKeepsQidsWithItsAddressType() {
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    underTest.invalidateCase(CASE_ID, "HH");
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    assertThat(loads).hasValue(1);
+
+    underTest.invalidateCase(CASE_ID, "CE");
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testQidLoadedDuringAnotherCasesInvalidationIsCached() {
+    underTest.getByQid(
+        QID,
+        () -> {
+          Optional<QidCaseSummary> summary = loader(QID, CASE_ID).get();
+          underTest.invalidateCase(UUID.randomUUID(), "HH");
+          return summary;
+        });
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  public void testQidLoadedDuringCaseInvalidationIsNotCached() {
+    underTest.getByQid(
+        QID,
+        () -> {
+          Optional<QidCaseSummary> staleSummary = loader(QID, CASE_ID).get();
+          underTest.invalidateCase(CASE_ID);
+          return staleSummary;
+        });
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testQidLoadedDuringInvalidationIsNotCached() {
+    underTest.getByQid(
+        QID,
+        () -> {
+          Optional<QidCaseSummary> staleSummary = loader(QID, CASE_ID).get();
+          underTest.invalidateQid(QID);
+          return staleSummary;
+        });
+    underTest.getByQid(QID, loader(QID, CASE_ID));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testQidThatCannotBePackedIsNotCached() {
+    String invalidQid = "not a qid";
+
+    underTest.getByQid(invalidQid, loader(invalidQid, CASE_ID));
+    underTest.getByQid(invalidQid, loader(invalidQid, CASE_ID));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void testDisabledCacheAlwaysLoads() {
+    QidCache disabledCache = new QidCache(meterRegistry, primaryReader);
+
+    disabledCache.getByQid(QID, loader(QID, CASE_ID));
+    disabledCache.getByQid(QID, loader(QID, CASE_ID));
+    disabledCache.invalidateQid(QID);
+    disabledCache.invalidateCase(CASE_ID);
+    disabledCache.invalidateCase(CASE_ID, "HH");
+
+    assertThat(loads).hasValue(2);
+  }
+
+  private Supplier<Optional<QidCaseSummary>> loader(String qid, UUID caseId) {
+    return () -> {
+      loads.incrementAndGet();
+      return Optional.of(new QidCaseSummary(qid, caseId, "HH", true, false));
+    };
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "qidCaseSummaries")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
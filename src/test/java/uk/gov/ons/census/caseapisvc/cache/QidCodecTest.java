@@ -0,0 +1,43 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class QidCodecTest {
+
+  @Test
+  public void testQidRoundTrips() {
+    long encoded = QidCodec.encode("2100000000000104");
+
+    assertThat(encoded).isEqualTo(2100000000000104L);
+    assertThat(QidCodec.decode(encoded)).isEqualTo("2100000000000104");
+    assertThat(QidCodec.questionnaireType(encoded)).isEqualTo(21);
+  }
+
+  @Test
+  public void testLeadingZeroIsRestored() {
+    long encoded = QidCodec.encode("0120000000000100");
+
+    assertThat(QidCodec.decode(encoded)).isEqualTo("0120000000000100");
+    assertThat(QidCodec.questionnaireType(encoded)).isEqualTo(1);
+  }
+
+  @Test
+  public void testQidOfWrongLengthIsInvalid() {
+    assertThat(QidCodec.encode("012000000000010")).isEqualTo(QidCodec.INVALID);
+    assertThat(QidCodec.encode("01200000000001000")).isEqualTo(QidCodec.INVALID);
+    assertThat(QidCodec.encode(null)).isEqualTo(QidCodec.INVALID);
+  }
+
+  @Test
+  public void testQidWithNonDigitIsInvalid() {
+    assertThat(QidCodec.encode("012000000000010A")).isEqualTo(QidCodec.INVALID);
+    assertThat(QidCodec.encode("-120000000000100")).isEqualTo(QidCodec.INVALID);
+  }
+
+  @Test
+  public void testQidWithoutQuestionnaireTypeIsInvalid() {
+    assertThat(QidCodec.encode("0020000000000100")).isEqualTo(QidCodec.INVALID);
+  }
+}
@@ -0,0 +1,227 @@
+package uk.gov.ons.census.caseapisvc.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import org.junit.Test;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
+
+public class QidIndexTest {
+  private static final long FIRST_QID = 2100000000000000L;
+  private static final BooleanSupplier CAN_STORE = () -> true;
+
+  @Test
+  public void testSummaryRoundTrips() {
+    QidIndex underTest = new QidIndex(10, 1);
+    QidCaseSummary qidCaseSummary =
+        new QidCaseSummary(QidCodec.decode(FIRST_QID), UUID.randomUUID(), "SPG", true, true);
+
+    underTest.put(FIRST_QID, qidCaseSummary, 10, 0, CAN_STORE);
+
+    assertThat(get(underTest, FIRST_QID, 0)).isEqualTo(qidCaseSummary);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSummaryWithoutCaseRoundTrips() {
+    QidIndex underTest = new QidIndex(10, 1);
+    QidCaseSummary qidCaseSummary =
+        new QidCaseSummary(QidCodec.decode(FIRST_QID), null, null, false, false);
+
+    underTest.put(FIRST_QID, qidCaseSummary, 10, 0, CAN_STORE);
+
+    assertThat(get(underTest, FIRST_QID, 0)).isEqualTo(qidCaseSummary);
+  }
+
+  @Test
+  public void testUnknownAddressTypeCannotBeStored() {
+    assertThat(QidIndex.canStore(new QidCaseSummary("qid", null, "NR", true, false))).isFalse();
+    assertThat(QidIndex.canStore(new QidCaseSummary("qid", null, "CE", true, false))).isTrue();
+  }
+
+  @Test
+  public void testExpiredSummaryIsDropped() {
+    QidIndex underTest = new QidIndex(10, 1);
+    underTest.put(FIRST_QID, summary(FIRST_QID, UUID.randomUUID()), 10, 0, CAN_STORE);
+
+    assertThat(get(underTest, FIRST_QID, 9)).isNotNull();
+    assertThat(get(underTest, FIRST_QID, 10)).isNull();
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void testSummaryIsNotStoredOnceItCannotBe() {
+    QidIndex underTest = new QidIndex(10, 1);
+
+    underTest.put(FIRST_QID, summary(FIRST_QID, UUID.randomUUID()), 10, 0, () -> false);
+
+    assertThat(get(underTest, FIRST_QID, 0)).isNull();
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void testRemoveCaseDropsOnlyItsSummaries() {
+    QidIndex underTest = new QidIndex(100, 4);
+    UUID caseId = UUID.randomUUID();
+    UUID otherCaseId = UUID.randomUUID();
+    for (long qid = FIRST_QID; qid < FIRST_QID + 10; qid++) {
+      underTest.put(qid, summary(qid, (qid & 1) == 0 ? caseId : otherCaseId), 10, 0, CAN_STORE);
+    }
+
+    underTest.removeCase(caseId);
+    underTest.removeCase(UUID.randomUUID());
+
+    for (long qid = FIRST_QID; qid < FIRST_QID + 10; qid++) {
+      if ((qid & 1) == 0) {
+        assertThat(get(underTest, qid, 0)).isNull();
+      } else {
+        assertThat(get(underTest, qid, 0).getCaseId()).isEqualTo(otherCaseId);
+      }
+    }
+    assertThat(underTest.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void testRemoveCaseKeepsSummariesWithItsCurrentAddressType() {
+    QidIndex underTest = new QidIndex(100, 4);
+    UUID caseId = UUID.randomUUID();
+    for (long qid = FIRST_QID; qid < FIRST_QID + 10; qid++) {
+      QidCaseSummary qidCaseSummary =
+          new QidCaseSummary(
+              QidCodec.decode(qid), caseId, (qid & 1) == 0 ? "HH" : "CE", true, false);
+      underTest.put(qid, qidCaseSummary, 10, 0, CAN_STORE);
+    }
+
+    underTest.removeCase(caseId, "CE");
+
+    for (long qid = FIRST_QID; qid < FIRST_QID + 10; qid++) {
+      if ((qid & 1) == 0) {
+        assertThat(get(underTest, qid, 0)).isNull();
+      } else {
+        assertThat(get(underTest, qid, 0).getAddressType()).isEqualTo("CE");
+      }
+    }
+
+    underTest.removeCase(caseId, "NR");
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void testQidMovedToAnotherCaseIsOnlyRemovedWithThatCase() {
+    QidIndex underTest = new QidIndex(10, 1);
+    UUID caseId = UUID.randomUUID();
+    UUID otherCaseId = UUID.randomUUID();
+    underTest.put(FIRST_QID, summary(FIRST_QID, caseId), 10, 0, CAN_STORE);
+
+    underTest.put(FIRST_QID, summary(FIRST_QID, otherCaseId), 10, 0, CAN_STORE);
+    underTest.removeCase(caseId);
+
+    assertThat(get(underTest, FIRST_QID, 0).getCaseId()).isEqualTo(otherCaseId);
+    underTest.removeCase(otherCaseId);
+    assertThat(get(underTest, FIRST_QID, 0)).isNull();
+  }
+
+  @Test
+  public void testCasesStayRemovableThroughEvictionsAndRemoves() {
+    QidIndex underTest = new QidIndex(200, 2);
+    Random random = new Random(0);
+    UUID[] caseIds = new UUID[50];
+    for (int i = 0; i < caseIds.length; i++) {
+      caseIds[i] = UUID.randomUUID();
+    }
+    Map<Long, UUID> held = new HashMap<>();
+
+    for (int i = 0; i < 20000; i++) {
+      long qid = FIRST_QID + random.nextInt(400);
+      int operation = random.nextInt(10);
+      if (operation < 6) {
+        UUID caseId = caseIds[random.nextInt(caseIds.length)];
+        underTest.put(qid, summary(qid, caseId), 10, 0, CAN_STORE);
+        held.put(qid, caseId);
+      } else if (operation < 8) {
+        underTest.remove(qid);
+        held.remove(qid);
+      } else {
+        UUID caseId = caseIds[random.nextInt(caseIds.length)];
+        underTest.removeCase(caseId);
+        held.values().removeIf(caseId::equals);
+      }
+    }
+
+    // Evictions only drop entries, so everything still held has to be in the model
+    for (long qid = FIRST_QID; qid < FIRST_QID + 400; qid++) {
+      QidCaseSummary qidCaseSummary = get(underTest, qid, 0);
+      if (qidCaseSummary != null) {
+        assertThat(qidCaseSummary.getCaseId()).isEqualTo(held.get(qid));
+      }
+    }
+    for (UUID caseId : caseIds) {
+      underTest.removeCase(caseId);
+    }
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void testFullIndexEvictsUnreadSummaries() {
+    QidIndex underTest = new QidIndex(10, 1);
+    for (long qid = FIRST_QID; qid < FIRST_QID + 10; qid++) {
+      underTest.put(qid, summary(qid, UUID.randomUUID()), 10, 0, CAN_STORE);
+    }
+    for (long qid = FIRST_QID; qid < FIRST_QID + 5; qid++) {
+      get(underTest, qid, 0);
+    }
+
+    for (long qid = FIRST_QID + 10; qid < FIRST_QID + 15; qid++) {
+      underTest.put(qid, summary(qid, UUID.randomUUID()), 10, 0, CAN_STORE);
+    }
+
+    assertThat(underTest.size()).isEqualTo(10);
+    assertThat(underTest.evictions()).isEqualTo(5);
+    for (long qid = FIRST_QID; qid < FIRST_QID + 5; qid++) {
+      assertThat(get(underTest, qid, 0)).isNotNull();
+    }
+  }
+
+  @Test
+  public void testRemoveKeepsOtherSummariesReachable() {
+    QidIndex underTest = new QidIndex(1000, 4);
+    for (long qid = FIRST_QID; qid < FIRST_QID + 1000; qid++) {
+      underTest.put(qid, summary(qid, UUID.randomUUID()), 10, 0, CAN_STORE);
+    }
+
+    for (long qid = FIRST_QID; qid < FIRST_QID + 1000; qid += 2) {
+      underTest.remove(qid);
+    }
+
+    for (long qid = FIRST_QID; qid < FIRST_QID + 1000; qid++) {
+      if ((qid & 1) == 0) {
+        assertThat(get(underTest, qid, 0)).isNull();
+      } else {
+        assertThat(get(underTest, qid, 0).getQid()).isEqualTo(QidCodec.decode(qid));
+      }
+    }
+  }
+
+  @Test
+  public void testClearDropsEverything() {
+    QidIndex underTest = new QidIndex(10, 1);
+    underTest.put(FIRST_QID, summary(FIRST_QID, UUID.randomUUID()), 10, 0, CAN_STORE);
+
+    underTest.clear();
+
+    assertThat(get(underTest, FIRST_QID, 0)).isNull();
+    assertThat(underTest.size()).isZero();
+  }
+
+  private QidCaseSummary get(QidIndex qidIndex, long qid, int now) {
+    return qidIndex.get(qid, QidCodec.decode(qid), now);
+  }
+
+  private QidCaseSummary summary(long qid, UUID caseId) {
+    return new QidCaseSummary(QidCodec.decode(qid), caseId, "HH", true, false);
+  }
+}
@@ -0,0 +1,139 @@
+package uk.gov.ons.census.caseapisvc.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createUacQidCreatedPayload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+public class UacQidBufferTest {
+  private static final int LOW_WATERMARK = 2;
+  private static final int HIGH_WATERMARK = 5;
+
+  @Mock private UacQidServiceClient uacQidServiceClient;
+
+  private SimpleMeterRegistry meterRegistry;
+  private UacQidBuffer underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(uacQidServiceClient.generateUacQid(anyInt()))
+        .thenAnswer(invocation -> createUacQidCreatedPayload("qid"));
+
+    meterRegistry = new SimpleMeterRegistry();
+    underTest = new UacQidBuffer(uacQidServiceClient, meterRegistry);
+    ReflectionTestUtils.setField(underTest, "enabled", true);
+    ReflectionTestUtils.setField(underTest, "lowWatermark", LOW_WATERMARK);
+    ReflectionTestUtils.setField(underTest, "highWatermark", HIGH_WATERMARK);
+  }
+
+  @Test
+  public void testRefillTopsUpEveryQuestionnaireTypeToHighWatermark() {
+    underTest.refill();
+
+    for (int questionnaireType : UacQidBuffer.QUESTIONNAIRE_TYPES) {
+      verify(uacQidServiceClient, times(HIGH_WATERMARK)).generateUacQid(questionnaireType);
+      assertThat(depth(questionnaireType)).isEqualTo(HIGH_WATERMARK);
+    }
+    assertThat(
+            meterRegistry.get("uacqid.buffer.refill").tag("questionnaireType", "1").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testRefillSkipsBuffersAboveLowWatermark() {
+    underTest.refill();
+    underTest.take(1);
+    underTest.take(1);
+
+    underTest.refill();
+
+    // Type 1 is at 3, above the low watermark, so only the initial fill happened
+    verify(uacQidServiceClient, times(HIGH_WATERMARK)).generateUacQid(1);
+    assertThat(depth(1)).isEqualTo(HIGH_WATERMARK - 2);
+  }
+
+  @Test
+  public void testRefillTopsUpBufferAtLowWatermark() {
+    underTest.refill();
+    for (int i = 0; i < HIGH_WATERMARK - LOW_WATERMARK; i++) {
+      underTest.take(21);
+    }
+
+    underTest.refill();
+
+    verify(uacQidServiceClient, times(2 * HIGH_WATERMARK - LOW_WATERMARK)).generateUacQid(21);
+    assertThat(depth(21)).isEqualTo(HIGH_WATERMARK);
+  }
+
+  @Test
+  public void testTakeReturnsBufferedPair() {
+    underTest.refill();
+
+    Optional<UacQidCreatedPayloadDTO> uacQidPair = underTest.take(71);
+
+    assertThat(uacQidPair).isPresent();
+    assertThat(uacQidPair.get().getQid()).isEqualTo("qid");
+    assertThat(depth(71)).isEqualTo(HIGH_WATERMARK - 1);
+  }
+
+  @Test
+  public void testTakeFromEmptyBufferCountsFallback() {
+    Optional<UacQidCreatedPayloadDTO> uacQidPair = underTest.take(2);
+
+    assertThat(uacQidPair).isEmpty();
+    assertThat(
+            meterRegistry
+                .get("uacqid.buffer.fallback")
+                .tag("questionnaireType", "2")
+                .counter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  public void testDisabledBufferIsNeverFilled() {
+    ReflectionTestUtils.setField(underTest, "enabled", false);
+
+    underTest.refill();
+
+    assertThat(underTest.take(1)).isEmpty();
+    verifyZeroInteractions(uacQidServiceClient);
+  }
+
+  @Test
+  public void testFailedRefillIsRetriedOnNextRun() {
+    doThrow(new RuntimeException("unavailable")).when(uacQidServiceClient).generateUacQid(4);
+    underTest.refill();
+    assertThat(depth(4)).isZero();
+
+    doAnswer(invocation -> createUacQidCreatedPayload("qid"))
+        .when(uacQidServiceClient)
+        .generateUacQid(4);
+    underTest.refill();
+
+    assertThat(depth(4)).isEqualTo(HIGH_WATERMARK);
+  }
+
+  private double depth(int questionnaireType) {
+    return meterRegistry
+        .get("uacqid.buffer.depth")
+        .tag("questionnaireType", Integer.toString(questionnaireType))
+        .gauge()
+        .value();
+  }
+}
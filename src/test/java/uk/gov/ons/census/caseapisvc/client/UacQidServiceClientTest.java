@@ -0,0 +1,106 @@
+package uk.gov.ons.census.caseapisvc.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.census.caseapisvc.config.UacQidServiceClientConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+public class UacQidServiceClientTest {
+  private static final String UAC_QID_RESPONSE =
+      "{\"uac\":\"abcd1234efgh5678\",\"qid\":\"0120000000000001\"}";
+
+  private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private HttpServer uacQidService;
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+  private UacQidServiceClient underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    uacQidService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    uacQidService.createContext(
+        "/",
+        exchange -> {
+          clientPorts.add(exchange.getRemoteAddress().getPort());
+          byte[] body = UAC_QID_RESPONSE.getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+          }
+        });
+    uacQidService.start();
+
+    UacQidServiceClientConfig config = new UacQidServiceClientConfig();
+    ReflectionTestUtils.setField(config, "maxTotalConnections", 10);
+    ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", 10);
+    ReflectionTestUtils.setField(config, "connectTimeout", "PT2S");
+    ReflectionTestUtils.setField(config, "readTimeout", "PT5S");
+    ReflectionTestUtils.setField(config, "poolTimeout", "PT2S");
+    ReflectionTestUtils.setField(config, "keepAlive", "PT30S");
+
+    connectionManager = config.uacServiceConnectionManager(meterRegistry);
+    httpClient = config.uacServiceHttpClient(connectionManager);
+    underTest = new UacQidServiceClient(config.uacServiceRestTemplate(httpClient));
+    ReflectionTestUtils.setField(underTest, "scheme", "http");
+    ReflectionTestUtils.setField(underTest, "host", "localhost");
+    ReflectionTestUtils.setField(
+        underTest, "port", Integer.toString(uacQidService.getAddress().getPort()));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    httpClient.close();
+    uacQidService.stop(0);
+  }
+
+  @Test
+  public void testConnectionIsReusedAcrossRequests() {
+    for (int i = 0; i < 5; i++) {
+      UacQidCreatedPayloadDTO uacQid = underTest.generateUacQid(1);
+
+      assertThat(uacQid.getUac()).isEqualTo("abcd1234efgh5678");
+      assertThat(uacQid.getQid()).isEqualTo("0120000000000001");
+    }
+
+    assertThat(clientPorts).hasSize(1);
+    assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(1);
+    assertThat(connectionManager.getTotalStats().getLeased()).isZero();
+  }
+
+  @Test
+  public void testPoolMetricsAreRegistered() {
+    underTest.generateUacQid(1);
+
+    assertThat(
+            meterRegistry
+                .get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", "uacservice")
+                .tag("state", "available")
+                .gauge()
+                .value())
+        .isEqualTo(1.0);
+    assertThat(
+            meterRegistry
+                .get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "uacservice")
+                .gauge()
+                .value())
+        .isEqualTo(10.0);
+  }
+}
@@ -0,0 +1,53 @@
+package uk.gov.ons.census.caseapisvc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.gov.ons.census.caseapisvc.client.UacQidServiceClient;
+import uk.gov.ons.census.caseapisvc.messaging.OutboxRelay;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+    properties = {"uacservice.buffer.enabled=true", "uacservice.buffer.refill-interval=PT0.1S"})
+@ActiveProfiles("test")
+public class TaskSchedulingIT {
+  @MockBean private UacQidServiceClient uacQidServiceClient;
+  @SpyBean private OutboxRelay outboxRelay;
+
+  @Test
+  public void testBlockedRefillDoesNotDelayTheOutboxRelay() throws Exception {
+    CountDownLatch refillStarted = new CountDownLatch(1);
+    CountDownLatch releaseRefill = new CountDownLatch(1);
+    when(uacQidServiceClient.generateUacQid(anyInt()))
+        .thenAnswer(
+            invocation -> {
+              refillStarted.countDown();
+              releaseRefill.await();
+              return new UacQidCreatedPayloadDTO();
+            });
+
+    try {
+      assertThat(refillStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      clearInvocations(outboxRelay);
+
+      // The relay runs every 0.1 seconds, while the refill is still stuck
+      verify(outboxRelay, timeout(5000).atLeast(5)).relay();
+    } finally {
+      releaseRefill.countDown();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class PrimaryReaderTest {
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private TransactionStatus transactionStatus;
+  @Mock private EntityManagerFactory entityManagerFactory;
+  @Mock private EntityManager entityManager;
+
+  private PrimaryReader underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+    underTest = new PrimaryReader(transactionManager, entityManagerFactory);
+  }
+
+  @After
+  public void tearDown() {
+    ReplicaRoutingContext.clear();
+    TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+  }
+
+  @Test
+  public void testReadInAReplicaRequestIsRunOnThePrimaryInANewTransaction() {
+    ReplicaRoutingContext.routeToReplicas();
+    ReplicaRoutingContext.setPool("replica-a");
+
+    boolean routedToReplicas = underTest.read(ReplicaRoutingContext::isRoutedToReplicas);
+
+    assertThat(routedToReplicas).isFalse();
+    verify(transactionManager)
+        .getTransaction(
+            argThat(
+                definition ->
+                    definition.isReadOnly()
+                        && definition.getPropagationBehavior()
+                            == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    verify(transactionManager).commit(transactionStatus);
+    assertThat(ReplicaRoutingContext.getPool()).isEqualTo("replica-a");
+  }
+
+  @Test
+  public void testRequestEntityManagerIsLeftOutOfTheReadAndBoundAgainAfter() {
+    ReplicaRoutingContext.routeToReplicas();
+    EntityManagerHolder requestEntityManager = new EntityManagerHolder(entityManager);
+    TransactionSynchronizationManager.bindResource(entityManagerFactory, requestEntityManager);
+
+    boolean requestEntityManagerBound =
+        underTest.read(() -> TransactionSynchronizationManager.hasResource(entityManagerFactory));
+
+    assertThat(requestEntityManagerBound).isFalse();
+    assertThat(TransactionSynchronizationManager.getResource(entityManagerFactory))
+        .isSameAs(requestEntityManager);
+  }
+
+  @Test
+  public void testTransactionsEntityManagerIsLeftForTheNewTransactionToSuspend() {
+    ReplicaRoutingContext.routeToReplicas();
+    EntityManagerHolder transactionEntityManager = new EntityManagerHolder(entityManager);
+    TransactionSynchronizationManager.bindResource(entityManagerFactory, transactionEntityManager);
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+
+    boolean transactionEntityManagerBound =
+        underTest.read(() -> TransactionSynchronizationManager.hasResource(entityManagerFactory));
+
+    assertThat(transactionEntityManagerBound).isTrue();
+    assertThat(TransactionSynchronizationManager.getResource(entityManagerFactory))
+        .isSameAs(transactionEntityManager);
+  }
+
+  @Test
+  public void testRequestGoesBackToItsReplicaWhenTheReadFails() {
+    ReplicaRoutingContext.routeToReplicas();
+    ReplicaRoutingContext.setPool("replica-a");
+
+    assertThatThrownBy(
+            () ->
+                underTest.read(
+                    () -> {
+                      throw new IllegalStateException("Read failed");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(ReplicaRoutingContext.isRoutedToReplicas()).isTrue();
+    assertThat(ReplicaRoutingContext.getPool()).isEqualTo("replica-a");
+  }
+
+  @Test
+  public void testReadOutsideAReplicaRequestIsRunAsItIs() {
+    assertThat(underTest.read(() -> "case")).isEqualTo("case");
+
+    verifyZeroInteractions(transactionManager);
+  }
+}
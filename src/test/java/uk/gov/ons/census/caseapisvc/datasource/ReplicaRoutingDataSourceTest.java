@@ -0,0 +1,215 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ReplicaRoutingDataSourceTest {
+  private static final Duration MAX_LAG = Duration.ofSeconds(10);
+  private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(2);
+
+  @Mock private DataSource primary;
+  @Mock private Connection primaryConnection;
+
+  private SimpleMeterRegistry meterRegistry;
+  private StandInReplica replicaA;
+  private StandInReplica replicaB;
+  private ReplicaRoutingDataSource underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    initMocks(this);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+
+    meterRegistry = new SimpleMeterRegistry();
+    replicaA = new StandInReplica("replica-a");
+    replicaB = new StandInReplica("replica-b");
+
+    underTest =
+        new ReplicaRoutingDataSource(
+            primary,
+            List.of(replicaA.replicaPool, replicaB.replicaPool),
+            MAX_LAG,
+            HEALTH_CHECK_TIMEOUT,
+            meterRegistry);
+    underTest.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() {
+    ReplicaRoutingContext.clear();
+  }
+
+  @Test
+  public void testConnectionsOutsideAReadRequestComeFromThePrimary() throws Exception {
+    underTest.checkReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+  }
+
+  @Test
+  public void testReadRequestsGoToTheLeastLoadedReplica() throws Exception {
+    replicaA.setActiveConnections(8);
+    replicaB.setActiveConnections(2);
+    underTest.checkReplicas();
+
+    ReplicaRoutingContext.routeToReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(replicaB.connection);
+    assertThat(
+            meterRegistry
+                .get("datasource.routed.requests")
+                .tag("pool", "replica-b")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testARequestStaysOnTheReplicaItStartedOn() throws Exception {
+    replicaA.setActiveConnections(8);
+    replicaB.setActiveConnections(2);
+    underTest.checkReplicas();
+    ReplicaRoutingContext.routeToReplicas();
+    underTest.getConnection();
+
+    replicaA.setActiveConnections(0);
+    replicaB.setActiveConnections(9);
+
+    assertThat(underTest.getConnection()).isSameAs(replicaB.connection);
+    assertThat(
+            meterRegistry
+                .get("datasource.routed.requests")
+                .tag("pool", "replica-b")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testLaggingReplicasAreLeftOut() throws Exception {
+    replicaA.setActiveConnections(0);
+    replicaA.setLag(30);
+    replicaB.setActiveConnections(5);
+    underTest.checkReplicas();
+
+    ReplicaRoutingContext.routeToReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(replicaB.connection);
+    assertThat(replicaA.replicaPool.isHealthy()).isFalse();
+    assertThat(meterRegistry.get("datasource.replica.lag").tag("pool", "replica-a").gauge().value())
+        .isEqualTo(30);
+  }
+
+  @Test
+  public void testReadsFallBackToThePrimaryWhenEveryReplicaIsLagging() throws Exception {
+    replicaA.setLag(30);
+    replicaB.setLag(11);
+    underTest.checkReplicas();
+
+    ReplicaRoutingContext.routeToReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    assertThat(
+            meterRegistry
+                .get("datasource.routed.requests")
+                .tag("pool", ReplicaRoutingDataSource.PRIMARY)
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testLaggingReplicaIsUsedAgainWhenItCatchesUp() throws Exception {
+    replicaA.setLag(30);
+    replicaB.setLag(30);
+    underTest.checkReplicas();
+
+    replicaA.setLag(1);
+    underTest.checkReplicas();
+
+    assertThat(underTest.selectPool()).isEqualTo("replica-a");
+  }
+
+  @Test
+  public void testReplicaThatFailsItsHealthCheckIsLeftOut() throws Exception {
+    replicaA.setActiveConnections(0);
+    replicaB.setActiveConnections(5);
+    when(replicaA.dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+    underTest.checkReplicas();
+
+    ReplicaRoutingContext.routeToReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(replicaB.connection);
+    assertThat(
+            meterRegistry
+                .get("datasource.replica.healthy")
+                .tag("pool", "replica-a")
+                .gauge()
+                .value())
+        .isZero();
+  }
+
+  @Test
+  public void testReplicaThatHasNotReplayedAnythingIsLeftOut() throws Exception {
+    replicaA.setActiveConnections(0);
+    replicaB.setActiveConnections(5);
+    when(replicaA.lagResult.wasNull()).thenReturn(true);
+    underTest.checkReplicas();
+
+    assertThat(underTest.selectPool()).isEqualTo("replica-b");
+  }
+
+  @Test
+  public void testReplicasAreNotUsedUntilTheyHaveBeenChecked() throws Exception {
+    ReplicaRoutingContext.routeToReplicas();
+
+    assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+  }
+
+  // A mocked Hikari pool, healthy and idle unless told otherwise
+  private class StandInReplica {
+    private final HikariDataSource dataSource = mock(HikariDataSource.class);
+    private final HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+    private final Connection connection = mock(Connection.class);
+    private final ResultSet lagResult = mock(ResultSet.class);
+    private final ReplicaPool replicaPool;
+
+    private StandInReplica(String name) throws SQLException {
+      Statement statement = mock(Statement.class);
+      when(dataSource.getConnection()).thenReturn(connection);
+      when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+      when(dataSource.getMaximumPoolSize()).thenReturn(10);
+      when(connection.createStatement()).thenReturn(statement);
+      when(statement.executeQuery(anyString())).thenReturn(lagResult);
+      when(lagResult.next()).thenReturn(true);
+
+      replicaPool = new ReplicaPool(name, dataSource, meterRegistry);
+    }
+
+    private void setActiveConnections(int activeConnections) {
+      when(pool.getActiveConnections()).thenReturn(activeConnections);
+    }
+
+    private void setLag(double lagSeconds) throws SQLException {
+      when(lagResult.getDouble(1)).thenReturn(lagSeconds);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.Unirest;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.apache.http.HttpStatus;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.EventRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
+
+// The test database stands in for the primary and both replicas, it isn't replicating so reports
+// no lag. Each pool connects with its own application name, so a connection shows where it's from.
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.datasource.url=jdbc:postgresql://localhost:16432/postgres?ApplicationName=primary",
+      "replicas.enabled=true",
+      "replicas.pools.replica-a.url="
+          + "jdbc:postgresql://localhost:16432/postgres?ApplicationName=replica-a",
+      "replicas.pools.replica-b.url="
+          + "jdbc:postgresql://localhost:16432/postgres?ApplicationName=replica-b"
+    })
+@ActiveProfiles("test")
+public class ReplicaRoutingIT {
+
+  @LocalServerPort private int port;
+
+  @Autowired private ReplicaRoutingDataSource replicaRoutingDataSource;
+  @Autowired private CaseRepository caseRepo;
+  @Autowired private UacQidLinkRepository uacQidLinkRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private PrimaryReader primaryReader;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+  @Autowired private EntityManager entityManager;
+
+  @Before
+  public void setUp() {
+    eventRepository.deleteAllInBatch();
+    uacQidLinkRepository.deleteAllInBatch();
+    caseRepo.deleteAllInBatch();
+
+    replicaRoutingDataSource.checkReplicas();
+  }
+
+  @Test
+  public void testReplicasPassTheirHealthCheck() {
+    assertThat(replicaRoutingDataSource.selectPool()).isIn("replica-a", "replica-b");
+  }
+
+  @Test
+  public void testGetRequestIsServedWithReplicasConfigured() throws Exception {
+    EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().randomizationDepth(1));
+    Case caze = easyRandom.nextObject(Case.class);
+    caze.setCaseId(UUID.randomUUID());
+    caze.setEvents(null);
+    caze.setUacQidLinks(null);
+    caseRepo.saveAndFlush(caze);
+
+    HttpResponse<JsonNode> response =
+        Unirest.get(String.format("http://localhost:%d/cases/%s", port, caze.getCaseId()))
+            .header("accept", "application/json")
+            .asJson();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(meterRegistry.find("hikaricp.connections").tag("pool", "replica-a").gauge())
+        .isNotNull();
+  }
+
+  @Test
+  public void testCacheMissInAReplicaRequestIsReadFromThePrimary() {
+    // Bound the way open in view binds it for a request
+    EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+    TransactionSynchronizationManager.bindResource(
+        entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+    ReplicaRoutingContext.routeToReplicas();
+    try {
+      String requestPool = connectionApplicationName();
+      String missPool = primaryReader.read(this::connectionApplicationName);
+
+      assertThat(requestPool).isIn("replica-a", "replica-b");
+      assertThat(missPool).isEqualTo("primary");
+      assertThat(connectionApplicationName()).isEqualTo(requestPool);
+    } finally {
+      ReplicaRoutingContext.clear();
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      requestEntityManager.close();
+    }
+  }
+
+  private String connectionApplicationName() {
+    return (String)
+        entityManager
+            .createNativeQuery("SELECT current_setting('application_name')")
+            .getSingleResult();
+  }
+}
@@ -0,0 +1,54 @@
+package uk.gov.ons.census.caseapisvc.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ReplicaRoutingInterceptorTest {
+  private final ReplicaRoutingInterceptor underTest = new ReplicaRoutingInterceptor();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @After
+  public void tearDown() {
+    ReplicaRoutingContext.clear();
+  }
+
+  @Test
+  public void testGetRequestsAreRoutedToReplicas() {
+    underTest.preHandle(new MockHttpServletRequest("GET", "/cases/uprn/1"), response, null);
+
+    assertThat(ReplicaRoutingContext.isRoutedToReplicas()).isTrue();
+  }
+
+  @Test
+  public void testOtherRequestsStayOnThePrimary() {
+    underTest.preHandle(new MockHttpServletRequest("PUT", "/qids/link"), response, null);
+
+    assertThat(ReplicaRoutingContext.isRoutedToReplicas()).isFalse();
+  }
+
+  @Test
+  public void testRoutingIsClearedWhenTheRequestCompletes() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cases/uprn/1");
+    underTest.preHandle(request, response, null);
+    ReplicaRoutingContext.setPool("replica-a");
+
+    underTest.afterCompletion(request, response, null, null);
+
+    assertThat(ReplicaRoutingContext.isRoutedToReplicas()).isFalse();
+    assertThat(ReplicaRoutingContext.getPool()).isNull();
+  }
+
+  @Test
+  public void testRoutingIsClearedWhenTheRequestGoesAsync() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cases/uprn/1");
+    underTest.preHandle(request, response, null);
+
+    underTest.afterConcurrentHandlingStarted(request, response, null);
+
+    assertThat(ReplicaRoutingContext.isRoutedToReplicas()).isFalse();
+  }
+}
@@ -9,9 +9,14 @@ import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
 import com.mashape.unirest.http.Unirest;
 import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.HttpRequest;
 import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jeasy.random.EasyRandom;
 import org.jeasy.random.EasyRandomParameters;
 import org.junit.Before;
@@ -63,6 +68,7 @@ public class CaseEndpointIT {
   @Autowired private UacQidLinkRepository uacQidLinkRepository;
   @Autowired private EventRepository eventRepository;
   @Autowired private RabbitQueueHelper rabbitQueueHelper;
+  @Autowired private EntityManagerFactory entityManagerFactory;
 
   private EasyRandom easyRandom;
 
@@ -255,6 +261,78 @@ public class CaseEndpointIT {
     assertThat(actualData.getSecureEstablishment()).isNull();
   }
 
+  @Test
+  public void shouldUseAFixedNumberOfStatementsToRetrieveCaseEventsWhateverTheNumberOfLinks()
+      throws Exception {
+    Case caseWithOneLink = setupTestCaseWithLinksAndEvents(TEST_CASE_ID_1_EXISTS, 1);
+    Case caseWithSixLinks = setupTestCaseWithLinksAndEvents(TEST_CASE_ID_2_EXISTS, 6);
+
+    long statementsForOneLink = countStatementsToRetrieveCaseWithEvents(caseWithOneLink, 2);
+    long statementsForSixLinks = countStatementsToRetrieveCaseWithEvents(caseWithSixLinks, 7);
+
+    // The case version for the ETag, the case with its links, then the link and the case events
+    assertThat(statementsForOneLink).isEqualTo(4);
+    assertThat(statementsForSixLinks).isEqualTo(statementsForOneLink);
+  }
+
+  @Test
+  public void shouldAnswerAConditionalGetForAnUnchangedCaseWithoutLoadingIt() throws Exception {
+    createOneTestCaseWithEvent();
+
+    HttpResponse<String> response =
+        Unirest.get(createUrl("http://localhost:%d/cases/%s", port, TEST_CASE_ID_1_EXISTS))
+            .header("accept", "application/json")
+            .asString();
+    String eTag = response.getHeaders().getFirst("ETag");
+
+    assertThat(response.getStatus()).isEqualTo(OK.value());
+    assertThat(eTag).startsWith("\"" + TEST_CASE_ID_1_EXISTS);
+    assertThat(response.getHeaders().getFirst("Last-Modified")).isNotNull();
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    HttpResponse<String> conditionalResponse =
+        Unirest.get(createUrl("http://localhost:%d/cases/%s", port, TEST_CASE_ID_1_EXISTS))
+            .header("accept", "application/json")
+            .header("If-None-Match", eTag)
+            .asString();
+
+    assertThat(conditionalResponse.getStatus()).isEqualTo(NOT_MODIFIED.value());
+    assertThat(statistics.getEntityLoadCount()).isZero();
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReturnACaseAgainWhenAnEventHasBeenProcessedSinceItsETag() throws Exception {
+    Case caze = createOneTestCaseWithEvent();
+
+    HttpResponse<String> response =
+        Unirest.get(
+                createUrl("http://localhost:%d/cases/case-details/%s", port, TEST_CASE_ID_1_EXISTS))
+            .header("accept", "application/json")
+            .asString();
+    String eTag = response.getHeaders().getFirst("ETag");
+
+    Event event = new Event();
+    event.setId(UUID.randomUUID());
+    event.setEventType(EventType.RESPONSE_RECEIVED);
+    event.setCaze(caze);
+    event.setRmEventProcessed(OffsetDateTime.now());
+    event.setEventPayload("{}");
+    eventRepository.saveAndFlush(event);
+
+    HttpResponse<String> conditionalResponse =
+        Unirest.get(
+                createUrl("http://localhost:%d/cases/case-details/%s", port, TEST_CASE_ID_1_EXISTS))
+            .header("accept", "application/json")
+            .header("If-None-Match", eTag)
+            .asString();
+
+    assertThat(conditionalResponse.getStatus()).isEqualTo(OK.value());
+    assertThat(conditionalResponse.getHeaders().getFirst("ETag")).isNotEqualTo(eTag);
+  }
+
   @Test
   public void shouldRetrieveACaseWithoutEventsWhenSearchingByCaseId() throws Exception {
     createOneTestCaseWithoutEvents();
@@ -394,6 +472,23 @@ public class CaseEndpointIT {
     assertThat(caseContainerDTO.getAddressType()).isEqualTo(ADDRESS_TYPE_TEST);
   }
 
+  @Test
+  public void testCaseByQidIsReadWithoutLoadingEntities() throws Exception {
+    Case caze = setupTestCaseWithoutEvents(TEST_CASE_ID_1_EXISTS);
+    setupTestUacQidLink(TEST_QID, caze);
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    HttpResponse<JsonNode> jsonResponse =
+        Unirest.get(createUrl("http://localhost:%d/cases/qid/%s", port, TEST_QID))
+            .header("accept", "application/json")
+            .asJson();
+
+    assertThat(jsonResponse.getStatus()).isEqualTo(OK.value());
+    assertThat(statistics.getEntityLoadCount()).isZero();
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+
   @Test
   public void testCorrectCcsQidReturnedWhenRequestedByCaseId()
       throws UnirestException, IOException {
@@ -647,6 +742,49 @@ public class CaseEndpointIT {
     }
   }
 
+  @Test
+  public void testGetNewUacQidAsyncForCaseDistributesFulfilmentEvent() throws Exception {
+    try (QueueSpy caseFulfilmentsQueueSpy = rabbitQueueHelper.listen(caseFulfilmentsQueueName)) {
+
+      // Given
+      Case caze =
+          setupUnitTestCaseWithTreatmentCode(
+              TEST_CASE_ID_1_EXISTS, TEST_HOUSEHOLD_ENGLAND_TREATMENT_CODE);
+
+      // When
+      HttpResponse<JsonNode> jsonResponse =
+          Unirest.get(
+                  createUrl(
+                      "http://localhost:%d/cases/%s/qid?async=true", port, TEST_CASE_ID_1_EXISTS))
+              .header("accept", "application/json")
+              .asJson();
+
+      // Then
+      assertThat(jsonResponse.getStatus()).isEqualTo(OK.value());
+      TelephoneCaptureDTO actualTelephoneCaptureDTO =
+          DataUtils.mapper.readValue(
+              jsonResponse.getBody().getObject().toString(), TelephoneCaptureDTO.class);
+      assertThat(actualTelephoneCaptureDTO.getQuestionnaireId()).startsWith("01");
+      assertThat(actualTelephoneCaptureDTO.getUac()).isNotNull();
+
+      String message = caseFulfilmentsQueueSpy.checkExpectedMessageReceived();
+      ResponseManagementEvent responseManagementEvent =
+          DataUtils.mapper.readValue(message, ResponseManagementEvent.class);
+
+      assertThat(responseManagementEvent.getPayload().getFulfilmentRequest().getFulfilmentCode())
+          .isEqualTo("RM_TC");
+      assertThat(responseManagementEvent.getPayload().getFulfilmentRequest().getCaseId())
+          .isEqualTo(caze.getCaseId());
+      assertThat(
+              responseManagementEvent
+                  .getPayload()
+                  .getFulfilmentRequest()
+                  .getUacQidCreated()
+                  .getQid())
+          .isEqualTo(actualTelephoneCaptureDTO.getQuestionnaireId());
+    }
+  }
+
   @Test
   public void testGetNewIndividualUacQidForCaseDistributesFulfilmentEvent() throws Exception {
     try (QueueSpy caseFulfilmentsQueueSpy = rabbitQueueHelper.listen(caseFulfilmentsQueueName)) {
@@ -734,6 +872,88 @@ public class CaseEndpointIT {
     assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
   }
 
+  @Test
+  public void testGetNewIndividualUacQidsForCaseDistributesFulfilmentEvents() throws Exception {
+    try (QueueSpy caseFulfilmentsQueueSpy = rabbitQueueHelper.listen(caseFulfilmentsQueueName)) {
+
+      // Given
+      Case parentCase =
+          setupUnitTestCaseWithTreatmentCode(
+              TEST_CASE_ID_1_EXISTS, TEST_HOUSEHOLD_ENGLAND_TREATMENT_CODE);
+      List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+      IndividualTelephoneCaptureRequestDTO individualTelephoneCaptureRequest =
+          new IndividualTelephoneCaptureRequestDTO();
+      individualTelephoneCaptureRequest.setIndividualCaseIds(individualCaseIds);
+
+      // When
+      HttpResponse<String> response =
+          Unirest.post(
+                  String.format("http://localhost:%d/cases/%s/qids", port, TEST_CASE_ID_1_EXISTS))
+              .header("content-type", "application/json")
+              .body(DataUtils.mapper.writeValueAsString(individualTelephoneCaptureRequest))
+              .asString();
+
+      // Then
+      assertThat(response.getStatus()).isEqualTo(OK.value());
+      IndividualTelephoneCaptureResponseDTO individualTelephoneCaptureResponse =
+          DataUtils.mapper.readValue(
+              response.getBody(), IndividualTelephoneCaptureResponseDTO.class);
+      assertThat(individualTelephoneCaptureResponse.getIndividualCaseIds())
+          .containsOnlyKeys(individualCaseIds.toArray(new UUID[0]));
+      assertThat(individualTelephoneCaptureResponse.getFailedIndividualCaseIds()).isEmpty();
+
+      Map<UUID, String> qidsByIndividualCaseId = new HashMap<>();
+      for (int i = 0; i < individualCaseIds.size(); i++) {
+        ResponseManagementEvent responseManagementEvent =
+            DataUtils.mapper.readValue(
+                caseFulfilmentsQueueSpy.checkExpectedMessageReceived(),
+                ResponseManagementEvent.class);
+        FulfilmentRequestDTO fulfilmentRequest =
+            responseManagementEvent.getPayload().getFulfilmentRequest();
+
+        assertThat(fulfilmentRequest.getFulfilmentCode()).isEqualTo("RM_TC_HI");
+        assertThat(fulfilmentRequest.getCaseId()).isEqualTo(parentCase.getCaseId());
+        assertThat(fulfilmentRequest.getUacQidCreated().getCaseId())
+            .isEqualTo(fulfilmentRequest.getIndividualCaseId());
+        qidsByIndividualCaseId.put(
+            fulfilmentRequest.getIndividualCaseId(), fulfilmentRequest.getUacQidCreated().getQid());
+      }
+
+      for (UUID individualCaseId : individualCaseIds) {
+        TelephoneCaptureDTO telephoneCapture =
+            individualTelephoneCaptureResponse.getIndividualCaseIds().get(individualCaseId);
+        assertThat(telephoneCapture.getQuestionnaireId())
+            .startsWith("21")
+            .isEqualTo(qidsByIndividualCaseId.get(individualCaseId));
+        assertThat(telephoneCapture.getUac()).isNotNull();
+      }
+    }
+  }
+
+  @Test
+  public void testGetNewIndividualUacQidsIndividualCaseIdAlreadyExists() throws Exception {
+    // Given
+    setupUnitTestCaseWithTreatmentCode(
+        TEST_CASE_ID_1_EXISTS, TEST_HOUSEHOLD_ENGLAND_TREATMENT_CODE);
+    UUID existingIndividualCaseId = UUID.randomUUID();
+    setupTestCaseWithoutEvents(existingIndividualCaseId.toString());
+    IndividualTelephoneCaptureRequestDTO individualTelephoneCaptureRequest =
+        new IndividualTelephoneCaptureRequestDTO();
+    individualTelephoneCaptureRequest.setIndividualCaseIds(
+        List.of(UUID.randomUUID(), existingIndividualCaseId));
+
+    // When
+    HttpResponse<String> response =
+        Unirest.post(
+                String.format("http://localhost:%d/cases/%s/qids", port, TEST_CASE_ID_1_EXISTS))
+            .header("content-type", "application/json")
+            .body(DataUtils.mapper.writeValueAsString(individualTelephoneCaptureRequest))
+            .asString();
+
+    // Then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+  }
+
   @Test
   public void getIndividualUacQidForSPGUnitLevellCase() throws Exception {
     try (QueueSpy caseFulfilmentsQueueSpy = rabbitQueueHelper.listen(caseFulfilmentsQueueName)) {
@@ -1017,6 +1237,47 @@ public class CaseEndpointIT {
     assertThat(case2.getPostcode()).isEqualTo(TEST_POSTCODE);
   }
 
+  @Test
+  public void getCasesByPostcodeOnePageAtATime() throws IOException, UnirestException {
+    Set<UUID> expectedCaseIds =
+        Arrays.stream(setupCcsCasesWithPostcode(TEST_POSTCODE_NO_SPACE, 5))
+            .map(Case::getCaseId)
+            .collect(Collectors.toSet());
+
+    List<List<UUID>> pages = getCaseIdsByPostcodeOnePageAtATime(2);
+
+    assertThat(pages).hasSize(3);
+    List<UUID> actualCaseIds = new ArrayList<>();
+    pages.forEach(actualCaseIds::addAll);
+    assertThat(actualCaseIds).hasSize(5);
+    assertThat(actualCaseIds).containsExactlyInAnyOrderElementsOf(expectedCaseIds);
+  }
+
+  @Test
+  public void getCasesByPostcodeInTheSameOrderWholeStreamedAndPaged()
+      throws IOException, UnirestException {
+    Case[] cases = setupCcsCasesWithPostcode(TEST_POSTCODE_NO_SPACE, 5);
+    String[] organisationNames = {null, "B Organisation", "", "A Organisation", null};
+    for (int i = 0; i < cases.length; i++) {
+      cases[i].setOrganisationName(organisationNames[i]);
+      caseRepo.saveAndFlush(cases[i]);
+    }
+
+    List<UUID> wholeCaseIds = getCaseIdsByPostcode(false);
+    List<UUID> streamedCaseIds = getCaseIdsByPostcode(true);
+    List<UUID> pagedCaseIds = new ArrayList<>();
+    getCaseIdsByPostcodeOnePageAtATime(2).forEach(pagedCaseIds::addAll);
+
+    // Missing organisation names sort as empty strings, so first
+    assertThat(wholeCaseIds.subList(0, 3))
+        .containsExactlyInAnyOrder(
+            cases[0].getCaseId(), cases[2].getCaseId(), cases[4].getCaseId());
+    assertThat(wholeCaseIds.subList(3, 5))
+        .containsExactly(cases[3].getCaseId(), cases[1].getCaseId());
+    assertThat(streamedCaseIds).isEqualTo(wholeCaseIds);
+    assertThat(pagedCaseIds).isEqualTo(wholeCaseIds);
+  }
+
   @Test
   public void getAllCaseDetails() throws IOException, UnirestException {
     Case caze = createOneTestCaseWithEvent();
@@ -1113,6 +1374,54 @@ public class CaseEndpointIT {
         .orElseThrow(() -> new RuntimeException("Case not found!"));
   }
 
+  private Case setupTestCaseWithLinksAndEvents(String caseId, int numberOfLinks) {
+    Case caze = getaCase(caseId);
+    caze.setSurvey("CENSUS");
+    caseRepo.saveAndFlush(caze);
+
+    for (int i = 0; i < numberOfLinks; i++) {
+      UacQidLink uacQidLink = new UacQidLink();
+      uacQidLink.setId(UUID.randomUUID());
+      uacQidLink.setActive(true);
+      uacQidLink.setCaze(caze);
+      uacQidLinkRepository.save(uacQidLink);
+
+      Event event = new Event();
+      event.setId(UUID.randomUUID());
+      event.setEventType(EventType.UAC_UPDATED);
+      event.setUacQidLink(uacQidLink);
+      event.setEventPayload("{}");
+      eventRepository.save(event);
+    }
+
+    Event caseEvent = new Event();
+    caseEvent.setId(UUID.randomUUID());
+    caseEvent.setEventType(EventType.CASE_CREATED);
+    caseEvent.setCaze(caze);
+    caseEvent.setEventPayload("{}");
+    eventRepository.saveAndFlush(caseEvent);
+
+    return caze;
+  }
+
+  private long countStatementsToRetrieveCaseWithEvents(Case caze, int expectedNumberOfEvents)
+      throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    HttpResponse<JsonNode> response =
+        Unirest.get(createUrl("http://localhost:%d/cases/%s", port, caze.getCaseId().toString()))
+            .header("accept", "application/json")
+            .queryString("caseEvents", "true")
+            .asJson();
+
+    assertThat(response.getStatus()).isEqualTo(OK.value());
+    assertThat(extractCaseContainerDTOFromResponse(response).getCaseEvents())
+        .hasSize(expectedNumberOfEvents);
+
+    return statistics.getPrepareStatementCount();
+  }
+
   private Case setupTestCaseWithoutEvents(String caseId) {
     return setupTestCaseWithoutEvents(caseId, "CENSUS");
   }
@@ -1222,6 +1531,47 @@ public class CaseEndpointIT {
     return createdCases;
   }
 
+  private List<UUID> getCaseIdsByPostcode(boolean stream) throws IOException, UnirestException {
+    HttpResponse<String> response =
+        Unirest.get(createUrl("http://localhost:%d/cases/postcode/%s", port, TEST_POSTCODE))
+            .header("accept", "application/json")
+            .queryString("stream", stream)
+            .asString();
+    assertThat(response.getStatus()).isEqualTo(OK.value());
+
+    List<CaseContainerDTO> cases =
+        DataUtils.mapper.readValue(
+            response.getBody(), new TypeReference<List<CaseContainerDTO>>() {});
+    return cases.stream().map(CaseContainerDTO::getCaseId).collect(Collectors.toList());
+  }
+
+  private List<List<UUID>> getCaseIdsByPostcodeOnePageAtATime(int pageSize)
+      throws IOException, UnirestException {
+    List<List<UUID>> pages = new ArrayList<>();
+    String pageToken = null;
+    do {
+      HttpRequest request =
+          Unirest.get(createUrl("http://localhost:%d/cases/postcode/%s", port, TEST_POSTCODE))
+              .header("accept", "application/json")
+              .queryString("pageSize", pageSize);
+      if (pageToken != null) {
+        request.queryString("pageToken", pageToken);
+      }
+
+      HttpResponse<String> response = request.asString();
+      assertThat(response.getStatus()).isEqualTo(OK.value());
+
+      CasePageDTO casePage = DataUtils.mapper.readValue(response.getBody(), CasePageDTO.class);
+      pages.add(
+          casePage.getCases().stream()
+              .map(CaseContainerDTO::getCaseId)
+              .collect(Collectors.toList()));
+      pageToken = casePage.getNextPageToken();
+    } while (pageToken != null);
+
+    return pages;
+  }
+
   private Case saveAndRetreiveCase(Case caze) {
     caseRepo.saveAndFlush(caze);
 
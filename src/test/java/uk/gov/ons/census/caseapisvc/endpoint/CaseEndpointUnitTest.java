@@ -1,29 +1,53 @@
 package uk.gov.ons.census.caseapisvc.endpoint;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringStartsWith.startsWith;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.handler;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.CREATED_UAC;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.TEST_CCS_QID;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.TEST_POSTCODE;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createCasesWithAddressInvalid;
-import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createCcsUacQidLink;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createMultipleCasesWithEvents;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createSingleCaseWithEvents;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createUacQidCreatedPayload;
+import static uk.gov.ons.census.caseapisvc.utility.DataUtils.mapper;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.persistence.EntityManagerFactory;
 import ma.glasnost.orika.MapperFacade;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
 import org.junit.After;
@@ -33,19 +57,34 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.cache.CaseCache;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
 import uk.gov.ons.census.caseapisvc.exception.CaseIdNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.CaseReferenceNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UPRNNotFoundException;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventAssembler;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseBatchRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CasePageDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.IndividualTelephoneCaptureRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PostcodePageToken;
 import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
 import uk.gov.ons.census.caseapisvc.model.entity.EventType;
-import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.CaseVersion;
+import uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.service.CaseService;
+import uk.gov.ons.census.caseapisvc.service.TelephoneCaptureService;
 import uk.gov.ons.census.caseapisvc.service.UacQidService;
 import uk.gov.ons.census.caseapisvc.utility.DataUtils;
+import uk.gov.ons.census.caseapisvc.validation.RequestValidationProperties;
+import uk.gov.ons.census.caseapisvc.validation.RequestValidator;
 
 public class CaseEndpointUnitTest {
 
@@ -67,15 +106,32 @@ public class CaseEndpointUnitTest {
 
   @Mock private CaseService caseService;
   @Mock private UacQidService uacQidService;
+  @Mock private TelephoneCaptureService telephoneCaptureService;
 
   @Spy
   private MapperFacade mapperFacade = new DefaultMapperFactory.Builder().build().getMapperFacade();
 
+  @Spy private CaseEventAssembler caseEventAssembler = new CaseEventAssembler(mapperFacade);
+
+  // Disabled, so every request goes through to the mocked service
+  private final PrimaryReader primaryReader =
+      new PrimaryReader(mock(PlatformTransactionManager.class), mock(EntityManagerFactory.class));
+  @Spy private CaseCache caseCache = new CaseCache(new SimpleMeterRegistry(), primaryReader);
+
+  @Spy private ObjectMapper objectMapper = mapper.copy();
+
+  @Spy
+  private RequestValidator requestValidator =
+      new RequestValidator(new RequestValidationProperties());
+
   @InjectMocks private CaseEndpoint caseEndpoint;
 
   @Before
   public void setUp() {
     initMocks(this);
+    ReflectionTestUtils.setField(caseEndpoint, "maxBatchSize", 500);
+    ReflectionTestUtils.setField(caseEndpoint, "maxPageSize", 1000);
+    ReflectionTestUtils.setField(caseEndpoint, "maxIndividualsPerRequest", 20);
 
     mockMvc = MockMvcBuilders.standaloneSetup(caseEndpoint).build();
   }
@@ -87,7 +143,7 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getMultipleCasesWithEventsByUPRN() throws Exception {
-    when(caseService.findByUPRN(anyString(), eq(false)))
+    when(caseService.findByUPRNWithCaseEvents(anyString(), eq(false)))
         .thenReturn(createMultipleCasesWithEvents());
 
     mockMvc
@@ -185,7 +241,7 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getACaseWithEventsByCaseId() throws Exception {
-    when(caseService.findByCaseId(any())).thenReturn(createSingleCaseWithEvents());
+    when(caseService.findByCaseIdWithCaseEvents(any())).thenReturn(createSingleCaseWithEvents());
 
     mockMvc
         .perform(
@@ -251,14 +307,17 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getCaseFromQidId() throws Exception {
-    when(caseService.findCaseByQid(TEST_QID)).thenReturn(createSingleCaseWithEvents());
+    when(caseService.findCaseSummaryByQid(TEST_QID))
+        .thenReturn(
+            new QidCaseSummary(TEST_QID, UUID.fromString(TEST1_CASE_ID), "HH", true, false));
 
     mockMvc
         .perform(
             get(DataUtils.createUrl("/cases/qid/%s", TEST_QID)).accept(MediaType.APPLICATION_JSON))
         .andExpect(status().isOk())
         .andExpect(handler().handlerType(CaseEndpoint.class))
-        .andExpect(jsonPath("$.id", is(TEST1_CASE_ID)));
+        .andExpect(jsonPath("$.id", is(TEST1_CASE_ID)))
+        .andExpect(jsonPath("$.addressType", is("HH")));
   }
 
   @Test
@@ -273,7 +332,8 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getACaseWithEventsByCaseReference() throws Exception {
-    when(caseService.findByReference(anyLong())).thenReturn(createSingleCaseWithEvents());
+    when(caseService.findByReferenceWithCaseEvents(anyLong()))
+        .thenReturn(createSingleCaseWithEvents());
 
     mockMvc
         .perform(
@@ -331,8 +391,8 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getCcsQidByCaseId() throws Exception {
-    UacQidLink ccsUacQidLink = createCcsUacQidLink(TEST_CCS_QID, true);
-    when(caseService.findCCSUacQidLinkByCaseId(any())).thenReturn(ccsUacQidLink);
+    when(caseService.findCcsQidSummaryByCaseId(any()))
+        .thenReturn(new CcsQidSummary(TEST_CCS_QID, true));
 
     mockMvc
         .perform(
@@ -347,8 +407,8 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getInactiveCcsQidByCaseId() throws Exception {
-    UacQidLink ccsUacQidLink = createCcsUacQidLink(TEST_CCS_QID, false);
-    when(caseService.findCCSUacQidLinkByCaseId(any())).thenReturn(ccsUacQidLink);
+    when(caseService.findCcsQidSummaryByCaseId(any()))
+        .thenReturn(new CcsQidSummary(TEST_CCS_QID, false));
 
     mockMvc
         .perform(
@@ -363,7 +423,7 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getCcsQidByCaseIdCcsCaseNotFound() throws Exception {
-    when(caseService.findCCSUacQidLinkByCaseId(any()))
+    when(caseService.findCcsQidSummaryByCaseId(any()))
         .thenThrow(new CaseIdNotFoundException(UUID.randomUUID()));
 
     mockMvc
@@ -375,7 +435,7 @@ public class CaseEndpointUnitTest {
 
   @Test
   public void getCcsQidByCaseIdCcsQIDNotFound() throws Exception {
-    when(caseService.findCCSUacQidLinkByCaseId(any())).thenThrow(new QidNotFoundException("test"));
+    when(caseService.findCcsQidSummaryByCaseId(any())).thenThrow(new QidNotFoundException("test"));
 
     mockMvc
         .perform(
@@ -477,6 +537,287 @@ public class CaseEndpointUnitTest {
     verifyZeroInteractions(uacQidService);
   }
 
+  @Test
+  public void getNewUacQidByCaseIdAsync() throws Exception {
+    Case caze = createSingleCaseWithEvents();
+    caze.setTreatmentCode("HH_XXXXXE");
+    caze.setCaseType("HH");
+    caze.setRegion("E1000");
+    UacQidCreatedPayloadDTO uacQidCreated = createUacQidCreatedPayload(TEST_QID, caze.getCaseId());
+    when(caseService.findByCaseId(eq(caze.getCaseId()))).thenReturn(caze);
+    when(telephoneCaptureService.createAndSendUacQid(
+            eq(caze.getCaseId()), isNull(), eq(RM_TELEPHONE_CAPTURE), eq(1)))
+        .thenReturn(CompletableFuture.completedFuture(uacQidCreated));
+
+    MvcResult asyncResult =
+        mockMvc
+            .perform(
+                get(String.format("/cases/%s/qid?async=true", caze.getCaseId()))
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andExpect(handler().methodName("getNewQidForTelephoneCaptureAsync"))
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.questionnaireId", is(TEST_QID)))
+        .andExpect(jsonPath("$.uac", is(CREATED_UAC)))
+        .andExpect(jsonPath("$.formType", is("H")))
+        .andExpect(jsonPath("$.questionnaireType", is("01")));
+
+    verifyZeroInteractions(uacQidService);
+  }
+
+  @Test
+  public void getNewIndividualUacQidByCaseIdAsync() throws Exception {
+    Case parentCase = createSingleCaseWithEvents();
+    UUID individualCaseId = UUID.randomUUID();
+    parentCase.setTreatmentCode("HH_XXXXXE");
+    parentCase.setCaseType("HH");
+    parentCase.setRegion("E1000");
+    UacQidCreatedPayloadDTO uacQidCreated = createUacQidCreatedPayload(TEST_QID, individualCaseId);
+    when(caseService.findByCaseId(eq(parentCase.getCaseId()))).thenReturn(parentCase);
+    when(caseService.caseExistsByCaseId(eq(individualCaseId))).thenReturn(false);
+    when(telephoneCaptureService.createAndSendUacQid(
+            eq(parentCase.getCaseId()),
+            eq(individualCaseId),
+            eq(RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL),
+            eq(21)))
+        .thenReturn(CompletableFuture.completedFuture(uacQidCreated));
+
+    MvcResult asyncResult =
+        mockMvc
+            .perform(
+                get(String.format(
+                        "/cases/%s/qid?async=true&individual=true&individualCaseId=%s",
+                        parentCase.getCaseId(), individualCaseId))
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.questionnaireId", is(TEST_QID)))
+        .andExpect(jsonPath("$.formType", is("I")))
+        .andExpect(jsonPath("$.questionnaireType", is("21")));
+  }
+
+  @Test
+  public void getNewIndividualUacQidAsyncButIndividualCaseExists() throws Exception {
+    Case parentCase = createSingleCaseWithEvents();
+    UUID individualCaseId = UUID.randomUUID();
+    parentCase.setTreatmentCode("HH_XXXXXE");
+    when(caseService.findByCaseId(eq(parentCase.getCaseId()))).thenReturn(parentCase);
+    when(caseService.caseExistsByCaseId(eq(individualCaseId))).thenReturn(true);
+
+    mockMvc
+        .perform(
+            get(String.format(
+                    "/cases/%s/qid?async=true&individual=true&individualCaseId=%s",
+                    parentCase.getCaseId(), individualCaseId))
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(telephoneCaptureService);
+  }
+
+  @Test
+  public void getNewUacQidByCaseIdAsyncNotFound() throws Exception {
+    when(caseService.findByCaseId(any())).thenThrow(new CaseIdNotFoundException(UUID.randomUUID()));
+
+    mockMvc
+        .perform(
+            get(String.format("/cases/%s/qid?async=true", TEST1_CASE_ID))
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isNotFound());
+
+    verifyZeroInteractions(telephoneCaptureService);
+  }
+
+  @Test
+  public void getNewUacQidByCaseIdAsyncTimesOut() throws Exception {
+    assertAsyncTelephoneCaptureFailure(new TimeoutException(), 504);
+  }
+
+  @Test
+  public void getNewUacQidByCaseIdAsyncRejected() throws Exception {
+    assertAsyncTelephoneCaptureFailure(new RejectedExecutionException(), 503);
+  }
+
+  private void assertAsyncTelephoneCaptureFailure(Throwable failure, int expectedStatus)
+      throws Exception {
+    Case caze = createSingleCaseWithEvents();
+    caze.setTreatmentCode("HH_XXXXXE");
+    caze.setCaseType("HH");
+    caze.setRegion("E1000");
+    when(caseService.findByCaseId(eq(caze.getCaseId()))).thenReturn(caze);
+    when(telephoneCaptureService.createAndSendUacQid(any(), any(), any(), anyInt()))
+        .thenReturn(CompletableFuture.failedFuture(failure));
+
+    MvcResult asyncResult =
+        mockMvc
+            .perform(
+                get(String.format("/cases/%s/qid?async=true", caze.getCaseId()))
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc.perform(asyncDispatch(asyncResult)).andExpect(status().is(expectedStatus));
+  }
+
+  @Test
+  public void getNewIndividualUacQidsByCaseId() throws Exception {
+    Case parentCase = createSingleCaseWithEvents();
+    parentCase.setTreatmentCode("HH_XXXXXE");
+    parentCase.setCaseType("HH");
+    parentCase.setRegion("E1000");
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    when(caseService.findByCaseId(eq(parentCase.getCaseId()))).thenReturn(parentCase);
+    when(caseService.findExistingCaseIds(eq(individualCaseIds))).thenReturn(Set.of());
+    when(telephoneCaptureService.createAndSendUacQids(
+            eq(parentCase.getCaseId()),
+            eq(individualCaseIds),
+            eq(RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL),
+            eq(21)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                Map.of(
+                    individualCaseIds.get(0),
+                    createUacQidCreatedPayload("qid1", individualCaseIds.get(0)),
+                    individualCaseIds.get(1),
+                    createUacQidCreatedPayload("qid2", individualCaseIds.get(1)))));
+
+    MvcResult asyncResult =
+        mockMvc
+            .perform(
+                post(String.format("/cases/%s/qids", parentCase.getCaseId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createIndividualTelephoneCaptureRequest(individualCaseIds)))
+            .andExpect(request().asyncStarted())
+            .andExpect(handler().methodName("getNewQidsForIndividualTelephoneCapture"))
+            .andReturn();
+
+    String firstIndividual = "$.individualCaseIds['" + individualCaseIds.get(0) + "']";
+    String secondIndividual = "$.individualCaseIds['" + individualCaseIds.get(1) + "']";
+    mockMvc
+        .perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath(firstIndividual + ".questionnaireId", is("qid1")))
+        .andExpect(jsonPath(firstIndividual + ".uac", is(CREATED_UAC)))
+        .andExpect(jsonPath(firstIndividual + ".formType", is("I")))
+        .andExpect(jsonPath(firstIndividual + ".questionnaireType", is("21")))
+        .andExpect(jsonPath(secondIndividual + ".questionnaireId", is("qid2")))
+        .andExpect(jsonPath("$.failedIndividualCaseIds", hasSize(0)));
+
+    verify(caseService, never()).caseExistsByCaseId(any());
+  }
+
+  @Test
+  public void getNewIndividualUacQidsListsTheIndividualsThatFailed() throws Exception {
+    Case parentCase = createSingleCaseWithEvents();
+    parentCase.setTreatmentCode("HH_XXXXXE");
+    parentCase.setCaseType("HH");
+    parentCase.setRegion("E1000");
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    when(caseService.findByCaseId(eq(parentCase.getCaseId()))).thenReturn(parentCase);
+    when(caseService.findExistingCaseIds(eq(individualCaseIds))).thenReturn(Set.of());
+    when(telephoneCaptureService.createAndSendUacQids(any(), any(), any(), anyInt()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                Map.of(
+                    individualCaseIds.get(0),
+                    createUacQidCreatedPayload("qid1", individualCaseIds.get(0)))));
+
+    MvcResult asyncResult =
+        mockMvc
+            .perform(
+                post(String.format("/cases/%s/qids", parentCase.getCaseId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createIndividualTelephoneCaptureRequest(individualCaseIds)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.individualCaseIds.*", hasSize(1)))
+        .andExpect(
+            jsonPath(
+                "$.individualCaseIds['" + individualCaseIds.get(0) + "'].questionnaireId",
+                is("qid1")))
+        .andExpect(
+            jsonPath(
+                "$.failedIndividualCaseIds", contains(individualCaseIds.get(1).toString())));
+  }
+
+  @Test
+  public void getNewIndividualUacQidsButAnIndividualCaseExists() throws Exception {
+    Case parentCase = createSingleCaseWithEvents();
+    parentCase.setTreatmentCode("HH_XXXXXE");
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    when(caseService.findByCaseId(eq(parentCase.getCaseId()))).thenReturn(parentCase);
+    when(caseService.findExistingCaseIds(eq(individualCaseIds)))
+        .thenReturn(Set.of(individualCaseIds.get(1)));
+
+    mockMvc
+        .perform(
+            post(String.format("/cases/%s/qids", parentCase.getCaseId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createIndividualTelephoneCaptureRequest(individualCaseIds)))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(telephoneCaptureService);
+  }
+
+  @Test
+  public void getNewIndividualUacQidsRejectsDuplicateIndividualCaseIds() throws Exception {
+    UUID individualCaseId = UUID.randomUUID();
+
+    mockMvc
+        .perform(
+            post(String.format("/cases/%s/qids", TEST1_CASE_ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    createIndividualTelephoneCaptureRequest(
+                        List.of(individualCaseId, individualCaseId))))
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(caseService, telephoneCaptureService);
+  }
+
+  @Test
+  public void getNewIndividualUacQidsRejectsTooManyIndividualCaseIds() throws Exception {
+    ReflectionTestUtils.setField(caseEndpoint, "maxIndividualsPerRequest", 1);
+
+    mockMvc
+        .perform(
+            post(String.format("/cases/%s/qids", TEST1_CASE_ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    createIndividualTelephoneCaptureRequest(
+                        List.of(UUID.randomUUID(), UUID.randomUUID()))))
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(caseService, telephoneCaptureService);
+  }
+
+  @Test
+  public void getNewIndividualUacQidsRejectsNoIndividualCaseIds() throws Exception {
+    mockMvc
+        .perform(
+            post(String.format("/cases/%s/qids", TEST1_CASE_ID))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createIndividualTelephoneCaptureRequest(List.of())))
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(caseService, telephoneCaptureService);
+  }
+
   @Test
   public void getNewIndividualUacQidButIndividualParamNotGiven() throws Exception {
     Case parentCase = createSingleCaseWithEvents();
@@ -625,10 +966,193 @@ public class CaseEndpointUnitTest {
         .andExpect(jsonPath("$[0].postcode", is(caze.getPostcode())));
   }
 
+  @Test
+  public void streamCasesByPostcode() throws Exception {
+    doAnswer(
+            invocation -> {
+              Consumer<Case> caseConsumer = invocation.getArgument(1);
+              createMultipleCasesWithEvents().forEach(caseConsumer);
+              return null;
+            })
+        .when(caseService)
+        .streamByPostcode(eq(TEST_POSTCODE), any());
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("stream", "true")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(handler().methodName("streamCasesByPostcode"))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].id", is(TEST1_CASE_ID)))
+        .andExpect(jsonPath("$[0].caseEvents", hasSize(0)))
+        .andExpect(jsonPath("$[1].id", is(TEST2_CASE_ID)));
+    verify(caseService, never()).findByPostcode(any());
+  }
+
+  @Test
+  public void getFirstPageOfCasesByPostcode() throws Exception {
+    when(caseService.findPageByPostcode(TEST_POSTCODE, null, 2))
+        .thenReturn(createMultipleCasesWithEvents());
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "1")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(handler().methodName("getPageOfCasesByPostcode"))
+        .andExpect(jsonPath("$.cases", hasSize(1)))
+        .andExpect(jsonPath("$.cases[0].id", is(TEST1_CASE_ID)))
+        .andExpect(jsonPath("$.nextPageToken").isString());
+    verify(caseService, never()).findByPostcode(any());
+  }
+
+  @Test
+  public void getNextPageOfCasesByPostcode() throws Exception {
+    PostcodePageToken pageToken = new PostcodePageToken();
+    pageToken.setPostcode("AB12BC");
+    pageToken.setOrganisationName("");
+    pageToken.setAddressLine1("123 Fake Street");
+    pageToken.setCaseType("HH");
+    pageToken.setAddressLevel("U");
+    pageToken.setCaseId(UUID.fromString(TEST1_CASE_ID));
+    when(caseService.findPageByPostcode(TEST_POSTCODE, pageToken, 3))
+        .thenReturn(List.of(createMultipleCasesWithEvents().get(1)));
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "2")
+                .param("pageToken", encodePageToken(pageToken))
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cases", hasSize(1)))
+        .andExpect(jsonPath("$.cases[0].id", is(TEST2_CASE_ID)))
+        .andExpect(jsonPath("$.nextPageToken").doesNotExist());
+  }
+
+  @Test
+  public void nextPageTokenContinuesFromLastCaseOnPage() throws Exception {
+    when(caseService.findPageByPostcode(TEST_POSTCODE, null, 2))
+        .thenReturn(createMultipleCasesWithEvents());
+
+    String response =
+        mockMvc
+            .perform(
+                get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                    .param("pageSize", "1")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    String nextPageToken = mapper.readValue(response, CasePageDTO.class).getNextPageToken();
+    PostcodePageToken pageToken =
+        mapper.readValue(Base64.getUrlDecoder().decode(nextPageToken), PostcodePageToken.class);
+    assertThat(pageToken.getPostcode()).isEqualTo("AB12BC");
+    assertThat(pageToken.getCaseId()).isEqualTo(UUID.fromString(TEST1_CASE_ID));
+    assertThat(pageToken.getOrganisationName()).isEmpty();
+  }
+
+  @Test
+  public void pageSizeIsCapped() throws Exception {
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "5000")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cases", hasSize(0)));
+    verify(caseService).findPageByPostcode(TEST_POSTCODE, null, 1001);
+  }
+
+  @Test
+  public void pageSizeOfZeroIsABadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "0")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+    verifyZeroInteractions(caseService);
+  }
+
+  @Test
+  public void unreadablePageTokenIsABadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "10")
+                .param("pageToken", "not-a-page-token")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+    verifyZeroInteractions(caseService);
+  }
+
+  @Test
+  public void pageTokenForAnotherPostcodeIsABadRequest() throws Exception {
+    PostcodePageToken pageToken = new PostcodePageToken();
+    pageToken.setPostcode("ZZ99ZZ");
+    pageToken.setOrganisationName("");
+    pageToken.setAddressLine1("");
+    pageToken.setCaseType("");
+    pageToken.setAddressLevel("");
+    pageToken.setCaseId(UUID.fromString(TEST1_CASE_ID));
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/postcode/%s", TEST_POSTCODE))
+                .param("pageSize", "10")
+                .param("pageToken", encodePageToken(pageToken))
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+    verifyZeroInteractions(caseService);
+  }
+
+  @Test
+  public void streamCasesByUPRNWithCaseEvents() throws Exception {
+    doAnswer(
+            invocation -> {
+              Consumer<Case> caseConsumer = invocation.getArgument(3);
+              caseConsumer.accept(createSingleCaseWithEvents());
+              return null;
+            })
+        .when(caseService)
+        .streamByUPRN(eq(TEST_UPRN), eq(true), eq(true), any());
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/uprn/%s", TEST_UPRN))
+                .param("stream", "true")
+                .param("caseEvents", "true")
+                .param("validAddressOnly", "true")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(handler().methodName("streamCasesByUPRN"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].id", is(TEST1_CASE_ID)))
+        .andExpect(jsonPath("$[0].caseEvents", hasSize(1)));
+  }
+
+  @Test
+  public void streamCasesByPostcodeWithNoMatchesIsAnEmptyArray() throws Exception {
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/ccs/postcode/%s", TEST_POSTCODE))
+                .param("stream", "true")
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(handler().methodName("streamCCSCasesByPostcode"))
+        .andExpect(jsonPath("$", hasSize(0)));
+  }
+
   @Test
   public void getAllCaseDetails() throws Exception {
     Case caze = createSingleCaseWithEvents();
-    when(caseService.findByCaseId(UUID.fromString(TEST1_CASE_ID))).thenReturn(caze);
+    when(caseService.findByCaseIdWithCaseEvents(UUID.fromString(TEST1_CASE_ID))).thenReturn(caze);
 
     mockMvc
         .perform(
@@ -644,7 +1168,7 @@ public class CaseEndpointUnitTest {
   public void rmUacCreatedEventNotPresent() throws Exception {
     Case caze = createSingleCaseWithEvents();
     caze.getUacQidLinks().get(0).getEvents().get(0).setEventType(EventType.RM_UAC_CREATED);
-    when(caseService.findByCaseId(UUID.fromString(TEST1_CASE_ID))).thenReturn(caze);
+    when(caseService.findByCaseIdWithCaseEvents(UUID.fromString(TEST1_CASE_ID))).thenReturn(caze);
 
     mockMvc
         .perform(
@@ -655,4 +1179,236 @@ public class CaseEndpointUnitTest {
         .andExpect(jsonPath("$.id", is(caze.getCaseId().toString())))
         .andExpect(jsonPath("$.events", hasSize(0)));
   }
+
+  @Test
+  public void getACaseByCaseIdSetsETagAndLastModified() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    OffsetDateTime lastUpdated = OffsetDateTime.of(2020, 3, 15, 9, 0, 0, 0, ZoneOffset.UTC);
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, lastUpdated.plusHours(1))));
+    when(caseService.findByCaseId(caseId)).thenReturn(createSingleCaseWithEvents());
+
+    mockMvc
+        .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", startsWith("\"" + TEST1_CASE_ID)))
+        .andExpect(header().dateValue("Last-Modified", toEpochMilli(lastUpdated.plusHours(1))))
+        .andExpect(jsonPath("$.id", is(TEST1_CASE_ID)));
+  }
+
+  @Test
+  public void getACaseByCaseIdIsNotModifiedWhenETagMatches() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, OffsetDateTime.now(), null)));
+    when(caseService.findByCaseId(caseId)).thenReturn(createSingleCaseWithEvents());
+
+    String eTag =
+        mockMvc
+            .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    mockMvc
+        .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)).header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", eTag))
+        .andExpect(content().string(""));
+
+    verify(caseService, times(1)).findByCaseId(caseId);
+  }
+
+  @Test
+  public void getACaseByCaseIdIsModifiedWhenAnEventIsProcessed() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    OffsetDateTime lastUpdated = OffsetDateTime.now();
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, null)));
+    when(caseService.findByCaseId(caseId)).thenReturn(createSingleCaseWithEvents());
+
+    String eTag =
+        mockMvc
+            .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, lastUpdated.plusNanos(1000))));
+
+    mockMvc
+        .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)).header("If-None-Match", eTag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.id", is(TEST1_CASE_ID)));
+  }
+
+  @Test
+  public void getACaseByCaseIdReloadsACaseCachedAtAnOlderVersion() throws Exception {
+    ReflectionTestUtils.setField(caseCache, "enabled", true);
+    ReflectionTestUtils.setField(caseCache, "maxSize", 100L);
+    ReflectionTestUtils.setField(caseCache, "timeToLive", "PT5M");
+    caseCache.init();
+
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    OffsetDateTime lastUpdated = OffsetDateTime.now();
+    Case olderCase = createSingleCaseWithEvents();
+    olderCase.setAddressLine1("Old Street");
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, null)));
+    when(caseService.findByCaseId(caseId)).thenReturn(olderCase);
+
+    String olderETag =
+        mockMvc
+            .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+            .andExpect(jsonPath("$.addressLine1", is("Old Street")))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // The case has been updated but the event that drops it from the cache hasn't arrived
+    Case newerCase = createSingleCaseWithEvents();
+    newerCase.setAddressLine1("New Street");
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated.plusSeconds(1), null)));
+    when(caseService.findByCaseId(caseId)).thenReturn(newerCase);
+
+    String newerETag =
+        mockMvc
+            .perform(
+                get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID))
+                    .header("If-None-Match", olderETag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.addressLine1", is("New Street")))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    assertThat(newerETag).isNotEqualTo(olderETag);
+    mockMvc
+        .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.addressLine1", is("New Street")));
+    verify(caseService, times(2)).findByCaseId(caseId);
+  }
+
+  @Test
+  public void getACaseWithEventsByCaseIdHasADifferentETag() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, OffsetDateTime.now(), null)));
+    when(caseService.findByCaseId(caseId)).thenReturn(createSingleCaseWithEvents());
+    when(caseService.findByCaseIdWithCaseEvents(caseId)).thenReturn(createSingleCaseWithEvents());
+
+    String eTag =
+        mockMvc
+            .perform(get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID)))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/%s", TEST1_CASE_ID))
+                .param("caseEvents", "true")
+                .header("If-None-Match", eTag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.caseEvents", hasSize(1)));
+  }
+
+  @Test
+  public void getAllCaseDetailsIsNotModifiedSinceLastModified() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    OffsetDateTime lastUpdated = OffsetDateTime.of(2020, 3, 15, 9, 0, 0, 0, ZoneOffset.UTC);
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, null)));
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/case-details/%s", TEST1_CASE_ID))
+                .header("If-Modified-Since", toEpochMilli(lastUpdated)))
+        .andExpect(status().isNotModified());
+
+    verify(caseService, never()).findByCaseIdWithCaseEvents(any());
+  }
+
+  @Test
+  public void getAllCaseDetailsIsModifiedAfterIfModifiedSince() throws Exception {
+    UUID caseId = UUID.fromString(TEST1_CASE_ID);
+    OffsetDateTime lastUpdated = OffsetDateTime.of(2020, 3, 15, 9, 0, 0, 0, ZoneOffset.UTC);
+    when(caseService.findCaseVersion(caseId))
+        .thenReturn(Optional.of(new CaseVersion(caseId, lastUpdated, lastUpdated.plusSeconds(1))));
+    when(caseService.findByCaseIdWithCaseEvents(caseId)).thenReturn(createSingleCaseWithEvents());
+
+    mockMvc
+        .perform(
+            get(DataUtils.createUrl("/cases/case-details/%s", TEST1_CASE_ID))
+                .header("If-Modified-Since", toEpochMilli(lastUpdated)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.id", is(TEST1_CASE_ID)));
+  }
+
+  @Test
+  public void findCasesInBatchReturnsResultsKeyedByIdentifier() throws Exception {
+    Case caze = createSingleCaseWithEvents();
+    UUID missingCaseId = UUID.randomUUID();
+
+    CaseBatchRequestDTO batchRequest = new CaseBatchRequestDTO();
+    batchRequest.setCaseIds(List.of(caze.getCaseId(), missingCaseId));
+    batchRequest.setUprns(List.of(TEST_UPRN));
+    when(caseService.findCaseBatch(any(), eq(false), eq(true))).thenReturn(List.of(caze));
+
+    mockMvc
+        .perform(
+            post("/cases/batch")
+                .param("caseEvents", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(batchRequest)))
+        .andExpect(status().isOk())
+        .andExpect(handler().handlerType(CaseEndpoint.class))
+        .andExpect(handler().methodName("findCasesInBatch"))
+        .andExpect(jsonPath("$.caseIds['" + TEST1_CASE_ID + "'].found", is(true)))
+        .andExpect(jsonPath("$.caseIds['" + TEST1_CASE_ID + "'].cases", hasSize(1)))
+        .andExpect(jsonPath("$.caseIds['" + TEST1_CASE_ID + "'].cases[0].caseEvents", hasSize(1)))
+        .andExpect(jsonPath("$.caseIds['" + missingCaseId + "'].found", is(false)))
+        .andExpect(jsonPath("$.caseIds['" + missingCaseId + "'].cases", hasSize(0)))
+        .andExpect(jsonPath("$.uprns['" + TEST_UPRN + "'].found", is(true)))
+        .andExpect(jsonPath("$.uprns['" + TEST_UPRN + "'].cases[0].id", is(TEST1_CASE_ID)));
+  }
+
+  @Test
+  public void findCasesInBatchRejectsTooManyIdentifiers() throws Exception {
+    ReflectionTestUtils.setField(caseEndpoint, "maxBatchSize", 1);
+
+    CaseBatchRequestDTO batchRequest = new CaseBatchRequestDTO();
+    batchRequest.setCaseIds(List.of(UUID.randomUUID(), UUID.randomUUID()));
+
+    mockMvc
+        .perform(
+            post("/cases/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(batchRequest)))
+        .andExpect(status().isBadRequest());
+
+    verifyZeroInteractions(caseService);
+  }
+
+  private String createIndividualTelephoneCaptureRequest(List<UUID> individualCaseIds)
+      throws Exception {
+    IndividualTelephoneCaptureRequestDTO individualTelephoneCaptureRequest =
+        new IndividualTelephoneCaptureRequestDTO();
+    individualTelephoneCaptureRequest.setIndividualCaseIds(individualCaseIds);
+    return mapper.writeValueAsString(individualTelephoneCaptureRequest);
+  }
+
+  private String encodePageToken(PostcodePageToken pageToken) throws Exception {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(mapper.writeValueAsBytes(pageToken));
+  }
+
+  private static long toEpochMilli(OffsetDateTime dateTime) {
+    return dateTime.toInstant().toEpochMilli();
+  }
 }
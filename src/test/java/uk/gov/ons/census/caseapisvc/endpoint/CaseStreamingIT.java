@@ -0,0 +1,188 @@
+package uk.gov.ons.census.caseapisvc.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.Unirest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.EventRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
+import uk.gov.ons.census.caseapisvc.service.CaseService;
+import uk.gov.ons.census.caseapisvc.utility.DataUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class CaseStreamingIT {
+  private static final String TEST_POSTCODE = "AB1 2BC";
+  private static final int NUMBER_OF_CASES = 50_000;
+  private static final long MAX_HEAP_GROWTH_BYTES = 16 * 1024 * 1024;
+  private static final String EVENTS_TEST_UPRN = "456";
+  private static final String UPRN_URI = "/cases/uprn/{uprn}";
+  private static final AtomicLong CASE_REF_SEQUENCE = new AtomicLong(200_000_000L);
+
+  @LocalServerPort private int port;
+
+  @Autowired private CaseService caseService;
+  @Autowired private CaseRepository caseRepo;
+  @Autowired private UacQidLinkRepository uacQidLinkRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Before
+  public void setUp() {
+    clearDown();
+
+    List<Object[]> rows = new ArrayList<>(NUMBER_OF_CASES);
+    for (int i = 0; i < NUMBER_OF_CASES; i++) {
+      rows.add(
+          new Object[] {
+            UUID.randomUUID(), 100_000_000L + i, TEST_POSTCODE, String.format("%d High Street", i)
+          });
+    }
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO casev2.cases (case_id, case_ref, postcode, address_line1, uprn, survey, "
+            + "case_type, address_level, ce_actual_responses, receipt_received, address_invalid) "
+            + "VALUES (?, ?, ?, ?, '123', 'CENSUS', 'HH', 'U', 0, false, false)",
+        rows);
+  }
+
+  @After
+  public void clearDown() {
+    eventRepository.deleteAllInBatch();
+    uacQidLinkRepository.deleteAllInBatch();
+    caseRepo.deleteAllInBatch();
+  }
+
+  @Test
+  public void shouldStreamEveryCaseForALargePostcode() throws Exception {
+    HttpResponse<String> response =
+        Unirest.get(String.format("http://localhost:%d/cases/postcode/%s", port, "AB12BC"))
+            .queryString("stream", "true")
+            .header("accept", "application/json")
+            .asString();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    JsonNode cases = DataUtils.mapper.readTree(response.getBody());
+    assertThat(cases.size()).isEqualTo(NUMBER_OF_CASES);
+    assertThat(cases.get(0).get("addressLine1").asText()).isEqualTo("0 High Street");
+  }
+
+  @Test
+  public void shouldNotHoldOnToCasesThatHaveAlreadyBeenStreamed() {
+    AtomicInteger streamedCases = new AtomicInteger();
+    List<WeakReference<Case>> earlyCases = new ArrayList<>();
+    AtomicInteger earlyCasesStillReachable = new AtomicInteger(-1);
+    long[] heapUsed = new long[2];
+
+    caseService.streamByPostcode(
+        TEST_POSTCODE,
+        caze -> {
+          int row = streamedCases.incrementAndGet();
+          if (row <= 100) {
+            earlyCases.add(new WeakReference<>(caze));
+          } else if (row == 10_000) {
+            heapUsed[0] = heapUsedAfterGc();
+            earlyCasesStillReachable.set(
+                (int) earlyCases.stream().filter(reference -> reference.get() != null).count());
+          } else if (row == NUMBER_OF_CASES) {
+            heapUsed[1] = heapUsedAfterGc();
+          }
+        });
+
+    assertThat(streamedCases).hasValue(NUMBER_OF_CASES);
+    // Cases from the start of the stream must have been released while it was still running
+    assertThat(earlyCasesStillReachable).hasValue(0);
+    assertThat(heapUsed[1] - heapUsed[0]).isLessThan(MAX_HEAP_GROWTH_BYTES);
+  }
+
+  @Test
+  public void shouldFetchLinksAndEventsForEachChunkOfStreamedCases() throws Exception {
+    // Two full chunks and one more case
+    int numberOfCases = 2 * Integer.parseInt(CaseRepository.STREAM_FETCH_SIZE) + 1;
+    for (int i = 0; i < numberOfCases; i++) {
+      setupCaseWithLinkAndEvents(EVENTS_TEST_UPRN);
+    }
+    DistributionSummary statements =
+        meterRegistry.summary("db.request.statements", "method", "GET", "uri", UPRN_URI);
+    double statementsBefore = statements.totalAmount();
+
+    HttpResponse<String> response =
+        Unirest.get(String.format("http://localhost:%d/cases/uprn/%s", port, EVENTS_TEST_UPRN))
+            .queryString("stream", "true")
+            .queryString("caseEvents", "true")
+            .header("accept", "application/json")
+            .asString();
+
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+    JsonNode cases = DataUtils.mapper.readTree(response.getBody());
+    assertThat(cases.size()).isEqualTo(numberOfCases);
+    for (JsonNode caze : cases) {
+      assertThat(caze.get("caseEvents").size()).isEqualTo(2);
+    }
+    // The stream, then the links, link events and case events of each of the three chunks
+    assertThat(statements.totalAmount() - statementsBefore).isEqualTo(1 + 3 * 3);
+  }
+
+  private void setupCaseWithLinkAndEvents(String uprn) {
+    Case caze = new Case();
+    caze.setCaseId(UUID.randomUUID());
+    caze.setCaseRef(CASE_REF_SEQUENCE.getAndIncrement());
+    caze.setUprn(uprn);
+    caze.setSurvey("CENSUS");
+    caze.setCaseType("HH");
+    caze.setAddressLevel("U");
+    caseRepo.save(caze);
+
+    UacQidLink uacQidLink = new UacQidLink();
+    uacQidLink.setId(UUID.randomUUID());
+    uacQidLink.setActive(true);
+    uacQidLink.setCaze(caze);
+    uacQidLinkRepository.save(uacQidLink);
+
+    Event linkEvent = new Event();
+    linkEvent.setId(UUID.randomUUID());
+    linkEvent.setEventType(EventType.UAC_UPDATED);
+    linkEvent.setUacQidLink(uacQidLink);
+    linkEvent.setEventPayload("{}");
+    eventRepository.save(linkEvent);
+
+    Event caseEvent = new Event();
+    caseEvent.setId(UUID.randomUUID());
+    caseEvent.setEventType(EventType.CASE_CREATED);
+    caseEvent.setCaze(caze);
+    caseEvent.setEventPayload("{}");
+    eventRepository.save(caseEvent);
+  }
+
+  private long heapUsedAfterGc() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
@@ -29,6 +29,7 @@ import uk.gov.ons.census.caseapisvc.model.dto.NewQidLink;
 import uk.gov.ons.census.caseapisvc.model.dto.QidLink;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
 import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.service.CaseService;
 import uk.gov.ons.census.caseapisvc.service.UacQidService;
 
@@ -54,7 +55,8 @@ public class QidEndpointTest {
   public void testGetUacQidLinkByQidNoLinkedCase() throws Exception {
     // Given
     UacQidLink uacQidLink = createUacQidLink();
-    when(uacQidService.findUacQidLinkByQid(uacQidLink.getQid())).thenReturn(uacQidLink);
+    when(uacQidService.findQidCaseSummaryByQid(uacQidLink.getQid()))
+        .thenReturn(new QidCaseSummary(uacQidLink.getQid(), null, null, true, false));
 
     // When, then
     mockMvc
@@ -64,19 +66,24 @@ public class QidEndpointTest {
                 .accept(MediaType.APPLICATION_JSON))
         .andExpect(status().isOk())
         .andExpect(handler().handlerType(QidEndpoint.class))
-        .andExpect(jsonPath("$.questionnaireId", is(uacQidLink.getQid())));
+        .andExpect(jsonPath("$.questionnaireId", is(uacQidLink.getQid())))
+        .andExpect(jsonPath("$.caseId").doesNotExist());
   }
 
   @Test
   public void testGetUacQidLinkByWithLinkedCase() throws Exception {
     // Given
     UacQidLink uacQidLink = createUacQidLink();
-    when(uacQidService.findUacQidLinkByQid(uacQidLink.getQid())).thenReturn(uacQidLink);
-
     Case linkedCase = createSingleCaseWithEvents();
-    when(caseService.findByCaseId(linkedCase.getCaseId())).thenReturn(linkedCase);
-
     uacQidLink.setCaze(linkedCase);
+    when(uacQidService.findQidCaseSummaryByQid(uacQidLink.getQid()))
+        .thenReturn(
+            new QidCaseSummary(
+                uacQidLink.getQid(),
+                linkedCase.getCaseId(),
+                linkedCase.getAddressType(),
+                true,
+                false));
 
     // When, then
     mockMvc
@@ -90,7 +97,7 @@ public class QidEndpointTest {
   @Test
   public void testGetUacQidLinkByQidNotFound() throws Exception {
     // Given
-    when(uacQidService.findUacQidLinkByQid(INVALID_QID))
+    when(uacQidService.findQidCaseSummaryByQid(INVALID_QID))
         .thenThrow(new QidNotFoundException(INVALID_QID));
 
     // When, then
@@ -104,7 +111,8 @@ public class QidEndpointTest {
   public void testLinkQidToCase() throws Exception {
     // Given
     UacQidLink uacQidLink = createUacQidLink();
-    when(uacQidService.findUacQidLinkByQid(uacQidLink.getQid())).thenReturn(uacQidLink);
+    when(uacQidService.findQidCaseSummaryByQid(uacQidLink.getQid()))
+        .thenReturn(new QidCaseSummary(uacQidLink.getQid(), null, null, true, false));
 
     Case caseToLink = createSingleCaseWithEvents();
     when(caseService.findByCaseId(caseToLink.getCaseId())).thenReturn(caseToLink);
@@ -129,13 +137,14 @@ public class QidEndpointTest {
 
     // Then
     verify(uacQidService)
-        .buildAndSendQuestionnaireLinkedEvent(eq(uacQidLink), eq(caseToLink), eq(newQidLink));
+        .buildAndSendQuestionnaireLinkedEvent(
+            eq(uacQidLink.getQid()), eq(caseToLink), eq(newQidLink));
   }
 
   @Test
   public void testLinkQidToCaseQidNotFound() throws Exception {
     // Given
-    when(uacQidService.findUacQidLinkByQid(INVALID_QID))
+    when(uacQidService.findQidCaseSummaryByQid(INVALID_QID))
         .thenThrow(new QidNotFoundException(INVALID_QID));
     Case caseToLink = createSingleCaseWithEvents();
     when(caseService.findByCaseId(caseToLink.getCaseId())).thenReturn(caseToLink);
@@ -163,7 +172,8 @@ public class QidEndpointTest {
   public void testLinkQidToCaseCaseNotFound() throws Exception {
     // Given
     UacQidLink uacQidLink = createUacQidLink();
-    when(uacQidService.findUacQidLinkByQid(uacQidLink.getQid())).thenReturn(uacQidLink);
+    when(uacQidService.findQidCaseSummaryByQid(uacQidLink.getQid()))
+        .thenReturn(new QidCaseSummary(uacQidLink.getQid(), null, null, true, false));
 
     UUID invalidCaseId = UUID.randomUUID();
     when(caseService.findByCaseId(invalidCaseId))
@@ -0,0 +1,91 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ma.glasnost.orika.MapperFacade;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.Test;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseContainerDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+
+// The converters have to give exactly what Orika gave by reflection before they replaced it
+public class CaseConvertersTest {
+  private static final int NUMBER_OF_RANDOM_OBJECTS = 20;
+
+  private final MapperFacade reflectiveMapperFacade =
+      new DefaultMapperFactory.Builder().build().getMapperFacade();
+  private final MapperFacade mapperFacade = new AppConfig().mapperFacade();
+  private final EasyRandom easyRandom =
+      new EasyRandom(new EasyRandomParameters().randomizationDepth(1));
+
+  @Test
+  public void testCaseContainerDTOMatchesReflectiveMapping() {
+    for (Case caze : randomCases()) {
+      assertThat(mapperFacade.map(caze, CaseContainerDTO.class))
+          .isEqualTo(reflectiveMapperFacade.map(caze, CaseContainerDTO.class));
+    }
+  }
+
+  @Test
+  public void testCaseDetailsDTOMatchesReflectiveMappingApartFromEvents() {
+    for (Case caze : randomCases()) {
+      CaseDetailsDTO expectedCaseDetailsDTO =
+          reflectiveMapperFacade.map(caze, CaseDetailsDTO.class);
+      expectedCaseDetailsDTO.setEvents(null);
+
+      CaseDetailsDTO actualCaseDetailsDTO = mapperFacade.map(caze, CaseDetailsDTO.class);
+
+      assertThat(actualCaseDetailsDTO).isEqualTo(expectedCaseDetailsDTO);
+      if (caze.getMetadata() != null) {
+        assertThat(actualCaseDetailsDTO.getMetadata()).isNotSameAs(caze.getMetadata());
+      }
+    }
+  }
+
+  @Test
+  public void testCaseEventDTOMatchesReflectiveMapping() {
+    for (Event event : randomEvents()) {
+      assertThat(mapperFacade.map(event, CaseEventDTO.class))
+          .isEqualTo(reflectiveMapperFacade.map(event, CaseEventDTO.class));
+    }
+  }
+
+  @Test
+  public void testCaseDetailsEventDTOMatchesReflectiveMapping() {
+    for (Event event : randomEvents()) {
+      assertThat(mapperFacade.map(event, CaseDetailsEventDTO.class))
+          .isEqualTo(reflectiveMapperFacade.map(event, CaseDetailsEventDTO.class));
+    }
+  }
+
+  private Case[] randomCases() {
+    Case[] cases = new Case[NUMBER_OF_RANDOM_OBJECTS + 1];
+    for (int i = 0; i < NUMBER_OF_RANDOM_OBJECTS; i++) {
+      cases[i] = easyRandom.nextObject(Case.class);
+      cases[i].setUacQidLinks(null);
+      cases[i].setEvents(null);
+    }
+
+    // Every nullable field null
+    cases[NUMBER_OF_RANDOM_OBJECTS] = new Case();
+    return cases;
+  }
+
+  private Event[] randomEvents() {
+    Event[] events = new Event[NUMBER_OF_RANDOM_OBJECTS + 1];
+    for (int i = 0; i < NUMBER_OF_RANDOM_OBJECTS; i++) {
+      events[i] = easyRandom.nextObject(Event.class);
+    }
+
+    // Every field null, including the channel the DTO defaults
+    events[NUMBER_OF_RANDOM_OBJECTS] = new Event();
+    return events;
+  }
+}
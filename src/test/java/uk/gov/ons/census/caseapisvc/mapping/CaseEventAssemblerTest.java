@@ -0,0 +1,173 @@
+package uk.gov.ons.census.caseapisvc.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import ma.glasnost.orika.MapperFacade;
+import org.junit.Test;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseDetailsEventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.CaseEventDTO;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.Event;
+import uk.gov.ons.census.caseapisvc.model.entity.EventType;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+
+public class CaseEventAssemblerTest {
+  private static final OffsetDateTime START =
+      OffsetDateTime.of(2020, 3, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+
+  private final MapperFacade mapperFacade = new AppConfig().mapperFacade();
+  private final CaseEventAssembler underTest = new CaseEventAssembler(mapperFacade);
+
+  @Test
+  public void testEventsAreMergedInEventDateOrder() {
+    Case caze = new Case();
+    caze.setUacQidLinks(
+        List.of(
+            createUacQidLink(createEvent("link1-a", 1), createEvent("link1-b", 4)),
+            createUacQidLink(createEvent("link2-a", 2), createEvent("link2-b", 5))));
+    caze.setEvents(List.of(createEvent("case-a", 0), createEvent("case-b", 3)));
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    assertThat(actualEvents)
+        .extracting(CaseEventDTO::getEventDescription)
+        .containsExactly("case-a", "link1-a", "link2-a", "case-b", "link1-b", "link2-b");
+  }
+
+  @Test
+  public void testEventsWithTheSameDateKeepLinkOrderWithCaseEventsLast() {
+    Case caze = new Case();
+    caze.setUacQidLinks(
+        List.of(
+            createUacQidLink(createEvent("link1", 1)), createUacQidLink(createEvent("link2", 1))));
+    caze.setEvents(List.of(createEvent("case", 1)));
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    assertThat(actualEvents)
+        .extracting(CaseEventDTO::getEventDescription)
+        .containsExactly("link1", "link2", "case");
+  }
+
+  @Test
+  public void testRedactedEventTypesAreLeftOut() {
+    Event uacCreatedEvent = createEvent("uac created", 1);
+    uacCreatedEvent.setEventType(EventType.RM_UAC_CREATED);
+    Case caze = new Case();
+    caze.setUacQidLinks(List.of(createUacQidLink(uacCreatedEvent, createEvent("receipt", 2))));
+    caze.setEvents(List.of(createEvent("sample loaded", 0)));
+
+    List<CaseDetailsEventDTO> actualEvents =
+        underTest.assembleEvents(
+            caze, EnumSet.of(EventType.RM_UAC_CREATED), CaseDetailsEventDTO.class);
+
+    assertThat(actualEvents)
+        .extracting(CaseDetailsEventDTO::getEventDescription)
+        .containsExactly("sample loaded", "receipt");
+  }
+
+  @Test
+  public void testUnorderedEventsAreSorted() {
+    Case caze = new Case();
+    caze.setUacQidLinks(
+        List.of(
+            createUacQidLink(
+                createEvent("link-c", 6), createEvent("link-a", 2), createEvent("link-b", 4))));
+    caze.setEvents(List.of(createEvent("case-b", 5), createEvent("case-a", 1)));
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    assertThat(actualEvents)
+        .extracting(CaseEventDTO::getEventDescription)
+        .containsExactly("case-a", "link-a", "link-b", "case-b", "link-c");
+  }
+
+  @Test
+  public void testEventsWithoutADateAreLast() {
+    Event undatedEvent = createEvent("undated", 0);
+    undatedEvent.setEventDate(null);
+    Case caze = new Case();
+    caze.setUacQidLinks(List.of(createUacQidLink(undatedEvent, createEvent("link", 2))));
+    caze.setEvents(List.of(createEvent("case", 1)));
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    assertThat(actualEvents)
+        .extracting(CaseEventDTO::getEventDescription)
+        .containsExactly("case", "link", "undated");
+  }
+
+  @Test
+  public void testEventsMatchMappingEachEvent() {
+    Event event = createEvent("receipt", 1);
+    Case caze = new Case();
+    caze.setUacQidLinks(List.of(createUacQidLink(event)));
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    assertThat(actualEvents).containsExactly(mapperFacade.map(event, CaseEventDTO.class));
+  }
+
+  @Test
+  public void testMissingLinksAndEvents() {
+    Case caze = new Case();
+    caze.setUacQidLinks(new ArrayList<>(List.of(new UacQidLink())));
+
+    assertThat(underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class))
+        .isEmpty();
+
+    caze.setUacQidLinks(null);
+
+    assertThat(underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class))
+        .isEmpty();
+  }
+
+  @Test
+  public void testManyLinksAreMergedInEventDateOrder() {
+    List<UacQidLink> uacQidLinks = new ArrayList<>();
+    for (int link = 0; link < 50; link++) {
+      uacQidLinks.add(
+          createUacQidLink(
+              createEvent("", (link * 7) % 50),
+              createEvent("", 50 + (link * 3) % 50),
+              createEvent("", 100 + link)));
+    }
+    Case caze = new Case();
+    caze.setUacQidLinks(uacQidLinks);
+
+    List<CaseEventDTO> actualEvents =
+        underTest.assembleEvents(caze, EnumSet.noneOf(EventType.class), CaseEventDTO.class);
+
+    List<OffsetDateTime> actualEventDates =
+        actualEvents.stream().map(CaseEventDTO::getEventDate).collect(Collectors.toList());
+    assertThat(actualEventDates).hasSize(150).isSorted();
+  }
+
+  private static UacQidLink createUacQidLink(Event... events) {
+    UacQidLink uacQidLink = new UacQidLink();
+    uacQidLink.setEvents(List.of(events));
+    return uacQidLink;
+  }
+
+  private static Event createEvent(String eventDescription, int minutes) {
+    Event event = new Event();
+    event.setId(UUID.randomUUID());
+    event.setEventType(EventType.CASE_CREATED);
+    event.setEventDescription(eventDescription);
+    event.setEventDate(START.plusMinutes(minutes));
+    return event;
+  }
+}
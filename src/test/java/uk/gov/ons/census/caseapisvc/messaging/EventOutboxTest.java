@@ -0,0 +1,179 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class EventOutboxTest {
+  private static final String EXCHANGE = "events";
+  private static final String ROUTING_KEY = "event.fulfilment.request";
+  private static final String TYPE_ID =
+      "uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent";
+
+  @Rule public TemporaryFolder outboxFolder = new TemporaryFolder();
+
+  private EventOutbox underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = openOutbox(1024 * 1024);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.close();
+  }
+
+  @Test
+  public void testEventsAreRelayedInOrderAsTheyWereAppended() {
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one"), message("two")));
+    underTest.append("other", "other.key", List.of(message("three")));
+
+    List<OutboxEvent> relayed = new ArrayList<>();
+    int relayedCount = underTest.relay(10, relayed::addAll);
+
+    assertThat(relayedCount).isEqualTo(3);
+    assertThat(relayed)
+        .extracting(OutboxEvent::getExchange)
+        .containsExactly(EXCHANGE, EXCHANGE, "other");
+    assertThat(relayed).extracting(this::body).containsExactly("one", "two", "three");
+
+    Message message = relayed.get(0).getMessage();
+    assertThat(message.getMessageProperties().getContentType()).isEqualTo("application/json");
+    assertThat(message.getMessageProperties().getHeaders()).containsEntry("__TypeId__", TYPE_ID);
+    assertThat(underTest.relay(10, relayed::addAll)).isZero();
+  }
+
+  @Test
+  public void testRelayIsLimitedToTheBatchSize() {
+    underTest.append(
+        EXCHANGE, ROUTING_KEY, List.of(message("one"), message("two"), message("three")));
+
+    List<OutboxEvent> relayed = new ArrayList<>();
+    assertThat(underTest.relay(2, relayed::addAll)).isEqualTo(2);
+    assertThat(underTest.relay(2, relayed::addAll)).isEqualTo(1);
+
+    assertThat(relayed).extracting(this::body).containsExactly("one", "two", "three");
+  }
+
+  @Test
+  public void testFailedRelayIsRetried() {
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one")));
+    RuntimeException publishFailure = new RuntimeException("Rabbit is down");
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest.relay(
+                    10,
+                    events -> {
+                      throw publishFailure;
+                    }));
+
+    assertThat(thrown).isSameAs(publishFailure);
+    List<OutboxEvent> relayed = new ArrayList<>();
+    assertThat(underTest.relay(10, relayed::addAll)).isEqualTo(1);
+    assertThat(relayed).extracting(this::body).containsExactly("one");
+  }
+
+  @Test
+  public void testReopenedOutboxCarriesOnFromTheRelayedOffset() throws Exception {
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one"), message("two")));
+    underTest.relay(1, events -> {});
+    underTest.close();
+
+    underTest = openOutbox(1024 * 1024);
+    List<OutboxEvent> relayed = new ArrayList<>();
+    underTest.relay(10, relayed::addAll);
+
+    assertThat(relayed).extracting(this::body).containsExactly("two");
+  }
+
+  @Test
+  public void testRelayedOffsetIsSavedToTheOffsetFile() throws Exception {
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one"), message("two")));
+    underTest.relay(1, events -> {});
+    long firstOffset = readOffset();
+    underTest.relay(1, events -> {});
+
+    assertThat(firstOffset).isGreaterThan(0);
+    assertThat(readOffset()).isGreaterThan(firstOffset);
+    assertThat(outboxFolder.getRoot().toPath().resolve("outbox.offset.tmp")).doesNotExist();
+  }
+
+  @Test
+  public void testIncompleteRecordIsDiscardedOnStartup() throws Exception {
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one")));
+    underTest.close();
+    Path log = outboxFolder.getRoot().toPath().resolve("outbox.log");
+    long completeSize = Files.size(log);
+    Files.write(log, new byte[] {0, 0, 0, 50, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    underTest = openOutbox(1024 * 1024);
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("two")));
+    List<OutboxEvent> relayed = new ArrayList<>();
+    underTest.relay(10, relayed::addAll);
+
+    assertThat(relayed).extracting(this::body).containsExactly("one", "two");
+    assertThat(Files.size(log)).isGreaterThan(completeSize);
+  }
+
+  @Test
+  public void testLogIsEmptiedOnceRelayedPastTheCompactSize() throws Exception {
+    underTest.close();
+    underTest = openOutbox(1);
+    Path log = outboxFolder.getRoot().toPath().resolve("outbox.log");
+
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("one"), message("two")));
+    underTest.relay(1, events -> {});
+    assertThat(Files.size(log)).isGreaterThan(0);
+
+    underTest.relay(1, events -> {});
+    assertThat(Files.size(log)).isZero();
+
+    underTest.append(EXCHANGE, ROUTING_KEY, List.of(message("three")));
+    List<OutboxEvent> relayed = new ArrayList<>();
+    underTest.relay(10, relayed::addAll);
+    assertThat(relayed).extracting(this::body).containsExactly("three");
+  }
+
+  private EventOutbox openOutbox(long compactSize) throws Exception {
+    EventOutbox eventOutbox = new EventOutbox(new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(eventOutbox, "enabled", true);
+    ReflectionTestUtils.setField(eventOutbox, "directory", outboxFolder.getRoot().getPath());
+    ReflectionTestUtils.setField(eventOutbox, "compactSize", compactSize);
+    eventOutbox.init();
+    return eventOutbox;
+  }
+
+  private long readOffset() throws Exception {
+    return Long.parseLong(
+        Files.readString(outboxFolder.getRoot().toPath().resolve("outbox.offset")));
+  }
+
+  private Message message(String body) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+    messageProperties.setContentEncoding("UTF-8");
+    messageProperties.setHeader("__TypeId__", TYPE_ID);
+    return new Message(body.getBytes(), messageProperties);
+  }
+
+  private String body(OutboxEvent outboxEvent) {
+    return new String(outboxEvent.getMessage().getBody());
+  }
+}
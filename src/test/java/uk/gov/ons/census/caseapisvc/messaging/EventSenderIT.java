@@ -0,0 +1,221 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.godaddy.logging.Logger;
+import com.godaddy.logging.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.EventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.FulfilmentRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PayloadDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
+import uk.gov.ons.census.caseapisvc.utility.RabbitQueueHelper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class EventSenderIT {
+  private static final Logger log = LoggerFactory.getLogger(EventSenderIT.class);
+
+  private static final String FULFILMENT_QUEUE = "dummy.case.fulfilments";
+  private static final int SENDING_THREADS = 20;
+  private static final int EVENTS_PER_THREAD = 50;
+
+  @Value("${spring.rabbitmq.host}")
+  private String rabbitHost;
+
+  @Value("${spring.rabbitmq.port}")
+  private int rabbitPort;
+
+  @Value("${queueconfig.events-exchange}")
+  private String eventsExchange;
+
+  @Value("${queueconfig.fulfilment-event-routing-key}")
+  private String fulfilmentEventRoutingKey;
+
+  @Autowired private RabbitQueueHelper rabbitQueueHelper;
+  @Autowired private AmqpAdmin amqpAdmin;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private EventOutbox applicationOutbox;
+
+  @Rule public TemporaryFolder outboxFolder = new TemporaryFolder();
+
+  private final List<CachingConnectionFactory> connectionFactories = new ArrayList<>();
+  private ExecutorService senders;
+
+  @Before
+  public void setUp() {
+    rabbitQueueHelper.purgeQueue(FULFILMENT_QUEUE);
+    senders = Executors.newFixedThreadPool(SENDING_THREADS);
+  }
+
+  @After
+  public void tearDown() {
+    senders.shutdownNow();
+    connectionFactories.forEach(CachingConnectionFactory::destroy);
+    rabbitQueueHelper.purgeQueue(FULFILMENT_QUEUE);
+  }
+
+  @Test
+  public void testThroughputOfTransactedAndConfirmedPublishing() throws Exception {
+    EventSender transactedSender =
+        eventSender(CachingConnectionFactory.ConfirmType.NONE, SENDING_THREADS);
+    EventSender confirmingSender =
+        eventSender(CachingConnectionFactory.ConfirmType.CORRELATED, SENDING_THREADS);
+
+    // Warm up both connections before timing them
+    sendConcurrently(transactedSender);
+    sendConcurrently(confirmingSender);
+    rabbitQueueHelper.purgeQueue(FULFILMENT_QUEUE);
+
+    long transactedNanos = sendConcurrently(transactedSender);
+    assertThat(fulfilmentQueueDepth()).isEqualTo(SENDING_THREADS * EVENTS_PER_THREAD);
+    rabbitQueueHelper.purgeQueue(FULFILMENT_QUEUE);
+
+    long confirmingNanos = sendConcurrently(confirmingSender);
+    assertThat(fulfilmentQueueDepth()).isEqualTo(SENDING_THREADS * EVENTS_PER_THREAD);
+
+    log.with("transactedEventsPerSecond", eventsPerSecond(transactedNanos))
+        .with("confirmedEventsPerSecond", eventsPerSecond(confirmingNanos))
+        .info("Event publishing throughput");
+  }
+
+  @Test
+  public void testConfirmedBatchIsDelivered() {
+    EventSender confirmingSender = eventSender(CachingConnectionFactory.ConfirmType.CORRELATED, 7);
+
+    List<ResponseManagementEvent> events = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      events.add(fulfilmentEvent());
+    }
+    confirmingSender.sendEvents(eventsExchange, fulfilmentEventRoutingKey, events);
+
+    assertThat(fulfilmentQueueDepth()).isEqualTo(25);
+  }
+
+  @Test
+  public void testOutboxEventsAreDeliveredByTheRelay() throws Exception {
+    EventOutbox eventOutbox = new EventOutbox(meterRegistry);
+    ReflectionTestUtils.setField(eventOutbox, "enabled", true);
+    ReflectionTestUtils.setField(eventOutbox, "directory", outboxFolder.getRoot().getPath());
+    ReflectionTestUtils.setField(eventOutbox, "compactSize", 1024L);
+    eventOutbox.init();
+    EventSender outboxSender =
+        eventSender(CachingConnectionFactory.ConfirmType.CORRELATED, 7, eventOutbox);
+
+    List<ResponseManagementEvent> events = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      events.add(fulfilmentEvent());
+    }
+    outboxSender.sendEvents(eventsExchange, fulfilmentEventRoutingKey, events);
+    assertThat(fulfilmentQueueDepth()).isZero();
+
+    int relayed = 0;
+    int batch;
+    while ((batch = eventOutbox.relay(10, outboxSender::sendMessages)) > 0) {
+      relayed += batch;
+    }
+    eventOutbox.close();
+
+    assertThat(relayed).isEqualTo(25);
+    assertThat(fulfilmentQueueDepth()).isEqualTo(25);
+  }
+
+  // The application's own outbox is disabled in the test profile
+  private EventSender eventSender(
+      CachingConnectionFactory.ConfirmType confirmType, int maxInFlight) {
+    return eventSender(confirmType, maxInFlight, applicationOutbox);
+  }
+
+  private EventSender eventSender(
+      CachingConnectionFactory.ConfirmType confirmType,
+      int maxInFlight,
+      EventOutbox eventOutbox) {
+    CachingConnectionFactory connectionFactory =
+        new CachingConnectionFactory(rabbitHost, rabbitPort);
+    connectionFactory.setUsername("guest");
+    connectionFactory.setPassword("guest");
+    connectionFactory.setChannelCacheSize(SENDING_THREADS);
+    connectionFactory.setPublisherConfirmType(confirmType);
+    connectionFactories.add(connectionFactory);
+
+    AppConfig appConfig = new AppConfig();
+    Jackson2JsonMessageConverter messageConverter = appConfig.messageConverter();
+    RabbitTemplate rabbitTemplate = appConfig.rabbitTemplate(connectionFactory, messageConverter);
+
+    EventSender eventSender = new EventSender(rabbitTemplate, eventOutbox);
+    ReflectionTestUtils.setField(eventSender, "maxInFlight", maxInFlight);
+    ReflectionTestUtils.setField(eventSender, "confirmTimeout", "PT10S");
+    eventSender.init();
+    return eventSender;
+  }
+
+  private long sendConcurrently(EventSender eventSender) throws Exception {
+    long start = System.nanoTime();
+
+    List<Future<?>> results = new ArrayList<>();
+    for (int thread = 0; thread < SENDING_THREADS; thread++) {
+      results.add(
+          senders.submit(
+              () -> {
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                  eventSender.sendEvent(
+                      eventsExchange, fulfilmentEventRoutingKey, fulfilmentEvent());
+                }
+              }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  private int fulfilmentQueueDepth() {
+    return (int)
+        amqpAdmin.getQueueProperties(FULFILMENT_QUEUE).get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+  }
+
+  private long eventsPerSecond(long nanos) {
+    return SENDING_THREADS * EVENTS_PER_THREAD * 1_000_000_000L / nanos;
+  }
+
+  private ResponseManagementEvent fulfilmentEvent() {
+    EventDTO eventDTO = new EventDTO();
+    eventDTO.setType("FULFILMENT_REQUESTED");
+    eventDTO.setTransactionId(UUID.randomUUID());
+
+    FulfilmentRequestDTO fulfilmentRequestDTO = new FulfilmentRequestDTO();
+    fulfilmentRequestDTO.setCaseId(UUID.randomUUID());
+    fulfilmentRequestDTO.setFulfilmentCode("RM_TC");
+
+    PayloadDTO payloadDTO = new PayloadDTO();
+    payloadDTO.setFulfilmentRequest(fulfilmentRequestDTO);
+
+    return new ResponseManagementEvent(eventDTO, payloadDTO);
+  }
+}
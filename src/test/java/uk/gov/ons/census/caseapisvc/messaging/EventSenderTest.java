@@ -0,0 +1,312 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.census.caseapisvc.exception.EventPublishException;
+
+public class EventSenderTest {
+  private static final String EXCHANGE = "events";
+  private static final String ROUTING_KEY = "event.fulfilment.request";
+  private static final int MAX_IN_FLIGHT = 2;
+
+  @Mock private RabbitTemplate rabbitTemplate;
+  @Mock private ConnectionFactory connectionFactory;
+  @Mock private EventOutbox eventOutbox;
+
+  private EventSender underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+    underTest = new EventSender(rabbitTemplate, eventOutbox);
+    ReflectionTestUtils.setField(underTest, "maxInFlight", MAX_IN_FLIGHT);
+    ReflectionTestUtils.setField(underTest, "confirmTimeout", "PT0.2S");
+  }
+
+  @Test
+  public void testSendWithoutConfirmsUsesPlainSend() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+    underTest.init();
+
+    underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event");
+
+    verify(rabbitTemplate).convertAndSend(EXCHANGE, ROUTING_KEY, "event");
+    verify(rabbitTemplate, never())
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+  }
+
+  @Test
+  public void testSendReturnsOnceConfirmed() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    confirmSends(true);
+
+    underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event");
+
+    verify(rabbitTemplate)
+        .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq("event"), any(CorrelationData.class));
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testSendThrowsWhenNacked() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    confirmSends(false);
+
+    assertThatThrownBy(() -> underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event"))
+        .isInstanceOf(EventPublishException.class)
+        .hasMessageContaining("nacked");
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testSendThrowsWhenConfirmNeverArrives() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+
+    assertThatThrownBy(() -> underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event"))
+        .isInstanceOf(EventPublishException.class)
+        .hasMessageContaining("No publisher confirm");
+  }
+
+  @Test
+  public void testTimedOutEventKeepsItsPermitUntilItsConfirmArrives() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+
+    assertThatThrownBy(() -> underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event"))
+        .isInstanceOf(EventPublishException.class);
+
+    // The broker may still take the event, so it counts against the window until it says so
+    ArgumentCaptor<CorrelationData> correlationDataCaptor =
+        ArgumentCaptor.forClass(CorrelationData.class);
+    verify(rabbitTemplate)
+        .convertAndSend(
+            eq(EXCHANGE), eq(ROUTING_KEY), eq("event"), correlationDataCaptor.capture());
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT - 1);
+
+    correlationDataCaptor.getValue().getFuture().set(new CorrelationData.Confirm(true, null));
+
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testEventsThatWereNeverPublishedReleaseTheirPermits() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    AmqpException failure = new AmqpException("Channel closed");
+    doThrow(failure)
+        .when(rabbitTemplate)
+        .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq("one"), any(CorrelationData.class));
+
+    assertThatThrownBy(() -> underTest.sendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two")))
+        .isSameAs(failure);
+    verify(rabbitTemplate, never())
+        .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq("two"), any(CorrelationData.class));
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testBatchLargerThanWindowIsSentInChunks() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    confirmSends(true);
+
+    underTest.sendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two", "three", "four", "five"));
+
+    ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+    verify(rabbitTemplate, times(5))
+        .convertAndSend(
+            eq(EXCHANGE), eq(ROUTING_KEY), eventCaptor.capture(), any(CorrelationData.class));
+    assertThat(eventCaptor.getAllValues()).containsExactly("one", "two", "three", "four", "five");
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testSendTimesOutWhenWindowIsFull() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    ((Semaphore) ReflectionTestUtils.getField(underTest, "inFlight")).acquireUninterruptibly(2);
+
+    assertThatThrownBy(() -> underTest.sendEvent(EXCHANGE, ROUTING_KEY, "event"))
+        .isInstanceOf(EventPublishException.class)
+        .hasMessageContaining("already awaiting confirms");
+    verify(rabbitTemplate, never())
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+  }
+
+  @Test
+  public void testTrySendCarriesOnPastANackedEvent() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    doAnswer(
+            invocation -> {
+              CorrelationData correlationData = invocation.getArgument(3);
+              boolean ack = !"two".equals(invocation.getArgument(2));
+              correlationData.getFuture().set(new CorrelationData.Confirm(ack, "reason"));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+    Map<Integer, RuntimeException> failures =
+        underTest.trySendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two", "three"));
+
+    assertThat(failures).containsOnlyKeys(1);
+    assertThat(failures.get(1)).isInstanceOf(EventPublishException.class);
+    verify(rabbitTemplate, times(3))
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testTrySendWithoutConfirmsCarriesOnPastAFailedEvent() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+    underTest.init();
+    AmqpException failure = new AmqpException("Channel closed");
+    doThrow(failure).when(rabbitTemplate).convertAndSend(EXCHANGE, ROUTING_KEY, "one");
+
+    Map<Integer, RuntimeException> failures =
+        underTest.trySendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two"));
+
+    assertThat(failures).containsExactly(entry(0, failure));
+    verify(rabbitTemplate).convertAndSend(EXCHANGE, ROUTING_KEY, "two");
+  }
+
+  @Test
+  public void testTrySendFailsEveryEventWhenWindowIsFull() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    ((Semaphore) ReflectionTestUtils.getField(underTest, "inFlight")).acquireUninterruptibly(2);
+
+    Map<Integer, RuntimeException> failures =
+        underTest.trySendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two"));
+
+    assertThat(failures).containsOnlyKeys(0, 1);
+    verify(rabbitTemplate, never())
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+  }
+
+  @Test
+  public void testSendWithOutboxAppendsConvertedEvents() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    when(eventOutbox.isEnabled()).thenReturn(true);
+    when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+    underTest.init();
+
+    underTest.sendEvents(EXCHANGE, ROUTING_KEY, List.of("one", "two"));
+
+    ArgumentCaptor<List<Message>> messagesCaptor = ArgumentCaptor.forClass(List.class);
+    verify(eventOutbox).append(eq(EXCHANGE), eq(ROUTING_KEY), messagesCaptor.capture());
+    assertThat(messagesCaptor.getValue())
+        .extracting(message -> new String(message.getBody()))
+        .containsExactly("one", "two");
+    verify(rabbitTemplate, never())
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+  }
+
+  @Test
+  public void testOutboxWithoutConfirmsFailsAtStartup() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+    when(eventOutbox.isEnabled()).thenReturn(true);
+
+    assertThatThrownBy(() -> underTest.init())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("publisher-confirm-type");
+  }
+
+  @Test
+  public void testOutboxEventsAreSentAndConfirmed() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    doAnswer(
+            invocation -> {
+              CorrelationData correlationData = invocation.getArgument(3);
+              correlationData.getFuture().set(new CorrelationData.Confirm(true, null));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    List<OutboxEvent> outboxEvents =
+        List.of(createOutboxEvent("one"), createOutboxEvent("two"), createOutboxEvent("three"));
+
+    underTest.sendMessages(outboxEvents);
+
+    for (OutboxEvent outboxEvent : outboxEvents) {
+      verify(rabbitTemplate)
+          .send(
+              eq(EXCHANGE),
+              eq(ROUTING_KEY),
+              eq(outboxEvent.getMessage()),
+              any(CorrelationData.class));
+    }
+    assertThat(availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+  }
+
+  @Test
+  public void testOutboxEventsThrowWhenNacked() {
+    when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    underTest.init();
+    doAnswer(
+            invocation -> {
+              CorrelationData correlationData = invocation.getArgument(3);
+              correlationData.getFuture().set(new CorrelationData.Confirm(false, "reason"));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+    assertThatThrownBy(() -> underTest.sendMessages(List.of(createOutboxEvent("one"))))
+        .isInstanceOf(EventPublishException.class)
+        .hasMessageContaining("nacked");
+  }
+
+  private OutboxEvent createOutboxEvent(String body) {
+    return new OutboxEvent(
+        EXCHANGE, ROUTING_KEY, new Message(body.getBytes(), new MessageProperties()), 0L);
+  }
+
+  private void confirmSends(boolean ack) {
+    doAnswer(
+            invocation -> {
+              CorrelationData correlationData = invocation.getArgument(3);
+              correlationData.getFuture().set(new CorrelationData.Confirm(ack, "reason"));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+  }
+
+  private int availablePermits() {
+    return ((Semaphore) ReflectionTestUtils.getField(underTest, "inFlight")).availablePermits();
+  }
+}
@@ -0,0 +1,91 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class OutboxRelayTest {
+  private static final int BATCH_SIZE = 2;
+
+  @Mock private EventOutbox eventOutbox;
+  @Mock private EventSender eventSender;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private OutboxRelay underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(eventOutbox.isEnabled()).thenReturn(true);
+    underTest = new OutboxRelay(eventOutbox, eventSender, meterRegistry);
+    ReflectionTestUtils.setField(underTest, "batchSize", BATCH_SIZE);
+    ReflectionTestUtils.setField(underTest, "initialBackoff", "PT1H");
+    ReflectionTestUtils.setField(underTest, "maxBackoff", "PT2H");
+  }
+
+  @Test
+  public void testFullBatchesAreRelayedUntilTheOutboxIsDrained() {
+    List<OutboxEvent> batch = List.of(createOutboxEvent(), createOutboxEvent());
+    when(eventOutbox.relay(eq(BATCH_SIZE), any()))
+        .thenAnswer(invocation -> publish(invocation.getArgument(1), batch))
+        .thenAnswer(invocation -> publish(invocation.getArgument(1), batch.subList(0, 1)));
+
+    underTest.relay();
+
+    verify(eventSender).sendMessages(batch);
+    verify(eventSender).sendMessages(batch.subList(0, 1));
+    assertThat(meterRegistry.get("outbox.relayed.events").counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("outbox.relay.lag").timer().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("outbox.relay.batch").timer().count()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRelayBacksOffAfterAFailure() {
+    when(eventOutbox.relay(anyInt(), any())).thenThrow(new RuntimeException("Rabbit is down"));
+
+    underTest.relay();
+    underTest.relay();
+
+    verify(eventOutbox, times(1)).relay(anyInt(), any());
+    assertThat(meterRegistry.get("outbox.relay.failures").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledOutboxIsNotRelayed() {
+    when(eventOutbox.isEnabled()).thenReturn(false);
+
+    underTest.relay();
+
+    verify(eventOutbox, never()).relay(anyInt(), any());
+  }
+
+  private int publish(Consumer<List<OutboxEvent>> publisher, List<OutboxEvent> events) {
+    publisher.accept(events);
+    return events.size();
+  }
+
+  private OutboxEvent createOutboxEvent() {
+    return new OutboxEvent(
+        "events",
+        "event.fulfilment.request",
+        new Message(new byte[0], new MessageProperties()),
+        System.currentTimeMillis());
+  }
+}
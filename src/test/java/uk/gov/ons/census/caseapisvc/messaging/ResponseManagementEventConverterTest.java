@@ -0,0 +1,191 @@
+package uk.gov.ons.census.caseapisvc.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.model.dto.EventDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.FulfilmentRequestDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.PayloadDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
+import uk.gov.ons.census.caseapisvc.model.dto.UacDTO;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+public class ResponseManagementEventConverterTest {
+  private static final String AWKWARD_TEXT =
+      "quote \" backslash \\ slash / \n\t\r\b\f \u0000\u001f\u007f \u00e9 \u20ac \uD83D\uDE00";
+
+  private final Jackson2JsonMessageConverter underTest = new AppConfig().messageConverter();
+  private final Jackson2JsonMessageConverter jacksonConverter =
+      new Jackson2JsonMessageConverter(createObjectMapper());
+
+  @Test
+  public void testFulfilmentRequestMatchesJackson() {
+    assertMatchesJackson(
+        createFulfilmentRequest(UUID.randomUUID(), UUID.randomUUID(), createUacQidCreated()));
+  }
+
+  @Test
+  public void testFulfilmentRequestWithoutOptionalFieldsMatchesJackson() {
+    assertMatchesJackson(createFulfilmentRequest(null, null, null));
+
+    UacQidCreatedPayloadDTO emptyUacQidCreated = new UacQidCreatedPayloadDTO();
+    assertMatchesJackson(createFulfilmentRequest(UUID.randomUUID(), null, emptyUacQidCreated));
+  }
+
+  @Test
+  public void testQuestionnaireLinkedMatchesJackson() {
+    UacDTO uac = new UacDTO();
+    uac.setCaseId(UUID.randomUUID());
+    uac.setQuestionnaireId("0120000000000100");
+
+    ResponseManagementEvent questionnaireLinked = createQuestionnaireLinked(uac);
+    questionnaireLinked.getEvent().setChannel("CC");
+    assertMatchesJackson(questionnaireLinked);
+  }
+
+  @Test
+  public void testQuestionnaireLinkedWithEveryUacFieldMatchesJackson() {
+    UacDTO uac = new UacDTO();
+    uac.setUacHash("8a9d5db4bbee34fd16e40aa2aaae52cfbdf1842559023614c30edb480ec252b4");
+    uac.setUac(AWKWARD_TEXT);
+    uac.setActive(false);
+    uac.setQuestionnaireId("0120000000000100");
+    uac.setCaseType("HH");
+    uac.setRegion("E1000");
+    uac.setCaseId(UUID.randomUUID());
+    uac.setCollectionExerciseId(UUID.randomUUID());
+    uac.setFormType("H");
+    uac.setIndividualCaseId(UUID.randomUUID());
+    assertMatchesJackson(createQuestionnaireLinked(uac));
+
+    uac.setActive(true);
+    assertMatchesJackson(createQuestionnaireLinked(uac));
+    assertMatchesJackson(createQuestionnaireLinked(new UacDTO()));
+  }
+
+  @Test
+  public void testEventFieldsMatchJackson() {
+    ResponseManagementEvent fulfilmentRequest =
+        createFulfilmentRequest(UUID.randomUUID(), null, createUacQidCreated());
+    EventDTO event = fulfilmentRequest.getEvent();
+
+    event.setDateTime(OffsetDateTime.of(2020, 3, 1, 9, 30, 0, 0, ZoneOffset.UTC));
+    assertMatchesJackson(fulfilmentRequest);
+
+    event.setDateTime(OffsetDateTime.of(2020, 3, 1, 9, 30, 15, 120_000_000, ZoneOffset.UTC));
+    assertMatchesJackson(fulfilmentRequest);
+
+    event.setDateTime(OffsetDateTime.of(2020, 3, 29, 23, 59, 59, 1, ZoneOffset.ofHours(1)));
+    assertMatchesJackson(fulfilmentRequest);
+
+    event.setSource(AWKWARD_TEXT);
+    event.setChannel(null);
+    event.setDateTime(null);
+    event.setTransactionId(null);
+    assertMatchesJackson(fulfilmentRequest);
+  }
+
+  @Test
+  public void testMissingPayloadMatchesJackson() {
+    ResponseManagementEvent fulfilmentRequest = createFulfilmentRequest(null, null, null);
+    fulfilmentRequest.setPayload(null);
+    assertMatchesJackson(fulfilmentRequest);
+
+    fulfilmentRequest.setPayload(new PayloadDTO());
+    assertMatchesJackson(fulfilmentRequest);
+  }
+
+  @Test
+  public void testOtherEventsAreLeftToJackson() {
+    ResponseManagementEvent otherEvent =
+        createFulfilmentRequest(UUID.randomUUID(), null, createUacQidCreated());
+    otherEvent.getEvent().setType("UAC_UPDATED");
+    assertMatchesJackson(otherEvent);
+    assertMatchesJackson(new ResponseManagementEvent());
+    assertMatchesJackson("not an event");
+  }
+
+  @Test
+  public void testConvertedEventIsReadBack() {
+    ResponseManagementEvent fulfilmentRequest =
+        createFulfilmentRequest(UUID.randomUUID(), UUID.randomUUID(), createUacQidCreated());
+
+    Message message = underTest.toMessage(fulfilmentRequest, new MessageProperties());
+
+    assertThat(underTest.fromMessage(message)).isEqualTo(fulfilmentRequest);
+  }
+
+  @Test
+  public void testUnpairedSurrogatesMatchJackson() {
+    ResponseManagementEvent fulfilmentRequest = createFulfilmentRequest(null, null, null);
+    fulfilmentRequest.getPayload().getFulfilmentRequest().setFulfilmentCode("a\uD83Db\uDE00");
+    assertMatchesJackson(fulfilmentRequest);
+
+    fulfilmentRequest.getPayload().getFulfilmentRequest().setFulfilmentCode("\uDE00\uD83D");
+    assertMatchesJackson(fulfilmentRequest);
+  }
+
+  private void assertMatchesJackson(Object event) {
+    Message expected = jacksonConverter.toMessage(event, new MessageProperties());
+    Message actual = underTest.toMessage(event, new MessageProperties());
+
+    assertThat(new String(actual.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo(new String(expected.getBody(), StandardCharsets.UTF_8));
+    assertThat(actual.getBody()).isEqualTo(expected.getBody());
+    assertThat(actual.getMessageProperties()).isEqualTo(expected.getMessageProperties());
+  }
+
+  private ResponseManagementEvent createFulfilmentRequest(
+      UUID caseId, UUID individualCaseId, UacQidCreatedPayloadDTO uacQidCreated) {
+    FulfilmentRequestDTO fulfilmentRequest = new FulfilmentRequestDTO();
+    fulfilmentRequest.setCaseId(caseId);
+    fulfilmentRequest.setFulfilmentCode("UACIT1");
+    fulfilmentRequest.setIndividualCaseId(individualCaseId);
+    fulfilmentRequest.setUacQidCreated(uacQidCreated);
+
+    PayloadDTO payload = new PayloadDTO();
+    payload.setFulfilmentRequest(fulfilmentRequest);
+    return new ResponseManagementEvent(createEvent("FULFILMENT_REQUESTED"), payload);
+  }
+
+  private ResponseManagementEvent createQuestionnaireLinked(UacDTO uac) {
+    PayloadDTO payload = new PayloadDTO();
+    payload.setUac(uac);
+    return new ResponseManagementEvent(createEvent("QUESTIONNAIRE_LINKED"), payload);
+  }
+
+  private EventDTO createEvent(String type) {
+    EventDTO event = new EventDTO();
+    event.setType(type);
+    event.setDateTime(OffsetDateTime.now(ZoneOffset.UTC));
+    event.setTransactionId(UUID.randomUUID());
+    return event;
+  }
+
+  private UacQidCreatedPayloadDTO createUacQidCreated() {
+    UacQidCreatedPayloadDTO uacQidCreated = new UacQidCreatedPayloadDTO();
+    uacQidCreated.setUac("abcd1234efgh5678");
+    uacQidCreated.setQid("2100000000000104");
+    uacQidCreated.setCaseId(UUID.randomUUID());
+    return uacQidCreated;
+  }
+
+  // The same mapper AppConfig gives the converter
+  private static ObjectMapper createObjectMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    return objectMapper;
+  }
+}
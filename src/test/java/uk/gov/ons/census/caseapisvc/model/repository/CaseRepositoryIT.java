@@ -0,0 +1,113 @@
+package uk.gov.ons.census.caseapisvc.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class CaseRepositoryIT {
+  private static final String POSTCODE_INDEX = "cases_postcode_idx";
+  private static final String POSTCODE_KEYSET_INDEX = "cases_postcode_keyset_idx";
+  private static final String KEYSET_ORDER =
+      "COALESCE(organisation_name, ''), COALESCE(address_line1, ''), "
+          + "COALESCE(case_type, ''), COALESCE(address_level, ''), case_id";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() throws IOException {
+    createIndex("db/cases_postcode_idx.sql");
+    createIndex("db/cases_postcode_keyset_idx.sql");
+  }
+
+  @Test
+  public void testPostcodeSearchUsesKeysetIndexForLookupAndOrdering() {
+    List<String> plan =
+        explain(
+            "SELECT * FROM casev2.cases WHERE upper(replace(postcode, ' ', '')) = 'AB12BC' "
+                + "ORDER BY "
+                + KEYSET_ORDER);
+
+    assertThat(plan).anyMatch(line -> line.contains("Index Scan using " + POSTCODE_KEYSET_INDEX));
+    assertThat(plan).noneMatch(line -> line.contains("Seq Scan"));
+    assertThat(plan).noneMatch(line -> line.contains("Sort"));
+  }
+
+  @Test
+  public void testCcsPostcodeSearchUsesIndex() {
+    List<String> plan =
+        explain(
+            "SELECT * FROM casev2.cases WHERE survey = 'CCS' "
+                + "AND upper(replace(postcode, ' ', '')) = 'AB12BC'");
+
+    assertThat(plan).anyMatch(line -> line.contains(POSTCODE_INDEX));
+    assertThat(plan).noneMatch(line -> line.contains("Seq Scan"));
+  }
+
+  @Test
+  public void testPostcodePageSearchSeeksWithKeysetIndex() {
+    List<String> plan =
+        explain(
+            "SELECT * FROM casev2.cases WHERE upper(replace(postcode, ' ', '')) = 'AB12BC' "
+                + "AND ("
+                + KEYSET_ORDER
+                + ") > ('', '1 Fake Street', 'HH', 'U', "
+                + "CAST('2e083ab1-41f7-4dea-a3d9-77f48458b5ca' AS uuid)) "
+                + "ORDER BY "
+                + KEYSET_ORDER
+                + " LIMIT 11");
+
+    assertThat(plan).anyMatch(line -> line.contains("Index Scan using " + POSTCODE_KEYSET_INDEX));
+    assertThat(plan).noneMatch(line -> line.contains("Seq Scan"));
+    assertThat(plan).noneMatch(line -> line.contains("Sort"));
+  }
+
+  private void createIndex(String createIndexResource) throws IOException {
+    // Each script is executed on its own as CREATE INDEX CONCURRENTLY can't share a transaction
+    jdbcTemplate.execute(
+        StreamUtils.copyToString(
+            new ClassPathResource(createIndexResource).getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  private List<String> explain(String query) {
+    return jdbcTemplate.execute(
+        (ConnectionCallback<List<String>>)
+            connection -> {
+              try (Statement statement = connection.createStatement()) {
+                // The test table is tiny, so make the planner show whether it could use an index
+                // rather than whether it would bother to
+                statement.execute("SET enable_seqscan = off");
+                statement.execute("SET enable_bitmapscan = off");
+
+                List<String> plan = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+                  while (resultSet.next()) {
+                    plan.add(resultSet.getString(1));
+                  }
+                }
+
+                statement.execute("RESET enable_seqscan");
+                statement.execute("RESET enable_bitmapscan");
+                return plan;
+              }
+            });
+  }
+}
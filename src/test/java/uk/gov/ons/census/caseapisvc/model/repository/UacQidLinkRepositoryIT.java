@@ -0,0 +1,135 @@
+package uk.gov.ons.census.caseapisvc.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+
+/**
+ * Compares the QID summary projections with loading the entities they replaced. Allocation is
+ * measured on the test thread, which runs each lookup and its JDBC calls.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class UacQidLinkRepositoryIT {
+  private static final String TEST_QID = "0120000000000100";
+  private static final String CCS_SURVEY = "CCS";
+  private static final int WARM_UP_LOOKUPS = 500;
+  private static final int MEASURED_LOOKUPS = 1000;
+
+  @Autowired private CaseRepository caseRepo;
+  @Autowired private UacQidLinkRepository uacQidLinkRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Case caze;
+  private Statistics statistics;
+
+  @Before
+  public void setUp() {
+    eventRepository.deleteAllInBatch();
+    uacQidLinkRepository.deleteAllInBatch();
+    caseRepo.deleteAllInBatch();
+
+    EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().randomizationDepth(1));
+    caze = easyRandom.nextObject(Case.class);
+    caze.setCaseId(UUID.randomUUID());
+    caze.setSurvey(CCS_SURVEY);
+    caze.setEvents(null);
+    caze.setUacQidLinks(null);
+    caze = caseRepo.saveAndFlush(caze);
+
+    UacQidLink uacQidLink = new UacQidLink();
+    uacQidLink.setId(UUID.randomUUID());
+    uacQidLink.setCaze(caze);
+    uacQidLink.setQid(TEST_QID);
+    uacQidLink.setCcsCase(true);
+    uacQidLink.setActive(true);
+    uacQidLinkRepository.saveAndFlush(uacQidLink);
+
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @Test
+  public void testQidCaseSummaryLoadsNoEntitiesAndAllocatesLessThanTheEntities() {
+    Runnable entityLookup = () -> uacQidLinkRepository.findByQid(TEST_QID).get().getCaze();
+    Runnable summaryLookup = () -> uacQidLinkRepository.findQidCaseSummaryByQid(TEST_QID).get();
+
+    assertThat(entityLoadsPerLookup(entityLookup)).isEqualTo(2);
+    assertThat(entityLoadsPerLookup(summaryLookup)).isZero();
+    assertThat(allocatedBytesPerLookup(summaryLookup))
+        .isLessThan(allocatedBytesPerLookup(entityLookup));
+  }
+
+  @Test
+  public void testCcsQidSummaryLoadsNoEntitiesAndAllocatesLessThanTheEntities() {
+    Runnable entityLookup = this::findCcsUacQidLink;
+    Runnable summaryLookup =
+        () ->
+            uacQidLinkRepository
+                .findCcsQidSummaryByCaseIdAndSurvey(caze.getCaseId(), CCS_SURVEY)
+                .get();
+
+    assertThat(entityLoadsPerLookup(entityLookup)).isEqualTo(2);
+    assertThat(entityLoadsPerLookup(summaryLookup)).isZero();
+    assertThat(allocatedBytesPerLookup(summaryLookup))
+        .isLessThan(allocatedBytesPerLookup(entityLookup));
+  }
+
+  // The query the CCS summary replaced
+  private void findCcsUacQidLink() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager
+          .createQuery(
+              "SELECT l FROM UacQidLink l JOIN l.caze c "
+                  + "WHERE l.ccsCase = true AND c.caseId = :caseId AND c.survey = :survey",
+              UacQidLink.class)
+          .setParameter("caseId", caze.getCaseId())
+          .setParameter("survey", CCS_SURVEY)
+          .getSingleResult();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private long entityLoadsPerLookup(Runnable lookup) {
+    statistics.clear();
+    lookup.run();
+    return statistics.getEntityLoadCount();
+  }
+
+  private long allocatedBytesPerLookup(Runnable lookup) {
+    for (int i = 0; i < WARM_UP_LOOKUPS; i++) {
+      lookup.run();
+    }
+
+    long before = allocatedBytes();
+    for (int i = 0; i < MEASURED_LOOKUPS; i++) {
+      lookup.run();
+    }
+    return (allocatedBytes() - before) / MEASURED_LOOKUPS;
+  }
+
+  private long allocatedBytes() {
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,115 @@
+package uk.gov.ons.census.caseapisvc.querystatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import javax.servlet.DispatcherType;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class QueryStatisticsInterceptorTest {
+  private static final String CASE_URI = "/cases/{caseId}";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final QueryStatisticsInterceptor underTest =
+      new QueryStatisticsInterceptor(meterRegistry, 25);
+  private final QueryStatisticsSessionListener sessionListener =
+      new QueryStatisticsSessionListener();
+  private final QueryStatisticsLoadListener loadListener = new QueryStatisticsLoadListener();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @After
+  public void tearDown() {
+    QueryStatisticsContext.clear();
+  }
+
+  @Test
+  public void testStatisticsAreRecordedAgainstTheEndpoint() {
+    MockHttpServletRequest request = createRequest();
+    underTest.preHandle(request, response, null);
+
+    sessionListener.jdbcConnectionAcquisitionStart();
+    sessionListener.jdbcConnectionAcquisitionEnd();
+    executeStatement();
+    executeStatement();
+    loadListener.onPostLoad(null);
+    loadListener.onPostLoad(null);
+    loadListener.onPostLoad(null);
+    loadListener.onInitializeCollection(null);
+
+    underTest.afterCompletion(request, response, null, null);
+
+    assertThat(getSummary("db.request.statements").totalAmount()).isEqualTo(2);
+    assertThat(getSummary("db.request.entity.loads").totalAmount()).isEqualTo(3);
+    assertThat(getSummary("db.request.collection.fetches").totalAmount()).isEqualTo(1);
+    assertThat(getTimerCount("db.request.jdbc")).isEqualTo(1);
+    assertThat(getTimerCount("db.request.connection.acquire")).isEqualTo(1);
+    assertThat(QueryStatisticsContext.get()).isNull();
+  }
+
+  @Test
+  public void testAsyncRequestIsRecordedOnce() {
+    MockHttpServletRequest request = createRequest();
+    underTest.preHandle(request, response, null);
+    executeStatement();
+    underTest.afterConcurrentHandlingStarted(request, response, null);
+
+    assertThat(QueryStatisticsContext.get()).isNull();
+
+    request.setDispatcherType(DispatcherType.ASYNC);
+    underTest.preHandle(request, response, null);
+    executeStatement();
+    underTest.afterCompletion(request, response, null, null);
+
+    DistributionSummary statements = getSummary("db.request.statements");
+    assertThat(statements.count()).isEqualTo(1);
+    assertThat(statements.totalAmount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testErrorDispatchIsNotRecordedSeparately() {
+    MockHttpServletRequest request = createRequest();
+    underTest.preHandle(request, response, null);
+    underTest.afterCompletion(request, response, null, null);
+
+    request.setDispatcherType(DispatcherType.ERROR);
+    underTest.preHandle(request, response, null);
+    underTest.afterCompletion(request, response, null, null);
+
+    assertThat(meterRegistry.get("db.request.statements").summaries()).hasSize(1);
+    assertThat(getSummary("db.request.statements").count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNothingIsCountedOutsideARequest() {
+    executeStatement();
+    loadListener.onPostLoad(null);
+    loadListener.onInitializeCollection(null);
+
+    assertThat(QueryStatisticsContext.get()).isNull();
+    assertThat(meterRegistry.getMeters()).isEmpty();
+  }
+
+  private MockHttpServletRequest createRequest() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cases/1");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, CASE_URI);
+    return request;
+  }
+
+  private void executeStatement() {
+    sessionListener.jdbcExecuteStatementStart();
+    sessionListener.jdbcExecuteStatementEnd();
+  }
+
+  private DistributionSummary getSummary(String name) {
+    return meterRegistry.get(name).tag("method", "GET").tag("uri", CASE_URI).summary();
+  }
+
+  private long getTimerCount(String name) {
+    return meterRegistry.get(name).tag("method", "GET").tag("uri", CASE_URI).timer().count();
+  }
+}
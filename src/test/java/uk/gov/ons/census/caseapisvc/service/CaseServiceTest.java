@@ -1,7 +1,11 @@
 package uk.gov.ons.census.caseapisvc.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -11,25 +15,39 @@ import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createMultipleCases
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createSingleCaseWithEvents;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createSingleCcsCaseWithCcsQid;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.cache.QidCache;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
 import uk.gov.ons.census.caseapisvc.exception.CaseIdNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.CaseReferenceNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UPRNNotFoundException;
 import uk.gov.ons.census.caseapisvc.exception.UacQidLinkWithNoCaseException;
+import uk.gov.ons.census.caseapisvc.messaging.EventSender;
+import uk.gov.ons.census.caseapisvc.model.dto.PostcodePageToken;
 import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
 import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
 import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.CcsQidSummary;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
 import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
 
@@ -44,7 +62,11 @@ public class CaseServiceTest {
 
   @Mock private CaseRepository caseRepo;
   @Mock private UacQidLinkRepository uacQidLinkRepository;
-  @Mock private RabbitTemplate rabbitTemplate;
+  @Mock private EventSender eventSender;
+  @Mock private EntityManager entityManager;
+  private final PrimaryReader primaryReader =
+      new PrimaryReader(mock(PlatformTransactionManager.class), mock(EntityManagerFactory.class));
+  @Spy private QidCache qidCache = new QidCache(new SimpleMeterRegistry(), primaryReader);
 
   @InjectMocks private CaseService caseService;
 
@@ -101,6 +123,40 @@ public class CaseServiceTest {
     caseService.findByCaseId(TEST_CASE_ID_DOES_NOT_EXIST);
   }
 
+  @Test
+  public void getCaseWithCaseEventsFetchesEventsForTheLoadedCase() {
+    Case expectedCase = createSingleCaseWithEvents();
+
+    when(caseRepo.findWithUacQidLinksByCaseId(any())).thenReturn(Optional.of(expectedCase));
+
+    Case actualCase = caseService.findByCaseIdWithCaseEvents(TEST_CASE_ID_EXISTS);
+    assertThat(actualCase).isEqualTo(expectedCase);
+
+    verify(caseRepo).findWithUacQidLinksByCaseId(eq(TEST_CASE_ID_EXISTS));
+    verify(uacQidLinkRepository).fetchEventsByCazeIn(eq(List.of(expectedCase)));
+    verify(caseRepo).fetchEventsByCaseIn(eq(List.of(expectedCase)));
+  }
+
+  @Test(expected = CaseIdNotFoundException.class)
+  public void shouldThrowCaseIdNotFoundExceptionWhenCaseWithCaseEventsDoesNotExist() {
+    when(caseRepo.findWithUacQidLinksByCaseId(any())).thenReturn(Optional.empty());
+
+    caseService.findByCaseIdWithCaseEvents(TEST_CASE_ID_DOES_NOT_EXIST);
+  }
+
+  @Test
+  public void getCasesWithCaseEventsWhenUPRNExists() {
+    List<Case> expectedCases = createMultipleCasesWithEvents();
+
+    when(caseRepo.findWithUacQidLinksByUprn(anyString())).thenReturn(Optional.of(expectedCases));
+
+    List<Case> actualCases = caseService.findByUPRNWithCaseEvents(TEST_UPRN, false);
+    assertThat(actualCases).isEqualTo(expectedCases);
+
+    verify(uacQidLinkRepository).fetchEventsByCazeIn(eq(expectedCases));
+    verify(caseRepo).fetchEventsByCaseIn(eq(expectedCases));
+  }
+
   @Test
   public void getCaseWhenCaseReferenceExists() {
     Case expectedCase = createSingleCaseWithEvents();
@@ -126,50 +182,51 @@ public class CaseServiceTest {
   @Test
   public void testGetCaseViaQid() {
     Case expectedCase = createSingleCaseWithEvents();
-    UacQidLink uacQidLink = new UacQidLink();
-    uacQidLink.setCaze(expectedCase);
-    Optional<UacQidLink> uacQidLinkOptional = Optional.of(uacQidLink);
-    when(uacQidLinkRepository.findByQid(TEST_QID)).thenReturn(uacQidLinkOptional);
+    QidCaseSummary qidCaseSummary =
+        new QidCaseSummary(
+            TEST_QID, expectedCase.getCaseId(), expectedCase.getAddressType(), true, false);
+    when(uacQidLinkRepository.findQidCaseSummaryByQid(TEST_QID))
+        .thenReturn(Optional.of(qidCaseSummary));
 
-    Case actualCase = caseService.findCaseByQid(TEST_QID);
+    QidCaseSummary actualQidCaseSummary = caseService.findCaseSummaryByQid(TEST_QID);
 
-    assertThat(actualCase).isEqualToComparingFieldByField(expectedCase);
+    assertThat(actualQidCaseSummary.getCaseId()).isEqualTo(expectedCase.getCaseId());
+    assertThat(actualQidCaseSummary.getAddressType()).isEqualTo(expectedCase.getAddressType());
   }
 
   @Test(expected = QidNotFoundException.class)
   public void testQidNotFound() {
-    when(uacQidLinkRepository.findByQid(TEST_QID)).thenReturn(Optional.empty());
-    caseService.findCaseByQid(TEST_QID);
+    when(uacQidLinkRepository.findQidCaseSummaryByQid(TEST_QID)).thenReturn(Optional.empty());
+    caseService.findCaseSummaryByQid(TEST_QID);
   }
 
   @Test(expected = UacQidLinkWithNoCaseException.class)
   public void testCaseMissingForUacQidLink() {
-    UacQidLink uacQidLink = new UacQidLink();
-    Optional<UacQidLink> uacQidLinkOptional = Optional.of(uacQidLink);
-    when(uacQidLinkRepository.findByQid(TEST_QID)).thenReturn(uacQidLinkOptional);
+    when(uacQidLinkRepository.findQidCaseSummaryByQid(TEST_QID))
+        .thenReturn(Optional.of(new QidCaseSummary(TEST_QID, null, null, true, false)));
 
-    caseService.findCaseByQid(TEST_QID);
+    caseService.findCaseSummaryByQid(TEST_QID);
   }
 
   @Test
   public void testFindCcsQidByCaseId() {
     Case ccsCase = createSingleCcsCaseWithCcsQid();
     UacQidLink ccsUacQidLink = ccsCase.getUacQidLinks().get(0);
-    when(uacQidLinkRepository.findOneByCcsCaseIsTrueAndCazeCaseIdAndCazeSurvey(
-            ccsCase.getCaseId(), "CCS"))
-        .thenReturn(Optional.of(ccsUacQidLink));
+    when(uacQidLinkRepository.findCcsQidSummaryByCaseIdAndSurvey(ccsCase.getCaseId(), "CCS"))
+        .thenReturn(
+            Optional.of(new CcsQidSummary(ccsUacQidLink.getQid(), ccsUacQidLink.isActive())));
 
-    UacQidLink actualCcsUacQidLink = caseService.findCCSUacQidLinkByCaseId(ccsCase.getCaseId());
-    assertThat(actualCcsUacQidLink.getQid()).isEqualTo(TEST_CCS_QID);
-    assertThat(actualCcsUacQidLink.isActive()).isEqualTo(true);
+    CcsQidSummary actualCcsQidSummary = caseService.findCcsQidSummaryByCaseId(ccsCase.getCaseId());
+    assertThat(actualCcsQidSummary.getQid()).isEqualTo(TEST_CCS_QID);
+    assertThat(actualCcsQidSummary.isActive()).isEqualTo(true);
   }
 
   @Test(expected = QidNotFoundException.class)
   public void testFindCcsQidByCaseIdNoCcsQidFound() {
-    when(uacQidLinkRepository.findOneByCcsCaseIsTrueAndCazeCaseIdAndCazeSurvey(
+    when(uacQidLinkRepository.findCcsQidSummaryByCaseIdAndSurvey(
             TEST_CASE_ID_DOES_NOT_EXIST, "CCS"))
         .thenReturn(Optional.empty());
-    caseService.findCCSUacQidLinkByCaseId(TEST_CASE_ID_EXISTS);
+    caseService.findCcsQidSummaryByCaseId(TEST_CASE_ID_EXISTS);
   }
 
   @Test
@@ -186,8 +243,8 @@ public class CaseServiceTest {
     // Then
     ArgumentCaptor<ResponseManagementEvent> eventArgumentCaptor =
         ArgumentCaptor.forClass(ResponseManagementEvent.class);
-    verify(rabbitTemplate)
-        .convertAndSend(
+    verify(eventSender)
+        .sendEvent(
             eq(eventsExchange), eq(fulfilmentEventRoutingKey), eventArgumentCaptor.capture());
 
     ResponseManagementEvent responseManagementEvent = eventArgumentCaptor.getValue();
@@ -202,13 +259,85 @@ public class CaseServiceTest {
         .isEqualTo(uacQidCreated);
   }
 
+  @Test
+  public void testBuildAndSendTelephoneCaptureFulfilmentRequestsSendsOneBatch() {
+    // Given
+    UUID parentCaseId = UUID.randomUUID();
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    List<UacQidCreatedPayloadDTO> uacQidsCreated =
+        List.of(new UacQidCreatedPayloadDTO(), new UacQidCreatedPayloadDTO());
+    uacQidsCreated.get(0).setQid("qid1");
+    uacQidsCreated.get(1).setQid("qid2");
+
+    // When
+    caseService.buildAndSendTelephoneCaptureFulfilmentRequests(
+        parentCaseId, RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL, individualCaseIds, uacQidsCreated);
+
+    // Then
+    ArgumentCaptor<List<ResponseManagementEvent>> eventsArgumentCaptor =
+        ArgumentCaptor.forClass(List.class);
+    verify(eventSender)
+        .trySendEvents(
+            eq(eventsExchange), eq(fulfilmentEventRoutingKey), eventsArgumentCaptor.capture());
+    verify(eventSender, never()).sendEvent(any(), any(), any());
+
+    List<ResponseManagementEvent> responseManagementEvents = eventsArgumentCaptor.getValue();
+    assertThat(responseManagementEvents).hasSize(2);
+    for (int i = 0; i < 2; i++) {
+      ResponseManagementEvent responseManagementEvent = responseManagementEvents.get(i);
+      assertThat(responseManagementEvent.getEvent().getType()).isEqualTo("FULFILMENT_REQUESTED");
+      assertThat(responseManagementEvent.getPayload().getFulfilmentRequest().getCaseId())
+          .isEqualTo(parentCaseId);
+      assertThat(
+              responseManagementEvent.getPayload().getFulfilmentRequest().getIndividualCaseId())
+          .isEqualTo(individualCaseIds.get(i));
+      assertThat(responseManagementEvent.getPayload().getFulfilmentRequest().getUacQidCreated())
+          .isEqualTo(uacQidsCreated.get(i));
+    }
+    assertThat(responseManagementEvents.get(0).getEvent().getTransactionId())
+        .isNotEqualTo(responseManagementEvents.get(1).getEvent().getTransactionId());
+  }
+
+  @Test
+  public void testBuildAndSendTelephoneCaptureFulfilmentRequestsReturnsFailuresByIndividual() {
+    // Given
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    RuntimeException failure = new RuntimeException("Nacked");
+    when(eventSender.trySendEvents(any(), any(), any())).thenReturn(Map.of(1, failure));
+
+    // When
+    Map<UUID, RuntimeException> failures =
+        caseService.buildAndSendTelephoneCaptureFulfilmentRequests(
+            UUID.randomUUID(),
+            RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL,
+            individualCaseIds,
+            List.of(new UacQidCreatedPayloadDTO(), new UacQidCreatedPayloadDTO()));
+
+    // Then
+    assertThat(failures).containsExactly(entry(individualCaseIds.get(1), failure));
+  }
+
+  @Test
+  public void testFindExistingCaseIds() {
+    // Given
+    UUID existingCaseId = UUID.randomUUID();
+    List<UUID> caseIds = List.of(existingCaseId, UUID.randomUUID());
+    when(caseRepo.findCaseIdsByCaseIdIn(eq(caseIds))).thenReturn(List.of(existingCaseId));
+
+    // When
+    Set<UUID> actualCaseIds = caseService.findExistingCaseIds(caseIds);
+
+    // Then
+    assertThat(actualCaseIds).containsExactly(existingCaseId);
+  }
+
   @Test
   public void testFindCasesByPostcode() {
     // Given
     Case expectedCase = createSingleCaseWithEvents();
     expectedCase.setPostcode(TEST_POSTCODE);
 
-    when(caseRepo.findByPostcode(eq(TEST_POSTCODE))).thenReturn(List.of(expectedCase));
+    when(caseRepo.findByNormalisedPostcode(eq("AB12BC"))).thenReturn(List.of(expectedCase));
 
     // When
     List<Case> actualCases = caseService.findByPostcode(TEST_POSTCODE);
@@ -218,8 +347,138 @@ public class CaseServiceTest {
     assertThat(actualCases.get(0)).isEqualTo(expectedCase);
 
     ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-    verify(caseRepo).findByPostcode(captor.capture());
+    verify(caseRepo).findByNormalisedPostcode(captor.capture());
     String actualPostcode = captor.getValue();
-    assertThat(actualPostcode).isEqualTo(TEST_POSTCODE);
+    assertThat(actualPostcode).isEqualTo("AB12BC");
+  }
+
+  @Test
+  public void testFindCcsCasesByPostcodeNormalisesPostcode() {
+    // Given
+    Case expectedCase = createSingleCaseWithEvents();
+    when(caseRepo.findCCSCasesByNormalisedPostcode(eq("AB12BC"))).thenReturn(List.of(expectedCase));
+
+    // When
+    List<Case> actualCases = caseService.findCCSCasesByPostcode(" ab1 2Bc");
+
+    // Then
+    assertThat(actualCases).containsExactly(expectedCase);
+  }
+
+  @Test
+  public void testFindFirstPageByPostcode() {
+    // Given
+    Case expectedCase = createSingleCaseWithEvents();
+    when(caseRepo.findFirstPageByNormalisedPostcode("AB12BC", 11))
+        .thenReturn(List.of(expectedCase));
+
+    // When
+    List<Case> actualCases = caseService.findPageByPostcode(TEST_POSTCODE, null, 11);
+
+    // Then
+    assertThat(actualCases).containsExactly(expectedCase);
+    verify(caseRepo, never())
+        .findPageByNormalisedPostcodeAfter(any(), any(), any(), any(), any(), any(), anyInt());
+  }
+
+  @Test
+  public void testFindPageByPostcodeSeeksPastPageToken() {
+    // Given
+    PostcodePageToken pageToken = new PostcodePageToken();
+    pageToken.setPostcode("AB12BC");
+    pageToken.setOrganisationName("");
+    pageToken.setAddressLine1("1 Fake Street");
+    pageToken.setCaseType("HH");
+    pageToken.setAddressLevel("U");
+    pageToken.setCaseId(UUID.randomUUID());
+
+    Case expectedCase = createSingleCaseWithEvents();
+    when(caseRepo.findPageByNormalisedPostcodeAfter(
+            "AB12BC", "", "1 Fake Street", "HH", "U", pageToken.getCaseId().toString(), 11))
+        .thenReturn(List.of(expectedCase));
+
+    // When
+    List<Case> actualCases = caseService.findPageByPostcode("ab1 2bc", pageToken, 11);
+
+    // Then
+    assertThat(actualCases).containsExactly(expectedCase);
+    verify(caseRepo, never()).findFirstPageByNormalisedPostcode(any(), anyInt());
+  }
+
+  @Test
+  public void testStreamByPostcodeDetachesEachCaseOnceConsumed() {
+    // Given
+    List<Case> cases = List.of(createSingleCaseWithEvents(), createSingleCaseWithEvents());
+    cases.get(1).setCaseId(UUID.randomUUID());
+    when(caseRepo.streamByNormalisedPostcode(eq("AB12BC"))).thenReturn(cases.stream());
+    List<Case> consumedCases = new ArrayList<>();
+
+    // When
+    caseService.streamByPostcode(
+        TEST_POSTCODE,
+        caze -> {
+          verify(entityManager, never()).detach(caze);
+          consumedCases.add(caze);
+        });
+
+    // Then
+    assertThat(consumedCases).containsExactlyElementsOf(cases);
+    verify(entityManager).detach(cases.get(0));
+    verify(entityManager).detach(cases.get(1));
+  }
+
+  @Test
+  public void testStreamByUPRNWithValidAddressOnly() {
+    // Given
+    Case caze = createSingleCaseWithEvents();
+    when(caseRepo.streamByUprnAndAddressInvalidFalse(eq(TEST_UPRN))).thenReturn(Stream.of(caze));
+    List<Case> consumedCases = new ArrayList<>();
+
+    // When
+    caseService.streamByUPRN(TEST_UPRN, true, false, consumedCases::add);
+
+    // Then
+    assertThat(consumedCases).containsExactly(caze);
+    verify(caseRepo, never()).streamByUprn(any());
+    verify(caseRepo, never()).fetchUacQidLinksByCaseIn(any());
+  }
+
+  @Test
+  public void testStreamByUPRNWithCaseEventsFetchesLinksAndEventsForEachChunk() {
+    // Given
+    List<Case> cases = new ArrayList<>();
+    for (int i = 0; i < 501; i++) {
+      Case caze = new Case();
+      caze.setCaseId(UUID.randomUUID());
+      cases.add(caze);
+    }
+    when(caseRepo.streamByUprn(eq(TEST_UPRN))).thenReturn(cases.stream());
+    List<Integer> fetchedChunkSizes = new ArrayList<>();
+    when(caseRepo.fetchUacQidLinksByCaseIn(any()))
+        .thenAnswer(
+            invocation -> {
+              fetchedChunkSizes.add(invocation.<List<Case>>getArgument(0).size());
+              return List.of();
+            });
+    List<Case> consumedCases = new ArrayList<>();
+
+    // When
+    caseService.streamByUPRN(
+        TEST_UPRN,
+        false,
+        true,
+        caze -> {
+          // The case's chunk has had its links and events fetched before it is consumed
+          assertThat(fetchedChunkSizes).hasSize(consumedCases.size() < 500 ? 1 : 2);
+          consumedCases.add(caze);
+        });
+
+    // Then
+    assertThat(consumedCases).containsExactlyElementsOf(cases);
+    assertThat(fetchedChunkSizes).containsExactly(500, 1);
+    verify(uacQidLinkRepository, times(2)).fetchEventsByCazeIn(any());
+    verify(caseRepo, times(2)).fetchEventsByCaseIn(any());
+    verify(entityManager, times(2)).clear();
+    verify(entityManager, never()).detach(any());
   }
 }
@@ -0,0 +1,131 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+// The questionnaire type and form type rules as they were written before QuestionnaireTypes, kept
+// to check the lookup tables against and to benchmark them with
+public final class LegacyQuestionnaireTypes {
+  private static final String ADDRESS_LEVEL_ESTAB = "E";
+
+  private static final String COUNTRY_CODE_ENGLAND = "E";
+  private static final String COUNTRY_CODE_WALES = "W";
+  private static final String COUNTRY_CODE_NORTHERN_IRELAND = "N";
+
+  private static final String CASE_TYPE_HOUSEHOLD = "HH";
+  private static final String CASE_TYPE_SPG = "SPG";
+  private static final String CASE_TYPE_CE = "CE";
+
+  private static final String HH_FORM_TYPE = "H";
+  private static final String IND_FORM_TYPE = "I";
+  private static final String CE1_FORM_TYPE = "C";
+
+  private LegacyQuestionnaireTypes() {}
+
+  public static int calculateQuestionnaireType(
+      String caseType, String region, String addressLevel, String surveyType, boolean individual) {
+
+    if (surveyType.equals("CCS")) {
+      return 71;
+    }
+
+    String country = region.substring(0, 1);
+    if (!country.equals(COUNTRY_CODE_ENGLAND)
+        && !country.equals(COUNTRY_CODE_WALES)
+        && !country.equals(COUNTRY_CODE_NORTHERN_IRELAND)) {
+      throw new IllegalArgumentException(
+          String.format("Unknown Country for treatment code %s", caseType));
+    }
+
+    if (individual) {
+      switch (country) {
+        case COUNTRY_CODE_ENGLAND:
+          return 21;
+        case COUNTRY_CODE_WALES:
+          return 22;
+        case COUNTRY_CODE_NORTHERN_IRELAND:
+          return 24;
+      }
+    } else if (isHouseholdCaseType(caseType) || isSpgCaseType(caseType)) {
+      switch (country) {
+        case COUNTRY_CODE_ENGLAND:
+          return 1;
+        case COUNTRY_CODE_WALES:
+          return 2;
+        case COUNTRY_CODE_NORTHERN_IRELAND:
+          return 4;
+      }
+    } else if (isCE1RequestForEstabCeCase(caseType, addressLevel, individual)) {
+      switch (country) {
+        case COUNTRY_CODE_ENGLAND:
+          return 31;
+        case COUNTRY_CODE_WALES:
+          return 32;
+        case COUNTRY_CODE_NORTHERN_IRELAND:
+          return 34;
+      }
+    } else {
+      throw new IllegalArgumentException(
+          String.format(
+              "Unexpected combination of Case Type, Address level and individual request. treatment code: '%s', address level: '%s', individual request: '%s'",
+              caseType, addressLevel, individual));
+    }
+
+    throw new RuntimeException(
+        String.format(
+            "Unprocessable combination of Case Type, Address level and individual request. treatment code: '%s', address level: '%s', individual request: '%s'",
+            caseType, addressLevel, individual));
+  }
+
+  private static boolean isCE1RequestForEstabCeCase(
+      String treatmentCode, String addressLevel, boolean individual) {
+    return isCeCaseType(treatmentCode) && addressLevel.equals(ADDRESS_LEVEL_ESTAB) && !individual;
+  }
+
+  private static boolean isSpgCaseType(String caseType) {
+    return caseType.equals(CASE_TYPE_SPG);
+  }
+
+  private static boolean isHouseholdCaseType(String caseType) {
+    return caseType.equals(CASE_TYPE_HOUSEHOLD);
+  }
+
+  private static boolean isCeCaseType(String caseType) {
+    return caseType.equals(CASE_TYPE_CE);
+  }
+
+  public static String mapQuestionnaireTypeToFormType(int questionnaireType) {
+    switch (questionnaireType) {
+      case 1:
+      case 2:
+      case 4:
+      case 71:
+        return HH_FORM_TYPE;
+      case 21:
+      case 22:
+      case 24:
+        return IND_FORM_TYPE;
+      case 31:
+      case 32:
+      case 34:
+        return CE1_FORM_TYPE;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Invalid QuestionnaireType: '%d'", questionnaireType));
+    }
+  }
+
+  public static String mapCCSQuestionnaireTypeToFormType(String qid) {
+    int questionnaireType = Integer.parseInt(qid.substring(0, 2));
+
+    switch (questionnaireType) {
+      case 51:
+      case 53:
+      case 71:
+      case 73:
+        return HH_FORM_TYPE;
+      case 81:
+      case 83:
+        return CE1_FORM_TYPE;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,478 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import org.junit.Test;
+
+public class QuestionnaireTypesTest {
+  private static final String[] CASE_TYPES = {"HH", "SPG", "CE", "UN", "hh", "", null};
+  private static final String[] REGIONS = {
+    "E12000009", "W99999999", "N99999999", "Z1000", "e1", ""
+  };
+  private static final String[] ADDRESS_LEVELS = {"U", "E", "NOT_VALID_AL", "e", "EE", "", null};
+  private static final String[] SURVEYS = {"CENSUS", "CCS", "ccs", ""};
+  private static final String ADDRESS_LEVEL_UNIT = "U";
+  private static final String ADDRESS_LEVEL_ESTABLISHMENT = "E";
+
+  @Test
+  public void testQuestionnaireTypesMatchTheRules() {
+    int validCombinations = 0;
+    Set<Integer> questionnaireTypes = new TreeSet<>();
+
+    for (String caseType : CASE_TYPES) {
+      for (String region : REGIONS) {
+        for (String addressLevel : ADDRESS_LEVELS) {
+          for (String survey : SURVEYS) {
+            for (boolean individual : new boolean[] {false, true}) {
+              Outcome expected =
+                  outcomeOf(
+                      () ->
+                          LegacyQuestionnaireTypes.calculateQuestionnaireType(
+                              caseType, region, addressLevel, survey, individual));
+              Outcome actual =
+                  outcomeOf(
+                      () ->
+                          QuestionnaireTypes.calculateQuestionnaireType(
+                              caseType, region, addressLevel, survey, individual));
+              String description =
+                  Arrays.asList(caseType, region, addressLevel, survey, individual).toString();
+
+              if (expected.failure != null && (caseType == null || addressLevel == null)) {
+                // The rules failed on the null, the table reports an unexpected combination
+                assertThat(actual.failure).as(description).isNotNull();
+              } else {
+                assertThat(actual).as(description).isEqualTo(expected);
+              }
+
+              if (expected.failure == null) {
+                validCombinations++;
+                questionnaireTypes.add((Integer) expected.result);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    assertThat(validCombinations).isGreaterThan(0);
+    assertThat(QuestionnaireTypes.getQuestionnaireTypes())
+        .containsExactly(questionnaireTypes.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  @Test
+  public void testFormTypesMatchTheRules() {
+    for (int questionnaireType = -1; questionnaireType <= 101; questionnaireType++) {
+      int type = questionnaireType;
+      assertThat(outcomeOf(() -> QuestionnaireTypes.getFormType(type)))
+          .as("questionnaireType %d", type)
+          .isEqualTo(
+              outcomeOf(() -> LegacyQuestionnaireTypes.mapQuestionnaireTypeToFormType(type)));
+    }
+  }
+
+  @Test
+  public void testCcsFormTypesMatchTheRules() {
+    String characters = "0123456789+- aZ";
+
+    for (char first : characters.toCharArray()) {
+      for (char second : characters.toCharArray()) {
+        String prefix = "" + first + second;
+        for (String qid : new String[] {prefix, prefix + "00000000000000"}) {
+          assertThat(outcomeOf(() -> QuestionnaireTypes.getCcsFormType(qid)))
+              .as("qid '%s'", qid)
+              .isEqualTo(
+                  outcomeOf(() -> LegacyQuestionnaireTypes.mapCCSQuestionnaireTypeToFormType(qid)));
+        }
+      }
+    }
+
+    assertThat(outcomeOf(() -> QuestionnaireTypes.getCcsFormType("7")))
+        .isEqualTo(
+            outcomeOf(() -> LegacyQuestionnaireTypes.mapCCSQuestionnaireTypeToFormType("7")));
+  }
+
+  @Test
+  public void testEveryQuestionnaireTypeHasAFormType() {
+    for (int questionnaireType : QuestionnaireTypes.getQuestionnaireTypes()) {
+      assertThat(QuestionnaireTypes.getFormType(questionnaireType)).isNotNull();
+    }
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForHouseholdEngland() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(1);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForHouseholdWales() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(2);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForHouseholdNI() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(4);
+  }
+
+  @Test
+  public void calculateIndividualQuestionnaireTypeForCeUnitEngland() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(21);
+  }
+
+  @Test
+  public void calculateIndividualQuestionnaireTypeForCeUnitWales() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(22);
+  }
+
+  @Test
+  public void calculateIndividualQuestionnaireTypeForCeUnitNI() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(24);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualHHEngland() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(21);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualHHWales() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(22);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualHHNI() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "HH", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(24);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgEnglandUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(1);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgWalesUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(2);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgNIUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(4);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgEnglandEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(1);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgWalesEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(2);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForSpgNiEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(4);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgEnglandEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(21);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgWalesEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(22);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgNiEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(24);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgEUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(21);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgWUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(22);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualSpgNiUnit() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "SPG", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(24);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualCEEstabEngland() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(21);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualCEEstabWales() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(22);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForIndividualCEEstabNI() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(24);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForNonIndividualCeEEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(31);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForNonIndividualCeWEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(32);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeForNonIndividualCeNiEstab() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType(
+            "CE", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(34);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void calculateQuestionnaireTypeUnKnownCaseType() {
+    // When, then throws
+    QuestionnaireTypes.calculateQuestionnaireType(
+        "UN", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void calculateQuestionnaireTypeUnKnownCountryCode() {
+    // When, then throws
+    QuestionnaireTypes.calculateQuestionnaireType(
+        "HH", "Z1000", ADDRESS_LEVEL_UNIT, "CENSUS", false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void calculateQuestionnaireTypeCeInvalidAddressLevel() {
+    // When, then throws
+    QuestionnaireTypes.calculateQuestionnaireType("CE", "E1000", "NOT_VALID_AL", "CENSUS", false);
+  }
+
+  @Test
+  public void calculateQuestionnaireTypeFoCCSCaseNotInd() {
+    // When
+    int questionnaireType =
+        QuestionnaireTypes.calculateQuestionnaireType("HH", null, ADDRESS_LEVEL_UNIT, "CCS", false);
+
+    // Then
+    assertThat(questionnaireType).isEqualTo(71);
+  }
+
+  private static Outcome outcomeOf(Callable<?> lookup) {
+    try {
+      return new Outcome(lookup.call(), null);
+    } catch (Exception e) {
+      return new Outcome(null, e);
+    }
+  }
+
+  // A result, or the exception thrown instead. The rules' own exceptions must match on message, the
+  // JDK's bounds checks word theirs differently for charAt and substring so only the type matters
+  private static class Outcome {
+    private final Object result;
+    private final Exception failure;
+
+    private Outcome(Object result, Exception failure) {
+      this.result = result;
+      this.failure = failure;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Outcome)) {
+        return false;
+      }
+      Outcome otherOutcome = (Outcome) other;
+      if (failure == null || otherOutcome.failure == null) {
+        return failure == otherOutcome.failure && Objects.equals(result, otherOutcome.result);
+      }
+      if (!failure.getClass().equals(otherOutcome.failure.getClass())) {
+        return false;
+      }
+      return !(failure instanceof IllegalArgumentException)
+          || Objects.equals(failure.getMessage(), otherOutcome.failure.getMessage());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(result, failure == null ? null : failure.getClass());
+    }
+
+    @Override
+    public String toString() {
+      return failure == null ? String.valueOf(result) : failure.toString();
+    }
+  }
+}
@@ -0,0 +1,381 @@
+package uk.gov.ons.census.caseapisvc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createUacQidCreatedPayload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
+
+public class TelephoneCaptureServiceTest {
+  private static final String TEST_QID = "test_qid";
+  private static final String RM_TELEPHONE_CAPTURE = "RM_TC";
+  private static final String RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL = "RM_TC_HI";
+
+  @Mock private UacQidService uacQidService;
+  @Mock private CaseService caseService;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private TelephoneCaptureService underTest;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    underTest = new TelephoneCaptureService(uacQidService, caseService, meterRegistry);
+    ReflectionTestUtils.setField(underTest, "uacQidPoolSize", 1);
+    ReflectionTestUtils.setField(underTest, "uacQidQueueCapacity", 1);
+    ReflectionTestUtils.setField(underTest, "uacQidTimeout", "PT5S");
+    ReflectionTestUtils.setField(underTest, "publishPoolSize", 1);
+    ReflectionTestUtils.setField(underTest, "publishQueueCapacity", 1);
+    ReflectionTestUtils.setField(underTest, "publishTimeout", "PT5S");
+    underTest.init();
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    underTest.shutdown();
+  }
+
+  @Test
+  public void testUacQidIsCreatedThenPublished() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    UacQidCreatedPayloadDTO uacQidCreated = createUacQidCreatedPayload(TEST_QID, caseId);
+    when(uacQidService.createAndLinkUacQid(eq(caseId), eq(1))).thenReturn(uacQidCreated);
+
+    UacQidCreatedPayloadDTO actualUacQidCreated =
+        underTest
+            .createAndSendUacQid(caseId, null, RM_TELEPHONE_CAPTURE, 1)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(actualUacQidCreated).isSameAs(uacQidCreated);
+    verify(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequest(
+            eq(caseId), eq(RM_TELEPHONE_CAPTURE), isNull(), eq(uacQidCreated));
+    assertThat(getStageTimer(TelephoneCaptureService.UAC_QID_STAGE, "success").count())
+        .isEqualTo(1);
+    assertThat(getStageTimer(TelephoneCaptureService.PUBLISH_STAGE, "success").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testIndividualUacQidIsLinkedToTheIndividualCase() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    UUID individualCaseId = UUID.randomUUID();
+    UacQidCreatedPayloadDTO uacQidCreated = createUacQidCreatedPayload(TEST_QID, individualCaseId);
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseId), eq(21)))
+        .thenReturn(uacQidCreated);
+
+    underTest
+        .createAndSendUacQid(
+            caseId, individualCaseId, RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL, 21)
+        .get(5, TimeUnit.SECONDS);
+
+    verify(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequest(
+            eq(caseId),
+            eq(RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL),
+            eq(individualCaseId),
+            eq(uacQidCreated));
+  }
+
+  @Test
+  public void testUacQidsAreCreatedForEachIndividualThenPublishedTogether() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    List<UacQidCreatedPayloadDTO> uacQidsCreated =
+        List.of(
+            createUacQidCreatedPayload("qid1", individualCaseIds.get(0)),
+            createUacQidCreatedPayload("qid2", individualCaseIds.get(1)));
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(0)), eq(21)))
+        .thenReturn(uacQidsCreated.get(0));
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(1)), eq(21)))
+        .thenReturn(uacQidsCreated.get(1));
+
+    Map<UUID, UacQidCreatedPayloadDTO> actualUacQidsCreated =
+        underTest
+            .createAndSendUacQids(
+                caseId, individualCaseIds, RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL, 21)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(actualUacQidsCreated)
+        .containsExactly(
+            entry(individualCaseIds.get(0), uacQidsCreated.get(0)),
+            entry(individualCaseIds.get(1), uacQidsCreated.get(1)));
+    verify(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequests(
+            eq(caseId),
+            eq(RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL),
+            eq(individualCaseIds),
+            eq(uacQidsCreated));
+    assertThat(getStageTimer(TelephoneCaptureService.UAC_QID_STAGE, "success").count())
+        .isEqualTo(2);
+    assertThat(getStageTimer(TelephoneCaptureService.PUBLISH_STAGE, "success").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testIndividualsWhosePairsWereFetchedAreStillPublished() throws Exception {
+    UUID caseId = UUID.randomUUID();
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    UacQidCreatedPayloadDTO uacQidCreated =
+        createUacQidCreatedPayload(TEST_QID, individualCaseIds.get(0));
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(0)), anyInt()))
+        .thenReturn(uacQidCreated);
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(1)), anyInt()))
+        .thenThrow(new RuntimeException("UAC QID service is down"));
+
+    Map<UUID, UacQidCreatedPayloadDTO> actualUacQidsCreated =
+        underTest
+            .createAndSendUacQids(
+                caseId, individualCaseIds, RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL, 21)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(actualUacQidsCreated)
+        .containsExactly(entry(individualCaseIds.get(0), uacQidCreated));
+    verify(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequests(
+            eq(caseId),
+            eq(RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL),
+            eq(List.of(individualCaseIds.get(0))),
+            eq(List.of(uacQidCreated)));
+  }
+
+  @Test
+  public void testIndividualsWhoseFulfilmentWasNotSentAreLeftOut() throws Exception {
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    UacQidCreatedPayloadDTO uacQidCreated =
+        createUacQidCreatedPayload(TEST_QID, individualCaseIds.get(0));
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(0)), anyInt()))
+        .thenReturn(uacQidCreated);
+    when(uacQidService.createAndLinkUacQid(eq(individualCaseIds.get(1)), anyInt()))
+        .thenReturn(createUacQidCreatedPayload("qid2", individualCaseIds.get(1)));
+    when(caseService.buildAndSendTelephoneCaptureFulfilmentRequests(any(), any(), any(), any()))
+        .thenReturn(Map.of(individualCaseIds.get(1), new RuntimeException("Nacked")));
+
+    Map<UUID, UacQidCreatedPayloadDTO> actualUacQidsCreated =
+        underTest
+            .createAndSendUacQids(
+                UUID.randomUUID(),
+                individualCaseIds,
+                RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL,
+                21)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(actualUacQidsCreated)
+        .containsExactly(entry(individualCaseIds.get(0), uacQidCreated));
+  }
+
+  @Test
+  public void testNothingIsPublishedWhenNoUacQidCanBeFetched() {
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    RuntimeException uacQidFailure = new RuntimeException("UAC QID service is down");
+    when(uacQidService.createAndLinkUacQid(any(), anyInt())).thenThrow(uacQidFailure);
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest
+                    .createAndSendUacQids(
+                        UUID.randomUUID(),
+                        individualCaseIds,
+                        RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL,
+                        21)
+                    .get(5, TimeUnit.SECONDS));
+
+    assertThat(thrown.getCause()).isSameAs(uacQidFailure);
+    verify(caseService, never())
+        .buildAndSendTelephoneCaptureFulfilmentRequests(any(), any(), any(), any());
+  }
+
+  @Test
+  public void testRequestFailsWhenNoFulfilmentIsSent() {
+    List<UUID> individualCaseIds = List.of(UUID.randomUUID());
+    RuntimeException publishFailure = new RuntimeException("Rabbit is down");
+    when(uacQidService.createAndLinkUacQid(any(), anyInt()))
+        .thenReturn(createUacQidCreatedPayload(TEST_QID));
+    when(caseService.buildAndSendTelephoneCaptureFulfilmentRequests(any(), any(), any(), any()))
+        .thenReturn(Map.of(individualCaseIds.get(0), publishFailure));
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest
+                    .createAndSendUacQids(
+                        UUID.randomUUID(),
+                        individualCaseIds,
+                        RM_TELEPHONE_CAPTURE_HOUSEHOLD_INDIVIDUAL,
+                        21)
+                    .get(5, TimeUnit.SECONDS));
+
+    assertThat(thrown.getCause()).isSameAs(publishFailure);
+  }
+
+  @Test
+  public void testUacQidTimeoutSkipsThePublish() {
+    ReflectionTestUtils.setField(underTest, "uacQidTimeout", "PT0.1S");
+    when(uacQidService.createAndLinkUacQid(any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              release.await();
+              return createUacQidCreatedPayload(TEST_QID);
+            });
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest
+                    .createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1)
+                    .get(5, TimeUnit.SECONDS));
+
+    assertThat(thrown).isInstanceOf(ExecutionException.class);
+    assertThat(thrown.getCause()).isInstanceOf(TimeoutException.class);
+    verify(caseService, never())
+        .buildAndSendTelephoneCaptureFulfilmentRequest(any(), any(), any(), any());
+    assertThat(getStageTimer(TelephoneCaptureService.UAC_QID_STAGE, "timeout").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testStartedPublishIsWaitedForPastItsTimeout() throws Exception {
+    ReflectionTestUtils.setField(underTest, "publishTimeout", "PT0.1S");
+    UacQidCreatedPayloadDTO uacQidCreated = createUacQidCreatedPayload(TEST_QID);
+    when(uacQidService.createAndLinkUacQid(any(), anyInt())).thenReturn(uacQidCreated);
+    doAnswer(
+            invocation -> {
+              Thread.sleep(300);
+              return null;
+            })
+        .when(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequest(any(), any(), any(), any());
+
+    UacQidCreatedPayloadDTO actualUacQidCreated =
+        underTest
+            .createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(actualUacQidCreated).isSameAs(uacQidCreated);
+    assertThat(getStageTimer(TelephoneCaptureService.PUBLISH_STAGE, "success").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testPublishStillQueuedAtItsTimeoutIsNeverSent() throws Exception {
+    ReflectionTestUtils.setField(underTest, "publishTimeout", "PT0.1S");
+    UUID blockingCaseId = UUID.randomUUID();
+    UUID queuedCaseId = UUID.randomUUID();
+    CountDownLatch publishStarted = new CountDownLatch(1);
+    when(uacQidService.createAndLinkUacQid(any(), anyInt()))
+        .thenReturn(createUacQidCreatedPayload(TEST_QID));
+    doAnswer(
+            invocation -> {
+              publishStarted.countDown();
+              release.await();
+              return null;
+            })
+        .when(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequest(eq(blockingCaseId), any(), any(), any());
+
+    CompletableFuture<UacQidCreatedPayloadDTO> blocking =
+        underTest.createAndSendUacQid(blockingCaseId, null, RM_TELEPHONE_CAPTURE, 1);
+    assertThat(publishStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest
+                    .createAndSendUacQid(queuedCaseId, null, RM_TELEPHONE_CAPTURE, 1)
+                    .get(5, TimeUnit.SECONDS));
+    release.countDown();
+    blocking.get(5, TimeUnit.SECONDS);
+    underTest.shutdown();
+    ((ExecutorService) ReflectionTestUtils.getField(underTest, "publishExecutor"))
+        .awaitTermination(5, TimeUnit.SECONDS);
+
+    assertThat(thrown.getCause()).isInstanceOf(TimeoutException.class);
+    verify(caseService, never())
+        .buildAndSendTelephoneCaptureFulfilmentRequest(eq(queuedCaseId), any(), any(), any());
+    assertThat(getStageTimer(TelephoneCaptureService.PUBLISH_STAGE, "timeout").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testPublishFailureIsReturned() {
+    when(uacQidService.createAndLinkUacQid(any(), anyInt()))
+        .thenReturn(createUacQidCreatedPayload(TEST_QID));
+    RuntimeException publishFailure = new RuntimeException("Rabbit is down");
+    doThrow(publishFailure)
+        .when(caseService)
+        .buildAndSendTelephoneCaptureFulfilmentRequest(any(), any(), any(), any());
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                underTest
+                    .createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1)
+                    .get(5, TimeUnit.SECONDS));
+
+    assertThat(thrown.getCause()).isSameAs(publishFailure);
+    assertThat(getStageTimer(TelephoneCaptureService.PUBLISH_STAGE, "error").count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testFullExecutorRejectsTheRequest() {
+    when(uacQidService.createAndLinkUacQid(any(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              release.await();
+              return createUacQidCreatedPayload(TEST_QID);
+            });
+
+    // One running and one queued fills the single thread pool
+    underTest.createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1);
+    underTest.createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1);
+    CompletableFuture<UacQidCreatedPayloadDTO> rejected =
+        underTest.createAndSendUacQid(UUID.randomUUID(), null, RM_TELEPHONE_CAPTURE, 1);
+
+    Throwable thrown = catchThrowable(() -> rejected.get(5, TimeUnit.SECONDS));
+
+    assertThat(thrown.getCause()).isInstanceOf(RejectedExecutionException.class);
+    assertThat(getStageTimer(TelephoneCaptureService.UAC_QID_STAGE, "rejected").count())
+        .isEqualTo(1);
+  }
+
+  private Timer getStageTimer(String stage, String outcome) {
+    return meterRegistry
+        .get("telephonecapture.stage")
+        .tag("stage", stage)
+        .tag("outcome", outcome)
+        .timer();
+  }
+}
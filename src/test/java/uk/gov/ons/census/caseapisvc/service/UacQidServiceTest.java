@@ -3,40 +3,52 @@ package uk.gov.ons.census.caseapisvc.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.CREATED_UAC;
 import static uk.gov.ons.census.caseapisvc.utility.DataUtils.createUacQidCreatedPayload;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.cache.QidCache;
+import uk.gov.ons.census.caseapisvc.client.UacQidBuffer;
 import uk.gov.ons.census.caseapisvc.client.UacQidServiceClient;
+import uk.gov.ons.census.caseapisvc.datasource.PrimaryReader;
 import uk.gov.ons.census.caseapisvc.exception.QidNotFoundException;
+import uk.gov.ons.census.caseapisvc.messaging.EventSender;
 import uk.gov.ons.census.caseapisvc.model.dto.NewQidLink;
 import uk.gov.ons.census.caseapisvc.model.dto.ResponseManagementEvent;
 import uk.gov.ons.census.caseapisvc.model.dto.UacQidCreatedPayloadDTO;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
 import uk.gov.ons.census.caseapisvc.model.entity.UacQidLink;
+import uk.gov.ons.census.caseapisvc.model.projection.QidCaseSummary;
 import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
 import uk.gov.ons.census.caseapisvc.utility.DataUtils;
 
 public class UacQidServiceTest {
 
   private String NEW_QID = "newly created QID";
-  private String ADDRESS_LEVEL_UNIT = "U";
-  private String ADDRESS_LEVEL_ESTABLISHMENT = "E";
   private int TEST_QUESTIONNAIRE_TYPE = 1;
 
   @Mock private UacQidServiceClient uacQidServiceClient;
-  @Mock private RabbitTemplate rabbitTemplate;
+  @Mock private UacQidBuffer uacQidBuffer;
+  @Mock private EventSender eventSender;
   @Mock private UacQidLinkRepository uacQidLinkRepository;
+  private final PrimaryReader primaryReader =
+      new PrimaryReader(mock(PlatformTransactionManager.class), mock(EntityManagerFactory.class));
+  @Spy private QidCache qidCache = new QidCache(new SimpleMeterRegistry(), primaryReader);
 
   @InjectMocks private UacQidService uacQidService;
 
@@ -63,331 +75,35 @@ public class UacQidServiceTest {
   }
 
   @Test
-  public void createAndLinkUacQidReturnsALovelyObjectWhichIAmVeryFondOf() {
+  public void createAndLinkUacQidTakesPairFromBufferWhenAvailable() {
     // Given
     UUID caseId = UUID.randomUUID();
-    UacQidCreatedPayloadDTO expectedResult = createUacQidCreatedPayload(NEW_QID);
-    when(uacQidServiceClient.generateUacQid(eq(TEST_QUESTIONNAIRE_TYPE)))
-        .thenReturn(expectedResult);
+    when(uacQidBuffer.take(eq(TEST_QUESTIONNAIRE_TYPE)))
+        .thenReturn(Optional.of(createUacQidCreatedPayload(NEW_QID)));
 
     // When
-    UacQidCreatedPayloadDTO actualResult =
+    UacQidCreatedPayloadDTO uacQidCreatedPayload =
         uacQidService.createAndLinkUacQid(caseId, TEST_QUESTIONNAIRE_TYPE);
 
-    assertThat(actualResult).isEqualTo(expectedResult);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForHouseholdEngland() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(1);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForHouseholdWales() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(2);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForHouseholdNI() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(4);
-  }
-
-  @Test
-  public void calculateIndividualQuestionnaireTypeForCeUnitEngland() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("CE", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(21);
-  }
-
-  @Test
-  public void calculateIndividualQuestionnaireTypeForCeUnitWales() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("CE", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(22);
-  }
-
-  @Test
-  public void calculateIndividualQuestionnaireTypeForCeUnitNI() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("CE", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(24);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualHHEngland() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(21);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualHHWales() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(22);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualHHNI() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(24);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgEnglandUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("SPG", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
     // Then
-    assertThat(questionnaireType).isEqualTo(1);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgWalesUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("SPG", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(2);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgNIUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("SPG", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(4);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgEnglandEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(1);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgWalesEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(2);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForSpgNiEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS");
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(4);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgEnglandEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(21);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgWalesEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(22);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgNiEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(24);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgEUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(21);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgWUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "W1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(22);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualSpgNiUnit() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "SPG", "N1000", ADDRESS_LEVEL_UNIT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(24);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualCEEstabEngland() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(21);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualCEEstabWales() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(22);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForIndividualCEEstabNI() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", true);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(24);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForNonIndividualCeEEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "E1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(31);
-  }
-
-  @Test
-  public void calculateQuestionnaireTypeForNonIndividualCeWEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "W1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(32);
+    assertThat(uacQidCreatedPayload.getCaseId()).isEqualTo(caseId);
+    assertThat(uacQidCreatedPayload.getQid()).isEqualTo(NEW_QID);
+    verify(uacQidServiceClient, never()).generateUacQid(TEST_QUESTIONNAIRE_TYPE);
   }
 
   @Test
-  public void calculateQuestionnaireTypeForNonIndividualCeNiEstab() {
-    // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType(
-            "CE", "N1000", ADDRESS_LEVEL_ESTABLISHMENT, "CENSUS", false);
-
-    // Then
-    assertThat(questionnaireType).isEqualTo(34);
-  }
-
-  @Test(expected = IllegalArgumentException.class)
-  public void calculateQuestionnaireTypeUnKnownCaseType() {
-    // When, then throws
-    UacQidService.calculateQuestionnaireType("UN", "E1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-  }
-
-  @Test(expected = IllegalArgumentException.class)
-  public void calculateQuestionnaireTypeUnKnownCountryCode() {
-    // When, then throws
-    UacQidService.calculateQuestionnaireType("HH", "Z1000", ADDRESS_LEVEL_UNIT, "CENSUS");
-  }
-
-  @Test(expected = IllegalArgumentException.class)
-  public void calculateQuestionnaireTypeCeInvalidAddressLevel() {
-    // When, then throws
-    UacQidService.calculateQuestionnaireType("CE", "E1000", "NOT_VALID_AL", "CENSUS");
-  }
+  public void createAndLinkUacQidReturnsALovelyObjectWhichIAmVeryFondOf() {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    UacQidCreatedPayloadDTO expectedResult = createUacQidCreatedPayload(NEW_QID);
+    when(uacQidServiceClient.generateUacQid(eq(TEST_QUESTIONNAIRE_TYPE)))
+        .thenReturn(expectedResult);
 
-  @Test
-  public void calculateQuestionnaireTypeFoCCSCaseNotInd() {
     // When
-    int questionnaireType =
-        UacQidService.calculateQuestionnaireType("HH", null, ADDRESS_LEVEL_UNIT, "CCS", false);
+    UacQidCreatedPayloadDTO actualResult =
+        uacQidService.createAndLinkUacQid(caseId, TEST_QUESTIONNAIRE_TYPE);
 
-    // Then
-    assertThat(questionnaireType).isEqualTo(71);
+    assertThat(actualResult).isEqualTo(expectedResult);
   }
 
   @Test
@@ -403,12 +119,13 @@ public class UacQidServiceTest {
     newQidLink.setTransactionId(UUID.randomUUID());
 
     // When
-    uacQidService.buildAndSendQuestionnaireLinkedEvent(uacQidLink, caseToLink, newQidLink);
+    uacQidService.buildAndSendQuestionnaireLinkedEvent(
+        uacQidLink.getQid(), caseToLink, newQidLink);
 
     // Then
     ArgumentCaptor<ResponseManagementEvent> eventArgumentCaptor =
         ArgumentCaptor.forClass(ResponseManagementEvent.class);
-    verify(rabbitTemplate).convertAndSend(any(), any(), eventArgumentCaptor.capture());
+    verify(eventSender).sendEvent(any(), any(), eventArgumentCaptor.capture());
     ResponseManagementEvent actualSentEvent = eventArgumentCaptor.getValue();
 
     assertThat(actualSentEvent.getPayload().getUac().getCaseId()).isEqualTo(caseToLink.getCaseId());
@@ -422,25 +139,26 @@ public class UacQidServiceTest {
   }
 
   @Test
-  public void findUacQidLinkByQid() {
+  public void findQidCaseSummaryByQid() {
     // Given
-    UacQidLink uacQidLink = new UacQidLink();
-    uacQidLink.setQid(NEW_QID);
-    when(uacQidLinkRepository.findByQid(uacQidLink.getQid())).thenReturn(Optional.of(uacQidLink));
+    QidCaseSummary qidCaseSummary =
+        new QidCaseSummary(NEW_QID, UUID.randomUUID(), "HH", true, false);
+    when(uacQidLinkRepository.findQidCaseSummaryByQid(NEW_QID))
+        .thenReturn(Optional.of(qidCaseSummary));
 
     // When
-    UacQidLink actualUacQidLink = uacQidService.findUacQidLinkByQid(uacQidLink.getQid());
+    QidCaseSummary actualQidCaseSummary = uacQidService.findQidCaseSummaryByQid(NEW_QID);
 
     // Then
-    assertThat(actualUacQidLink).isEqualTo(uacQidLink);
+    assertThat(actualQidCaseSummary).isEqualTo(qidCaseSummary);
   }
 
   @Test(expected = QidNotFoundException.class)
-  public void findUacQidLinkByQidRaisesQidNotFound() {
+  public void findQidCaseSummaryByQidRaisesQidNotFound() {
     // Given
-    when(uacQidLinkRepository.findByQid(NEW_QID)).thenReturn(Optional.empty());
+    when(uacQidLinkRepository.findQidCaseSummaryByQid(NEW_QID)).thenReturn(Optional.empty());
 
     // When
-    uacQidService.findUacQidLinkByQid(NEW_QID);
+    uacQidService.findQidCaseSummaryByQid(NEW_QID);
   }
 }
@@ -1,13 +1,23 @@
 package uk.gov.ons.census.caseapisvc.validation;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.Assert.fail;
 
+import java.util.List;
 import java.util.UUID;
 import org.junit.Test;
 import org.springframework.web.server.ResponseStatusException;
 import uk.gov.ons.census.caseapisvc.model.entity.Case;
 
 public class RequestValidatorTest {
+  private static final String[] SURVEYS = {"CENSUS", "CCS", "ccs", ""};
+  private static final String[] CASE_TYPES = {"HH", "SPG", "CE", "UN", "hh", ""};
+  private static final String[] ADDRESS_LEVELS = {"U", "E", "NOT_VALID_AL", "e", ""};
+
+  private final RequestValidator underTest =
+      new RequestValidator(new RequestValidationProperties());
+
   @Test
   public void testAllTheValidGetNewQidByCaseIdRequests() {
     testValidGetNewQidByCaseIdCombination("HH", "U", "CENSUS", false, null);
@@ -50,7 +60,7 @@ public class RequestValidatorTest {
     caze.setCaseId(UUID.randomUUID());
     caze.setSurvey("CCS");
 
-    RequestValidator.validateGetNewQidByCaseIdRequest(caze, true, null);
+    underTest.validateGetNewQidByCaseIdRequest(caze, true, null);
   }
 
   @Test(expected = ResponseStatusException.class)
@@ -60,7 +70,104 @@ public class RequestValidatorTest {
     caze.setSurvey("CCS");
     caze.setCaseType("CE");
 
-    RequestValidator.validateGetNewQidByCaseIdRequest(caze, false, null);
+    underTest.validateGetNewQidByCaseIdRequest(caze, false, null);
+  }
+
+  @Test
+  public void testCompiledRulesMatchTheRules() {
+    int invalidRequests = 0;
+
+    for (String survey : SURVEYS) {
+      for (String caseType : CASE_TYPES) {
+        for (String addressLevel : ADDRESS_LEVELS) {
+          for (boolean individual : new boolean[] {false, true}) {
+            for (UUID individualCaseId : new UUID[] {null, UUID.randomUUID()}) {
+              Case caze = new Case();
+              caze.setSurvey(survey);
+              caze.setCaseType(caseType);
+              caze.setAddressLevel(addressLevel);
+
+              boolean expectedValid =
+                  isValid(
+                      () ->
+                          LegacyRequestValidator.validateGetNewQidByCaseIdRequest(
+                              caze, individual, individualCaseId));
+              boolean actualValid =
+                  isValid(
+                      () ->
+                          underTest.validateGetNewQidByCaseIdRequest(
+                              caze, individual, individualCaseId));
+
+              assertThat(actualValid)
+                  .as(
+                      "%s %s %s individual %s individualCaseId %s",
+                      survey, caseType, addressLevel, individual, individualCaseId)
+                  .isEqualTo(expectedValid);
+              if (!expectedValid) {
+                invalidRequests++;
+              }
+            }
+          }
+        }
+      }
+    }
+
+    assertThat(invalidRequests).isGreaterThan(0);
+  }
+
+  @Test
+  public void testConfiguredRulesReplaceTheDefaults() {
+    RequestValidationProperties.Rule allowCeUnit = new RequestValidationProperties.Rule();
+    allowCeUnit.setCaseType("CE");
+    allowCeUnit.setAddressLevel("U");
+    allowCeUnit.setValid(true);
+    RequestValidationProperties.Rule denyIndividuals = new RequestValidationProperties.Rule();
+    denyIndividuals.setIndividual(true);
+    RequestValidationProperties requestValidationProperties = new RequestValidationProperties();
+    requestValidationProperties.setGetNewQidRules(List.of(allowCeUnit, denyIndividuals));
+    RequestValidator configuredValidator = new RequestValidator(requestValidationProperties);
+
+    Case ceUnit = new Case();
+    ceUnit.setSurvey("CENSUS");
+    ceUnit.setCaseType("CE");
+    ceUnit.setAddressLevel("U");
+    Case household = new Case();
+    household.setSurvey("CENSUS");
+    household.setCaseType("HH");
+    household.setAddressLevel("U");
+
+    configuredValidator.validateGetNewQidByCaseIdRequest(ceUnit, false, null);
+    configuredValidator.validateGetNewQidByCaseIdRequest(ceUnit, true, UUID.randomUUID());
+    configuredValidator.validateGetNewQidByCaseIdRequest(household, false, UUID.randomUUID());
+    assertThat(
+            isValid(
+                () ->
+                    configuredValidator.validateGetNewQidByCaseIdRequest(
+                        household, true, UUID.randomUUID())))
+        .isFalse();
+  }
+
+  @Test
+  public void testConfiguredRuleWithUnknownCaseTypeFails() {
+    RequestValidationProperties.Rule rule = new RequestValidationProperties.Rule();
+    rule.setCaseType("HI");
+    RequestValidationProperties requestValidationProperties = new RequestValidationProperties();
+    requestValidationProperties.setGetNewQidRules(List.of(rule));
+
+    Throwable thrown = catchThrowable(() -> new RequestValidator(requestValidationProperties));
+
+    assertThat(thrown)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unknown case type 'HI' in request validation rule");
+  }
+
+  private static boolean isValid(Runnable validation) {
+    try {
+      validation.run();
+      return true;
+    } catch (ResponseStatusException e) {
+      return false;
+    }
   }
 
   private void testValidGetNewQidByCaseIdCombination(
@@ -76,7 +183,7 @@ public class RequestValidatorTest {
     caze.setAddressLevel(addressLevel);
     caze.setSurvey(surveyType);
 
-    RequestValidator.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
+    underTest.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
   }
 
   private void testInvalidGetNewQidByCaseIdCombination(
@@ -99,7 +206,7 @@ public class RequestValidatorTest {
     caze.setSurvey(surveyType);
 
     try {
-      RequestValidator.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
+      underTest.validateGetNewQidByCaseIdRequest(caze, individual, individualCaseId);
 
     } catch (ResponseStatusException responseStatusException) {
       // It worked
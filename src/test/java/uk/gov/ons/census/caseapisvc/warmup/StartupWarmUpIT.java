@@ -0,0 +1,27 @@
+package uk.gov.ons.census.caseapisvc.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "warmup.enabled=true")
+@ActiveProfiles("test")
+public class StartupWarmUpIT {
+  @Autowired private WarmUpHealthIndicator warmUpHealthIndicator;
+
+  @Test
+  public void testEveryWarmUpQueryRunsAgainstTheSchema() {
+    Health health = warmUpHealthIndicator.health();
+
+    assertThat(health.getStatus()).isEqualTo(Status.UP);
+    assertThat(health.getDetails()).containsKey("durationMs").doesNotContainKey("error");
+  }
+}
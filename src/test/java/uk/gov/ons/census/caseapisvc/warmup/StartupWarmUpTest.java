@@ -0,0 +1,119 @@
+package uk.gov.ons.census.caseapisvc.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import javax.persistence.EntityManager;
+import ma.glasnost.orika.MapperFacade;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.ons.census.caseapisvc.config.AppConfig;
+import uk.gov.ons.census.caseapisvc.mapping.CaseEventAssembler;
+import uk.gov.ons.census.caseapisvc.model.entity.Case;
+import uk.gov.ons.census.caseapisvc.model.repository.CaseRepository;
+import uk.gov.ons.census.caseapisvc.model.repository.UacQidLinkRepository;
+
+public class StartupWarmUpTest {
+  private static final int QUERY_ITERATIONS = 3;
+
+  @Mock private CaseRepository caseRepo;
+  @Mock private UacQidLinkRepository uacQidLinkRepository;
+  @Mock private EntityManager entityManager;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private SimpleMeterRegistry meterRegistry;
+  private StartupWarmUp underTest;
+  private WarmUpHealthIndicator healthIndicator;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(entityManager.getReference(eq(Case.class), any())).thenReturn(new Case());
+
+    MapperFacade mapperFacade = new AppConfig().mapperFacade();
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    meterRegistry = new SimpleMeterRegistry();
+    underTest =
+        new StartupWarmUp(
+            caseRepo,
+            uacQidLinkRepository,
+            entityManager,
+            transactionManager,
+            mapperFacade,
+            new CaseEventAssembler(mapperFacade),
+            objectMapper,
+            meterRegistry);
+    ReflectionTestUtils.setField(underTest, "enabled", true);
+    ReflectionTestUtils.setField(underTest, "queryIterations", QUERY_ITERATIONS);
+    ReflectionTestUtils.setField(underTest, "mappingIterations", 2);
+    healthIndicator = new WarmUpHealthIndicator(underTest);
+  }
+
+  @Test
+  public void testWarmingUpUntilWarmUpHasRun() {
+    assertThat(healthIndicator.health().getStatus()).isEqualTo(WarmUpHealthIndicator.WARMING_UP);
+
+    underTest.run(null);
+
+    Health health = healthIndicator.health();
+    assertThat(health.getStatus()).isEqualTo(Status.UP);
+    assertThat(health.getDetails()).containsKey("durationMs").doesNotContainKey("error");
+    assertThat(meterRegistry.get("startup.warmup").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testQueriesRunInAReadOnlyTransactionEachIteration() {
+    underTest.run(null);
+
+    verify(transactionManager, times(QUERY_ITERATIONS))
+        .getTransaction(argThat(definition -> definition.isReadOnly()));
+    verify(caseRepo, times(QUERY_ITERATIONS)).findByCaseId(any());
+    verify(caseRepo, times(QUERY_ITERATIONS)).streamByNormalisedPostcode(anyString());
+    verify(caseRepo, times(QUERY_ITERATIONS)).fetchEventsByCaseIn(any());
+    verify(uacQidLinkRepository, times(QUERY_ITERATIONS)).findQidCaseSummaryByQid(anyString());
+    verify(uacQidLinkRepository, times(QUERY_ITERATIONS)).fetchEventsByCazeIn(any());
+  }
+
+  @Test
+  public void testFailedWarmUpIsReportedButStillUp() {
+    when(caseRepo.findByUprn(anyString())).thenThrow(new RuntimeException("Database down"));
+
+    underTest.run(null);
+
+    Health health = healthIndicator.health();
+    assertThat(health.getStatus()).isEqualTo(Status.UP);
+    assertThat(health.getDetails()).containsKey("error");
+    assertThat(meterRegistry.get("startup.warmup").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledWarmUpIsUpWithoutRunning() {
+    ReflectionTestUtils.setField(underTest, "enabled", false);
+
+    underTest.run(null);
+
+    assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+    verifyZeroInteractions(caseRepo, uacQidLinkRepository, transactionManager);
+    assertThat(meterRegistry.get("startup.warmup").timer().count()).isZero();
+  }
+}
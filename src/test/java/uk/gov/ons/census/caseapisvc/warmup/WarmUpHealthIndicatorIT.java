@@ -0,0 +1,59 @@
+package uk.gov.ons.census.caseapisvc.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.HealthEndpointGroup;
+import org.springframework.boot.actuate.health.HealthEndpointGroups;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class WarmUpHealthIndicatorIT {
+  @MockBean private StartupWarmUp startupWarmUp;
+
+  @Autowired private HealthEndpoint healthEndpoint;
+  @Autowired private HealthEndpointGroups healthEndpointGroups;
+
+  @Before
+  public void setUp() {
+    when(startupWarmUp.isComplete()).thenReturn(false);
+  }
+
+  @Test
+  public void testOnlyReadinessIsHeldBackWhileWarmingUp() {
+    HealthEndpointGroup readiness = healthEndpointGroups.get("readiness");
+    Status readinessStatus = healthEndpoint.healthForPath("readiness").getStatus();
+
+    assertThat(readinessStatus).isEqualTo(WarmUpHealthIndicator.WARMING_UP);
+    assertThat(readiness.getHttpCodeStatusMapper().getStatusCode(readinessStatus)).isEqualTo(503);
+    assertThat(healthEndpoint.health().getStatus()).isEqualTo(Status.UP);
+    assertThat(healthEndpoint.healthForPath("liveness").getStatus()).isEqualTo(Status.UP);
+    assertThat(healthEndpointGroups.get("liveness").isMember("warmUp")).isFalse();
+  }
+
+  @Test
+  public void testReadyOnceWarmedUp() {
+    when(startupWarmUp.isComplete()).thenReturn(true);
+
+    Status readinessStatus = healthEndpoint.healthForPath("readiness").getStatus();
+
+    assertThat(readinessStatus).isEqualTo(Status.UP);
+    assertThat(
+            healthEndpointGroups
+                .get("readiness")
+                .getHttpCodeStatusMapper()
+                .getStatusCode(readinessStatus))
+        .isEqualTo(200);
+  }
+}